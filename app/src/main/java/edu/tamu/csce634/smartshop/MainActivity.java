@@ -1,5 +1,6 @@
 package edu.tamu.csce634.smartshop;
 
+import android.content.Context;
 import android.os.Bundle;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
@@ -11,8 +12,11 @@ import androidx.navigation.Navigation;
 import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 
+import edu.tamu.csce634.smartshop.data.StoreLayoutRegistry;
+import edu.tamu.csce634.smartshop.data.WriteBehindStore;
 import edu.tamu.csce634.smartshop.databinding.ActivityMainBinding;
 import edu.tamu.csce634.smartshop.managers.RecipeManager;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -22,8 +26,12 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        // Initialize RecipeManager with context
-        RecipeManager.getInstance(this);
+        // Load the recipe catalog index and saved cart off the UI thread
+        Context appContext = getApplicationContext();
+        AppExecutors.runInBackground(() -> RecipeManager.getInstance(appContext));
+
+        // Parse the user's store layout and its distances before the map is opened
+        StoreLayoutRegistry.getInstance(this).prefetchPreferredStore();
 
         binding = ActivityMainBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
@@ -66,4 +74,11 @@ public class MainActivity extends AppCompatActivity {
         });
 
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Make pending cart / preference / stats updates durable before we may be killed
+        WriteBehindStore.syncAll();
+    }
+}
@@ -1,12 +1,11 @@
 package edu.tamu.csce634.smartshop.Repository;
 
 import android.app.Application;
-import android.content.Context;
-import android.content.SharedPreferences;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import edu.tamu.csce634.smartshop.data.WriteBehindStore;
 import edu.tamu.csce634.smartshop.models.DailyStats;
 
 public class DailyStatsRepository {
@@ -16,19 +15,20 @@ public class DailyStatsRepository {
     private static final String KEY_CURRENT_FAT = "KEY_CURRENT_FAT";
     private static final String KEY_CURRENT_WATER = "KEY_CURRENT_WATER";
 
-    private SharedPreferences sharedPrefs;
+    // Coalesces bursts of addX() calls into one disk write per flush window
+    private final WriteBehindStore store;
     private MutableLiveData<DailyStats> dailyStatsLiveData = new MutableLiveData<>();
 
     public DailyStatsRepository(Application application) {
-        sharedPrefs = application.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        store = WriteBehindStore.get(application, PREF_NAME);
         loadStats();
     }
 
     private void loadStats() {
-        int calories = sharedPrefs.getInt(KEY_CURRENT_CALORIES, 0);
-        int protein = sharedPrefs.getInt(KEY_CURRENT_PROTEIN, 0);
-        int fat = sharedPrefs.getInt(KEY_CURRENT_FAT, 0);
-        int water = sharedPrefs.getInt(KEY_CURRENT_WATER, 0);
+        int calories = store.getInt(KEY_CURRENT_CALORIES, 0);
+        int protein = store.getInt(KEY_CURRENT_PROTEIN, 0);
+        int fat = store.getInt(KEY_CURRENT_FAT, 0);
+        int water = store.getInt(KEY_CURRENT_WATER, 0);
 
         // CHANGE: postValue -> setValue (immediate update)
         dailyStatsLiveData.setValue(new DailyStats(calories, protein, fat, water));
@@ -48,7 +48,7 @@ public class DailyStatsRepository {
         DailyStats current = getCurrentStats();
         int newCalories = current.getCurrentCalories() + amount;
 
-        sharedPrefs.edit().putInt(KEY_CURRENT_CALORIES, newCalories).apply();
+        store.putInt(KEY_CURRENT_CALORIES, newCalories);
 
         // CHANGE
         dailyStatsLiveData.setValue(
@@ -65,7 +65,7 @@ public class DailyStatsRepository {
         DailyStats current = getCurrentStats();
         int newProtein = current.getCurrentProtein() + amount;
 
-        sharedPrefs.edit().putInt(KEY_CURRENT_PROTEIN, newProtein).apply();
+        store.putInt(KEY_CURRENT_PROTEIN, newProtein);
 
         // CHANGE
         dailyStatsLiveData.setValue(
@@ -82,7 +82,7 @@ public class DailyStatsRepository {
         DailyStats current = getCurrentStats();
         int newFat = current.getCurrentFat() + amount;
 
-        sharedPrefs.edit().putInt(KEY_CURRENT_FAT, newFat).apply();
+        store.putInt(KEY_CURRENT_FAT, newFat);
 
         // CHANGE
         dailyStatsLiveData.setValue(
@@ -99,7 +99,7 @@ public class DailyStatsRepository {
         DailyStats current = getCurrentStats();
         int newWater = current.getCurrentWater() + amount;
 
-        sharedPrefs.edit().putInt(KEY_CURRENT_WATER, newWater).apply();
+        store.putInt(KEY_CURRENT_WATER, newWater);
 
         // CHANGE
         dailyStatsLiveData.setValue(
@@ -113,7 +113,7 @@ public class DailyStatsRepository {
     }
 
     public void resetStats() {
-        sharedPrefs.edit().clear().apply();
+        store.clear();
 
         // CHANGE
         dailyStatsLiveData.setValue(DailyStats.createDefault());
@@ -7,6 +7,7 @@ import android.content.SharedPreferences;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import edu.tamu.csce634.smartshop.data.StoreLayoutRegistry;
 import edu.tamu.csce634.smartshop.models.ProfileData;
 
 public class ProfileRepository {
@@ -35,14 +36,24 @@ public class ProfileRepository {
     private static final String KEY_PREFER_DEALS = "KEY_PREFER_DEALS";
     private static final String KEY_PACKAGE_SIZE_PREF = "KEY_PACKAGE_SIZE_PREF";
 
+    private final Application application;
     private SharedPreferences sharedPrefs;
     private MutableLiveData<ProfileData> profileDataLiveData = new MutableLiveData<>();
 
     public ProfileRepository(Application application) {
+        this.application = application;
         sharedPrefs = application.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         loadProfile();
     }
 
+    /**
+     * The store saved in the profile, without loading the whole profile.
+     */
+    public static String getSavedStore(Context context) {
+        return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_STORE, ProfileData.createDefault().getStore());
+    }
+
     private void loadProfile() {
         ProfileData defaults = ProfileData.createDefault();
         // Basic Info
@@ -111,5 +122,9 @@ public class ProfileRepository {
 
         editor.apply();
         profileDataLiveData.postValue(data);
+
+        // Have the (possibly new) store's layout ready before the map is opened
+        StoreLayoutRegistry.getInstance(application)
+                .prefetch(StoreLayoutRegistry.storeIdFor(data.getStore()));
     }
 }
\ No newline at end of file
@@ -18,6 +18,10 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
@@ -27,16 +31,43 @@ import java.util.List;
 
 import edu.tamu.csce634.smartshop.R;
 import edu.tamu.csce634.smartshop.models.Recipe;
+import edu.tamu.csce634.smartshop.ui.recipedetail.RecipeDetailFragment;
 import edu.tamu.csce634.smartshop.managers.RecipeManager;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
 import edu.tamu.csce634.smartshop.utils.HapticFeedback;
 
 public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeViewHolder> {
-    private List<Recipe> recipes;
+    // Headers are shared and never modified (see RecipeCatalog), so the same object means same content
+    private static final DiffUtil.ItemCallback<Recipe> RECIPE_DIFF = new DiffUtil.ItemCallback<Recipe>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Recipe oldRecipe, @NonNull Recipe newRecipe) {
+            return oldRecipe.getId() == newRecipe.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Recipe oldRecipe, @NonNull Recipe newRecipe) {
+            return oldRecipe == newRecipe;
+        }
+    };
+
+    // Diffs each new list (e.g. search results) against the shown one off the UI thread
+    private final AsyncListDiffer<Recipe> differ;
     public interface OnCartChangedListener { void onCartChanged(); }
     private OnCartChangedListener cartChangedListener;
 
-    public RecipeAdapter(List<Recipe> recipes) {
-        this.recipes = recipes;
+    public RecipeAdapter() {
+        this.differ = new AsyncListDiffer<>(
+                new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(RECIPE_DIFF)
+                        .setBackgroundThreadExecutor(AppExecutors.listDiff())
+                        .build());
+    }
+
+    /**
+     * Show a new recipe list; only rows that were added, removed or moved are updated
+     */
+    public void submitList(List<Recipe> recipes) {
+        differ.submitList(recipes);
     }
 
     public void setOnCartChangedListener(OnCartChangedListener listener) {
@@ -57,7 +88,7 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeView
 
     @Override
     public void onBindViewHolder(@NonNull RecipeViewHolder holder, int position) {
-        Recipe recipe = recipes.get(position);
+        Recipe recipe = differ.getCurrentList().get(position);
         holder.title.setText(recipe.getTitle());
         holder.description.setText(recipe.getDescription());
         holder.image.setImageResource(recipe.getImageResId());
@@ -68,8 +99,9 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeView
         // Info button - navigate to detail page
         holder.btnInfo.setOnClickListener(v -> {
             HapticFeedback.lightClick(v);
+            // Only the id travels; the detail page looks the recipe up in RecipeManager
             Bundle bundle = new Bundle();
-            bundle.putSerializable("recipe", recipe);
+            bundle.putInt(RecipeDetailFragment.ARG_RECIPE_ID, recipe.getId());
             Navigation.findNavController(v).navigate(
                 R.id.action_recipe_to_detail, bundle
             );
@@ -78,7 +110,7 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeView
         // Add button - add to cart
         holder.addButton.setOnClickListener(v -> {
             HapticFeedback.mediumClick(v);
-            RecipeManager.getInstance(v.getContext()).addRecipe(recipe.getTitle());
+            RecipeManager.getInstance(v.getContext()).addRecipe(recipe.getId());
             updateButtonState(holder, recipe);
             notifyCartChanged();
         });
@@ -103,7 +135,7 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeView
         
         final EditText input = new EditText(view.getContext());
         input.setInputType(InputType.TYPE_CLASS_NUMBER);
-        input.setText(String.valueOf(RecipeManager.getInstance(view.getContext()).getQuantity(recipe.getTitle())));
+        input.setText(String.valueOf(RecipeManager.getInstance(view.getContext()).getQuantity(recipe.getId())));
         input.setSelection(input.getText().length());
         builder.setView(input);
         
@@ -113,18 +145,12 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeView
                 try {
                     int newQuantity = Integer.parseInt(text);
                     if (newQuantity >= 0 && newQuantity <= 99) {
-                        // Clear current quantity
-                        int currentQuantity = RecipeManager.getInstance(view.getContext()).getQuantity(recipe.getTitle());
-                        for (int i = 0; i < currentQuantity; i++) {
-                            RecipeManager.getInstance(view.getContext()).removeRecipe(recipe.getTitle());
-                        }
-                        // Set new quantity
-                        for (int i = 0; i < newQuantity; i++) {
-                            RecipeManager.getInstance(view.getContext()).addRecipe(recipe.getTitle());
-                        }
+                        // One step to the new quantity, however far it is
+                        boolean changed = RecipeManager.getInstance(view.getContext())
+                                .setQuantity(recipe.getId(), newQuantity);
                         HapticFeedback.mediumClick(view);
                         updateButtonState(holder, recipe);
-                        notifyCartChanged();
+                        if (changed) notifyCartChanged();
                     } else {
                         Toast.makeText(view.getContext(), "Please enter a number between 0 and 99", Toast.LENGTH_SHORT).show();
                     }
@@ -141,80 +167,74 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeView
     }
 
     private void setupLongPressIncrease(RecipeViewHolder holder, Recipe recipe) {
-        final Handler handler = new Handler(Looper.getMainLooper());
-        final Runnable[] runnable = new Runnable[1];
-        
-        holder.btnIncrease.setOnTouchListener((v, event) -> {
-            switch (event.getAction()) {
-                case MotionEvent.ACTION_DOWN:
-                    // Single click
-                    HapticFeedback.lightClick(v);
-                    RecipeManager.getInstance(v.getContext()).addRecipe(recipe.getTitle());
-                    updateButtonState(holder, recipe);
-                    notifyCartChanged();
-                    
-                    // Start continuous increment after delay
-                    runnable[0] = new Runnable() {
-                        @Override
-                        public void run() {
-                            HapticFeedback.lightClick(v);
-                            RecipeManager.getInstance(v.getContext()).addRecipe(recipe.getTitle());
-                            updateButtonState(holder, recipe);
-                            notifyCartChanged();
-                            handler.postDelayed(this, 150);
-                        }
-                    };
-                    handler.postDelayed(runnable[0], 500);
-                    return true;
-                    
-                case MotionEvent.ACTION_UP:
-                case MotionEvent.ACTION_CANCEL:
-                    if (runnable[0] != null) {
-                        handler.removeCallbacks(runnable[0]);
-                    }
-                    v.performClick();
-                    return true;
-            }
-            return false;
-        });
+        setupRepeatButton(holder.btnIncrease, holder, recipe, 1);
     }
 
     private void setupLongPressDecrease(RecipeViewHolder holder, Recipe recipe) {
+        setupRepeatButton(holder.btnDecrease, holder, recipe, -1);
+    }
+
+    /**
+     * Press-and-hold stepping. All steps of one press are collected in a CartTransaction
+     * and shown from its pending quantity; the cart is updated (one aggregation, one
+     * journal entry) and listeners notified once, when the press ends.
+     */
+    private void setupRepeatButton(View button, RecipeViewHolder holder, Recipe recipe, int step) {
         final Handler handler = new Handler(Looper.getMainLooper());
         final Runnable[] runnable = new Runnable[1];
-        
-        holder.btnDecrease.setOnTouchListener((v, event) -> {
+        final RecipeManager.CartTransaction[] pending = new RecipeManager.CartTransaction[1];
+        final int recipeId = recipe.getId();
+
+        // Ends the press: apply the collected steps and refresh once
+        final Runnable finish = () -> {
+            if (runnable[0] != null) {
+                handler.removeCallbacks(runnable[0]);
+                runnable[0] = null;
+            }
+            if (pending[0] != null) {
+                boolean changed = pending[0].commit();
+                pending[0] = null;
+                updateButtonState(holder, recipe);
+                if (changed) notifyCartChanged();
+            }
+        };
+
+        button.setOnTouchListener((v, event) -> {
             switch (event.getAction()) {
                 case MotionEvent.ACTION_DOWN:
                     // Single click
                     HapticFeedback.lightClick(v);
-                    RecipeManager.getInstance(v.getContext()).removeRecipe(recipe.getTitle());
-                    updateButtonState(holder, recipe);
-                    notifyCartChanged();
-                    
-                    // Start continuous decrement after delay
+                    pending[0] = RecipeManager.getInstance(v.getContext()).beginTransaction();
+                    pending[0].add(recipeId, step);
+                    showQuantity(holder, pending[0].getQuantity(recipeId));
+                    if (pending[0].getQuantity(recipeId) == 0) {
+                        // Controls are hidden at zero, so the press may never see its release
+                        finish.run();
+                        return true;
+                    }
+
+                    // Start continuous stepping after delay
                     runnable[0] = new Runnable() {
                         @Override
                         public void run() {
-                            if (RecipeManager.getInstance(v.getContext()).getQuantity(recipe.getTitle()) > 0) {
-                                HapticFeedback.lightClick(v);
-                                RecipeManager.getInstance(v.getContext()).removeRecipe(recipe.getTitle());
-                                updateButtonState(holder, recipe);
-                                notifyCartChanged();
-                                handler.postDelayed(this, 150);
+                            if (pending[0] == null) return;
+                            HapticFeedback.lightClick(v);
+                            pending[0].add(recipeId, step);
+                            int quantity = pending[0].getQuantity(recipeId);
+                            showQuantity(holder, quantity);
+                            if (quantity == 0) {
+                                finish.run();
                             } else {
-                                handler.removeCallbacks(this);
+                                handler.postDelayed(this, 150);
                             }
                         }
                     };
                     handler.postDelayed(runnable[0], 500);
                     return true;
-                    
+
                 case MotionEvent.ACTION_UP:
                 case MotionEvent.ACTION_CANCEL:
-                    if (runnable[0] != null) {
-                        handler.removeCallbacks(runnable[0]);
-                    }
+                    finish.run();
                     v.performClick();
                     return true;
             }
@@ -223,8 +243,10 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeView
     }
 
     private void updateButtonState(RecipeViewHolder holder, Recipe recipe) {
-        int quantity = RecipeManager.getInstance(holder.itemView.getContext()).getQuantity(recipe.getTitle());
-        
+        showQuantity(holder, RecipeManager.getInstance(holder.itemView.getContext()).getQuantity(recipe.getId()));
+    }
+
+    private void showQuantity(RecipeViewHolder holder, int quantity) {
         if (quantity > 0) {
             holder.addButton.setVisibility(View.GONE);
             holder.quantityControls.setVisibility(View.VISIBLE);
@@ -237,11 +259,11 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeView
 
     @Override
     public int getItemCount() {
-        return recipes.size();
+        return differ.getCurrentList().size();
     }
 
     public Recipe getRecipeAt(int position) {
-        return recipes.get(position);
+        return differ.getCurrentList().get(position);
     }
 
     static class RecipeViewHolder extends RecyclerView.ViewHolder {
@@ -9,27 +9,56 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import edu.tamu.csce634.smartshop.R;
 import edu.tamu.csce634.smartshop.models.ShoppingItem;
 import edu.tamu.csce634.smartshop.ui.list.ListFragment;
 import edu.tamu.csce634.smartshop.ui.list.ListViewModel;
 import edu.tamu.csce634.smartshop.ui.list.ProductOptionsBottomSheet;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
 import edu.tamu.csce634.smartshop.utils.ConflictDetector;
 
+/**
+ * 购物清单适配器
+ *
+ * - 每次更新都先拍一份不可变的 Row 快照（外部仍可能原地修改 ShoppingItem），
+ *   再交给 AsyncListDiffer 在后台线程和上一份快照做差分，只刷新真正变化的行
+ * - 数量 ± 通过 ListViewModel.setItemQuantity 生成新行，不原地修改
+ * - 行内变化用 payload 局部绑定（数量 / 冲突徽章 / 文字 / 图片），数量变化不会重新加载图片
+ * - stable id 由 ingredientId 分配，动画和滚动位置不受列表重建影响
+ */
 public class ShoppingItemAdapter extends RecyclerView.Adapter<ShoppingItemAdapter.VH> {
 
+    // payload 位：哪些部分需要重新绑定
+    private static final int PAYLOAD_QUANTITY = 1;
+    private static final int PAYLOAD_CONFLICT = 1 << 1;
+    private static final int PAYLOAD_TEXT = 1 << 2;
+    private static final int PAYLOAD_IMAGE = 1 << 3;
+
+    private static final int CONFLICT_NONE = 0;
+    private static final int CONFLICT_ACTIVE = 1;
+    private static final int CONFLICT_RESOLVED = 2;
+
     private List<ShoppingItem> itemList;
     private final ListViewModel listViewModel;
     private Map<String, ConflictDetector.Conflict> conflictMap = new HashMap<>();
 
+    private final AsyncListDiffer<Row> differ;
+    private final Map<String, Long> stableIds = new HashMap<>(); // 行 key -> stable id
+
     public interface OnSubstituteRequestListener {
         void onSubstituteRequest(ShoppingItem item, ConflictDetector.Conflict conflict);
     }
@@ -40,6 +69,13 @@ public class ShoppingItemAdapter extends RecyclerView.Adapter<ShoppingItemAdapte
     public ShoppingItemAdapter(List<ShoppingItem> list, ListViewModel vm) {
         this.itemList = list;
         this.listViewModel = vm;
+        this.differ = new AsyncListDiffer<>(
+                new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(ROW_DIFF)
+                        .setBackgroundThreadExecutor(AppExecutors.listDiff())
+                        .build());
+        setHasStableIds(true);
+        submitRows();
     }
     public void setParentFragment(androidx.fragment.app.Fragment fragment) {
         this.parentFragment = fragment;
@@ -47,208 +83,245 @@ public class ShoppingItemAdapter extends RecyclerView.Adapter<ShoppingItemAdapte
 
     public void updateData(List<ShoppingItem> newList) {
         this.itemList = newList;
-        notifyDataSetChanged();
+        submitRows();
+    }
+
+    /**
+     * 按当前的 itemList + conflictMap 拍快照并提交差分（主线程调用）
+     */
+    private void submitRows() {
+        List<Row> rows = new ArrayList<>(itemList != null ? itemList.size() : 0);
+        if (itemList != null) {
+            Map<String, Integer> seen = new HashMap<>();
+            for (ShoppingItem it : itemList) {
+                if (it == null) continue;
+                String base = it.ingredientId != null ? it.ingredientId : "name:" + it.name;
+                Integer dup = seen.get(base);
+                seen.put(base, dup == null ? 1 : dup + 1);
+                String key = dup == null ? base : base + "#" + dup; // 同一 id 出现多次时保证 key 唯一
+                rows.add(new Row(key, it, conflictMap.get(conflictKeyOf(it))));
+            }
+        }
+        differ.submitList(rows);
+    }
+
+    private static String conflictKeyOf(ShoppingItem it) {
+        return it.originalIngredientId != null ? it.originalIngredientId : it.ingredientId;
     }
 
     @NonNull
     @Override
     public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_shopping, parent, false);
-        return new VH(v);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull VH h, int position) {
-        ShoppingItem it = itemList.get(position);
-
-        String title = it.selectedSkuName != null && !it.selectedSkuName.isEmpty() ? it.selectedSkuName : it.name;
-        h.title.setText(title);
-
-        String spec = (it.skuSpec != null && !it.skuSpec.isEmpty()) ? " " + it.skuSpec : "";
-        h.sub.setText("SKU: " + title + spec);
-
-        if (it.recipeNeededStr != null && !it.recipeNeededStr.isEmpty()) {
-            h.neededLabel.setVisibility(View.VISIBLE);
-            h.neededLabel.setText("Recipe needs: " + it.recipeNeededStr);
-        } else {
-            h.neededLabel.setVisibility(View.GONE);
-        }
-
-        h.qtyBadge.setText(formatQty(it.quantity));
-
-        if (it.imageUrl != null && !it.imageUrl.isEmpty()) {
-            if (it.imageUrl.startsWith("res:")) {
-                try {
-                    int resId = Integer.parseInt(it.imageUrl.substring(4));
-                    Glide.with(h.itemView.getContext()).load(resId).centerCrop()
-                            .placeholder(android.R.color.darker_gray).into(h.image);
-                } catch (NumberFormatException e) {
-                    h.image.setImageResource(android.R.color.darker_gray);
-                }
-            } else {
-                Glide.with(h.itemView.getContext()).load(it.imageUrl).centerCrop()
-                        .placeholder(android.R.color.darker_gray).into(h.image);
-            }
-        } else {
-            h.image.setImageResource(android.R.color.darker_gray);
-        }
-
-        h.btnReplace.setOnClickListener(v -> {
-            ProductOptionsBottomSheet sheet = ProductOptionsBottomSheet.newInstance(it.ingredientId);
-            sheet.show(((androidx.fragment.app.FragmentActivity) v.getContext())
+        VH h = new VH(v);
+
+        // 点击时再按位置取当前行：局部绑定不需要重新设置监听
+        h.btnReplace.setOnClickListener(view -> {
+            Row row = rowAt(h);
+            if (row == null) return;
+            ProductOptionsBottomSheet sheet = ProductOptionsBottomSheet.newInstance(row.item.ingredientId);
+            sheet.show(((androidx.fragment.app.FragmentActivity) view.getContext())
                     .getSupportFragmentManager(), "ProductOptionsBottomSheet");
         });
 
-        h.btnMinus.setOnClickListener(v -> {
+        h.btnMinus.setOnClickListener(view -> {
+            Row row = rowAt(h);
+            if (row == null) return;
+            ShoppingItem it = row.item;
             if (it.quantity > 0) {
-                it.quantity -= 1;
-                h.qtyBadge.setText(formatQty(it.quantity));
-                listViewModel.recalculateTotalOnly();
+                double newQty = it.quantity - 1;
+                h.qtyBadge.setText(formatQty(newQty));
 
                 // ✅ 如果减到0且有冲突，自动解决
-                if (it.quantity == 0) {
-                    String conflictKey = it.originalIngredientId != null ?
-                            it.originalIngredientId : it.ingredientId;
+                if (newQty == 0) {
+                    String conflictKey = conflictKeyOf(it);
                     ConflictDetector.Conflict conflict = conflictMap.get(conflictKey);
 
                     if (conflict != null) {
                         conflict.resolved = true;
 
-                        h.conflictBadge.setImageResource(R.drawable.ic_check_circle_gray);
-                        h.conflictBadge.setBackground(null);
-                        h.conflictBadge.setPadding(0, 0, 0, 0);
-                        h.conflictBadge.setColorFilter(null);
-                        h.conflictBadge.setBackgroundTintList(null);
-                        h.layoutConflictDetails.setVisibility(View.GONE);
-
                         if (parentFragment instanceof ListFragment) {
                             ((ListFragment) parentFragment).recordQuantityZeroResolution(conflictKey);
                         }
 
-                        Toast.makeText(v.getContext(),
+                        Toast.makeText(view.getContext(),
                                 "✓ " + it.name + " reduced to 0 - Conflict resolved",
                                 Toast.LENGTH_SHORT).show();
                     }
                 }
+                // 列表状态生成新行并重新发布，快照在 updateData 里刷新
+                listViewModel.setItemQuantity(it.ingredientId, newQty);
             }
         });
 
-        h.btnPlus.setOnClickListener(v -> {
+        h.btnPlus.setOnClickListener(view -> {
+            Row row = rowAt(h);
+            if (row == null) return;
+            ShoppingItem it = row.item;
             double previousQty = it.quantity;
-
-            it.quantity += 1;
-            h.qtyBadge.setText(formatQty(it.quantity));
-            listViewModel.recalculateTotalOnly();
+            double newQty = previousQty + 1;
+            h.qtyBadge.setText(formatQty(newQty));
 
             // ✅ 如果从0增加到>0且有已解决的冲突，重新激活
-            if (previousQty == 0 && it.quantity > 0) {
-                String conflictKey = it.originalIngredientId != null ?
-                        it.originalIngredientId : it.ingredientId;
+            if (previousQty == 0 && newQty > 0) {
+                String conflictKey = conflictKeyOf(it);
                 ConflictDetector.Conflict conflict = conflictMap.get(conflictKey);
 
                 if (conflict != null && conflict.resolved) {
                     conflict.resolved = false;
 
-                    h.conflictBadge.setImageResource(R.drawable.ic_warning);
-                    h.conflictBadge.setBackgroundTintList(
-                            android.content.res.ColorStateList.valueOf(
-                                    v.getContext().getColor(R.color.red_500)));
-                    h.conflictBadge.setColorFilter(0xFFFFFFFF);
-
                     if (parentFragment instanceof ListFragment) {
                         ((ListFragment) parentFragment).clearResolutionForReactivatedConflict(conflictKey);
                     }
 
-                    Toast.makeText(v.getContext(),
+                    Toast.makeText(view.getContext(),
                             "⚠ " + it.name + " quantity increased - Conflict reactivated",
                             Toast.LENGTH_SHORT).show();
+                }
+            }
+            listViewModel.setItemQuantity(it.ingredientId, newQty);
+        });
 
-                    notifyItemChanged(h.getAdapterPosition());
+        View.OnClickListener onBadgeOrRow = view -> {
+            Row row = rowAt(h);
+            if (row == null) return;
+            if (row.substituted) {
+                String message = row.substituteDisplayName != null ? "✓ " + row.substituteDisplayName : "✓ Replaced item";
+                Toast.makeText(view.getContext(), message, Toast.LENGTH_SHORT).show();
+            } else if (row.conflictState == CONFLICT_RESOLVED) {
+                Toast.makeText(view.getContext(), "✓ Conflict resolved (Set to 0)", Toast.LENGTH_SHORT).show();
+            } else if (row.conflictState == CONFLICT_ACTIVE) {
+                if (h.layoutConflictDetails.getVisibility() == View.VISIBLE) {
+                    h.layoutConflictDetails.setVisibility(View.GONE);
+                } else {
+                    h.layoutConflictDetails.setVisibility(View.VISIBLE);
                 }
             }
+        };
+        h.conflictBadge.setOnClickListener(onBadgeOrRow);
+        h.rowClickListener = view -> {
+            Row row = rowAt(h);
+            if (row != null && !row.substituted && row.conflictState == CONFLICT_ACTIVE) {
+                onBadgeOrRow.onClick(view);
+            }
+        };
+
+        h.btnSetZero.setOnClickListener(view -> {
+            Row row = rowAt(h);
+            if (row == null || row.conflict == null) return;
+            ShoppingItem it = row.item;
+            h.qtyBadge.setText(formatQty(0));
+            row.conflict.resolved = true;
+
+            Toast.makeText(view.getContext(), "✓ " + it.name + " set to 0", Toast.LENGTH_SHORT).show();
+            listViewModel.setItemQuantity(it.ingredientId, 0);
+        });
+
+        h.btnReplaceConflict.setOnClickListener(view -> {
+            Row row = rowAt(h);
+            if (row != null && row.conflict != null && substituteListener != null) {
+                substituteListener.onSubstituteRequest(row.item, row.conflict);
+            }
         });
+        return h;
+    }
+
+    private Row rowAt(VH h) {
+        int position = h.getAdapterPosition();
+        List<Row> rows = differ.getCurrentList();
+        if (position == RecyclerView.NO_POSITION || position >= rows.size()) return null;
+        return rows.get(position);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH h, int position) {
+        Row row = differ.getCurrentList().get(position);
+        bindText(h, row);
+        bindImage(h, row);
+        bindQuantity(h, row);
+        bindConflict(h, row);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH h, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(h, position);
+            return;
+        }
+        int changed = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof Integer) changed |= (Integer) payload;
+        }
+        Row row = differ.getCurrentList().get(position);
+        if ((changed & PAYLOAD_TEXT) != 0) bindText(h, row);
+        if ((changed & PAYLOAD_IMAGE) != 0) bindImage(h, row);
+        if ((changed & PAYLOAD_QUANTITY) != 0) bindQuantity(h, row);
+        if ((changed & PAYLOAD_CONFLICT) != 0) bindConflict(h, row);
+    }
+
+    private void bindText(VH h, Row row) {
+        h.title.setText(row.title);
+        h.sub.setText(row.sub);
+
+        if (row.needed != null) {
+            h.neededLabel.setVisibility(View.VISIBLE);
+            h.neededLabel.setText(row.needed);
+        } else {
+            h.neededLabel.setVisibility(View.GONE);
+        }
+    }
 
-        if (it.isSubstituted) {
+    private void bindImage(VH h, Row row) {
+        String imageUrl = row.imageUrl;
+        if (imageUrl != null && !imageUrl.isEmpty()) {
+            if (imageUrl.startsWith("res:")) {
+                try {
+                    int resId = Integer.parseInt(imageUrl.substring(4));
+                    Glide.with(h.itemView.getContext()).load(resId).centerCrop()
+                            .placeholder(android.R.color.darker_gray).into(h.image);
+                } catch (NumberFormatException e) {
+                    h.image.setImageResource(android.R.color.darker_gray);
+                }
+            } else {
+                Glide.with(h.itemView.getContext()).load(imageUrl).centerCrop()
+                        .placeholder(android.R.color.darker_gray).into(h.image);
+            }
+        } else {
+            h.image.setImageResource(android.R.color.darker_gray);
+        }
+    }
+
+    private void bindQuantity(VH h, Row row) {
+        h.qtyBadge.setText(formatQty(row.quantity));
+    }
+
+    private void bindConflict(VH h, Row row) {
+        if (row.substituted || row.conflictState == CONFLICT_RESOLVED) {
             h.conflictBadge.setVisibility(View.VISIBLE);
             h.conflictBadge.setImageResource(R.drawable.ic_check_circle_gray);
             h.conflictBadge.setBackground(null);
             h.conflictBadge.setPadding(0, 0, 0, 0);
             h.conflictBadge.setColorFilter(null);
             h.conflictBadge.setBackgroundTintList(null);
-            h.conflictBadge.setOnClickListener(v -> {
-                String message = it.substituteDisplayName != null ? "✓ " + it.substituteDisplayName : "✓ Replaced item";
-                Toast.makeText(v.getContext(), message, Toast.LENGTH_SHORT).show();
-            });
             h.itemView.setOnClickListener(null);
             h.layoutConflictDetails.setVisibility(View.GONE);
-            return;
-        }
-
-        String conflictKey = it.originalIngredientId != null ? it.originalIngredientId : it.ingredientId;
-        ConflictDetector.Conflict conflict = conflictMap.get(conflictKey);
-
-        if (conflict != null) {
+        } else if (row.conflictState == CONFLICT_ACTIVE) {
             h.conflictBadge.setVisibility(View.VISIBLE);
-
-            if (conflict.resolved) {
-                h.conflictBadge.setImageResource(R.drawable.ic_check_circle_gray);
-                h.conflictBadge.setBackground(null);
-                h.conflictBadge.setPadding(0, 0, 0, 0);
-                h.conflictBadge.setColorFilter(null);
-                h.conflictBadge.setBackgroundTintList(null);
-                h.conflictBadge.setOnClickListener(v ->
-                        Toast.makeText(v.getContext(), "✓ Conflict resolved (Set to 0)", Toast.LENGTH_SHORT).show());
-                h.itemView.setOnClickListener(null);
-                h.layoutConflictDetails.setVisibility(View.GONE);
+            h.conflictBadge.setImageResource(R.drawable.ic_warning);
+            h.conflictBadge.setBackgroundTintList(android.content.res.ColorStateList.valueOf(
+                    h.itemView.getContext().getColor(R.color.red_500)));
+            h.conflictBadge.setColorFilter(0xFFFFFFFF);
+            h.textConflictMessage.setText(row.conflictReason);
+            h.itemView.setOnClickListener(h.rowClickListener);
+
+            if (!row.hasSubstitutes) {
+                h.btnReplaceConflict.setEnabled(false);
+                h.btnReplaceConflict.setText("No substitutes");
+                h.btnReplaceConflict.setAlpha(0.5f);
             } else {
-                h.conflictBadge.setImageResource(R.drawable.ic_warning);
-                h.conflictBadge.setBackgroundTintList(android.content.res.ColorStateList.valueOf(
-                        h.itemView.getContext().getColor(R.color.red_500)));
-                h.conflictBadge.setColorFilter(0xFFFFFFFF);
-                h.textConflictMessage.setText(conflict.reason);
-
-                View.OnClickListener toggleConflictDetails = v -> {
-                    if (h.layoutConflictDetails.getVisibility() == View.VISIBLE) {
-                        h.layoutConflictDetails.setVisibility(View.GONE);
-                    } else {
-                        h.layoutConflictDetails.setVisibility(View.VISIBLE);
-                    }
-                };
-
-                h.itemView.setOnClickListener(toggleConflictDetails);
-                h.conflictBadge.setOnClickListener(toggleConflictDetails);
-
-                h.btnSetZero.setOnClickListener(v -> {
-                    it.quantity = 0;
-                    h.qtyBadge.setText(formatQty(it.quantity));
-                    conflict.resolved = true;
-
-                    h.conflictBadge.setImageResource(R.drawable.ic_check_circle_gray);
-                    h.conflictBadge.setBackground(null);
-                    h.conflictBadge.setPadding(0, 0, 0, 0);
-                    h.conflictBadge.setColorFilter(null);
-                    h.conflictBadge.setBackgroundTintList(null);
-                    h.layoutConflictDetails.setVisibility(View.GONE);
-
-                    Toast.makeText(v.getContext(), "✓ " + it.name + " set to 0", Toast.LENGTH_SHORT).show();
-                    listViewModel.recalculateTotalOnly();
-                });
-
-                h.btnReplaceConflict.setOnClickListener(v -> {
-                    if (substituteListener != null) {
-                        substituteListener.onSubstituteRequest(it, conflict);
-                    }
-                });
-
-                if (conflict.substitutes == null || conflict.substitutes.isEmpty()) {
-                    h.btnReplaceConflict.setEnabled(false);
-                    h.btnReplaceConflict.setText("No substitutes");
-                    h.btnReplaceConflict.setAlpha(0.5f);
-                } else {
-                    h.btnReplaceConflict.setEnabled(true);
-                    h.btnReplaceConflict.setText("Replace");
-                    h.btnReplaceConflict.setAlpha(1.0f);
-                }
+                h.btnReplaceConflict.setEnabled(true);
+                h.btnReplaceConflict.setText("Replace");
+                h.btnReplaceConflict.setAlpha(1.0f);
             }
         } else {
             h.conflictBadge.setVisibility(View.GONE);
@@ -259,25 +332,37 @@ public class ShoppingItemAdapter extends RecyclerView.Adapter<ShoppingItemAdapte
 
     @Override
     public int getItemCount() {
-        return itemList.size();
+        return differ.getCurrentList().size();
     }
 
-    private String formatQty(double q) {
+    @Override
+    public long getItemId(int position) {
+        String key = differ.getCurrentList().get(position).key;
+        Long id = stableIds.get(key);
+        if (id == null) {
+            id = (long) stableIds.size();
+            stableIds.put(key, id);
+        }
+        return id;
+    }
+
+    private static String formatQty(double q) {
         if (q <= 0) return "0";
         if (Math.abs(q - Math.round(q)) < 1e-6) return String.valueOf((int) Math.round(q));
         return String.format(java.util.Locale.US, "%.1f", q);
     }
 
     public void setConflicts(List<ConflictDetector.Conflict> conflicts) {
-        conflictMap.clear();
+        Map<String, ConflictDetector.Conflict> map = new HashMap<>();
         if (conflicts != null) {
             for (ConflictDetector.Conflict c : conflicts) {
                 if (c.item != null && c.item.ingredientId != null) {
-                    conflictMap.put(c.item.ingredientId, c);
+                    map.put(c.item.ingredientId, c);
                 }
             }
         }
-        notifyDataSetChanged();
+        conflictMap = map;
+        submitRows();
     }
 
     public void setOnSubstituteRequestListener(OnSubstituteRequestListener listener) {
@@ -288,12 +373,95 @@ public class ShoppingItemAdapter extends RecyclerView.Adapter<ShoppingItemAdapte
         return new java.util.ArrayList<>(conflictMap.values());
     }
 
+    /**
+     * 一行的不可变快照：只包含绘制需要的字段
+     * item / conflict 只用于点击回调，不参与比较
+     */
+    private static final class Row {
+        final String key;
+        final ShoppingItem item;
+        final ConflictDetector.Conflict conflict;
+
+        final String title;
+        final String sub;
+        final String needed;
+        final String imageUrl;
+        final double quantity;
+        final boolean substituted;
+        final String substituteDisplayName;
+        final int conflictState;
+        final String conflictReason;
+        final boolean hasSubstitutes;
+
+        Row(String key, ShoppingItem it, ConflictDetector.Conflict conflict) {
+            this.key = key;
+            this.item = it;
+            this.conflict = conflict;
+
+            this.title = it.selectedSkuName != null && !it.selectedSkuName.isEmpty() ? it.selectedSkuName : it.name;
+            String spec = (it.skuSpec != null && !it.skuSpec.isEmpty()) ? " " + it.skuSpec : "";
+            this.sub = "SKU: " + title + spec;
+            this.needed = it.recipeNeededStr != null && !it.recipeNeededStr.isEmpty()
+                    ? "Recipe needs: " + it.recipeNeededStr : null;
+            this.imageUrl = it.imageUrl;
+            this.quantity = it.quantity;
+            this.substituted = it.isSubstituted;
+            this.substituteDisplayName = it.substituteDisplayName;
+
+            if (conflict == null) {
+                this.conflictState = CONFLICT_NONE;
+            } else {
+                this.conflictState = conflict.resolved ? CONFLICT_RESOLVED : CONFLICT_ACTIVE;
+            }
+            this.conflictReason = conflict != null ? conflict.reason : null;
+            this.hasSubstitutes = conflict != null && conflict.substitutes != null && !conflict.substitutes.isEmpty();
+        }
+
+        boolean sameText(Row o) {
+            return Objects.equals(title, o.title) && Objects.equals(sub, o.sub) && Objects.equals(needed, o.needed);
+        }
+
+        boolean sameConflict(Row o) {
+            return substituted == o.substituted && conflictState == o.conflictState
+                    && hasSubstitutes == o.hasSubstitutes
+                    && Objects.equals(substituteDisplayName, o.substituteDisplayName)
+                    && Objects.equals(conflictReason, o.conflictReason);
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<Row> ROW_DIFF = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return oldRow.key.equals(newRow.key);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return changedParts(oldRow, newRow) == 0;
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Row oldRow, @NonNull Row newRow) {
+            return changedParts(oldRow, newRow);
+        }
+
+        private int changedParts(Row oldRow, Row newRow) {
+            int changed = 0;
+            if (Double.compare(oldRow.quantity, newRow.quantity) != 0) changed |= PAYLOAD_QUANTITY;
+            if (!oldRow.sameConflict(newRow)) changed |= PAYLOAD_CONFLICT;
+            if (!oldRow.sameText(newRow)) changed |= PAYLOAD_TEXT;
+            if (!Objects.equals(oldRow.imageUrl, newRow.imageUrl)) changed |= PAYLOAD_IMAGE;
+            return changed;
+        }
+    };
+
     static class VH extends RecyclerView.ViewHolder {
         ImageView image, conflictBadge;
         TextView title, sub, btnReplace, qtyBadge, neededLabel, textConflictMessage;
         ImageButton btnMinus, btnPlus;
         View layoutConflictDetails;
         com.google.android.material.button.MaterialButton btnSetZero, btnReplaceConflict;
+        View.OnClickListener rowClickListener; // 有未解决冲突时整行可点击展开详情
 
         VH(@NonNull View itemView) {
             super(itemView);
@@ -0,0 +1,576 @@
+package edu.tamu.csce634.smartshop.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import edu.tamu.csce634.smartshop.models.ProductOption;
+
+/**
+ * 预置目录的二进制文件格式（读写两端）
+ *
+ * 布局（全部大端）：
+ * <pre>
+ * Header   : magic, version, itemCount, optionCount, stringCount,
+ *            stringIndexOffset, stringDataOffset, itemsOffset, optionsOffset,
+ *            4 x (indexOffset, indexCount)
+ * Strings  : int[stringCount + 1] 相对偏移 + UTF-8 字节（去重后的字符串表）
+ * Items    : 定长记录 ITEM_RECORD_SIZE，字符串字段都是字符串表下标
+ *            最后三项 defaultOption / firstOption / optionCount 就是每个食材的 option 偏移索引
+ * Options  : 定长记录 OPTION_RECORD_SIZE，按 ingredient 连续存放
+ * Indexes  : ingredientId / 规范化名称 / optionId / category 四张查找表，
+ *            每项 (键的字符串下标, 记录下标)，按键的 UTF-8 字节（无符号）排序；
+ *            前三张键唯一，category 表同键按记录顺序排列
+ * </pre>
+ *
+ * 读取端通过 MappedByteBuffer 映射整个文件，打开时只读 header、校验各段边界（O(1)），
+ * 不解码任何记录。查询在查找表上二分，命中的记录才解码成 Entry / ProductOption 并缓存，
+ * 所以启动开销和目录大小无关。
+ * header 损坏或版本不符报 IOException（调用方据此重新生成）；查询时才发现的记录损坏
+ * 按“查不到”处理，并通知调用方丢掉这个文件。
+ */
+final class BinaryCatalog {
+
+    static final int MAGIC = 0x53534354; // "SSCT"
+    static final int VERSION = 2;
+
+    // 查找表在 header 里的顺序
+    private static final int INDEX_INGREDIENT_ID = 0;
+    private static final int INDEX_NAME = 1;
+    private static final int INDEX_OPTION_ID = 2;
+    private static final int INDEX_CATEGORY = 3;
+    private static final int INDEX_COUNT = 4;
+
+    private static final int HEADER_SIZE = (9 + 2 * INDEX_COUNT) * 4;
+    // 6 个字符串下标 + defaultQuantity + defaultOption + firstOption + optionCount
+    private static final int ITEM_RECORD_SIZE = 6 * 4 + 8 + 3 * 4;
+    // 6 个字符串下标 + unitPrice + flags
+    private static final int OPTION_RECORD_SIZE = 6 * 4 + 8 + 4;
+    // 键的字符串下标 + 记录下标
+    private static final int INDEX_RECORD_SIZE = 2 * 4;
+
+    private static final int FLAG_ORGANIC = 1;
+    private static final int NO_STRING = -1;
+
+    private BinaryCatalog() {}
+
+    // ========== 写入 ==========
+
+    /**
+     * 把目录序列化到 target（先写临时文件再 rename，半截文件不会被读到）
+     */
+    static void write(PresetCatalog catalog, File target) throws IOException {
+        StringTable strings = new StringTable();
+        List<PresetCatalog.Entry> entries = catalog.getEntries();
+
+        int optionCount = 0;
+        for (PresetCatalog.Entry e : entries) optionCount += e.options.size();
+
+        ByteBuffer items = ByteBuffer.allocate(entries.size() * ITEM_RECORD_SIZE);
+        ByteBuffer options = ByteBuffer.allocate(optionCount * OPTION_RECORD_SIZE);
+
+        // 唯一键的查找表和 PresetCatalog.build 一样：同键后写入的覆盖先写入的
+        Map<String, Integer> byIngredientId = new HashMap<>();
+        Map<String, Integer> byName = new HashMap<>();
+        Map<String, Integer> byOptionId = new HashMap<>();
+        List<IndexKey> byCategory = new ArrayList<>();
+
+        int nextOption = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            PresetCatalog.Entry e = entries.get(i);
+            if (e.ingredientId != null) byIngredientId.put(e.ingredientId, i);
+            byName.put(PresetCatalog.normalizeName(e.name), i);
+            if (e.defaultOption != null && e.defaultOption.displayName != null) {
+                byName.put(PresetCatalog.normalizeName(e.defaultOption.displayName), i);
+            }
+            if (e.category != null && !e.category.isEmpty()) {
+                byCategory.add(new IndexKey(e.category, i));
+            }
+
+            items.putInt(strings.add(e.ingredientId));
+            items.putInt(strings.add(e.name));
+            items.putInt(strings.add(e.unit));
+            items.putInt(strings.add(e.aisle));
+            items.putInt(strings.add(e.category));
+            items.putInt(strings.add(e.imageUrl));
+            items.putDouble(e.defaultQuantity);
+            items.putInt(e.defaultOption != null ? e.options.indexOf(e.defaultOption) : -1);
+            items.putInt(nextOption);
+            items.putInt(e.options.size());
+
+            for (int k = 0; k < e.options.size(); k++) {
+                ProductOption o = e.options.get(k);
+                if (o.optionId != null && !o.optionId.isEmpty()) byOptionId.put(o.optionId, nextOption + k);
+                options.putInt(strings.add(o.optionId));
+                options.putInt(strings.add(o.ingredientId));
+                options.putInt(strings.add(o.brand));
+                options.putInt(strings.add(o.displayName));
+                options.putInt(strings.add(o.size));
+                options.putInt(strings.add(o.imageUrl));
+                options.putDouble(o.unitPrice);
+                options.putInt(o.isOrganic ? FLAG_ORGANIC : 0);
+            }
+            nextOption += e.options.size();
+        }
+
+        ByteBuffer[] indexes = new ByteBuffer[INDEX_COUNT];
+        indexes[INDEX_INGREDIENT_ID] = writeIndex(IndexKey.of(byIngredientId), strings);
+        indexes[INDEX_NAME] = writeIndex(IndexKey.of(byName), strings);
+        indexes[INDEX_OPTION_ID] = writeIndex(IndexKey.of(byOptionId), strings);
+        indexes[INDEX_CATEGORY] = writeIndex(byCategory, strings);
+
+        // 查找表的键也进了字符串表，所以字符串表最后再取
+        byte[] stringData = strings.data();
+        int stringIndexOffset = HEADER_SIZE;
+        int stringDataOffset = stringIndexOffset + (strings.count() + 1) * 4;
+        int itemsOffset = stringDataOffset + stringData.length;
+        int optionsOffset = itemsOffset + items.capacity();
+        int[] indexOffsets = new int[INDEX_COUNT];
+        int end = optionsOffset + options.capacity();
+        for (int k = 0; k < INDEX_COUNT; k++) {
+            indexOffsets[k] = end;
+            end += indexes[k].capacity();
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(end);
+        out.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(entries.size())
+                .putInt(optionCount)
+                .putInt(strings.count())
+                .putInt(stringIndexOffset)
+                .putInt(stringDataOffset)
+                .putInt(itemsOffset)
+                .putInt(optionsOffset);
+        for (int k = 0; k < INDEX_COUNT; k++) {
+            out.putInt(indexOffsets[k]).putInt(indexes[k].capacity() / INDEX_RECORD_SIZE);
+        }
+        for (int offset : strings.offsets()) out.putInt(offset);
+        out.put(stringData);
+        out.put(items.array());
+        out.put(options.array());
+        for (ByteBuffer index : indexes) out.put(index.array());
+
+        File tmp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(out.array());
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(target)) {
+            throw new IOException("Failed to move catalog into place: " + target);
+        }
+    }
+
+    /** 查找表排序：键的 UTF-8 字节（无符号），同键按记录下标 */
+    private static ByteBuffer writeIndex(List<IndexKey> keys, StringTable strings) {
+        Collections.sort(keys, (a, b) -> {
+            int c = compareBytes(a.bytes, b.bytes);
+            return c != 0 ? c : Integer.compare(a.record, b.record);
+        });
+        ByteBuffer index = ByteBuffer.allocate(keys.size() * INDEX_RECORD_SIZE);
+        for (IndexKey k : keys) {
+            index.putInt(strings.add(k.key));
+            index.putInt(k.record);
+        }
+        return index;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return a.length - b.length;
+    }
+
+    /** 写入端：查找表的一项 */
+    private static final class IndexKey {
+        final String key;
+        final byte[] bytes;
+        final int record;
+
+        IndexKey(String key, int record) {
+            this.key = key;
+            this.bytes = key.getBytes(StandardCharsets.UTF_8);
+            this.record = record;
+        }
+
+        static List<IndexKey> of(Map<String, Integer> unique) {
+            List<IndexKey> keys = new ArrayList<>(unique.size());
+            for (Map.Entry<String, Integer> e : unique.entrySet()) {
+                keys.add(new IndexKey(e.getKey(), e.getValue()));
+            }
+            return keys;
+        }
+    }
+
+    // ========== 读取 ==========
+
+    /**
+     * 映射文件并校验 header；格式不对时抛 IOException，由调用方重新生成
+     *
+     * 不解码任何记录，返回的目录在查询时才按需解码。查询中发现记录损坏时调用一次
+     * {@code onCorrupt}（可为 null），调用方应丢掉这个文件和这份目录
+     */
+    static PresetCatalog read(File file, Runnable onCorrupt) throws IOException {
+        MappedByteBuffer buf;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new MappedCatalog(buf, file, onCorrupt);
+    }
+
+    /** [offset, offset + length) 是否在文件内 */
+    private static boolean fits(int offset, long length, long size) {
+        return offset >= 0 && length >= 0 && offset + length <= size;
+    }
+
+    /** 查询时发现的记录损坏 */
+    private static final class CorruptRecordException extends RuntimeException {
+        CorruptRecordException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 直接建在映射文件上的目录：查找表二分 O(log n)，记录按需解码并缓存
+     *
+     * 只用绝对位置读取 buffer，不改 position，所以多线程并发查询是安全的；
+     * 解码结果通过 AtomicReferenceArray 发布
+     */
+    private static final class MappedCatalog extends PresetCatalog {
+        private final ByteBuffer buf;
+        private final File file;
+        private final Runnable onCorrupt;
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        private final int itemCount;
+        private final int optionCount;
+        private final int stringCount;
+        private final int stringIndexOffset;
+        private final int stringDataOffset;
+        private final int stringDataLength;
+        private final int itemsOffset;
+        private final int optionsOffset;
+        private final int[] indexOffsets = new int[INDEX_COUNT];
+        private final int[] indexCounts = new int[INDEX_COUNT];
+
+        private final AtomicReferenceArray<PresetCatalog.Entry> entryCache;
+        private final AtomicReferenceArray<ProductOption> optionCache;
+        private final List<PresetCatalog.Entry> entries;
+
+        MappedCatalog(ByteBuffer buf, File file, Runnable onCorrupt) throws IOException {
+            this.buf = buf;
+            this.file = file;
+            this.onCorrupt = onCorrupt;
+
+            long size = buf.capacity();
+            if (size < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+                throw new IOException("Unsupported catalog file: " + file);
+            }
+            itemCount = buf.getInt(8);
+            optionCount = buf.getInt(12);
+            stringCount = buf.getInt(16);
+            stringIndexOffset = buf.getInt(20);
+            stringDataOffset = buf.getInt(24);
+            itemsOffset = buf.getInt(28);
+            optionsOffset = buf.getInt(32);
+            stringDataLength = itemsOffset - stringDataOffset;
+
+            boolean valid = itemCount >= 0 && optionCount >= 0 && stringCount >= 0
+                    && fits(stringIndexOffset, (stringCount + 1L) * 4, size)
+                    && fits(itemsOffset, (long) itemCount * ITEM_RECORD_SIZE, size)
+                    && fits(optionsOffset, (long) optionCount * OPTION_RECORD_SIZE, size)
+                    && stringDataOffset >= 0 && stringDataLength >= 0;
+            for (int k = 0; k < INDEX_COUNT; k++) {
+                indexOffsets[k] = buf.getInt(36 + k * 8);
+                indexCounts[k] = buf.getInt(40 + k * 8);
+                valid &= indexCounts[k] >= 0
+                        && fits(indexOffsets[k], (long) indexCounts[k] * INDEX_RECORD_SIZE, size);
+            }
+            if (!valid) {
+                throw new IOException("Corrupt catalog header: " + file);
+            }
+
+            entryCache = new AtomicReferenceArray<>(itemCount);
+            optionCache = new AtomicReferenceArray<>(optionCount);
+            entries = new AbstractList<PresetCatalog.Entry>() {
+                @Override
+                public PresetCatalog.Entry get(int i) {
+                    if (i < 0 || i >= itemCount) throw new IndexOutOfBoundsException("Index: " + i);
+                    try {
+                        return entry(i);
+                    } catch (CorruptRecordException e) {
+                        report(e);
+                        throw e;
+                    }
+                }
+
+                @Override
+                public int size() {
+                    return itemCount;
+                }
+            };
+        }
+
+        // ---------- 查询 ----------
+
+        @Override
+        public List<PresetCatalog.Entry> getEntries() {
+            return entries;
+        }
+
+        @Override
+        public int size() {
+            return itemCount;
+        }
+
+        @Override
+        public PresetCatalog.Entry findByIngredientId(String ingredientId) {
+            if (ingredientId == null) return null;
+            try {
+                int pos = find(INDEX_INGREDIENT_ID, ingredientId);
+                return pos >= 0 ? entry(recordAt(INDEX_INGREDIENT_ID, pos)) : null;
+            } catch (CorruptRecordException e) {
+                report(e);
+                return null;
+            }
+        }
+
+        @Override
+        public PresetCatalog.Entry findByName(String name) {
+            try {
+                int pos = find(INDEX_NAME, normalizeName(name));
+                return pos >= 0 ? entry(recordAt(INDEX_NAME, pos)) : null;
+            } catch (CorruptRecordException e) {
+                report(e);
+                return null;
+            }
+        }
+
+        @Override
+        public ProductOption findOption(String optionId) {
+            if (optionId == null) return null;
+            try {
+                int pos = find(INDEX_OPTION_ID, optionId);
+                return pos >= 0 ? option(recordAt(INDEX_OPTION_ID, pos)) : null;
+            } catch (CorruptRecordException e) {
+                report(e);
+                return null;
+            }
+        }
+
+        @Override
+        public List<PresetCatalog.Entry> getEntriesInCategory(String category) {
+            if (category == null) return Collections.emptyList();
+            try {
+                byte[] key = category.getBytes(StandardCharsets.UTF_8);
+                List<PresetCatalog.Entry> result = new ArrayList<>();
+                for (int pos = lowerBound(INDEX_CATEGORY, key);
+                     pos < indexCounts[INDEX_CATEGORY] && compareKey(keyAt(INDEX_CATEGORY, pos), key) == 0;
+                     pos++) {
+                    result.add(entry(recordAt(INDEX_CATEGORY, pos)));
+                }
+                return Collections.unmodifiableList(result);
+            } catch (CorruptRecordException e) {
+                report(e);
+                return Collections.emptyList();
+            }
+        }
+
+        private void report(CorruptRecordException e) {
+            e.printStackTrace();
+            if (onCorrupt != null && reported.compareAndSet(false, true)) onCorrupt.run();
+        }
+
+        // ---------- 查找表 ----------
+
+        private int keyAt(int index, int pos) {
+            return buf.getInt(indexOffsets[index] + pos * INDEX_RECORD_SIZE);
+        }
+
+        private int recordAt(int index, int pos) {
+            return buf.getInt(indexOffsets[index] + pos * INDEX_RECORD_SIZE + 4);
+        }
+
+        /** 唯一键查找表里 key 的位置，没有则 -1 */
+        private int find(int index, String key) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            int pos = lowerBound(index, bytes);
+            return pos < indexCounts[index] && compareKey(keyAt(index, pos), bytes) == 0 ? pos : -1;
+        }
+
+        /** 第一个键 >= key 的位置 */
+        private int lowerBound(int index, byte[] key) {
+            int lo = 0;
+            int hi = indexCounts[index];
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareKey(keyAt(index, mid), key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /** 字符串表里第 id 个字符串和 key 按 UTF-8 字节（无符号）比较，不解码 */
+        private int compareKey(int id, byte[] key) {
+            int start = stringStart(id);
+            int length = stringEnd(id, start) - start;
+            int base = stringDataOffset + start;
+            int n = Math.min(length, key.length);
+            for (int i = 0; i < n; i++) {
+                int c = (buf.get(base + i) & 0xff) - (key[i] & 0xff);
+                if (c != 0) return c;
+            }
+            return length - key.length;
+        }
+
+        // ---------- 记录解码 ----------
+
+        private PresetCatalog.Entry entry(int i) {
+            if (i < 0 || i >= itemCount) throw new CorruptRecordException("Item index out of range: " + i);
+            PresetCatalog.Entry cached = entryCache.get(i);
+            if (cached != null) return cached;
+
+            int p = itemsOffset + i * ITEM_RECORD_SIZE;
+            int defaultOption = buf.getInt(p + 32);
+            int firstOption = buf.getInt(p + 36);
+            int count = buf.getInt(p + 40);
+            if (firstOption < 0 || count < 0 || (long) firstOption + count > optionCount) {
+                throw new CorruptRecordException("Corrupt catalog item " + i + ": " + file);
+            }
+
+            List<ProductOption> opts = new AbstractList<ProductOption>() {
+                @Override
+                public ProductOption get(int k) {
+                    if (k < 0 || k >= count) throw new IndexOutOfBoundsException("Index: " + k);
+                    return option(firstOption + k);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+
+            PresetCatalog.Entry entry = new PresetCatalog.Entry(
+                    string(buf.getInt(p)),
+                    string(buf.getInt(p + 4)),
+                    string(buf.getInt(p + 8)),
+                    string(buf.getInt(p + 12)),
+                    string(buf.getInt(p + 16)),
+                    buf.getDouble(p + 24),
+                    string(buf.getInt(p + 20)),
+                    defaultOption >= 0 && defaultOption < count ? option(firstOption + defaultOption) : null,
+                    opts);
+            // 并发解码同一条时只留第一份，保证同一条目始终是同一个对象
+            entryCache.compareAndSet(i, null, entry);
+            return entryCache.get(i);
+        }
+
+        private ProductOption option(int i) {
+            if (i < 0 || i >= optionCount) throw new CorruptRecordException("Option index out of range: " + i);
+            ProductOption cached = optionCache.get(i);
+            if (cached != null) return cached;
+
+            int p = optionsOffset + i * OPTION_RECORD_SIZE;
+            ProductOption o = new ProductOption();
+            o.optionId     = string(buf.getInt(p));
+            o.ingredientId = string(buf.getInt(p + 4));
+            o.brand        = string(buf.getInt(p + 8));
+            o.displayName  = string(buf.getInt(p + 12));
+            o.size         = string(buf.getInt(p + 16));
+            o.imageUrl     = string(buf.getInt(p + 20));
+            o.unitPrice    = buf.getDouble(p + 24);
+            o.isOrganic    = (buf.getInt(p + 32) & FLAG_ORGANIC) != 0;
+            optionCache.compareAndSet(i, null, o);
+            return optionCache.get(i);
+        }
+
+        private String string(int id) {
+            if (id == NO_STRING) return null;
+            int start = stringStart(id);
+            int end = stringEnd(id, start);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer src = buf.duplicate();
+            src.position(stringDataOffset + start);
+            src.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int stringStart(int id) {
+            if (id < 0 || id >= stringCount) {
+                throw new CorruptRecordException("String index out of range: " + id);
+            }
+            return buf.getInt(stringIndexOffset + id * 4);
+        }
+
+        private int stringEnd(int id, int start) {
+            int end = buf.getInt(stringIndexOffset + id * 4 + 4);
+            if (start < 0 || end < start || end > stringDataLength) {
+                throw new CorruptRecordException("Corrupt string " + id + ": [" + start + ", " + end + ")");
+            }
+            return end;
+        }
+    }
+
+    // ========== 字符串表 ==========
+
+    /** 写入端：去重后的 UTF-8 字符串表 */
+    private static final class StringTable {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+        private int totalBytes = 0;
+
+        int add(String s) {
+            if (s == null) return NO_STRING;
+            Integer existing = index.get(s);
+            if (existing != null) return existing;
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            int id = values.size();
+            values.add(bytes);
+            index.put(s, id);
+            totalBytes += bytes.length;
+            return id;
+        }
+
+        int count() {
+            return values.size();
+        }
+
+        int[] offsets() {
+            int[] offsets = new int[values.size() + 1];
+            int pos = 0;
+            for (int i = 0; i < values.size(); i++) {
+                offsets[i] = pos;
+                pos += values.get(i).length;
+            }
+            offsets[values.size()] = pos;
+            return offsets;
+        }
+
+        byte[] data() {
+            ByteBuffer b = ByteBuffer.allocate(totalBytes);
+            for (byte[] v : values) b.put(v);
+            return b.array();
+        }
+    }
+}
@@ -3,49 +3,82 @@ package edu.tamu.csce634.smartshop.data;
 import android.content.Context;
 import android.content.SharedPreferences;
 
-import org.json.JSONObject;
-
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 
+import edu.tamu.csce634.smartshop.utils.LocationEngine;
+
 /**
- * 首次启动时把 res/raw 中的预置 JSON 读入 SharedPreferences（只做一次）
- * 之后业务统一从 SharedPreferences 读取，符合 README 的约束
+ * 首次启动时把 res/raw 中的预置 JSON 编译成二进制目录文件（只做一次）
+ * 之后业务统一通过 PresetRepository 读取（内存映射），不再把大 JSON 塞进 SharedPreferences
  */
 public class DataSeeder {
 
     // SharedPreferences 名称与键
     public static final String PREF_NAME = "smartshop";
-    public static final String KEY_ITEMS_JSON = "items_json";
-    public static final String KEY_OPTIONS_JSON = "options_json";
-    public static final String KEY_SEEDED = "seed_done_v1"; // 是否已灌入的标记
+    public static final String KEY_SEEDED = "seed_done_v2"; // 是否已生成二进制目录
+    private static final String KEY_SEEDED_APP_UPDATE = "seed_app_update_time"; // 生成时的安装/升级时间
+
+    // 旧版本（v1）直接存进 SP 的大字符串，迁移时删除
+    private static final String LEGACY_KEY_ITEMS_JSON = "items_json";
+    private static final String LEGACY_KEY_OPTIONS_JSON = "options_json";
+    private static final String LEGACY_KEY_SEEDED = "seed_done_v1";
 
-    /** 对外入口：如未灌入，则从 raw 读入并写入 SP */
-    public static void seedIfNeeded(Context ctx) {
+    // 二进制目录文件名（位于 filesDir）
+    public static final String CATALOG_FILE = "preset_catalog.bin";
+
+    /** 对外入口：如未生成或 APK 已升级，则从 raw 读入并写成二进制目录 */
+    public static synchronized void seedIfNeeded(Context ctx) {
         SharedPreferences sp = ctx.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        if (sp.getBoolean(KEY_SEEDED, false)) return; // 做过就不再重复
+        long appUpdateTime = getAppUpdateTime(ctx);
+        boolean upToDate = sp.getBoolean(KEY_SEEDED, false)
+                && sp.getLong(KEY_SEEDED_APP_UPDATE, -1) == appUpdateTime
+                && getCatalogFile(ctx).exists();
+        if (upToDate) return; // 做过就不再重复
 
         try {
             // 这里的 R.raw.preset_items / preset_options 取决于你的文件名与放置目录
             String items = readRawAsString(ctx, edu.tamu.csce634.smartshop.R.raw.preset_items);
             String options = readRawAsString(ctx, edu.tamu.csce634.smartshop.R.raw.preset_options);
 
-            // 粗校验 JSON 结构（必须包含 items / options 数组）
-            new JSONObject(items).getJSONArray("items");
-            new JSONObject(options).getJSONArray("options");
+            // 解析并校验 JSON 结构（必须包含 items / options 数组），再编译成二进制
+            PresetCatalog catalog = PresetCatalog.fromJson(items, options);
+            BinaryCatalog.write(catalog, getCatalogFile(ctx));
 
             sp.edit()
-                    .putString(KEY_ITEMS_JSON, items)
-                    .putString(KEY_OPTIONS_JSON, options)
+                    .remove(LEGACY_KEY_ITEMS_JSON)
+                    .remove(LEGACY_KEY_OPTIONS_JSON)
+                    .remove(LEGACY_KEY_SEEDED)
                     .putBoolean(KEY_SEEDED, true)
+                    .putLong(KEY_SEEDED_APP_UPDATE, appUpdateTime)
                     .apply();
 
+            // 预置数据已更新，丢弃旧的目录快照和依赖它的定位表
+            PresetRepository.invalidateCatalog();
+            LocationEngine.invalidate();
+
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /** 二进制目录文件位置 */
+    public static File getCatalogFile(Context ctx) {
+        return new File(ctx.getFilesDir(), CATALOG_FILE);
+    }
+
+    private static long getAppUpdateTime(Context ctx) {
+        try {
+            return ctx.getPackageManager()
+                    .getPackageInfo(ctx.getPackageName(), 0)
+                    .lastUpdateTime;
+        } catch (Exception e) {
+            return 0L;
+        }
+    }
+
     private static String readRawAsString(Context ctx, int rawId) throws Exception {
         InputStream is = ctx.getResources().openRawResource(rawId);
         BufferedReader br = new BufferedReader(new InputStreamReader(is));
@@ -0,0 +1,253 @@
+package edu.tamu.csce634.smartshop.data;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import edu.tamu.csce634.smartshop.models.ProductOption;
+import edu.tamu.csce634.smartshop.models.ShoppingItem;
+
+/**
+ * 预置商品目录（不可变快照）
+ * - 索引：ingredientId / optionId / 规范化名称 / category
+ * - 两种实现：
+ *   fromJson() 解析一次后全部放进哈希索引，查询 O(1)（只在生成二进制目录时用）；
+ *   BinaryCatalog.read() 直接在映射的文件上二分查找，查询 O(log n)，用到哪条才解码哪条
+ * - 对外返回的 ShoppingItem 都是新对象，调用方可以随意修改，不会污染快照
+ */
+public abstract class PresetCatalog {
+
+    /**
+     * 目录中的一个食材条目（只读）
+     */
+    public static final class Entry {
+        public final String ingredientId;
+        public final String name;
+        public final String unit;
+        public final String aisle;
+        public final String category;
+        public final double defaultQuantity;
+        public final String imageUrl;            // 类别图（兜底）
+        public final ProductOption defaultOption; // 默认 SKU，可能为 null
+        public final List<ProductOption> options; // 该食材的全部 SKU（只读）
+
+        Entry(String ingredientId, String name, String unit, String aisle, String category,
+              double defaultQuantity, String imageUrl,
+              ProductOption defaultOption, List<ProductOption> options) {
+            this.ingredientId = ingredientId;
+            this.name = name;
+            this.unit = unit;
+            this.aisle = aisle;
+            this.category = category;
+            this.defaultQuantity = defaultQuantity;
+            this.imageUrl = imageUrl;
+            this.defaultOption = defaultOption;
+            this.options = options;
+        }
+    }
+
+    private static final PresetCatalog EMPTY = new Hashed(
+            new ArrayList<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>());
+
+    PresetCatalog() {}
+
+    public static PresetCatalog empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 从 items/options 两段 JSON 构建快照（只在首次使用时调用一次）
+     */
+    public static PresetCatalog fromJson(String itemsJson, String optionsJson) throws JSONException {
+        JSONArray items = new JSONObject(itemsJson).getJSONArray("items");
+        JSONArray options = new JSONObject(optionsJson).getJSONArray("options");
+
+        // ingredientId -> options[]，optionId -> option
+        Map<String, List<ProductOption>> optIndex = new HashMap<>();
+        Map<String, ProductOption> byOptionId = new HashMap<>();
+        for (int i = 0; i < options.length(); i++) {
+            JSONObject o = options.getJSONObject(i);
+            ProductOption opt = new ProductOption();
+            opt.optionId     = o.optString("optionId", "");
+            opt.ingredientId = o.getString("ingredientId");
+            opt.brand        = o.optString("brand", "");
+            opt.displayName  = o.optString("displayName", "");
+            opt.size         = o.optString("size", "");
+            opt.unitPrice    = o.optDouble("unitPrice", 0);
+            opt.isOrganic    = o.optBoolean("isOrganic", false);
+            opt.imageUrl     = o.optString("imageUrl", "");
+
+            optIndex.computeIfAbsent(opt.ingredientId, k -> new ArrayList<>()).add(opt);
+            if (!opt.optionId.isEmpty()) byOptionId.put(opt.optionId, opt);
+        }
+
+        List<Entry> entries = new ArrayList<>(items.length());
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject it = items.getJSONObject(i);
+            String ingId = it.getString("ingredientId");
+            List<ProductOption> candidates = optIndex.get(ingId);
+            if (candidates == null) candidates = new ArrayList<>();
+
+            entries.add(new Entry(
+                    ingId,
+                    it.optString("name", ""),
+                    it.optString("unit", ""),
+                    it.optString("aisle", ""),
+                    it.optString("category", ""),
+                    it.optDouble("defaultQuantity", 1),
+                    it.optString("imageUrl", ""),
+                    pickDefault(candidates, it.optString("defaultOptionId", "")),
+                    Collections.unmodifiableList(candidates)));
+        }
+        return build(entries, byOptionId);
+    }
+
+    /**
+     * 由已解析好的条目建立全部哈希索引
+     */
+    static PresetCatalog build(List<Entry> entries, Map<String, ProductOption> byOptionId) {
+        Map<String, Entry> byIngredientId = new HashMap<>(entries.size() * 2);
+        Map<String, Entry> byName = new HashMap<>(entries.size() * 4);
+        Map<String, List<Entry>> byCategory = new HashMap<>();
+
+        for (Entry e : entries) {
+            byIngredientId.put(e.ingredientId, e);
+            byName.put(normalizeName(e.name), e);
+            if (e.defaultOption != null && e.defaultOption.displayName != null) {
+                byName.put(normalizeName(e.defaultOption.displayName), e);
+            }
+            if (e.category != null && !e.category.isEmpty()) {
+                byCategory.computeIfAbsent(e.category, k -> new ArrayList<>()).add(e);
+            }
+        }
+        return new Hashed(entries, byIngredientId, byOptionId, byName, byCategory);
+    }
+
+    private static ProductOption pickDefault(List<ProductOption> candidates, String defaultOptId) {
+        for (ProductOption c : candidates) {
+            if (defaultOptId.equals(c.optionId)) return c;
+        }
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    /**
+     * 名称规范化：小写 + 去掉所有空白（"Brown Rice" 与 "brownrice" 命中同一条目）
+     */
+    public static String normalizeName(String name) {
+        if (name == null) return "";
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isWhitespace(c)) sb.append(c);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // ========== 查询 ==========
+
+    /** 全部条目，按目录顺序（只读） */
+    public abstract List<Entry> getEntries();
+
+    public int size() {
+        return getEntries().size();
+    }
+
+    public abstract Entry findByIngredientId(String ingredientId);
+
+    /** 按食材名或默认 SKU 名查找（大小写、空白不敏感） */
+    public abstract Entry findByName(String name);
+
+    public abstract ProductOption findOption(String optionId);
+
+    /** 返回某个食材的所有 SKU（只读列表，无则为空） */
+    public List<ProductOption> getOptionsFor(String ingredientId) {
+        Entry e = findByIngredientId(ingredientId);
+        return e != null ? e.options : Collections.emptyList();
+    }
+
+    /** 某个分类下的条目，按目录顺序（只读，无则为空） */
+    public abstract List<Entry> getEntriesInCategory(String category);
+
+    /**
+     * 生成一个展开了默认 option 的 ShoppingItem（新对象）
+     * 默认 option 写进 selectedSkuName / skuSpec / unitPrice / imageUrl
+     */
+    public static ShoppingItem newShoppingItem(Entry e) {
+        ShoppingItem s = new ShoppingItem();
+        s.ingredientId = e.ingredientId;
+        s.name         = e.name;
+        s.unit         = e.unit;
+        s.quantity     = e.defaultQuantity;
+        s.aisle        = e.aisle;
+        s.category     = e.category;
+        s.imageUrl     = e.imageUrl;
+
+        ProductOption selected = e.defaultOption;
+        if (selected != null) {
+            s.selectedSkuName = selected.displayName != null && !selected.displayName.isEmpty()
+                    ? selected.displayName : s.name;
+            s.skuSpec         = selected.size != null ? selected.size : "";
+            s.unitPrice       = selected.unitPrice;
+            if (selected.imageUrl != null && !selected.imageUrl.isEmpty()) {
+                s.imageUrl = selected.imageUrl; // 优先用 SKU 图
+            }
+        }
+        return s;
+    }
+
+    /**
+     * 全部条目常驻内存、查询走哈希索引的实现（全部 O(1)）
+     */
+    private static final class Hashed extends PresetCatalog {
+        private final List<Entry> entries;
+        private final Map<String, Entry> byIngredientId;
+        private final Map<String, ProductOption> byOptionId;
+        private final Map<String, Entry> byName;
+        private final Map<String, List<Entry>> byCategory;
+
+        Hashed(List<Entry> entries,
+               Map<String, Entry> byIngredientId,
+               Map<String, ProductOption> byOptionId,
+               Map<String, Entry> byName,
+               Map<String, List<Entry>> byCategory) {
+            this.entries = Collections.unmodifiableList(entries);
+            this.byIngredientId = byIngredientId;
+            this.byOptionId = byOptionId;
+            this.byName = byName;
+            this.byCategory = byCategory;
+        }
+
+        @Override
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        @Override
+        public Entry findByIngredientId(String ingredientId) {
+            return ingredientId == null ? null : byIngredientId.get(ingredientId);
+        }
+
+        @Override
+        public Entry findByName(String name) {
+            return byName.get(normalizeName(name));
+        }
+
+        @Override
+        public ProductOption findOption(String optionId) {
+            return optionId == null ? null : byOptionId.get(optionId);
+        }
+
+        @Override
+        public List<Entry> getEntriesInCategory(String category) {
+            List<Entry> list = category == null ? null : byCategory.get(category);
+            return list != null ? Collections.unmodifiableList(list) : Collections.emptyList();
+        }
+    }
+}
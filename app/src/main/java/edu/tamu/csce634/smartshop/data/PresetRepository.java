@@ -1,95 +1,104 @@
 package edu.tamu.csce634.smartshop.data;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-
-import org.json.JSONArray;
-import org.json.JSONObject;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
+import edu.tamu.csce634.smartshop.models.ProductOption;
 import edu.tamu.csce634.smartshop.models.ShoppingItem;
 
 /**
- * 从 SharedPreferences 读取预置 items/options
- * - loadInitialItems(): 返回展开了“默认 option”的 ShoppingItem 列表
- * - getOptionsFor(ingredientId): 返回该食材的所有 SKU（JSONObject 列表）
+ * 读取预置 items/options
+ * - 数据来自 DataSeeder 生成的二进制目录文件（内存映射，不走 JSON / SharedPreferences，
+ *   打开时不解码记录，查到哪条解码哪条）
+ * - 进程内第一次访问时加载一次，结果缓存为不可变的 PresetCatalog 快照
+ * - loadInitialItems(): 返回展开了“默认 option”的 ShoppingItem 列表（每次都是新对象）
+ * - getOptionsFor(ingredientId): 返回该食材的所有 SKU
  */
 public class PresetRepository {
 
-    private final SharedPreferences sp;
+    // 进程级快照：所有 PresetRepository 实例共享
+    private static volatile PresetCatalog cachedCatalog;
+    private static final Object LOCK = new Object();
+
+    private final Context appContext;
 
     public PresetRepository(Context ctx) {
-        this.sp = ctx.getSharedPreferences(DataSeeder.PREF_NAME, Context.MODE_PRIVATE);
+        this.appContext = ctx.getApplicationContext();
     }
 
-    /** 初始列表：把默认 option 写进 ShoppingItem 的 selectedSkuName / skuSpec / unitPrice / imageUrl */
-    public List<ShoppingItem> loadInitialItems() throws Exception {
-        String itemsStr = sp.getString(DataSeeder.KEY_ITEMS_JSON, "{}");
-        String optsStr = sp.getString(DataSeeder.KEY_OPTIONS_JSON, "{}");
-
-        JSONArray items = new JSONObject(itemsStr).getJSONArray("items");
-        JSONArray options = new JSONObject(optsStr).getJSONArray("options");
-
-        // 建 index：ingredientId -> options[]
-        HashMap<String, List<JSONObject>> optIndex = new HashMap<>();
-        for (int i = 0; i < options.length(); i++) {
-            JSONObject o = options.getJSONObject(i);
-            String ingId = o.getString("ingredientId");
-            optIndex.computeIfAbsent(ingId, k -> new ArrayList<>()).add(o);
-        }
+    /**
+     * 获取目录快照（首次调用时映射文件，之后直接返回）
+     */
+    public PresetCatalog getCatalog() throws Exception {
+        PresetCatalog catalog = cachedCatalog;
+        if (catalog != null) return catalog;
 
-        List<ShoppingItem> list = new ArrayList<>();
-        for (int i = 0; i < items.length(); i++) {
-            JSONObject it = items.getJSONObject(i);
-            String ingId = it.getString("ingredientId");
-
-            String defaultOptId = it.optString("defaultOptionId", "");
-            JSONObject selected = null;
-            List<JSONObject> candidates = optIndex.getOrDefault(ingId, new ArrayList<>());
-            for (JSONObject c : candidates) {
-                if (c.optString("optionId").equals(defaultOptId)) {
-                    selected = c;
-                    break;
-                }
-            }
-            if (selected == null && !candidates.isEmpty()) selected = candidates.get(0);
-
-            ShoppingItem s = new ShoppingItem();
-            s.ingredientId = ingId;
-            s.name         = it.optString("name", "");
-            s.unit         = it.optString("unit", "");
-            s.quantity     = it.optDouble("defaultQuantity", 1);
-            s.aisle        = it.optString("aisle", "");
-            s.imageUrl     = it.optString("imageUrl", ""); // 类别图（兜底）
-
-            if (selected != null) {
-                s.selectedSkuName = selected.optString("displayName", s.name);
-                s.skuSpec         = selected.optString("size", "");
-                s.unitPrice       = selected.optDouble("unitPrice", 0);
-                String skuImg     = selected.optString("imageUrl", "");
-                if (!skuImg.isEmpty()) s.imageUrl = skuImg; // 优先用 SKU 图
+        synchronized (LOCK) {
+            if (cachedCatalog == null) {
+                cachedCatalog = loadCatalog();
             }
+            return cachedCatalog;
+        }
+    }
 
-            list.add(s);
+    private PresetCatalog loadCatalog() throws IOException {
+        DataSeeder.seedIfNeeded(appContext);
+        File file = DataSeeder.getCatalogFile(appContext);
+        try {
+            return BinaryCatalog.read(file, () -> discardCatalog(file));
+        } catch (IOException e) {
+            // 文件损坏或版本不符：删掉重新生成一次
+            e.printStackTrace();
+            file.delete();
+            DataSeeder.seedIfNeeded(appContext);
+            return BinaryCatalog.read(file, () -> discardCatalog(file));
+        }
+    }
+
+    /**
+     * 查询时才发现记录损坏：删掉文件并丢弃快照，下次 getCatalog() 重新生成
+     * （已映射的内容在删除后仍然可读，正在使用旧快照的调用方不受影响）
+     */
+    private static void discardCatalog(File file) {
+        file.delete();
+        invalidateCatalog();
+    }
+
+    /**
+     * 预置数据被重新灌入后调用，下次访问时重建快照
+     */
+    public static void invalidateCatalog() {
+        cachedCatalog = null;
+    }
+
+    /** 初始列表：把默认 option 写进 ShoppingItem 的 selectedSkuName / skuSpec / unitPrice / imageUrl */
+    public List<ShoppingItem> loadInitialItems() throws Exception {
+        PresetCatalog catalog = getCatalog();
+        List<ShoppingItem> list = new ArrayList<>(catalog.size());
+        for (PresetCatalog.Entry e : catalog.getEntries()) {
+            list.add(PresetCatalog.newShoppingItem(e));
         }
         return list;
     }
 
+    /** 按 ingredientId 取单个预置条目（新对象），找不到返回 null */
+    public ShoppingItem findItem(String ingredientId) throws Exception {
+        PresetCatalog.Entry e = getCatalog().findByIngredientId(ingredientId);
+        return e != null ? PresetCatalog.newShoppingItem(e) : null;
+    }
+
+    /** 按食材名 / SKU 名取单个预置条目（新对象），找不到返回 null */
+    public ShoppingItem findItemByName(String name) throws Exception {
+        PresetCatalog.Entry e = getCatalog().findByName(name);
+        return e != null ? PresetCatalog.newShoppingItem(e) : null;
+    }
+
     /** 返回某个食材的所有具体 SKU（用于 BottomSheet 展示） */
-    public List<JSONObject> getOptionsFor(String ingredientId) throws Exception {
-        String optsStr = sp.getString(DataSeeder.KEY_OPTIONS_JSON, "{}");
-        JSONArray options = new JSONObject(optsStr).getJSONArray("options");
-
-        List<JSONObject> result = new ArrayList<>();
-        for (int i = 0; i < options.length(); i++) {
-            JSONObject o = options.getJSONObject(i);
-            if (ingredientId.equals(o.optString("ingredientId"))) {
-                result.add(o);
-            }
-        }
-        return result;
+    public List<ProductOption> getOptionsFor(String ingredientId) throws Exception {
+        return getCatalog().getOptionsFor(ingredientId);
     }
 }
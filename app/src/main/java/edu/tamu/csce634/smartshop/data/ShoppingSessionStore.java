@@ -0,0 +1,358 @@
+package edu.tamu.csce634.smartshop.data;
+
+import android.content.Context;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.tamu.csce634.smartshop.models.ShoppingItem;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
+
+/**
+ * 店内购物进度（Map 页）的持久化：路线顺序、已拾取的商品、当前第几个、上一个位置
+ *
+ * 以前这些只在内存里，进程被杀后进度全丢，回来还要重新算路线。现在：
+ * - 快照文件（JSON）：路线 + 当时的全部进度；路线变化时重写（先写临时文件再改名）
+ * - 追加日志：每次拾取 / 前进只追加一行，不重写整个文件；日志过长时合并进快照
+ * - 每条日志带序号，快照记下已包含的最大序号，重放时跳过旧记录（改名后、删日志前崩溃也不会回退进度）
+ * - 启动时读快照 + 重放日志，只有几 KB，几毫秒完成
+ *
+ * 内存中的状态同步更新，文件写入都在 AppExecutors.diskIO() 上按顺序执行
+ * 第一次 {@link #get(Context)} 会读文件，应在后台线程调用
+ */
+public class ShoppingSessionStore {
+
+    private static final String SNAPSHOT_FILE = "shopping_session.json";
+    private static final String SNAPSHOT_TMP_FILE = "shopping_session.json.tmp";
+    private static final String LOG_FILE = "shopping_session.log";
+
+    // 日志行数超过这个值就合并进快照
+    private static final int MAX_LOG_LINES = 256;
+
+    // 日志操作
+    private static final String OP_PICK = "pick";
+    private static final String OP_CURSOR = "cursor";
+
+    private static volatile ShoppingSessionStore instance;
+
+    private final File snapshotFile;
+    private final File snapshotTmpFile;
+    private final File logFile;
+    private final Gson gson = new Gson();
+
+    private final Object lock = new Object();
+    private Snapshot state = new Snapshot();
+    private long seq;           // 最新一条修改的序号
+    private int logLines;       // 日志当前行数（近似，用于决定何时合并）
+    private FileOutputStream log;
+
+    /**
+     * 快照格式（也是内存中的状态）
+     */
+    private static class Snapshot {
+        long seq;                              // 已包含的最大日志序号
+        String routeKey;                       // 路线对应的商品集合
+        List<String> route = new ArrayList<>();
+        Set<String> picked = new HashSet<>();
+        int currentIndex;
+        boolean hasLastLocation;
+        float lastX;
+        float lastY;
+
+        Snapshot copy() {
+            Snapshot c = new Snapshot();
+            c.seq = seq;
+            c.routeKey = routeKey;
+            c.route = new ArrayList<>(route);
+            c.picked = new HashSet<>(picked);
+            c.currentIndex = currentIndex;
+            c.hasLastLocation = hasLastLocation;
+            c.lastX = lastX;
+            c.lastY = lastY;
+            return c;
+        }
+    }
+
+    public static ShoppingSessionStore get(Context context) {
+        if (instance == null) {
+            synchronized (ShoppingSessionStore.class) {
+                if (instance == null) {
+                    instance = new ShoppingSessionStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ShoppingSessionStore(Context context) {
+        File dir = context.getFilesDir();
+        this.snapshotFile = new File(dir, SNAPSHOT_FILE);
+        this.snapshotTmpFile = new File(dir, SNAPSHOT_TMP_FILE);
+        this.logFile = new File(dir, LOG_FILE);
+        recover();
+    }
+
+    // ========== 路线 ==========
+
+    /**
+     * 商品在会话里的 key：优先 ingredientId，没有就用名字
+     */
+    public static String keyOf(ShoppingItem item) {
+        return item.ingredientId != null ? item.ingredientId : "name:" + item.name;
+    }
+
+    /**
+     * 一组商品的路线 key（与顺序无关）：商品集合和位置都不变，保存的路线就还能用
+     * （换 SKU 可能换货架，所以坐标也算在内）
+     */
+    public static String routeKeyOf(List<ShoppingItem> items) {
+        List<String> keys = new ArrayList<>(items.size());
+        for (ShoppingItem item : items) {
+            keys.add(keyOf(item) + "@" + item.coordinateX + "," + item.coordinateY);
+        }
+        Collections.sort(keys);
+        return String.join("\u0000", keys);
+    }
+
+    /**
+     * 已保存的路线顺序（商品 key 列表）；路线 key 不一致返回 null
+     */
+    public List<String> routeFor(String routeKey) {
+        synchronized (lock) {
+            if (routeKey == null || !routeKey.equals(state.routeKey)) return null;
+            return new ArrayList<>(state.route);
+        }
+    }
+
+    /**
+     * 保存新路线：进度回到起点，仍在新路线里的商品保留拾取状态
+     */
+    public void saveRoute(String routeKey, List<String> route) {
+        synchronized (lock) {
+            Set<String> keep = new HashSet<>(route);
+            state.picked.retainAll(keep);
+            state.routeKey = routeKey;
+            state.route = new ArrayList<>(route);
+            state.currentIndex = 0;
+            state.hasLastLocation = false;
+            state.seq = seq;
+            logLines = 0;
+            Snapshot snapshot = state.copy();
+            AppExecutors.diskIO().execute(() -> writeSnapshot(snapshot));
+        }
+    }
+
+    /**
+     * 结束本次购物：丢掉路线和全部进度（购物完成、清单被清空时调用），
+     * 之后同一组商品会重新规划路线，不会恢复上一趟的拾取状态
+     */
+    public void clear() {
+        synchronized (lock) {
+            state = new Snapshot();
+            state.seq = seq;
+            logLines = 0;
+            Snapshot snapshot = state.copy();
+            AppExecutors.diskIO().execute(() -> writeSnapshot(snapshot));
+        }
+    }
+
+    // ========== 进度 ==========
+
+    public boolean isPicked(String itemKey) {
+        synchronized (lock) {
+            return state.picked.contains(itemKey);
+        }
+    }
+
+    public void setPicked(String itemKey, boolean picked) {
+        JsonArray op = new JsonArray();
+        op.add(OP_PICK);
+        op.add(itemKey);
+        op.add(picked);
+        mutate(op);
+    }
+
+    public int getCurrentIndex() {
+        synchronized (lock) {
+            return state.currentIndex;
+        }
+    }
+
+    /**
+     * 上一个位置（归一化坐标 {x, y}），没有返回 null
+     */
+    public float[] getLastLocation() {
+        synchronized (lock) {
+            return state.hasLastLocation ? new float[]{state.lastX, state.lastY} : null;
+        }
+    }
+
+    /**
+     * 记录当前第几个商品和上一个位置（location 为 null 表示从入口出发）
+     */
+    public void setCursor(int currentIndex, float[] location) {
+        JsonArray op = new JsonArray();
+        op.add(OP_CURSOR);
+        op.add(currentIndex);
+        if (location != null) {
+            op.add(location[0]);
+            op.add(location[1]);
+        }
+        mutate(op);
+    }
+
+    // ========== 内部 ==========
+
+    /**
+     * 改内存并追加日志；在锁内提交磁盘任务，保证写入顺序与修改顺序一致
+     */
+    private void mutate(JsonArray op) {
+        synchronized (lock) {
+            applyOp(op);
+            seq++;
+            JsonArray record = new JsonArray();
+            record.add(seq);
+            record.add(op);
+            String line = record.toString();
+            AppExecutors.diskIO().execute(() -> appendToLog(line));
+
+            if (++logLines > MAX_LOG_LINES) {
+                state.seq = seq;
+                logLines = 0;
+                Snapshot snapshot = state.copy();
+                AppExecutors.diskIO().execute(() -> writeSnapshot(snapshot));
+            }
+        }
+    }
+
+    /**
+     * 把一条操作作用到内存（正常写入与日志重放共用）
+     */
+    private void applyOp(JsonArray op) {
+        String name = op.get(0).getAsString();
+        if (OP_PICK.equals(name)) {
+            String key = op.get(1).getAsString();
+            if (op.get(2).getAsBoolean()) {
+                state.picked.add(key);
+            } else {
+                state.picked.remove(key);
+            }
+        } else if (OP_CURSOR.equals(name)) {
+            state.currentIndex = op.get(1).getAsInt();
+            state.hasLastLocation = op.size() >= 4;
+            if (state.hasLastLocation) {
+                state.lastX = op.get(2).getAsFloat();
+                state.lastY = op.get(3).getAsFloat();
+            }
+        }
+    }
+
+    // 以下只在 diskIO 线程执行（recover 除外）
+
+    private void appendToLog(String line) {
+        try {
+            if (log == null) {
+                log = new FileOutputStream(logFile, true);
+            }
+            // 不经过缓冲：write 返回后数据已交给系统，进程崩溃也不会丢
+            log.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeLog();
+        }
+    }
+
+    /**
+     * 写快照（临时文件 + 改名），成功后清空日志（快照已包含其中所有记录）
+     */
+    private void writeSnapshot(Snapshot snapshot) {
+        try (FileOutputStream out = new FileOutputStream(snapshotTmpFile);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            gson.toJson(snapshot, writer);
+            writer.flush();
+            out.getFD().sync();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return; // 旧快照 + 日志仍然完整
+        }
+        if (!snapshotTmpFile.renameTo(snapshotFile)) return;
+
+        closeLog();
+        logFile.delete();
+    }
+
+    private void closeLog() {
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        log = null;
+    }
+
+    /**
+     * 启动时读快照，再按顺序重放快照之后的日志；重放过日志就立即合并成新快照
+     * （日志末尾可能有写了一半的行，之后的追加不能接在它后面）
+     */
+    private void recover() {
+        synchronized (lock) {
+            if (snapshotFile.exists()) {
+                try (InputStreamReader reader = new InputStreamReader(
+                        new FileInputStream(snapshotFile), StandardCharsets.UTF_8)) {
+                    Snapshot loaded = gson.fromJson(reader, Snapshot.class);
+                    if (loaded != null) {
+                        if (loaded.route == null) loaded.route = new ArrayList<>();
+                        if (loaded.picked == null) loaded.picked = new HashSet<>();
+                        state = loaded;
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+            seq = state.seq;
+
+            if (!logFile.exists()) return;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+                    JsonArray record;
+                    try {
+                        record = JsonParser.parseString(line).getAsJsonArray();
+                    } catch (Exception e) {
+                        break; // 最后一行没写完（写到一半崩溃），之后没有有效记录
+                    }
+                    logLines++;
+                    long lineSeq = record.get(0).getAsLong();
+                    if (lineSeq <= state.seq) continue; // 已经在快照里
+                    applyOp(record.get(1).getAsJsonArray());
+                    seq = Math.max(seq, lineSeq);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            state.seq = seq;
+            logLines = 0;
+            Snapshot compacted = state.copy();
+            AppExecutors.diskIO().execute(() -> writeSnapshot(compacted));
+        }
+    }
+}
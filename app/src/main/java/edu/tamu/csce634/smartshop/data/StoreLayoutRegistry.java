@@ -0,0 +1,257 @@
+package edu.tamu.csce634.smartshop.data;
+
+import android.content.Context;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+
+import edu.tamu.csce634.smartshop.R;
+import edu.tamu.csce634.smartshop.Repository.ProfileRepository;
+import edu.tamu.csce634.smartshop.models.world.SupermarketLayout;
+import edu.tamu.csce634.smartshop.ui.map.GridPathfinder;
+import edu.tamu.csce634.smartshop.ui.map.LayoutSpatialIndex;
+import edu.tamu.csce634.smartshop.ui.map.PathNavigationView;
+import edu.tamu.csce634.smartshop.ui.map.ShelfDistanceOracle;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
+
+/**
+ * Loads store layouts by store id and keeps the most recently used ones ready.
+ *
+ * A store's layout is read from files/layouts/&lt;storeId&gt;.json; stores without their
+ * own file share the bundled R.raw.supermarket_layout. Loading a store produces one
+ * {@link StoreLayout} holding everything derived from the layout (spatial index,
+ * obstacle grid, shelf distances), so switching back to a recent store re-parses and
+ * re-rasterizes nothing. At most {@link #MAX_LOADED} stores are kept.
+ *
+ * {@link #get(String)} blocks while loading and must be called off the UI thread;
+ * concurrent requests for the same store share one load.
+ */
+public class StoreLayoutRegistry {
+
+    /** Id used for the bundled layout. */
+    public static final String DEFAULT_STORE_ID = "default";
+
+    private static final String LAYOUT_DIR = "layouts";
+    private static final int MAX_LOADED = 3;
+
+    // Cell budget for the pathfinder grid: a 400x600 layout keeps its declared resolution.
+    // Each pathfinder instance costs about 30 bytes per cell and the shared jump tables 16,
+    // so the store's grid plus one view worker stay under 20 MB; finer grids are scaled down
+    private static final int MAX_GRID_CELLS = 400 * 600;
+    // The distance oracle keeps one distance field per shelf point, so it runs on a
+    // coarser copy of fine grids (route ordering does not need cell-level precision)
+    private static final int MAX_ORACLE_CELLS = 160 * 240;
+
+    /**
+     * A parsed layout and the structures derived from it. Immutable; shared by all users
+     * of the store.
+     */
+    public static final class StoreLayout {
+        public final String storeId;               // resolved id (DEFAULT_STORE_ID for the bundled layout)
+        public final SupermarketLayout layout;     // null if the layout could not be read
+        public final LayoutSpatialIndex index;
+        public final GridPathfinder grid;          // obstacle grid; search via grid.newWorker()
+        public final ShelfDistanceOracle oracle;   // null if the layout could not be read
+
+        StoreLayout(String storeId, SupermarketLayout layout, LayoutSpatialIndex index,
+                    GridPathfinder grid, ShelfDistanceOracle oracle) {
+            this.storeId = storeId;
+            this.layout = layout;
+            this.index = index;
+            this.grid = grid;
+            this.oracle = oracle;
+        }
+    }
+
+    private static volatile StoreLayoutRegistry instance;
+
+    private final Context appContext;
+    private final Object lock = new Object();
+
+    // Access-ordered, so the eldest entry is the least recently used store
+    private final LinkedHashMap<String, StoreLayout> loaded =
+            new LinkedHashMap<String, StoreLayout>(MAX_LOADED + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StoreLayout> eldest) {
+                    return size() > MAX_LOADED;
+                }
+            };
+    private final Map<String, FutureTask<StoreLayout>> loading = new HashMap<>();
+
+    public static StoreLayoutRegistry getInstance(Context context) {
+        if (instance == null) {
+            synchronized (StoreLayoutRegistry.class) {
+                if (instance == null) {
+                    instance = new StoreLayoutRegistry(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private StoreLayoutRegistry(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    /**
+     * Store id for a store name as entered in the profile ("SmartShop Market" ->
+     * "smartshop_market"); blank names map to the default store.
+     */
+    public static String storeIdFor(String storeName) {
+        if (storeName == null) return DEFAULT_STORE_ID;
+        String id = storeName.trim().toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9]+", "_")
+                .replaceAll("^_+|_+$", "");
+        return id.isEmpty() ? DEFAULT_STORE_ID : id;
+    }
+
+    /** Store id of the store selected in the user's profile. */
+    public String getPreferredStoreId() {
+        return storeIdFor(ProfileRepository.getSavedStore(appContext));
+    }
+
+    /**
+     * Layout of the store, loading it if needed. Blocks; call off the UI thread.
+     */
+    public StoreLayout get(String storeId) {
+        String key = resolve(storeId);
+        FutureTask<StoreLayout> task;
+        boolean owner = false;
+        synchronized (lock) {
+            StoreLayout cached = loaded.get(key);
+            if (cached != null) return cached;
+
+            task = loading.get(key);
+            if (task == null) {
+                task = new FutureTask<>(() -> load(key));
+                loading.put(key, task);
+                owner = true;
+            }
+        }
+
+        if (owner) task.run();
+        try {
+            StoreLayout result = task.get();
+            if (owner) {
+                synchronized (lock) {
+                    loaded.put(key, result);
+                    loading.remove(key);
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (owner) {
+                synchronized (lock) {
+                    loading.remove(key);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Layout of the store if it is already loaded, otherwise null. Never blocks.
+     */
+    public StoreLayout peek(String storeId) {
+        synchronized (lock) {
+            return loaded.get(resolve(storeId));
+        }
+    }
+
+    /** Loads the store in the background so a later {@link #get(String)} returns at once. */
+    public void prefetch(String storeId) {
+        AppExecutors.runInBackground(() -> get(storeId));
+    }
+
+    /** Prefetches the store selected in the user's profile. */
+    public void prefetchPreferredStore() {
+        AppExecutors.runInBackground(() -> get(getPreferredStoreId()));
+    }
+
+    /**
+     * Drops every loaded layout (e.g. after layout files have been replaced).
+     */
+    public void invalidateAll() {
+        synchronized (lock) {
+            loaded.clear();
+        }
+    }
+
+    // --- Loading ---
+
+    /**
+     * Cache key for a store: its own id if it has a layout file, otherwise the default
+     * store, so stores without a layout share one copy of the bundled one.
+     */
+    private String resolve(String storeId) {
+        if (storeId == null || DEFAULT_STORE_ID.equals(storeId)) return DEFAULT_STORE_ID;
+        return layoutFile(storeId).isFile() ? storeId : DEFAULT_STORE_ID;
+    }
+
+    private File layoutFile(String storeId) {
+        return new File(new File(appContext.getFilesDir(), LAYOUT_DIR), storeId + ".json");
+    }
+
+    /**
+     * Reads the layout and builds its grid and distance oracle. An interrupt aborts the
+     * load (nothing is cached, the next {@link #get(String)} starts over).
+     */
+    private StoreLayout load(String storeId) throws InterruptedException {
+        SupermarketLayout layout;
+        try (InputStream is = DEFAULT_STORE_ID.equals(storeId)
+                ? appContext.getResources().openRawResource(R.raw.supermarket_layout)
+                : new FileInputStream(layoutFile(storeId));
+             InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+            layout = new Gson().fromJson(reader, SupermarketLayout.class);
+        } catch (Exception e) {
+            e.printStackTrace();
+            layout = null;
+        }
+
+        int[] size = {PathNavigationView.DEFAULT_GRID_WIDTH, PathNavigationView.DEFAULT_GRID_HEIGHT};
+        if (layout != null && layout.grid != null && layout.grid.length >= 2
+                && layout.grid[0] > 0 && layout.grid[1] > 0) {
+            size = fitCells(layout.grid[0], layout.grid[1], MAX_GRID_CELLS);
+        }
+        GridPathfinder grid = GridPathfinder.fromLayout(layout, size[0], size[1]);
+        // Built here so the first findPath on the UI thread does not pay for it
+        grid.prepare();
+
+        // Walking distances between shelves, computed once per store
+        ShelfDistanceOracle oracle = null;
+        if (layout != null) {
+            int[] oracleSize = fitCells(size[0], size[1], MAX_ORACLE_CELLS);
+            GridPathfinder oracleGrid = oracleSize[0] == size[0] && oracleSize[1] == size[1] ? grid
+                    : GridPathfinder.fromLayout(layout, oracleSize[0], oracleSize[1]);
+            oracle = ShelfDistanceOracle.build(layout, oracleGrid);
+        }
+        return new StoreLayout(storeId, layout, new LayoutSpatialIndex(layout), grid, oracle);
+    }
+
+    /**
+     * {width, height} scaled down by a whole factor until it has at most {@code maxCells}
+     * cells; grids already within the budget are returned unchanged.
+     */
+    private static int[] fitCells(int width, int height, int maxCells) {
+        int scale = (int) Math.ceil(Math.sqrt(width * (double) height / maxCells));
+        if (scale > 1) {
+            width = Math.max(1, width / scale);
+            height = Math.max(1, height / scale);
+        }
+        // Very elongated grids can still exceed the budget after scaling
+        height = Math.min(height, maxCells);
+        width = Math.min(width, maxCells / height);
+        return new int[]{width, height};
+    }
+}
@@ -0,0 +1,518 @@
+package edu.tamu.csce634.smartshop.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
+
+/**
+ * 写回式（write-behind）键值存储，包在一个 SharedPreferences 文件外面
+ *
+ * 以前每次 +/- 都把整张 Map 用 Gson 序列化再 apply()，连点一串就是几十次整文件重写。现在：
+ * - 修改只改内存，并往日志文件追加一行小记录（只含这一次的变化，不含整张表）；
+ *   追加在 diskIO 线程上按修改顺序执行，调用方（通常是主线程）不碰文件
+ * - 同一时间窗口（FLUSH_DELAY_MS）内的修改合并，窗口结束时每个脏 key 只序列化一次、一次 commit 写盘
+ * - 日志是 crash-safe 的：进程在落盘前被杀，下次打开时从日志重放，不丢已追加的更新
+ * - 页面 pause 时 syncAll()：日志 fsync，并立即安排落盘
+ *
+ * 值的形式：
+ * - “表”类 key（如购物车）在内存里是 JsonObject，支持按字段 putEntry / removeEntry
+ * - 其他 key 是标量（JsonPrimitive）。数值的类型（int / long / float / double）随 put 记进日志，
+ *   写盘时按原类型 putInt / putLong / putFloat；SharedPreferences 没有 double，按字符串存，
+ *   不丢精度。布尔用 putBoolean，其余 putString
+ * 存到 SharedPreferences 里的格式与旧版一致（表 = JSON 字符串），旧数据可直接读
+ *
+ * 每个 SharedPreferences 文件对应一个进程级实例：{@link #get(Context, String)}
+ */
+public class WriteBehindStore {
+
+    // 合并窗口：第一次修改后这么久写一次盘
+    static final long FLUSH_DELAY_MS = 1000;
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String FLUSHING_SUFFIX = ".journal.flushing";
+
+    // 日志操作
+    private static final String OP_PUT = "put";
+    private static final String OP_PUT_ENTRY = "entry";
+    private static final String OP_REMOVE_ENTRY = "remove_entry";
+    private static final String OP_REMOVE = "remove";
+    private static final String OP_CLEAR = "clear";
+
+    // put 的可选第 4 项：数值类型
+    private static final String TYPE_INT = "int";
+    private static final String TYPE_LONG = "long";
+    private static final String TYPE_FLOAT = "float";
+    private static final String TYPE_DOUBLE = "double";
+
+    private static final Map<String, WriteBehindStore> STORES = new HashMap<>();
+
+    private final SharedPreferences prefs;
+    private final File journalFile;
+    private final File flushingFile;
+    private final Gson gson = new Gson();
+
+    private final Object lock = new Object();
+    private final Map<String, JsonElement> cache = new HashMap<>(); // 已加载的值，JsonNull = 不存在
+    private final Map<String, String> numberTypes = new HashMap<>(); // 标量数值 key -> 写入时的类型
+    private final Set<String> dirty = new HashSet<>();
+    private boolean clearPending = false;   // 有一次 clear 还没写盘
+    private boolean clearInFlight = false;  // clear 正在写盘：此时不能再从 SharedPreferences 读旧值
+    private boolean flushScheduled = false;
+    private FileOutputStream journal;       // 只在 diskIO 线程（及构造时的 recover）访问
+
+    /**
+     * 取得某个 SharedPreferences 文件的共享存储（第一次调用时重放上次没落盘的日志）
+     */
+    public static WriteBehindStore get(Context context, String prefsName) {
+        synchronized (STORES) {
+            WriteBehindStore store = STORES.get(prefsName);
+            if (store == null) {
+                store = new WriteBehindStore(context.getApplicationContext(), prefsName);
+                STORES.put(prefsName, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * 生命周期 pause 时调用：所有存储的日志 fsync，并立即安排落盘
+     */
+    public static void syncAll() {
+        List<WriteBehindStore> stores;
+        synchronized (STORES) {
+            stores = new ArrayList<>(STORES.values());
+        }
+        for (WriteBehindStore store : stores) {
+            store.sync();
+        }
+    }
+
+    private WriteBehindStore(Context context, String prefsName) {
+        this.prefs = context.getSharedPreferences(prefsName, Context.MODE_PRIVATE);
+        File dir = context.getFilesDir();
+        this.journalFile = new File(dir, prefsName + JOURNAL_SUFFIX);
+        this.flushingFile = new File(dir, prefsName + FLUSHING_SUFFIX);
+        recover();
+    }
+
+    // ========== 读 ==========
+
+    /**
+     * 读取一个 key 并用 Gson 转成指定类型（不存在返回 null）
+     * 每次返回新对象，调用方可以随意修改
+     */
+    public <T> T get(String key, Type type) {
+        synchronized (lock) {
+            JsonElement value = load(key);
+            if (value.isJsonNull()) return null;
+            try {
+                return gson.fromJson(value, type);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+
+    public int getInt(String key, int defaultValue) {
+        synchronized (lock) {
+            JsonElement value = load(key);
+            if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber()) {
+                return value.getAsInt();
+            }
+            return defaultValue;
+        }
+    }
+
+    // ========== 写（只改内存 + 追加日志，稍后合并落盘）==========
+
+    /**
+     * 整体替换一个 key 的值（对象会被序列化成 JSON 树）
+     * 装箱的 Integer / Long / Float / Double 按原类型写盘，同 putInt / putLong / putFloat / putDouble
+     */
+    public void put(String key, Object value) {
+        JsonElement element = value instanceof JsonElement ? (JsonElement) value : gson.toJsonTree(value);
+        mutate(putOp(key, element, numberTypeOf(value)));
+    }
+
+    public void putInt(String key, int value) {
+        mutate(putOp(key, new JsonPrimitive(value), TYPE_INT));
+    }
+
+    public void putLong(String key, long value) {
+        mutate(putOp(key, new JsonPrimitive(value), TYPE_LONG));
+    }
+
+    public void putFloat(String key, float value) {
+        mutate(putOp(key, new JsonPrimitive(value), TYPE_FLOAT));
+    }
+
+    /** SharedPreferences 没有 double，落盘为字符串，用 get(key, Double.class) 读回 */
+    public void putDouble(String key, double value) {
+        mutate(putOp(key, new JsonPrimitive(value), TYPE_DOUBLE));
+    }
+
+    /**
+     * 只改表中的一项（例如购物车里某个食谱的份数），日志里只记这一项
+     */
+    public void putEntry(String key, String field, Object value) {
+        JsonElement element = value instanceof JsonElement ? (JsonElement) value : gson.toJsonTree(value);
+        mutate(op(OP_PUT_ENTRY, key, field, element));
+    }
+
+    public void removeEntry(String key, String field) {
+        mutate(op(OP_REMOVE_ENTRY, key, field, null));
+    }
+
+    public void remove(String key) {
+        mutate(op(OP_REMOVE, key, null, null));
+    }
+
+    /**
+     * 清空整个 SharedPreferences 文件
+     */
+    public void clear() {
+        mutate(op(OP_CLEAR, null, null, null));
+    }
+
+    // ========== 落盘 ==========
+
+    /**
+     * 立即在后台落盘（不等合并窗口）
+     */
+    public void flush() {
+        AppExecutors.diskIO().execute(this::writeToDisk);
+    }
+
+    /**
+     * 日志 fsync（保证已记录的修改在掉电后也还在），并立即安排落盘
+     */
+    public void sync() {
+        // 排在已提交的日志追加之后执行
+        AppExecutors.diskIO().execute(() -> {
+            if (journal == null) return;
+            try {
+                journal.getFD().sync();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        synchronized (lock) {
+            if (dirty.isEmpty() && !clearPending) return;
+        }
+        flush();
+    }
+
+    private static JsonArray op(String name, String key, String field, JsonElement value) {
+        JsonArray op = new JsonArray();
+        op.add(name);
+        if (key != null) op.add(key);
+        if (field != null) op.add(field);
+        if (value != null) op.add(value);
+        return op;
+    }
+
+    private static JsonArray putOp(String key, JsonElement value, String numberType) {
+        JsonArray op = op(OP_PUT, key, null, value);
+        if (numberType != null) op.add(numberType);
+        return op;
+    }
+
+    private static String numberTypeOf(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) return TYPE_INT;
+        if (value instanceof Long) return TYPE_LONG;
+        if (value instanceof Float) return TYPE_FLOAT;
+        if (value instanceof Double) return TYPE_DOUBLE;
+        return null;
+    }
+
+    private void mutate(JsonArray op) {
+        synchronized (lock) {
+            applyOp(op);
+            // 在锁内序列化（之后 cache 里的对象还会被修改）并提交，保证日志顺序与修改顺序一致
+            String line = op.toString();
+            AppExecutors.diskIO().execute(() -> appendToJournal(line));
+            if (!flushScheduled) {
+                flushScheduled = true;
+                AppExecutors.diskIO().schedule(this::writeToDisk, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 把一条操作作用到内存（正常写入与日志重放共用）
+     */
+    private void applyOp(JsonArray op) {
+        String name = op.get(0).getAsString();
+        if (OP_CLEAR.equals(name)) {
+            cache.clear();
+            numberTypes.clear();
+            dirty.clear();
+            clearPending = true;
+            return;
+        }
+
+        String key = op.get(1).getAsString();
+        numberTypes.remove(key);
+        switch (name) {
+            case OP_PUT:
+                cache.put(key, op.get(2));
+                // 旧版日志没有类型项，写盘时按数值推断
+                if (op.size() > 3) numberTypes.put(key, op.get(3).getAsString());
+                break;
+            case OP_PUT_ENTRY:
+            case OP_REMOVE_ENTRY: {
+                JsonElement current = load(key);
+                JsonObject table = current.isJsonObject() ? current.getAsJsonObject() : new JsonObject();
+                if (OP_PUT_ENTRY.equals(name)) {
+                    table.add(op.get(2).getAsString(), op.get(3));
+                } else {
+                    table.remove(op.get(2).getAsString());
+                }
+                cache.put(key, table);
+                break;
+            }
+            case OP_REMOVE:
+                cache.put(key, JsonNull.INSTANCE);
+                break;
+            default:
+                return;
+        }
+        dirty.add(key);
+    }
+
+    /**
+     * 取内存中的值，第一次访问时从 SharedPreferences 读入
+     */
+    private JsonElement load(String key) {
+        JsonElement value = cache.get(key);
+        if (value != null) return value;
+
+        value = JsonNull.INSTANCE;
+        if (!clearPending && !clearInFlight) {
+            Object raw = prefs.getAll().get(key);
+            if (raw instanceof String) {
+                value = parseStored((String) raw);
+            } else if (raw instanceof Number) {
+                value = new JsonPrimitive((Number) raw);
+            } else if (raw instanceof Boolean) {
+                value = new JsonPrimitive((Boolean) raw);
+            }
+        }
+        cache.put(key, value);
+        return value;
+    }
+
+    private static JsonElement parseStored(String raw) {
+        try {
+            JsonElement parsed = JsonParser.parseString(raw);
+            if (parsed.isJsonObject() || parsed.isJsonArray()) return parsed;
+        } catch (Exception ignored) {
+            // 不是 JSON，按普通字符串处理
+        }
+        return new JsonPrimitive(raw);
+    }
+
+    /**
+     * 在 diskIO 线程执行：每个脏 key 序列化一次，一次 commit，成功后丢弃对应的日志
+     * 写盘失败时这些 key 重新标脏、日志保留，稍后重试
+     */
+    private void writeToDisk() {
+        SharedPreferences.Editor editor = prefs.edit();
+        Set<String> written;
+        boolean wroteClear;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (dirty.isEmpty() && !clearPending) return;
+
+            wroteClear = clearPending;
+            if (wroteClear) editor.clear();
+            written = new HashSet<>(dirty);
+            for (String key : written) {
+                JsonElement value = cache.get(key);
+                if (value == null || value.isJsonNull()) {
+                    editor.remove(key);
+                } else if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber()) {
+                    putNumber(editor, key, value.getAsJsonPrimitive(), numberTypes.get(key));
+                } else if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isBoolean()) {
+                    editor.putBoolean(key, value.getAsBoolean());
+                } else if (value.isJsonPrimitive()) {
+                    editor.putString(key, value.getAsString());
+                } else {
+                    editor.putString(key, value.toString());
+                }
+            }
+            dirty.clear();
+            clearPending = false;
+            clearInFlight = wroteClear;
+
+            // 当前日志换下来，之后的修改写进新日志
+            retireJournal();
+        }
+
+        // commit 在本线程同步写盘（SharedPreferences 内部会 fsync）
+        boolean ok = editor.commit();
+
+        synchronized (lock) {
+            clearInFlight = false;
+            if (ok) {
+                flushingFile.delete();
+            } else {
+                dirty.addAll(written);
+                clearPending |= wroteClear;
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    AppExecutors.diskIO().schedule(this::writeToDisk, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * 数值按 put 时记录的类型写入；没有类型（旧版日志）时按能表示的最小类型：
+     * int，其次 long，带小数的用 float
+     */
+    private static void putNumber(SharedPreferences.Editor editor, String key,
+                                  JsonPrimitive value, String type) {
+        if (TYPE_INT.equals(type)) {
+            editor.putInt(key, value.getAsInt());
+            return;
+        } else if (TYPE_LONG.equals(type)) {
+            editor.putLong(key, value.getAsLong());
+            return;
+        } else if (TYPE_FLOAT.equals(type)) {
+            editor.putFloat(key, value.getAsFloat());
+            return;
+        } else if (TYPE_DOUBLE.equals(type)) {
+            editor.putString(key, value.getAsString());
+            return;
+        }
+
+        String number = value.getAsString();
+        try {
+            editor.putInt(key, Integer.parseInt(number));
+            return;
+        } catch (NumberFormatException ignored) {
+            // 超出 int 或不是整数
+        }
+        try {
+            editor.putLong(key, Long.parseLong(number));
+            return;
+        } catch (NumberFormatException ignored) {
+            // 不是整数
+        }
+        editor.putFloat(key, Float.parseFloat(number));
+    }
+
+    // ========== 日志（只在 diskIO 线程执行）==========
+
+    private void appendToJournal(String line) {
+        try {
+            if (journal == null) {
+                journal = new FileOutputStream(journalFile, true);
+            }
+            // 不经过缓冲：write 返回后数据已交给系统，进程崩溃也不会丢
+            journal.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeJournal();
+        }
+    }
+
+    /**
+     * 把 journal 改名为 flushing；如果上次写盘失败留下的 flushing 还在，就接在它后面
+     */
+    private void retireJournal() {
+        closeJournal();
+        if (!journalFile.exists()) return;
+        if (!flushingFile.exists() && journalFile.renameTo(flushingFile)) return;
+
+        try (FileInputStream in = new FileInputStream(journalFile);
+             FileOutputStream out = new FileOutputStream(flushingFile, true)) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return; // 留着 journal，下次启动仍会重放
+        }
+        journalFile.delete();
+    }
+
+    private void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        journal = null;
+    }
+
+    /**
+     * 启动时重放上次未落盘的日志（先 flushing 再 journal，按写入顺序），然后立即落盘
+     */
+    private void recover() {
+        boolean replayed;
+        synchronized (lock) {
+            replayed = replay(flushingFile);
+            replayed |= replay(journalFile);
+            if (replayed) {
+                flushScheduled = true;
+            }
+        }
+        if (replayed) {
+            flush();
+        }
+    }
+
+    private boolean replay(File file) {
+        if (!file.exists()) return false;
+        boolean any = false;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                JsonArray op;
+                try {
+                    op = JsonParser.parseString(line).getAsJsonArray();
+                } catch (Exception e) {
+                    break; // 最后一行没写完（写到一半崩溃），之后没有有效记录
+                }
+                applyOp(op);
+                any = true;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return any;
+    }
+}
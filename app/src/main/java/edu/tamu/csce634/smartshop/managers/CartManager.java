@@ -2,9 +2,7 @@
 package edu.tamu.csce634.smartshop.managers;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
-import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import java.lang.reflect.Type;
@@ -13,21 +11,20 @@ import java.util.LinkedHashMap;
 import java.util.HashMap;
 import java.util.Map;
 
+import edu.tamu.csce634.smartshop.data.WriteBehindStore;
 import edu.tamu.csce634.smartshop.models.Ingredient;
 import edu.tamu.csce634.smartshop.models.Recipe;
 @Deprecated
 public class CartManager {
     private static CartManager instance;
     private Map<String, Integer> recipeQuantities;
-    private SharedPreferences sharedPreferences;
-    private Gson gson;
+    private final WriteBehindStore store;
     private static final String PREFS_NAME = "SmartShopCart";
     private static final String KEY_CART = "cart_data";
 
     private CartManager(Context context) {
         recipeQuantities = new HashMap<>();
-        sharedPreferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        gson = new Gson();
+        store = WriteBehindStore.get(context, PREFS_NAME);
         loadCart();
     }
 
@@ -48,25 +45,26 @@ public class CartManager {
     }
 
     private void loadCart() {
-        String json = sharedPreferences.getString(KEY_CART, null);
-        if (json != null) {
-            Type type = new TypeToken<HashMap<String, Integer>>(){}.getType();
-            recipeQuantities = gson.fromJson(json, type);
-            if (recipeQuantities == null) {
-                recipeQuantities = new HashMap<>();
-            }
+        Type type = new TypeToken<HashMap<String, Integer>>(){}.getType();
+        Map<String, Integer> saved = store.get(KEY_CART, type);
+        if (saved != null) {
+            recipeQuantities = saved;
         }
     }
 
-    private void saveCart() {
-        String json = gson.toJson(recipeQuantities);
-        sharedPreferences.edit().putString(KEY_CART, json).apply();
+    private void saveCartEntry(String recipeTitle) {
+        Integer quantity = recipeQuantities.get(recipeTitle);
+        if (quantity != null) {
+            store.putEntry(KEY_CART, recipeTitle, quantity);
+        } else {
+            store.removeEntry(KEY_CART, recipeTitle);
+        }
     }
 
     public void addRecipe(String recipeTitle) {
         int currentQuantity = recipeQuantities.getOrDefault(recipeTitle, 0);
         recipeQuantities.put(recipeTitle, currentQuantity + 1);
-        saveCart();
+        saveCartEntry(recipeTitle);
     }
 
     public void removeRecipe(String recipeTitle) {
@@ -76,7 +74,7 @@ public class CartManager {
             if (recipeQuantities.get(recipeTitle) == 0) {
                 recipeQuantities.remove(recipeTitle);
             }
-            saveCart();
+            saveCartEntry(recipeTitle);
         }
     }
 
@@ -94,7 +92,7 @@ public class CartManager {
 
     public void clearCart() {
         recipeQuantities.clear();
-        saveCart();
+        store.remove(KEY_CART);
     }
 
     public int getTotalItems() {
@@ -0,0 +1,220 @@
+package edu.tamu.csce634.smartshop.managers;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.tamu.csce634.smartshop.models.Ingredient;
+import edu.tamu.csce634.smartshop.models.Recipe;
+import edu.tamu.csce634.smartshop.utils.QuantityParser;
+
+/**
+ * IngredientAggregator - Running totals of the ingredients required by the recipe cart
+ *
+ * Instead of re-walking the whole cart, every recipe is compiled once into a
+ * small delta (slot ids + pre-parsed values). Adding or removing a serving
+ * applies that delta to primitive arrays, so a cart change costs
+ * O(ingredients of that recipe) regardless of cart size.
+ *
+ * Layout:
+ * - One "name" entry per ingredient name (fallback count + base quantity)
+ * - One "slot" per (ingredient name, unit) pair holding the numeric total
+ *
+ * Not thread-safe; RecipeManager calls it under its own lock.
+ */
+class IngredientAggregator {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Compiled per-recipe contribution of one serving
+     */
+    private static class RecipeDelta {
+        final int[] slots;          // numeric slot ids
+        final double[] values;      // amount per serving for each slot
+        final int[] fallbackNames;  // name ids of unparseable quantities
+
+        RecipeDelta(int[] slots, double[] values, int[] fallbackNames) {
+            this.slots = slots;
+            this.values = values;
+            this.fallbackNames = fallbackNames;
+        }
+    }
+
+    // Ingredient names
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] firstSlot = new int[INITIAL_CAPACITY];        // head of the name's slot chain, -1 if none
+    private int[] fallbackCounts = new int[INITIAL_CAPACITY];
+    private String[] fallbackBase = new String[INITIAL_CAPACITY];
+    private int nameCount = 0;
+
+    // (name, unit) slots
+    private String[] slotUnit = new String[INITIAL_CAPACITY];
+    private int[] nextSlot = new int[INITIAL_CAPACITY];        // next slot of the same name, -1 at end
+    private double[] slotTotals = new double[INITIAL_CAPACITY];
+    private int[] slotServings = new int[INITIAL_CAPACITY];
+    private int slotCount = 0;
+
+    // Recipe id -> compiled delta (dense, grown on demand)
+    private RecipeDelta[] deltas = new RecipeDelta[INITIAL_CAPACITY];
+
+    // Cached result of snapshot(), null when a delta has been applied since
+    private Map<String, String> snapshot;
+
+    /**
+     * Apply {@code servings} (may be negative) of the given recipe
+     */
+    void apply(int recipeId, Recipe recipe, int servings) {
+        if (servings == 0 || recipe == null || recipeId < 0) return;
+
+        if (recipeId >= deltas.length) {
+            deltas = Arrays.copyOf(deltas, Math.max(deltas.length * 2, recipeId + 1));
+        }
+        RecipeDelta delta = deltas[recipeId];
+        if (delta == null) {
+            delta = compile(recipe);
+            deltas[recipeId] = delta;
+        }
+
+        for (int i = 0; i < delta.slots.length; i++) {
+            int s = delta.slots[i];
+            slotServings[s] += servings;
+            if (slotServings[s] <= 0) {
+                // Reset exactly to avoid floating point residue
+                slotServings[s] = 0;
+                slotTotals[s] = 0;
+            } else {
+                slotTotals[s] += delta.values[i] * servings;
+            }
+        }
+        for (int n : delta.fallbackNames) {
+            fallbackCounts[n] = Math.max(0, fallbackCounts[n] + servings);
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Reset all totals (compiled recipe deltas are kept)
+     */
+    void clear() {
+        Arrays.fill(slotTotals, 0, slotCount, 0);
+        Arrays.fill(slotServings, 0, slotCount, 0);
+        Arrays.fill(fallbackCounts, 0, nameCount, 0);
+        snapshot = null;
+    }
+
+    /**
+     * Ingredient name -> total quantity string, in first-seen ingredient order
+     */
+    Map<String, String> snapshot() {
+        if (snapshot == null) {
+            snapshot = buildSnapshot();
+        }
+        return new LinkedHashMap<>(snapshot);
+    }
+
+    private Map<String, String> buildSnapshot() {
+        Map<String, String> result = new LinkedHashMap<>();
+
+        for (int n = 0; n < nameCount; n++) {
+            double sum = 0;
+            String unit = null;
+            for (int s = firstSlot[n]; s != -1; s = nextSlot[s]) {
+                if (slotServings[s] <= 0) continue;
+                sum += slotTotals[s];
+                if (unit == null) unit = slotUnit[s].trim();
+            }
+
+            String qtyOut = null;
+            if (unit != null) {
+                qtyOut = QuantityParser.formatValue(sum) + (unit.isEmpty() ? "" : (" " + unit));
+            }
+
+            if (fallbackCounts[n] > 0) {
+                String fallback = fallbackCounts[n] + " × " + fallbackBase[n];
+                qtyOut = qtyOut == null ? fallback : qtyOut + " (plus " + fallback + ")";
+            }
+
+            if (qtyOut != null) {
+                result.put(names[n], qtyOut);
+            }
+        }
+        return result;
+    }
+
+    // ==================== Compilation ====================
+
+    private RecipeDelta compile(Recipe recipe) {
+        int count = recipe.getIngredients().size();
+        int[] slots = new int[count];
+        double[] values = new double[count];
+        int[] fallbacks = new int[count];
+        int numeric = 0;
+        int fallback = 0;
+
+        for (Ingredient ing : recipe.getIngredients()) {
+            if (ing == null || ing.getName() == null) continue;
+            String ingName = ing.getName().trim();
+            int nameId = nameIdFor(ingName);
+
+            QuantityParser.ParsedQuantity pq = ing.getParsedQuantity();
+            if (pq.success) {
+                slots[numeric] = slotFor(nameId, pq.unit);
+                values[numeric] = pq.value;
+                numeric++;
+            } else {
+                if (fallbackBase[nameId] == null) {
+                    String qtyStr = ing.getQuantity() == null ? "" : ing.getQuantity().trim();
+                    fallbackBase[nameId] = qtyStr.isEmpty() ? "1" : qtyStr;
+                }
+                fallbacks[fallback++] = nameId;
+            }
+        }
+        return new RecipeDelta(
+                Arrays.copyOf(slots, numeric),
+                Arrays.copyOf(values, numeric),
+                Arrays.copyOf(fallbacks, fallback));
+    }
+
+    private int nameIdFor(String name) {
+        Integer id = nameIds.get(name);
+        if (id != null) return id;
+
+        if (nameCount == names.length) {
+            int cap = names.length * 2;
+            names = Arrays.copyOf(names, cap);
+            firstSlot = Arrays.copyOf(firstSlot, cap);
+            fallbackCounts = Arrays.copyOf(fallbackCounts, cap);
+            fallbackBase = Arrays.copyOf(fallbackBase, cap);
+        }
+        int n = nameCount++;
+        names[n] = name;
+        firstSlot[n] = -1;
+        nameIds.put(name, n);
+        return n;
+    }
+
+    private int slotFor(int nameId, String unit) {
+        int last = -1;
+        for (int s = firstSlot[nameId]; s != -1; s = nextSlot[s]) {
+            if (slotUnit[s].equals(unit)) return s;
+            last = s;
+        }
+
+        if (slotCount == slotUnit.length) {
+            int cap = slotUnit.length * 2;
+            slotUnit = Arrays.copyOf(slotUnit, cap);
+            nextSlot = Arrays.copyOf(nextSlot, cap);
+            slotTotals = Arrays.copyOf(slotTotals, cap);
+            slotServings = Arrays.copyOf(slotServings, cap);
+        }
+        int s = slotCount++;
+        slotUnit[s] = unit;
+        nextSlot[s] = -1;
+        if (last == -1) firstSlot[nameId] = s;
+        else nextSlot[last] = s;
+        return s;
+    }
+}
@@ -0,0 +1,240 @@
+package edu.tamu.csce634.smartshop.managers;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import com.google.gson.Gson;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.tamu.csce634.smartshop.models.Ingredient;
+import edu.tamu.csce634.smartshop.models.Recipe;
+
+/**
+ * RecipeCatalog - The recipe catalog, read from assets/recipes/
+ *
+ * Files:
+ * - index.json: one small header per recipe (id, title, one-line description,
+ *   thumbnail, nutrition) plus the page size. Read once, up front.
+ * - page_&lt;n&gt;.json: full descriptions and ingredients of the recipes with
+ *   id / pageSize == n. Read when one of its recipes is first needed.
+ *
+ * Headers stay in memory (dense id -> header array). Full recipes are kept for the
+ * {@link #MAX_CACHED_PAGES} most recently used pages only, so descriptions and
+ * ingredient lists of a large catalog are never all held at once.
+ *
+ * Images are drawable names in the files, resolved once per name.
+ *
+ * Ownership: the catalog owns every Recipe it returns, and callers share them.
+ * They must not be modified. Screens keep recipe ids, not Recipe objects, and look
+ * them up again when needed. A header lookup is an array read; a full recipe
+ * costs a page read only when its page has been evicted.
+ *
+ * Thread-safe.
+ */
+class RecipeCatalog {
+
+    private static final String DIR = "recipes";
+    private static final String INDEX_FILE = DIR + "/index.json";
+    private static final int DEFAULT_PAGE_SIZE = 64;
+    private static final int MAX_CACHED_PAGES = 8;
+
+    // --- File formats ---
+
+    private static class IndexFile {
+        int pageSize;
+        List<Header> recipes;
+    }
+
+    private static class Header {
+        int id;
+        String title;
+        String description;
+        String image;
+        int calories;
+        int protein;
+        int fat;
+        int water;
+    }
+
+    private static class PageFile {
+        List<Body> recipes;
+    }
+
+    private static class Body {
+        int id;
+        String fullDescription;
+        List<IngredientEntry> ingredients;
+    }
+
+    private static class IngredientEntry {
+        String name;
+        String quantity;
+        String image;
+    }
+
+    private final Context appContext;
+    private final Gson gson = new Gson();
+    private final Map<String, Integer> drawableIds = new HashMap<>();
+
+    private final int pageSize;
+    private final List<Recipe> headers;          // catalog order
+    private final Recipe[] headersById;          // index = recipe id, null for unused ids
+    private final Map<String, Integer> idsByTitle;
+
+    // Page number -> full recipes of that page (index = id % pageSize); access-ordered LRU
+    private final LinkedHashMap<Integer, Recipe[]> pages =
+            new LinkedHashMap<Integer, Recipe[]>(MAX_CACHED_PAGES + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Recipe[]> eldest) {
+                    return size() > MAX_CACHED_PAGES;
+                }
+            };
+
+    /**
+     * Read the header index. Does disk I/O; call off the UI thread where possible.
+     */
+    RecipeCatalog(Context context) {
+        appContext = context.getApplicationContext();
+
+        IndexFile index = read(INDEX_FILE, IndexFile.class);
+        pageSize = index != null && index.pageSize > 0 ? index.pageSize : DEFAULT_PAGE_SIZE;
+
+        List<Header> entries = index != null && index.recipes != null
+                ? index.recipes : Collections.emptyList();
+        int maxId = 0;
+        for (Header h : entries) {
+            if (h != null) maxId = Math.max(maxId, h.id);
+        }
+
+        headersById = new Recipe[maxId + 1];
+        headers = new ArrayList<>(entries.size());
+        idsByTitle = new HashMap<>(entries.size() * 2);
+        for (Header h : entries) {
+            // Ids are stable keys (the saved cart refers to them); skip invalid and duplicate ones
+            if (h == null || h.id <= 0 || h.title == null || headersById[h.id] != null) continue;
+            Recipe recipe = new Recipe(h.id, h.title, h.description, null, drawable(h.image));
+            recipe.setNutrition(h.calories, h.protein, h.fat, h.water);
+            headersById[h.id] = recipe;
+            headers.add(recipe);
+            idsByTitle.putIfAbsent(h.title, h.id);
+        }
+    }
+
+    /**
+     * All recipe headers, in catalog order (no full description or ingredients)
+     */
+    List<Recipe> getHeaders() {
+        return Collections.unmodifiableList(headers);
+    }
+
+    /**
+     * Header of a recipe, or null. Never touches disk.
+     */
+    Recipe getHeader(int recipeId) {
+        return recipeId > 0 && recipeId < headersById.length ? headersById[recipeId] : null;
+    }
+
+    /**
+     * Id of the recipe with this title, or -1
+     */
+    int idOf(String title) {
+        Integer id = title != null ? idsByTitle.get(title) : null;
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Number of body pages (some may be missing or empty)
+     */
+    int getPageCount() {
+        return (headersById.length - 1) / pageSize + 1;
+    }
+
+    /**
+     * Full recipe (with description and ingredients), or null if there is no such id or
+     * its page cannot be read right now. Reads the recipe's page if it is not cached; a
+     * page that fails to load is not cached, so the next call tries again. A recipe whose
+     * page was read but has no body is returned as its header (no ingredients).
+     */
+    synchronized Recipe getRecipe(int recipeId) {
+        Recipe header = getHeader(recipeId);
+        if (header == null) return null;
+
+        int page = recipeId / pageSize;
+        Recipe[] recipes = pages.get(page);
+        if (recipes == null) {
+            recipes = loadPage(page);
+            if (recipes == null) return null;
+            pages.put(page, recipes);
+        }
+        Recipe full = recipes[recipeId % pageSize];
+        return full != null ? full : header;
+    }
+
+    // --- Loading ---
+
+    /**
+     * Read one page of full recipes (index = id % pageSize), bypassing the cache.
+     * Used for one-off passes over the whole catalog. Returns null if the page file is
+     * missing or cannot be parsed.
+     */
+    Recipe[] loadPage(int page) {
+        PageFile file = read(DIR + "/page_" + page + ".json", PageFile.class);
+        if (file == null) return null;
+
+        Recipe[] recipes = new Recipe[pageSize];
+        if (file.recipes == null) return recipes;
+
+        for (Body body : file.recipes) {
+            if (body == null || body.id / pageSize != page) continue;
+            Recipe header = getHeader(body.id);
+            if (header == null) continue;
+
+            Recipe recipe = new Recipe(header.getId(), header.getTitle(), header.getDescription(),
+                    body.fullDescription, header.getImageResId());
+            recipe.setNutrition(header.getCalories(), header.getProtein(), header.getFat(), header.getWater());
+            if (body.ingredients != null) {
+                for (IngredientEntry ing : body.ingredients) {
+                    if (ing == null || ing.name == null) continue;
+                    recipe.addIngredient(new Ingredient(ing.name, ing.quantity, drawable(ing.image)));
+                }
+            }
+            recipes[body.id % pageSize] = recipe;
+        }
+        return recipes;
+    }
+
+    private <T> T read(String path, Class<T> type) {
+        try (InputStream is = appContext.getAssets().open(path);
+             InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, type);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Drawable resource id for a name (0 if there is none), looked up once per name
+     */
+    private int drawable(String name) {
+        if (name == null || name.isEmpty()) return 0;
+        synchronized (drawableIds) {
+            Integer id = drawableIds.get(name);
+            if (id == null) {
+                Resources res = appContext.getResources();
+                id = res.getIdentifier(name, "drawable", appContext.getPackageName());
+                drawableIds.put(name, id);
+            }
+            return id;
+        }
+    }
+}
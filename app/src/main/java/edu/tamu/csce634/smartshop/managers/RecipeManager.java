@@ -1,64 +1,100 @@
 package edu.tamu.csce634.smartshop.managers;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.util.SparseIntArray;
 
-import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 
-import edu.tamu.csce634.smartshop.R;
+import edu.tamu.csce634.smartshop.data.WriteBehindStore;
 import edu.tamu.csce634.smartshop.models.Ingredient;
 import edu.tamu.csce634.smartshop.models.Recipe;
-import edu.tamu.csce634.smartshop.utils.QuantityParser;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
 
 /**
  * RecipeManager - Centralized manager for all recipe-related operations
  * 
  * Features:
- * - Maintains a catalog of available recipes with nutritional data
- * - Manages recipe cart (quantities of each recipe selected)
+ * - Serves the recipe catalog (RecipeCatalog: headers read up front, full
+ *   descriptions and ingredients paged in on demand)
+ * - Recipes are identified by stable integer ids; lookups go through a dense
+ *   id -> Recipe array (and a hashed title index), never a scan of the catalog
+ * - Full-text recipe search (RecipeSearchIndex over titles, descriptions and
+ *   ingredients; headers are indexed at startup, bodies by a background pass)
+ * - Ingredient images for the shopping list, collected by the same background pass
+ * - Manages recipe cart (recipe id -> servings, in a primitive int map)
  * - Calculates aggregated ingredient requirements
  * - Calculates total nutritional values for cart
- * - Persists cart data using SharedPreferences
+ * - Persists cart data through a WriteBehindStore (per-recipe journal entries,
+ *   coalesced into one SharedPreferences write per flush window)
+ * - Bulk edits (setQuantity, applyDeltas, CartTransaction) touch each recipe once:
+ *   one aggregate update and one journal entry per recipe, however many servings change
  * 
- * Thread-safe: All operations are synchronized
+ * Thread-safe:
+ * - Cart, aggregation and nutrition methods are synchronized on this manager
+ * - Catalog lookups (getAllRecipes, getRecipeHeader, getRecipe) and search are not; they
+ *   go to RecipeCatalog and RecipeSearchIndex, which are thread-safe on their own, so
+ *   a page read or search never waits for a cart update
+ * - Ingredient images live in a concurrent map filled by the background pass, which
+ *   starts only once the manager is fully constructed
  */
 public class RecipeManager {
     private static RecipeManager instance;
     
     // Recipe catalog
-    private List<Recipe> availableRecipes;
+    private final RecipeCatalog catalog;
+    private final RecipeSearchIndex searchIndex = new RecipeSearchIndex();
     
-    // Cart data: Recipe title -> quantity
-    private Map<String, Integer> recipeCart;
+    // Ingredient name (lower case) -> drawable id, collected with the search details
+    private final Map<String, Integer> ingredientImages = new ConcurrentHashMap<>();
+    private final CountDownLatch detailsIndexed = new CountDownLatch(1);
+    
+    // Cart data: Recipe id -> quantity (only recipes with quantity > 0)
+    private final SparseIntArray recipeCart = new SparseIntArray();
+    
+    // Running ingredient totals for the cart, updated per add/remove
+    private final IngredientAggregator aggregator = new IngredientAggregator();
+    // Set when a cart recipe's body could not be read, so its servings are missing from the
+    // totals; the next read re-seeds them from the whole cart
+    private boolean aggregatesStale = false;
     
     // Persistence
-    private SharedPreferences sharedPreferences;
-    private Gson gson;
+    private final WriteBehindStore store;
     private static final String PREFS_NAME = "SmartShopRecipes";
-    private static final String KEY_CART = "recipe_cart_data";
+    private static final String KEY_CART = "recipe_cart_by_id";
+    // Cart saved by older versions (recipe title -> quantity); migrated on load
+    private static final String KEY_LEGACY_CART = "recipe_cart_data";
     
     private RecipeManager(Context context) {
-        availableRecipes = new ArrayList<>();
-        recipeCart = new HashMap<>();
-        sharedPreferences = context.getApplicationContext()
-                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        gson = new Gson();
+        catalog = new RecipeCatalog(context);
+        store = WriteBehindStore.get(context, PREFS_NAME);
+        
+        for (Recipe header : catalog.getHeaders()) {
+            searchIndex.addHeader(header);
+        }
         
-        initializeRecipes();
         loadCart();
     }
     
+    /**
+     * The first call reads the catalog index and the saved cart; MainActivity makes it
+     * from a background thread at startup.
+     */
     public static synchronized RecipeManager getInstance(Context context) {
         if (instance == null) {
-            instance = new RecipeManager(context);
+            RecipeManager manager = new RecipeManager(context);
+            // Descriptions and ingredients are only in the bodies; index them without
+            // blocking startup. Started after construction so the pass never sees a
+            // half-built manager
+            AppExecutors.runInBackground(manager::indexRecipeDetails);
+            instance = manager;
         }
         return instance;
     }
@@ -66,155 +102,355 @@ public class RecipeManager {
     // ==================== Recipe Catalog ====================
     
     /**
-     * Initialize the recipe catalog with sample recipes including nutrition data
+     * Get all available recipes.
+     * These are headers (title, description, image, nutrition); use
+     * {@link #getRecipe(int)} for the full description and ingredients.
      */
-    private void initializeRecipes() {
-        availableRecipes = new ArrayList<>();
-        
-        // Tofu Power Bowl
-        Recipe tofuBowl = new Recipe(
-                "Tofu Power Bowl",
-                "High fiber, low calorie, and filling",
-                "A vibrant, fresh, and high-protein Tofu Power Bowl. This meal features a centerpiece of savory, seasoned tofu cubes, complemented by a medley of colorful, crisp raw vegetables, and a source of healthy fat and additional protein from hard-boiled eggs and edamame.",
-                R.drawable.avocado_salad
-        );
-        tofuBowl.addIngredient(new Ingredient("Tofu", "2 Oz", R.drawable.tofu));
-        tofuBowl.addIngredient(new Ingredient("Brown Rice", "1 Oz", R.drawable.brown_rice));
-        tofuBowl.addIngredient(new Ingredient("Egg", "1", R.drawable.egg));
-        tofuBowl.addIngredient(new Ingredient("Corn", "2 Oz", R.drawable.corn));
-        // Nutrition per serving
-        tofuBowl.setNutrition(380, 22, 12, 0); // calories, protein(g), fat(g), water(cups)
-        availableRecipes.add(tofuBowl);
-        
-        // Quinoa Vegetable Stir-fry
-        Recipe quinoaStirFry = new Recipe(
-                "Quinoa Vegetable Stir-fry",
-                "Balanced nutrition, rich in plant protein",
-                "A colorful and nutritious quinoa vegetable stir-fry packed with fresh vegetables and plant-based protein. This wholesome dish combines fluffy quinoa with crisp bell peppers, chickpeas, and fresh herbs for a satisfying meal.",
-                R.drawable.quinoa_stir_fry
-        );
-        quinoaStirFry.addIngredient(new Ingredient("Quinoa", "2 Oz", R.drawable.quinoa));
-        quinoaStirFry.addIngredient(new Ingredient("Bell Peppers", "1 Oz", R.drawable.bell_pepper));
-        quinoaStirFry.addIngredient(new Ingredient("Chickpeas", "2 Oz", R.drawable.chickpea));
-        quinoaStirFry.addIngredient(new Ingredient("Cherry Tomatoes", "1 Oz", R.drawable.cherry_tomatos));
-        quinoaStirFry.addIngredient(new Ingredient("Red Cabbage", "1 Oz", R.drawable.red_cabbage));
-        quinoaStirFry.setNutrition(420, 18, 14, 0);
-        availableRecipes.add(quinoaStirFry);
-        
-        // Salmon Rice Bowl
-        Recipe salmonBowl = new Recipe(
-                "Salmon Rice Bowl",
-                "Flavorful fish, Asian-style",
-                "A delicious and healthy salmon rice bowl featuring perfectly cooked salmon slices on a bed of seasoned brown rice. Topped with fresh vegetables including cucumber, radish, carrots, and cilantro, this Asian-inspired dish is both nutritious and satisfying.",
-                R.drawable.salmon_rice_bowl
-        );
-        salmonBowl.addIngredient(new Ingredient("Salmon", "4 Oz", R.drawable.salmon));
-        salmonBowl.addIngredient(new Ingredient("Brown Rice", "2 Oz", R.drawable.brown_rice));
-        salmonBowl.addIngredient(new Ingredient("Cucumber", "1 Oz", R.drawable.cucumber));
-        salmonBowl.addIngredient(new Ingredient("Radish", "0.5 Oz", R.drawable.radish));
-        salmonBowl.addIngredient(new Ingredient("Carrots", "1 Oz", R.drawable.carrot));
-        salmonBowl.addIngredient(new Ingredient("Cilantro", "0.2 Oz", R.drawable.cilantro));
-        salmonBowl.addIngredient(new Ingredient("Egg", "1", R.drawable.egg));
-        salmonBowl.setNutrition(520, 32, 18, 0);
-        availableRecipes.add(salmonBowl);
-        
-        // Steak Taco
-        Recipe steakTaco = new Recipe(
-                "Steak Taco",
-                "Mexican dish, low carb",
-                "A mouthwatering steak taco featuring tender grilled beef strips on a soft flour tortilla. Loaded with sweet corn, diced tomatoes, fresh cilantro, and crumbled queso fresco cheese. This Mexican-inspired dish delivers bold flavors with a balanced nutritional profile.",
-                R.drawable.steak_taco
-        );
-        steakTaco.addIngredient(new Ingredient("Steak", "4 Oz", R.drawable.steak));
-        steakTaco.addIngredient(new Ingredient("Flour Tortilla", "2", R.drawable.flour_tortilla));
-        steakTaco.addIngredient(new Ingredient("Corn", "2 Oz", R.drawable.corn));
-        steakTaco.addIngredient(new Ingredient("Tomatoes", "1 Oz", R.drawable.cherry_tomatos));
-        steakTaco.addIngredient(new Ingredient("Cilantro", "0.2 Oz", R.drawable.cilantro));
-        steakTaco.addIngredient(new Ingredient("Queso Fresco", "1 Oz", R.drawable.queso_fresco));
-        steakTaco.addIngredient(new Ingredient("Avocado", "1 Oz", R.drawable.avocado));
-        steakTaco.setNutrition(480, 28, 22, 0);
-        availableRecipes.add(steakTaco);
+    public List<Recipe> getAllRecipes() {
+        return new ArrayList<>(catalog.getHeaders());
+    }
+    
+    /**
+     * Get a recipe header by id (title, description, image, nutrition), or null.
+     * An array lookup; never touches disk.
+     */
+    public Recipe getRecipeHeader(int recipeId) {
+        return catalog.getHeader(recipeId);
+    }
+    
+    /**
+     * Get the full recipe by id, or null if there is none or its catalog page cannot be
+     * read. May read the recipe's page of the catalog from disk.
+     */
+    public Recipe getRecipe(int recipeId) {
+        return catalog.getRecipe(recipeId);
     }
     
     /**
-     * Get all available recipes
+     * Get the full recipe by title
      */
-    public synchronized List<Recipe> getAllRecipes() {
-        return new ArrayList<>(availableRecipes);
+    public Recipe getRecipeByTitle(String title) {
+        return catalog.getRecipe(catalog.idOf(title));
     }
     
     /**
-     * Get a recipe by title
+     * One pass over the recipe bodies, page by page: adds every recipe's full description
+     * and ingredients to the search index and collects the ingredient images
      */
-    public synchronized Recipe getRecipeByTitle(String title) {
-        for (Recipe recipe : availableRecipes) {
-            if (recipe.getTitle().equals(title)) {
-                return recipe;
+    private void indexRecipeDetails() {
+        try {
+            for (int page = 0; page < catalog.getPageCount(); page++) {
+                Recipe[] recipes = catalog.loadPage(page);
+                if (recipes == null) continue;
+                for (Recipe recipe : recipes) {
+                    if (recipe == null) continue;
+                    searchIndex.addDetails(recipe);
+                    for (Ingredient ingredient : recipe.getIngredients()) {
+                        if (ingredient.getImageResId() != 0) {
+                            ingredientImages.putIfAbsent(imageKey(ingredient.getName()), ingredient.getImageResId());
+                        }
+                    }
+                }
             }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            detailsIndexed.countDown();
         }
-        return null;
+    }
+    
+    // ==================== Ingredient Images ====================
+    
+    /**
+     * Drawable id of an ingredient's image (as used by the recipes that call for it), or 0.
+     * Images are collected from the recipe bodies by the background pass started at
+     * startup; until it finishes, ingredients it has not reached yet return 0.
+     */
+    public int getIngredientImageResId(String ingredientName) {
+        if (ingredientName == null) return 0;
+        Integer resId = ingredientImages.get(imageKey(ingredientName));
+        return resId != null ? resId : 0;
+    }
+    
+    /**
+     * Wait for the background pass over the recipe bodies (search details and ingredient
+     * images) to finish. Blocks; call from a background thread only.
+     */
+    public void awaitRecipeDetails() {
+        try {
+            detailsIndexed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static String imageKey(String ingredientName) {
+        return ingredientName.toLowerCase().trim();
+    }
+    
+    // ==================== Search ====================
+    
+    /**
+     * Recipes matching a free-text query (words of titles, descriptions and ingredient
+     * names; prefixes and small typos match too), best first, at most {@code limit}.
+     * Returns headers, like {@link #getAllRecipes()}. Takes well under a millisecond for
+     * thousands of recipes, but call it off the UI thread for search-as-you-type.
+     */
+    public List<Recipe> search(String query, int limit) {
+        int[] ids = searchIndex.search(query, limit);
+        List<Recipe> results = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Recipe header = catalog.getHeader(id);
+            if (header != null) results.add(header);
+        }
+        return results;
     }
     
     // ==================== Cart Operations ====================
     
     private void loadCart() {
-        String json = sharedPreferences.getString(KEY_CART, null);
-        if (json != null) {
-            Type type = new TypeToken<HashMap<String, Integer>>(){}.getType();
-            recipeCart = gson.fromJson(json, type);
-            if (recipeCart == null) {
-                recipeCart = new HashMap<>();
+        Type type = new TypeToken<HashMap<String, Integer>>(){}.getType();
+        Map<String, Integer> saved = store.get(KEY_CART, type);
+        if (saved != null) {
+            for (Map.Entry<String, Integer> entry : saved.entrySet()) {
+                try {
+                    int id = Integer.parseInt(entry.getKey());
+                    if (catalog.getHeader(id) != null && entry.getValue() != null && entry.getValue() > 0) {
+                        recipeCart.put(id, entry.getValue());
+                    }
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();
+                }
             }
         }
+        migrateLegacyCart(type);
+        rebuildAggregates();
     }
     
-    private void saveCart() {
-        String json = gson.toJson(recipeCart);
-        sharedPreferences.edit().putString(KEY_CART, json).apply();
+    /**
+     * Move a cart saved under recipe titles to the id-keyed entry.
+     * Recipes already in the id-keyed cart win (the migration may have been interrupted
+     * after writing them); titles no longer in the catalog are dropped.
+     */
+    private void migrateLegacyCart(Type type) {
+        Map<String, Integer> legacy = store.get(KEY_LEGACY_CART, type);
+        if (legacy == null) return;
+        
+        for (Map.Entry<String, Integer> entry : legacy.entrySet()) {
+            int id = catalog.idOf(entry.getKey());
+            Integer quantity = entry.getValue();
+            if (id < 0 || quantity == null || quantity <= 0) continue;
+            if (recipeCart.indexOfKey(id) >= 0) continue;
+            recipeCart.put(id, quantity);
+            saveCartEntry(id);
+        }
+        store.remove(KEY_LEGACY_CART);
+    }
+    
+    /**
+     * Re-seed the running ingredient totals from the whole cart (on load, or after a
+     * recipe body could not be read)
+     */
+    private void rebuildAggregates() {
+        aggregator.clear();
+        aggregatesStale = false;
+        for (int i = 0; i < recipeCart.size(); i++) {
+            int id = recipeCart.keyAt(i);
+            Recipe recipe = getRecipe(id);
+            if (recipe == null) aggregatesStale = true;
+            aggregator.apply(id, recipe, recipeCart.valueAt(i));
+        }
+    }
+    
+    /**
+     * Persist just this recipe's quantity; the store batches the actual disk write
+     */
+    private void saveCartEntry(int recipeId) {
+        int quantity = recipeCart.get(recipeId, 0);
+        if (quantity > 0) {
+            store.putEntry(KEY_CART, String.valueOf(recipeId), quantity);
+        } else {
+            store.removeEntry(KEY_CART, String.valueOf(recipeId));
+        }
+    }
+    
+    /**
+     * Move a recipe to its new quantity: one aggregate update and one journal entry.
+     * Ids not in the catalog are ignored.
+     * @return true if the quantity changed
+     */
+    private boolean changeQuantity(int recipeId, int newQuantity) {
+        if (catalog.getHeader(recipeId) == null) return false;
+        
+        int currentQuantity = recipeCart.get(recipeId, 0);
+        newQuantity = Math.max(0, newQuantity);
+        if (newQuantity == currentQuantity) return false;
+        
+        // The aggregator compiles each recipe once, so the body is only read the first time
+        Recipe recipe = catalog.getRecipe(recipeId);
+        
+        if (newQuantity == 0) {
+            recipeCart.delete(recipeId);
+        } else {
+            recipeCart.put(recipeId, newQuantity);
+        }
+        if (recipe == null) aggregatesStale = true;
+        aggregator.apply(recipeId, recipe, newQuantity - currentQuantity);
+        saveCartEntry(recipeId);
+        return true;
     }
     
     /**
      * Add one serving of a recipe to cart
      */
-    public synchronized void addRecipe(String recipeTitle) {
-        int currentQuantity = recipeCart.getOrDefault(recipeTitle, 0);
-        recipeCart.put(recipeTitle, currentQuantity + 1);
-        saveCart();
+    public synchronized void addRecipe(int recipeId) {
+        addRecipe(recipeId, 1);
+    }
+    
+    /**
+     * Add servings of a recipe to cart (negative to remove; never goes below zero)
+     * @return true if the cart changed
+     */
+    public synchronized boolean addRecipe(int recipeId, int servings) {
+        return changeQuantity(recipeId, getQuantity(recipeId) + servings);
     }
     
     /**
      * Remove one serving of a recipe from cart
      */
-    public synchronized void removeRecipe(String recipeTitle) {
-        int currentQuantity = recipeCart.getOrDefault(recipeTitle, 0);
-        if (currentQuantity > 0) {
-            recipeCart.put(recipeTitle, currentQuantity - 1);
-            if (recipeCart.get(recipeTitle) == 0) {
-                recipeCart.remove(recipeTitle);
-            }
-            saveCart();
+    public synchronized void removeRecipe(int recipeId) {
+        changeQuantity(recipeId, getQuantity(recipeId) - 1);
+    }
+    
+    /**
+     * Set the number of servings of a recipe (0 removes it) in one step
+     * @return true if the cart changed
+     */
+    public synchronized boolean setQuantity(int recipeId, int quantity) {
+        return changeQuantity(recipeId, quantity);
+    }
+    
+    /**
+     * Apply several changes at once: recipe id -> servings to add (negative to remove).
+     * Quantities never drop below zero.
+     * @return true if the cart changed
+     */
+    public synchronized boolean applyDeltas(SparseIntArray deltas) {
+        boolean changed = false;
+        for (int i = 0; i < deltas.size(); i++) {
+            int id = deltas.keyAt(i);
+            changed |= changeQuantity(id, getQuantity(id) + deltas.valueAt(i));
+        }
+        return changed;
+    }
+    
+    /**
+     * Start collecting cart edits to be applied together by {@link CartTransaction#commit()}
+     */
+    public CartTransaction beginTransaction() {
+        return new CartTransaction(this);
+    }
+    
+    /**
+     * A batch of cart edits. Edits are only recorded (nothing is aggregated or persisted)
+     * until commit(), which applies the net change of every recipe under one lock.
+     * Meant for a single thread, e.g. a UI gesture.
+     */
+    public static final class CartTransaction {
+        private final RecipeManager manager;
+        private final SparseIntArray setTo = new SparseIntArray();   // absolute quantity, if set
+        private final SparseIntArray deltas = new SparseIntArray();  // servings added on top
+        private boolean committed = false;
+        
+        private CartTransaction(RecipeManager manager) {
+            this.manager = manager;
+        }
+        
+        public CartTransaction add(int recipeId) {
+            return add(recipeId, 1);
+        }
+        
+        public CartTransaction remove(int recipeId) {
+            return add(recipeId, -1);
+        }
+        
+        /**
+         * Add (or with a negative count, remove) servings; never goes below zero
+         */
+        public CartTransaction add(int recipeId, int servings) {
+            // Clamp against the pending quantity so extra removals are not carried over
+            int pending = getQuantity(recipeId);
+            int next = Math.max(0, pending + servings);
+            deltas.put(recipeId, deltas.get(recipeId, 0) + (next - pending));
+            return this;
+        }
+        
+        public CartTransaction setQuantity(int recipeId, int quantity) {
+            setTo.put(recipeId, Math.max(0, quantity));
+            deltas.delete(recipeId);
+            return this;
+        }
+        
+        /**
+         * Quantity the recipe will have after commit (for showing the pending value)
+         */
+        public int getQuantity(int recipeId) {
+            int set = setTo.indexOfKey(recipeId);
+            int quantity = set >= 0 ? setTo.valueAt(set) : manager.getQuantity(recipeId);
+            return Math.max(0, quantity + deltas.get(recipeId, 0));
+        }
+        
+        /**
+         * True if nothing has been recorded
+         */
+        public boolean isEmpty() {
+            return setTo.size() == 0 && deltas.size() == 0;
+        }
+        
+        /**
+         * Apply all recorded edits; a transaction can be committed only once
+         * @return true if the cart changed
+         */
+        public boolean commit() {
+            if (committed) return false;
+            committed = true;
+            return manager.commit(this);
         }
     }
     
+    private synchronized boolean commit(CartTransaction transaction) {
+        boolean changed = false;
+        for (int i = 0; i < transaction.setTo.size(); i++) {
+            int id = transaction.setTo.keyAt(i);
+            changed |= changeQuantity(id, transaction.setTo.valueAt(i) + transaction.deltas.get(id, 0));
+        }
+        for (int i = 0; i < transaction.deltas.size(); i++) {
+            int id = transaction.deltas.keyAt(i);
+            if (transaction.setTo.indexOfKey(id) >= 0) continue;
+            changed |= changeQuantity(id, getQuantity(id) + transaction.deltas.valueAt(i));
+        }
+        return changed;
+    }
+    
     /**
      * Get quantity of a specific recipe in cart
      */
-    public synchronized int getQuantity(String recipeTitle) {
-        return recipeCart.getOrDefault(recipeTitle, 0);
+    public synchronized int getQuantity(int recipeId) {
+        return recipeCart.get(recipeId, 0);
     }
     
     /**
      * Check if recipe is in cart
      */
-    public synchronized boolean isInCart(String recipeTitle) {
-        return getQuantity(recipeTitle) > 0;
+    public synchronized boolean isInCart(int recipeId) {
+        return getQuantity(recipeId) > 0;
     }
     
     /**
-     * Get all items in cart
+     * Get all items in cart (recipe id -> quantity)
      */
-    public synchronized Map<String, Integer> getAllCartItems() {
-        return new HashMap<>(recipeCart);
+    public synchronized SparseIntArray getAllCartItems() {
+        return recipeCart.clone();
     }
     
     /**
@@ -222,7 +458,9 @@ public class RecipeManager {
      */
     public synchronized void clearCart() {
         recipeCart.clear();
-        saveCart();
+        aggregator.clear();
+        aggregatesStale = false;
+        store.remove(KEY_CART);
     }
     
     /**
@@ -230,8 +468,8 @@ public class RecipeManager {
      */
     public synchronized int getTotalCartItems() {
         int total = 0;
-        for (int quantity : recipeCart.values()) {
-            total += quantity;
+        for (int i = 0; i < recipeCart.size(); i++) {
+            total += recipeCart.valueAt(i);
         }
         return total;
     }
@@ -241,79 +479,14 @@ public class RecipeManager {
     /**
      * Get all required ingredients aggregated from cart
      * Returns Map of ingredient name -> total quantity string
+     * 
+     * Totals are maintained incrementally by addRecipe/removeRecipe,
+     * so this only formats the current running values (after re-seeding them
+     * if a recipe body could not be read earlier).
      */
     public synchronized Map<String, String> getAllRequiredIngredients() {
-        Map<String, Double> numericTotals = new HashMap<>();
-        Map<String, String> unitByKey = new HashMap<>();
-        Map<String, Integer> fallbackCounts = new HashMap<>();
-        Map<String, String> fallbackBaseQty = new HashMap<>();
-        
-        for (Map.Entry<String, Integer> entry : recipeCart.entrySet()) {
-            String recipeTitle = entry.getKey();
-            int recipeCount = entry.getValue();
-            if (recipeCount <= 0) continue;
-            
-            Recipe recipe = getRecipeByTitle(recipeTitle);
-            if (recipe == null) continue;
-            
-            for (Ingredient ing : recipe.getIngredients()) {
-                if (ing == null || ing.getName() == null) continue;
-                String ingName = ing.getName().trim();
-                String qtyStr = ing.getQuantity() == null ? "" : ing.getQuantity().trim();
-                
-                QuantityParser.ParsedQuantity pq = QuantityParser.parse(qtyStr);
-                if (pq.success) {
-                    String key = ingName + "|" + pq.unit;
-                    double total = numericTotals.getOrDefault(key, 0.0);
-                    total += pq.value * recipeCount;
-                    numericTotals.put(key, total);
-                    unitByKey.put(key, pq.unit);
-                } else {
-                    int count = fallbackCounts.getOrDefault(ingName, 0);
-                    fallbackCounts.put(ingName, count + recipeCount);
-                    fallbackBaseQty.putIfAbsent(ingName, qtyStr.isEmpty() ? "1" : qtyStr);
-                }
-            }
-        }
-        
-        // Build final result
-        Map<String, String> result = new LinkedHashMap<>();
-        
-        // Numeric totals
-        Map<String, Double> byNameTotal = new HashMap<>();
-        Map<String, String> unitByName = new HashMap<>();
-        for (Map.Entry<String, Double> e : numericTotals.entrySet()) {
-            String[] parts = e.getKey().split("\\|", 2);
-            String name = parts[0];
-            String unit = unitByKey.getOrDefault(e.getKey(), "");
-            
-            double sum = byNameTotal.getOrDefault(name, 0.0);
-            sum += e.getValue();
-            byNameTotal.put(name, sum);
-            unitByName.putIfAbsent(name, unit);
-        }
-        
-        for (Map.Entry<String, Double> e : byNameTotal.entrySet()) {
-            String name = e.getKey();
-            String unit = unitByName.getOrDefault(name, "").trim();
-            double v = e.getValue();
-            String qtyOut = QuantityParser.formatValue(v) + (unit.isEmpty() ? "" : (" " + unit));
-            result.put(name, qtyOut);
-        }
-        
-        // Fallbacks
-        for (Map.Entry<String, Integer> e : fallbackCounts.entrySet()) {
-            String name = e.getKey();
-            String base = fallbackBaseQty.getOrDefault(name, "1");
-            String fallback = e.getValue() + " × " + base;
-            if (result.containsKey(name)) {
-                result.put(name, result.get(name) + " (plus " + fallback + ")");
-            } else {
-                result.put(name, fallback);
-            }
-        }
-        
-        return result;
+        if (aggregatesStale) rebuildAggregates();
+        return aggregator.snapshot();
     }
     
     // ==================== Nutrition Calculation ====================
@@ -349,11 +522,10 @@ public class RecipeManager {
         int totalFat = 0;
         int totalWater = 0;
         
-        for (Map.Entry<String, Integer> entry : recipeCart.entrySet()) {
-            String recipeTitle = entry.getKey();
-            int quantity = entry.getValue();
+        for (int i = 0; i < recipeCart.size(); i++) {
+            int quantity = recipeCart.valueAt(i);
             
-            Recipe recipe = getRecipeByTitle(recipeTitle);
+            Recipe recipe = catalog.getHeader(recipeCart.keyAt(i));
             if (recipe != null) {
                 totalCalories += recipe.getCalories() * quantity;
                 totalProtein += recipe.getProtein() * quantity;
@@ -0,0 +1,363 @@
+package edu.tamu.csce634.smartshop.managers;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import edu.tamu.csce634.smartshop.models.Ingredient;
+import edu.tamu.csce634.smartshop.models.Recipe;
+
+/**
+ * RecipeSearchIndex - In-memory inverted index for recipe search
+ *
+ * Text is split into lowercase, accent-free word tokens. Every term keeps a posting
+ * list (recipe id + weight, weighted by field: title > ingredient > description),
+ * so a query only touches the recipes that contain its terms.
+ *
+ * Each query token matches:
+ * - the identical term
+ * - terms it is a prefix of ("sal" -> "salmon", "salad"), for search-as-you-type
+ * - terms sharing most of its trigrams ("tofo" -> "tofu", "salmn" -> "salmon"),
+ *   only when there is no exact term, for typos
+ * Terms are scored with idf; a recipe's score per token is its best matching term.
+ * Results rank recipes matching more query tokens first, then by score, and only
+ * the top k are kept (bounded heap).
+ *
+ * Recipes can be added at any time (e.g. headers first, ingredients later);
+ * nothing is rebuilt. Thread-safe.
+ */
+class RecipeSearchIndex {
+
+    // Field weights
+    static final float TITLE = 3f;
+    static final float INGREDIENT = 2f;
+    static final float DESCRIPTION = 1f;
+
+    // How much looser matches count against an exact term
+    private static final float PREFIX_FACTOR = 0.7f;
+    private static final float FUZZY_FACTOR = 0.5f;
+    // Dice coefficient of trigram sets a typo match needs
+    private static final float MIN_SIMILARITY = 0.5f;
+    // Shorter tokens have too many trigram neighbours to be worth correcting
+    private static final int MIN_FUZZY_LENGTH = 4;
+    // Most terms one query token expands to (prefix + fuzzy)
+    private static final int MAX_EXPANSIONS = 64;
+    // Tokens beyond this are ignored (matched tokens are tracked in an int bit mask)
+    private static final int MAX_QUERY_TOKENS = 31;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "the", "of", "with", "in", "on", "for", "to", "from", "is"));
+
+    /**
+     * Postings of one term. A recipe appears once per add() call that contained the term.
+     */
+    private static class Term {
+        final String text;
+        int[] docs = new int[4];
+        float[] weights = new float[4];
+        int size;
+        int docFreq;          // number of distinct recipes (approximate: one per add() call)
+        int lastDoc = -1;
+
+        Term(String text) {
+            this.text = text;
+        }
+    }
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final TreeMap<String, Integer> sortedTerms = new TreeMap<>();   // prefix ranges
+    private final List<Term> terms = new ArrayList<>();
+    private final Map<String, int[]> trigramTerms = new HashMap<>();        // trigram -> term ids (size in [0])
+
+    private boolean[] seenDocs = new boolean[64];
+    private int docCount;
+
+    // Query scratch space, reused between queries (under the lock)
+    private float[] scores = new float[64];
+    private float[] tokenScores = new float[64];
+    private int[] matched = new int[64];
+    private int[] trigramHits = new int[64];
+
+    /**
+     * Index the recipe's header fields (title, short description)
+     */
+    void addHeader(Recipe recipe) {
+        add(recipe.getId(), TITLE, recipe.getTitle());
+        add(recipe.getId(), DESCRIPTION, recipe.getDescription());
+    }
+
+    /**
+     * Index the recipe's body (full description, ingredient names)
+     */
+    void addDetails(Recipe recipe) {
+        add(recipe.getId(), DESCRIPTION, recipe.getFullDescription());
+        for (Ingredient ing : recipe.getIngredients()) {
+            if (ing != null) add(recipe.getId(), INGREDIENT, ing.getName());
+        }
+    }
+
+    /**
+     * Index one piece of text of a recipe with the given field weight
+     */
+    synchronized void add(int recipeId, float weight, String text) {
+        if (recipeId < 0 || text == null) return;
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) return;
+
+        ensureDocCapacity(recipeId + 1);
+        if (!seenDocs[recipeId]) {
+            seenDocs[recipeId] = true;
+            docCount++;
+        }
+
+        for (String token : tokens) {
+            Term term = terms.get(termIdFor(token));
+            if (term.lastDoc == recipeId && term.size > 0) {
+                term.weights[term.size - 1] += weight;
+                continue;
+            }
+            if (term.size == term.docs.length) {
+                term.docs = Arrays.copyOf(term.docs, term.size * 2);
+                term.weights = Arrays.copyOf(term.weights, term.size * 2);
+            }
+            term.docs[term.size] = recipeId;
+            term.weights[term.size] = weight;
+            term.size++;
+            term.docFreq++;
+            term.lastDoc = recipeId;
+        }
+    }
+
+    /**
+     * Ids of the best matching recipes, best first (at most {@code limit})
+     */
+    synchronized int[] search(String query, int limit) {
+        List<String> tokens = query != null ? tokenize(query) : Collections.emptyList();
+        if (tokens.isEmpty() || limit <= 0 || docCount == 0) return new int[0];
+        if (tokens.size() > MAX_QUERY_TOKENS) tokens = tokens.subList(0, MAX_QUERY_TOKENS);
+
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        int[] tokenTouched = new int[16];
+
+        for (int t = 0; t < tokens.size(); t++) {
+            int tokenTouchedCount = 0;
+            Map<Integer, Float> expansions = expand(tokens.get(t));
+            for (Map.Entry<Integer, Float> e : expansions.entrySet()) {
+                Term term = terms.get(e.getKey());
+                float idf = (float) Math.log(1.0 + (double) docCount / Math.max(1, term.docFreq));
+                float factor = idf * e.getValue();
+                for (int i = 0; i < term.size; i++) {
+                    int doc = term.docs[i];
+                    if (tokenScores[doc] == 0f) {
+                        if (tokenTouchedCount == tokenTouched.length) {
+                            tokenTouched = Arrays.copyOf(tokenTouched, tokenTouchedCount * 2);
+                        }
+                        tokenTouched[tokenTouchedCount++] = doc;
+                    }
+                    // A recipe counts its best matching term once per token
+                    tokenScores[doc] = Math.max(tokenScores[doc], term.weights[i] * factor);
+                }
+            }
+
+            for (int i = 0; i < tokenTouchedCount; i++) {
+                int doc = tokenTouched[i];
+                if (matched[doc] == 0) {
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += tokenScores[doc];
+                matched[doc] |= 1 << t;
+                tokenScores[doc] = 0f;
+            }
+        }
+
+        // Top k: a min-heap of the best so far, worst on top
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, touchedCount) + 1,
+                (a, b) -> compare(b, a));
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            if (heap.size() < limit) {
+                heap.add(doc);
+            } else if (compare(doc, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(doc);
+            }
+        }
+
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll();
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            scores[touched[i]] = 0f;
+            matched[touched[i]] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Order of two recipes in the results: more query tokens matched, then higher score,
+     * then lower id. Negative if {@code a} ranks first.
+     */
+    private int compare(int a, int b) {
+        int byTokens = Integer.compare(Integer.bitCount(matched[b]), Integer.bitCount(matched[a]));
+        if (byTokens != 0) return byTokens;
+        int byScore = Float.compare(scores[b], scores[a]);
+        return byScore != 0 ? byScore : Integer.compare(a, b);
+    }
+
+    /**
+     * Terms a query token matches, with the factor each match counts for
+     */
+    private Map<Integer, Float> expand(String token) {
+        Map<Integer, Float> expansions = new HashMap<>();
+        Integer exact = termIds.get(token);
+        if (exact != null) expansions.put(exact, 1f);
+
+        // Prefix range of the sorted dictionary
+        for (Integer id : sortedTerms.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+            if (expansions.size() >= MAX_EXPANSIONS) break;
+            expansions.put(id, PREFIX_FACTOR);
+        }
+
+        if (exact == null && token.length() >= MIN_FUZZY_LENGTH) {
+            addFuzzyMatches(token, expansions);
+        }
+        return expansions;
+    }
+
+    /**
+     * Terms whose trigram sets are similar to the token's (Dice coefficient)
+     */
+    private void addFuzzyMatches(String token, Map<Integer, Float> expansions) {
+        if (trigramHits.length < terms.size()) {
+            trigramHits = new int[Math.max(terms.size(), trigramHits.length * 2)];
+        }
+
+        List<String> grams = trigrams(token);
+        int[] candidates = new int[16];
+        int candidateCount = 0;
+        for (String gram : grams) {
+            int[] list = trigramTerms.get(gram);
+            if (list == null) continue;
+            for (int i = 1; i <= list[0]; i++) {
+                int id = list[i];
+                if (trigramHits[id]++ == 0) {
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                    }
+                    candidates[candidateCount++] = id;
+                }
+            }
+        }
+
+        List<int[]> accepted = new ArrayList<>();   // {term id, similarity in thousandths}
+        for (int i = 0; i < candidateCount; i++) {
+            int id = candidates[i];
+            int shared = trigramHits[id];
+            trigramHits[id] = 0;
+            int termGrams = terms.get(id).text.length();
+            float similarity = 2f * Math.min(shared, termGrams) / (grams.size() + termGrams);
+            if (similarity >= MIN_SIMILARITY && !expansions.containsKey(id)) {
+                accepted.add(new int[]{id, Math.round(similarity * 1000)});
+            }
+        }
+
+        // Closest first, so the expansion cap drops the weakest
+        accepted.sort((a, b) -> Integer.compare(b[1], a[1]));
+        for (int[] match : accepted) {
+            if (expansions.size() >= MAX_EXPANSIONS) break;
+            expansions.put(match[0], FUZZY_FACTOR * match[1] / 1000f);
+        }
+    }
+
+    // --- Dictionary ---
+
+    private int termIdFor(String token) {
+        Integer id = termIds.get(token);
+        if (id != null) return id;
+
+        int newId = terms.size();
+        terms.add(new Term(token));
+        termIds.put(token, newId);
+        sortedTerms.put(token, newId);
+        for (String gram : trigrams(token)) {
+            int[] list = trigramTerms.get(gram);
+            if (list == null) {
+                list = new int[4];
+            } else if (list[0] + 1 == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+            }
+            list[++list[0]] = newId;
+            trigramTerms.put(gram, list);
+        }
+        return newId;
+    }
+
+    private void ensureDocCapacity(int size) {
+        if (size <= seenDocs.length) return;
+        int cap = Math.max(size, seenDocs.length * 2);
+        seenDocs = Arrays.copyOf(seenDocs, cap);
+        scores = Arrays.copyOf(scores, cap);
+        tokenScores = Arrays.copyOf(tokenScores, cap);
+        matched = Arrays.copyOf(matched, cap);
+    }
+
+    // --- Text ---
+
+    /**
+     * Lowercase, accent-free word tokens without stop words
+     */
+    static List<String> tokenize(String text) {
+        String normalized = isAscii(text) ? text
+                : MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        normalized = normalized.toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean word = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                String token = normalized.substring(start, i);
+                if (!STOP_WORDS.contains(token)) tokens.add(token);
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Trigrams of the word padded with one boundary marker on each side
+     * ("tofu" -> "$to", "tof", "ofu", "fu$"); a word of n letters has n trigrams
+     */
+    private static List<String> trigrams(String word) {
+        String padded = "$" + word + "$";
+        List<String> grams = new ArrayList<>(word.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
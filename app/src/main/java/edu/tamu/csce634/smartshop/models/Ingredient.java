@@ -1,12 +1,15 @@
 package edu.tamu.csce634.smartshop.models;
 
-import java.io.Serializable;
+import edu.tamu.csce634.smartshop.utils.QuantityParser;
 
-public class Ingredient implements Serializable {
+public class Ingredient {
     private String name;
     private String quantity;
     private int imageResId;
 
+    // Parsed form of quantity, computed once on first use
+    private transient QuantityParser.ParsedQuantity parsedQuantity;
+
     public Ingredient(String name, String quantity, int imageResId) {
         this.name = name;
         this.quantity = quantity;
@@ -16,4 +19,11 @@ public class Ingredient implements Serializable {
     public String getName() { return name; }
     public String getQuantity() { return quantity; }
     public int getImageResId() { return imageResId; }
-}
\ No newline at end of file
+
+    public QuantityParser.ParsedQuantity getParsedQuantity() {
+        if (parsedQuantity == null) {
+            parsedQuantity = QuantityParser.parse(quantity == null ? "" : quantity.trim());
+        }
+        return parsedQuantity;
+    }
+}
@@ -9,6 +9,15 @@ import com.google.gson.annotations.SerializedName;
  */
 public class ProductOption {
 
+    @SerializedName("optionId")
+    public String optionId;
+
+    @SerializedName("ingredientId")
+    public String ingredientId;
+
+    @SerializedName("brand")
+    public String brand;
+
     @SerializedName("name")
     public String name;
 
@@ -1,10 +1,14 @@
 package edu.tamu.csce634.smartshop.models;
 
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Recipe implements Serializable {
+/**
+ * A recipe of the catalog. Instances are owned and shared by RecipeManager: treat them
+ * as read-only, and pass the id (not the object) between screens.
+ */
+public class Recipe {
+    private int id;          // stable catalog id, also the key of the saved cart
     private String title;
     private String description;
     private String fullDescription;
@@ -17,7 +21,8 @@ public class Recipe implements Serializable {
     private int fat;         // grams
     private int water;       // cups
 
-    public Recipe(String title, String description, String fullDescription, int imageResId) {
+    public Recipe(int id, String title, String description, String fullDescription, int imageResId) {
+        this.id = id;
         this.title = title;
         this.description = description;
         this.fullDescription = fullDescription;
@@ -35,6 +40,7 @@ public class Recipe implements Serializable {
     }
 
     // Getters
+    public int getId() { return id; }
     public String getTitle() { return title; }
     public String getDescription() { return description; }
     public String getFullDescription() { return fullDescription; }
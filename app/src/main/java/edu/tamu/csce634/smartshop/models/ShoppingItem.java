@@ -49,4 +49,33 @@ public class ShoppingItem {
 
     public boolean isPicked = false;
 
+    /**
+     * 复制一份（列表按 copy-on-write 修改单行时使用，旧对象保持不变）
+     */
+    public ShoppingItem copy() {
+        ShoppingItem c = new ShoppingItem();
+        c.ingredientId = ingredientId;
+        c.name = name;
+        c.unit = unit;
+        c.quantity = quantity;
+        c.aisle = aisle;
+        c.category = category;
+        c.unitPrice = unitPrice;
+        c.selectedSkuName = selectedSkuName;
+        c.skuSpec = skuSpec;
+        c.imageUrl = imageUrl;
+        c.coordinateX = coordinateX;
+        c.coordinateY = coordinateY;
+        c.recipeNeededStr = recipeNeededStr;
+        c.recipeNeededValue = recipeNeededValue;
+        c.recipeNeededUnit = recipeNeededUnit;
+        c.done = done;
+        c.originalIngredientId = originalIngredientId;
+        c.substitutionRatio = substitutionRatio;
+        c.isSubstituted = isSubstituted;
+        c.substituteDisplayName = substituteDisplayName;
+        c.isPicked = isPicked;
+        return c;
+    }
+
 }
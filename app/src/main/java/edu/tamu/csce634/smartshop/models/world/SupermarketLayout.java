@@ -12,4 +12,14 @@ public class SupermarketLayout {
     // 包含的所有货架和区域
     @SerializedName("aisles")
     public List<Aisle> aisles;
+
+    // 入口与收银台的位置 [x, y] (百分比)，可选；缺省时由地图模块使用默认入口
+    @SerializedName("entrance")
+    public float[] entrance;
+    @SerializedName("checkout")
+    public float[] checkout;
+
+    // 寻路网格的分辨率 [列数, 行数]，可选；缺省时由地图模块使用默认分辨率
+    @SerializedName("grid")
+    public int[] grid;
 }
@@ -0,0 +1,277 @@
+package edu.tamu.csce634.smartshop.ui.list;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.tamu.csce634.smartshop.models.ShoppingItem;
+import edu.tamu.csce634.smartshop.utils.AisleOrder;
+
+/**
+ * 购物清单的不可变状态：列表 + ingredientId 索引 + 派生数据（总价、通道分组、进度）
+ *
+ * - 修改单行时复制那一个 ShoppingItem（copy-on-write），旧状态和旧对象都不变，
+ *   适配器快照 / 后台任务手里的旧列表不会被改到
+ * - 新状态与旧状态共享未变化的部分：行对象、id 索引（id 不变时）、没受影响的通道分组
+ * - 总价、件数、已拾取数按变化的行增减，不整表重算
+ *
+ * 列表只有几十行，行数组直接复制（只是引用拷贝）；开销大的是派生数据的重算，这里都是增量的
+ */
+final class ItemListState {
+
+    static final ItemListState EMPTY = of(Collections.emptyList());
+
+    final List<ShoppingItem> items;                      // 只读
+    final double total;                                  // Σ 单价 × 数量
+    final int activeCount;                               // 数量 > 0 的行数
+    final int activeUnits;                               // 数量 > 0 的行的总件数
+    final int pickedCount;                               // 数量 > 0 且已拾取的行数
+    final Map<String, List<ShoppingItem>> aisleGroups;   // 通道 -> 行（只含数量 > 0，按通道号排序）
+
+    private final ShoppingItem[] rows;
+    private final Map<String, Integer> index;            // ingredientId -> 行号
+
+    private ItemListState(ShoppingItem[] rows, Map<String, Integer> index, double total,
+                          int activeCount, int activeUnits, int pickedCount,
+                          Map<String, List<ShoppingItem>> aisleGroups) {
+        this.rows = rows;
+        this.items = Collections.unmodifiableList(Arrays.asList(rows));
+        this.index = index;
+        this.total = total;
+        this.activeCount = activeCount;
+        this.activeUnits = activeUnits;
+        this.pickedCount = pickedCount;
+        this.aisleGroups = aisleGroups;
+    }
+
+    /**
+     * 从完整列表构建（整表替换时使用）
+     */
+    static ItemListState of(List<ShoppingItem> list) {
+        ShoppingItem[] rows = list.toArray(new ShoppingItem[0]);
+        double total = 0.0;
+        int activeCount = 0;
+        int activeUnits = 0;
+        int pickedCount = 0;
+        Map<String, List<ShoppingItem>> grouped = new LinkedHashMap<>();
+
+        for (ShoppingItem item : rows) {
+            total += item.unitPrice * item.quantity;
+            if (item.quantity <= 0) continue;  // ✅ 过滤无效商品
+            activeCount++;
+            activeUnits += (int) item.quantity;
+            if (item.isPicked) pickedCount++;
+            grouped.computeIfAbsent(aisleKey(item), k -> new ArrayList<>()).add(item);
+        }
+
+        return new ItemListState(rows, buildIndex(rows), total,
+                activeCount, activeUnits, pickedCount, sortAisles(grouped));
+    }
+
+    /**
+     * 行号（没有返回 -1）
+     */
+    int indexOf(String ingredientId) {
+        Integer pos = ingredientId != null ? index.get(ingredientId) : null;
+        return pos != null ? pos : -1;
+    }
+
+    ShoppingItem get(int position) {
+        return rows[position];
+    }
+
+    /**
+     * 替换一行，得到新状态（item 应该是新对象，不要原地修改旧行）
+     */
+    ItemListState replace(int position, ShoppingItem item) {
+        ShoppingItem old = rows[position];
+        ShoppingItem[] newRows = rows.clone();
+        newRows[position] = item;
+
+        // id 不变（换 SKU / 改数量 / 拾取）时共用索引；替换食材才重建
+        Map<String, Integer> newIndex = sameId(old.ingredientId, item.ingredientId)
+                ? index : buildIndex(newRows);
+
+        return new ItemListState(newRows, newIndex,
+                total - old.unitPrice * old.quantity + item.unitPrice * item.quantity,
+                activeCount - active(old) + active(item),
+                activeUnits - units(old) + units(item),
+                pickedCount - picked(old) + picked(item),
+                regroup(newRows, position, old, item));
+    }
+
+    /**
+     * 按增量补丁得到新状态（ShoppingListBuilder 的结果：未变化的行与旧列表是同一对象）
+     */
+    ItemListState patch(List<ShoppingItem> newItems, List<ShoppingItem> removed, List<ShoppingItem> added) {
+        double newTotal = total;
+        int newActive = activeCount;
+        int newUnits = activeUnits;
+        int newPicked = pickedCount;
+        Set<String> affected = new HashSet<>();
+        for (ShoppingItem item : removed) {
+            newTotal -= item.unitPrice * item.quantity;
+            newActive -= active(item);
+            newUnits -= units(item);
+            newPicked -= picked(item);
+            affected.add(aisleKey(item));
+        }
+        for (ShoppingItem item : added) {
+            newTotal += item.unitPrice * item.quantity;
+            newActive += active(item);
+            newUnits += units(item);
+            newPicked += picked(item);
+            affected.add(aisleKey(item));
+        }
+
+        ShoppingItem[] newRows = newItems.toArray(new ShoppingItem[0]);
+
+        // 只重建受影响通道的分组，其他通道的列表原样保留
+        Map<String, List<ShoppingItem>> rebuilt = new LinkedHashMap<>();
+        for (String aisle : affected) rebuilt.put(aisle, new ArrayList<>());
+        for (ShoppingItem item : newRows) {
+            if (item.quantity <= 0) continue;
+            List<ShoppingItem> group = rebuilt.get(aisleKey(item));
+            if (group != null) group.add(item);
+        }
+
+        // 已有通道保持原来的顺序（原位换成重建的分组，空了就去掉），不整体重排
+        Map<String, List<ShoppingItem>> grouped = new LinkedHashMap<>();
+        for (Map.Entry<String, List<ShoppingItem>> e : aisleGroups.entrySet()) {
+            String aisle = e.getKey();
+            if (!affected.contains(aisle)) {
+                grouped.put(aisle, e.getValue());
+                continue;
+            }
+            List<ShoppingItem> group = rebuilt.remove(aisle);
+            if (!group.isEmpty()) grouped.put(aisle, group);
+        }
+        // rebuilt 里剩下的是新出现的通道，按通道号插进去
+        rebuilt.values().removeIf(List::isEmpty);
+
+        return new ItemListState(newRows, buildIndex(newRows), Math.max(0.0, newTotal),
+                newActive, newUnits, newPicked, insertAisles(grouped, rebuilt));
+    }
+
+    /**
+     * 单行替换后的通道分组：只复制旧行 / 新行所在的通道
+     */
+    private Map<String, List<ShoppingItem>> regroup(ShoppingItem[] newRows, int position,
+                                                    ShoppingItem old, ShoppingItem item) {
+        String oldKey = old.quantity > 0 ? aisleKey(old) : null;
+        String newKey = item.quantity > 0 ? aisleKey(item) : null;
+        if (oldKey == null && newKey == null) return aisleGroups;
+
+        Map<String, List<ShoppingItem>> grouped = new LinkedHashMap<>(aisleGroups);
+
+        // 同一通道：原位置替换
+        if (oldKey != null && oldKey.equals(newKey)) {
+            List<ShoppingItem> group = new ArrayList<>(grouped.get(oldKey));
+            for (int i = 0; i < group.size(); i++) {
+                if (group.get(i) == old) {
+                    group.set(i, item);
+                    break;
+                }
+            }
+            grouped.put(oldKey, group);
+            return grouped;
+        }
+
+        if (oldKey != null) {
+            List<ShoppingItem> group = new ArrayList<>(grouped.get(oldKey));
+            group.remove(old);
+            if (group.isEmpty()) {
+                grouped.remove(oldKey);
+            } else {
+                grouped.put(oldKey, group);
+            }
+        }
+
+        if (newKey != null) {
+            List<ShoppingItem> previous = grouped.get(newKey);
+            List<ShoppingItem> group = previous != null ? new ArrayList<>(previous) : new ArrayList<>();
+            // 按列表顺序插入：前面有几行属于这个通道，就插在第几个
+            int at = 0;
+            for (int i = 0; i < position; i++) {
+                if (newRows[i].quantity > 0 && newKey.equals(aisleKey(newRows[i]))) at++;
+            }
+            group.add(Math.min(at, group.size()), item);
+            if (previous == null) {
+                return insertAisles(grouped, Collections.singletonMap(newKey, group));
+            }
+            grouped.put(newKey, group);
+        }
+        return grouped;
+    }
+
+    private static Map<String, Integer> buildIndex(ShoppingItem[] rows) {
+        Map<String, Integer> index = new HashMap<>(rows.length * 2);
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i].ingredientId != null) index.putIfAbsent(rows[i].ingredientId, i);
+        }
+        return index;
+    }
+
+    private static boolean sameId(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static int active(ShoppingItem item) {
+        return item.quantity > 0 ? 1 : 0;
+    }
+
+    private static int units(ShoppingItem item) {
+        return item.quantity > 0 ? (int) item.quantity : 0;
+    }
+
+    private static int picked(ShoppingItem item) {
+        return item.quantity > 0 && item.isPicked ? 1 : 0;
+    }
+
+    static String aisleKey(ShoppingItem item) {
+        return AisleOrder.keyOf(item);
+    }
+
+    /**
+     * 把新出现的通道按通道号插入已排好序的分组：只排序新通道，再与原顺序归并，
+     * 已有通道的相对顺序不变（通道号相同时新通道排在后面）
+     */
+    private static Map<String, List<ShoppingItem>> insertAisles(Map<String, List<ShoppingItem>> sorted,
+                                                                Map<String, List<ShoppingItem>> added) {
+        if (added.isEmpty()) return sorted;
+
+        List<String> newAisles = new ArrayList<>(added.keySet());
+        newAisles.sort(AisleOrder.ORDER);
+
+        Map<String, List<ShoppingItem>> merged = new LinkedHashMap<>();
+        int next = 0;
+        for (Map.Entry<String, List<ShoppingItem>> e : sorted.entrySet()) {
+            while (next < newAisles.size() && AisleOrder.ORDER.compare(newAisles.get(next), e.getKey()) < 0) {
+                String aisle = newAisles.get(next++);
+                merged.put(aisle, added.get(aisle));
+            }
+            merged.put(e.getKey(), e.getValue());
+        }
+        for (; next < newAisles.size(); next++) {
+            merged.put(newAisles.get(next), added.get(newAisles.get(next)));
+        }
+        return merged;
+    }
+
+    /**
+     * 按通道号排序（排序键有缓存，不重复解析通道名；只在整表构建时使用）
+     */
+    private static Map<String, List<ShoppingItem>> sortAisles(Map<String, List<ShoppingItem>> grouped) {
+        List<String> aisles = new ArrayList<>(grouped.keySet());
+        aisles.sort(AisleOrder.ORDER);
+        Map<String, List<ShoppingItem>> sorted = new LinkedHashMap<>();
+        for (String aisle : aisles) sorted.put(aisle, grouped.get(aisle));
+        return sorted;
+    }
+}
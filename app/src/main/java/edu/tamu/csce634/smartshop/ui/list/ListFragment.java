@@ -26,21 +26,22 @@ import edu.tamu.csce634.smartshop.Repository.ProfileRepository;
 
 import edu.tamu.csce634.smartshop.adapters.ShoppingItemAdapter;
 import edu.tamu.csce634.smartshop.databinding.FragmentListBinding;
+import edu.tamu.csce634.smartshop.managers.RecipeManager;
 import edu.tamu.csce634.smartshop.data.DataSeeder;
 import edu.tamu.csce634.smartshop.data.PresetRepository;
+import edu.tamu.csce634.smartshop.data.ShoppingSessionStore;
 import edu.tamu.csce634.smartshop.models.ShoppingItem;
 import edu.tamu.csce634.smartshop.ui.recipe.RecipeViewModel;
 //import edu.tamu.csce634.smartshop.utils.CartManager;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
 import edu.tamu.csce634.smartshop.utils.ConflictDetector;
-import edu.tamu.csce634.smartshop.utils.IngredientSubstitutes;
 import edu.tamu.csce634.smartshop.utils.PreferenceStateManager;
-import edu.tamu.csce634.smartshop.utils.QuantityParser;
-
-import edu.tamu.csce634.smartshop.utils.LocationEngine;
 
 /**
  * 购物清单页面：
- * - 首次启动把 res/raw 的预置 JSON 灌入 SharedPreferences
+ * - 首次启动把 res/raw 的预置 JSON 编译成二进制目录（DataSeeder）
+ * - 食谱数量变化时由 ShoppingListBuilder 增量更新列表（在 ListViewModel 的后台通道执行）
+ * - 冲突检测在后台执行，结果回到主线程再刷新 adapter
  * - 从预置数据生成初始列表（默认 Breakfast 配方）
  * - 底部提供 3 个 recipe 切换按钮（Quick Breakfast / Family Dinner / Vegan Bowl）
  * - 顶部右侧显示实时总价与 Map 按钮（Map 按钮仅打印日志）
@@ -55,6 +56,7 @@ public class ListFragment extends Fragment {
     private ShoppingItemAdapter adapter;
     private PresetRepository repo;
     private PreferenceStateManager stateManager;
+    private ShoppingListBuilder listBuilder;
 
     private boolean preferenceMode = false;
     private static final String PREF_MODE_KEY = "shopping_list_preference_mode";
@@ -78,6 +80,7 @@ public class ListFragment extends Fragment {
         DataSeeder.seedIfNeeded(requireContext());
         repo = new PresetRepository(requireContext());
         stateManager = new PreferenceStateManager(requireContext());
+        listBuilder = new ShoppingListBuilder(requireContext(), repo);
 
         listViewModel = new ViewModelProvider(requireActivity()).get(ListViewModel.class);
         recipeViewModel = new ViewModelProvider(requireActivity()).get(RecipeViewModel.class);
@@ -139,7 +142,7 @@ public class ListFragment extends Fragment {
             } else {
                 binding.emptyStateLayout.setVisibility(View.VISIBLE);
                 binding.recycler.setVisibility(View.GONE);
-                listViewModel.updateItemList(new ArrayList<>());
+                convertCartToShoppingList(new HashMap<>());
             }
         });
 
@@ -171,8 +174,12 @@ public class ListFragment extends Fragment {
         List<ConflictDetector.Conflict> unresolved = new ArrayList<>();
 
         for (ConflictDetector.Conflict conflict : all) {
+            // 数量以列表当前行为准（conflict.item 是检测时的行）
+            ShoppingItem current = listViewModel.findItem(conflict.item.ingredientId);
+            double quantity = current != null ? current.quantity : conflict.item.quantity;
+
             // 数量>0 且 未解决 → 真正的未解决冲突
-            if (conflict.item.quantity > 0 && !conflict.resolved) {
+            if (quantity > 0 && !conflict.resolved) {
                 unresolved.add(conflict);
             }
         }
@@ -295,115 +302,23 @@ public class ListFragment extends Fragment {
 //        //         .commit();
 //    }
     private void convertCartToShoppingList(Map<String, String> mergedIngredients) {
-        try {
-            List<edu.tamu.csce634.smartshop.models.Recipe> recipes = recipeViewModel.getRecipes().getValue();
-            if (recipes == null) recipes = new ArrayList<>();
-
-            Map<String, Integer> ingredientImageMap = new HashMap<>();
-            for (edu.tamu.csce634.smartshop.models.Recipe recipe : recipes) {
-                for (edu.tamu.csce634.smartshop.models.Ingredient ingredient : recipe.getIngredients()) {
-                    ingredientImageMap.put(ingredient.getName().toLowerCase().trim(), ingredient.getImageResId());
-                }
-            }
-
-            List<ShoppingItem> presetItems = repo.loadInitialItems();
-            Map<String, ShoppingItem> presetMap = new HashMap<>();
-            for (ShoppingItem preset : presetItems) {
-                String normalizedName = preset.name.toLowerCase().trim();
-                presetMap.put(normalizedName, preset);
-                presetMap.put(normalizedName.replaceAll("\\s+", ""), preset);
-                if (preset.selectedSkuName != null) {
-                    String normalizedSku = preset.selectedSkuName.toLowerCase().trim();
-                    presetMap.put(normalizedSku, preset);
-                    presetMap.put(normalizedSku.replaceAll("\\s+", ""), preset);
-                }
-            }
-
-            List<ShoppingItem> cartItems = new ArrayList<>();
-            for (Map.Entry<String, String> entry : mergedIngredients.entrySet()) {
-                String ingredientName = entry.getKey();
-                String quantityStr = entry.getValue();
-
-                ShoppingItem item = new ShoppingItem();
-                item.name = ingredientName;
-                item.selectedSkuName = ingredientName;
-                item.recipeNeededStr = quantityStr;
-
-                QuantityParser.ParsedQuantity parsed = QuantityParser.parse(quantityStr);
-                if (parsed.success) {
-                    item.recipeNeededValue = parsed.value;
-                    item.recipeNeededUnit = parsed.unit;
-                } else {
-                    item.recipeNeededValue = 1.0;
-                    item.recipeNeededUnit = "";
+        List<ShoppingItem> shown = listViewModel.getCurrentItems();
+        if ((mergedIngredients == null || mergedIngredients.isEmpty()) && shown != null && !shown.isEmpty()) {
+            // 清单从有到无：Map 页上一趟的路线和拾取进度一并作废
+            // 以购物车本身为准再确认一次（购物车真的空了才清），ShoppingSessionStore 首次获取会读文件，放到后台
+            android.content.Context appContext = requireContext().getApplicationContext();
+            AppExecutors.runInBackground(() -> {
+                if (RecipeManager.getInstance(appContext).getTotalCartItems() == 0) {
+                    ShoppingSessionStore.get(appContext).clear();
                 }
-
-                String normalizedName = ingredientName.toLowerCase().trim();
-                ShoppingItem preset = presetMap.get(normalizedName);
-                if (preset == null) preset = presetMap.get(normalizedName.replaceAll("\\s+", ""));
-
-                if (preset != null) {
-                    item.selectedSkuName = preset.selectedSkuName;
-                    item.unitPrice = preset.unitPrice;
-                    item.unit = preset.unit;
-                    item.aisle = preset.aisle;
-                    item.ingredientId = preset.ingredientId;
-                    item.skuSpec = preset.skuSpec;
-
-                    QuantityParser.ParsedQuantity packageParsed = QuantityParser.parse(preset.skuSpec);
-                    if (packageParsed.success && item.recipeNeededValue > 0) {
-                        boolean unitMatch = item.recipeNeededUnit.isEmpty() || packageParsed.unit.isEmpty() ||
-                                item.recipeNeededUnit.equalsIgnoreCase(packageParsed.unit);
-                        if (unitMatch) {
-                            item.quantity = QuantityParser.calculatePackageCount(item.recipeNeededValue, packageParsed.value);
-                        } else {
-                            item.quantity = 1;
-                        }
-                    } else {
-                        item.quantity = 1;
-                    }
-                } else {
-                    item.unitPrice = 2.99;
-                    item.unit = "Oz";
-                    item.aisle = "General";
-                    item.ingredientId = "cart_" + ingredientName.toLowerCase().replaceAll("[^a-z0-9]", "_");
-                    item.quantity = 1;
-                    item.selectedSkuName = ingredientName;
-                    item.skuSpec = "";
-                }
-
-                Integer imageResId = ingredientImageMap.get(ingredientName.toLowerCase().trim());
-                if (imageResId != null && imageResId != 0) {
-                    item.imageUrl = "res:" + imageResId;
-                } else if (preset != null && preset.imageUrl != null) {
-                    item.imageUrl = preset.imageUrl;
-                } else {
-                    item.imageUrl = "";
-                }
-
-                cartItems.add(item);
-            }
-
-            LocationEngine locationEngine = new LocationEngine(requireContext());
-            locationEngine.calculateCoordinatesForList(cartItems);
-
-            for (ShoppingItem item : cartItems) {
-                android.util.Log.d("LocationTest", "Item: " + item.name +
-                        ", Coords: (" + item.coordinateX + ", " + item.coordinateY + ")");
-            }
-            listViewModel.updateItemList(cartItems);
-            // ✅ 关键修复：如果是偏好模式，立即应用历史替换
-            if (preferenceMode) {
-                binding.getRoot().post(() -> {
-                    applyHistoricalSubstitutions(cartItems);
-                    listViewModel.updateItemList(cartItems);
-                });
-            }
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            listViewModel.updateItemList(new ArrayList<>());
+            });
         }
+        // 增量：只重建需求量变化的行，其余行原样复用（后台执行，结果投递到主线程更新列表）
+        // ✅ 如果是偏好模式，只对新建的行应用历史替换
+        listViewModel.submitCartUpdate(
+                listBuilder,
+                mergedIngredients,
+                preferenceMode ? stateManager.loadResolutions() : null);
     }
 
     private void togglePreferenceMode() {
@@ -417,7 +332,7 @@ public class ListFragment extends Fragment {
     }
 
     private void saveCurrentQuantities(boolean isPreferenceMode) {
-        List<ShoppingItem> currentItems = listViewModel.getItemList().getValue();
+        List<ShoppingItem> currentItems = listViewModel.getCurrentItems();
         if (currentItems == null) return;
 
         Map<String, Integer> quantities = new HashMap<>();
@@ -441,7 +356,7 @@ public class ListFragment extends Fragment {
                 return;
             }
 
-            List<ShoppingItem> currentItems = listViewModel.getItemList().getValue();
+            List<ShoppingItem> currentItems = listViewModel.getCurrentItems();
             if (currentItems == null || currentItems.isEmpty()) {
                 profileRepo.getProfileData().removeObservers(getViewLifecycleOwner());
                 return;
@@ -456,8 +371,8 @@ public class ListFragment extends Fragment {
                 int appliedCount = 0;
 
                 for (ShoppingItem item : currentItems) {
-                    ShoppingItem newItem = new ShoppingItem();
-                    copyItemFields(item, newItem);
+                    // 整行复制（坐标、分类、拾取状态也要带上：增量重建只给新增的行定位）
+                    ShoppingItem newItem = item.copy();
 
                     // 尝试多种key匹配
                     PreferenceStateManager.ResolutionRecord resolution = null;
@@ -482,7 +397,7 @@ public class ListFragment extends Fragment {
 
                     if (resolution != null) {
                         if (resolution.type == PreferenceStateManager.ResolutionType.REPLACED) {
-                            applySubstitutionToItem(newItem, resolution);
+                            listBuilder.applySubstitution(newItem, resolution);
                         } else if (resolution.type == PreferenceStateManager.ResolutionType.SET_TO_ZERO) {
                             newItem.quantity = 0;
                         }
@@ -500,33 +415,35 @@ public class ListFragment extends Fragment {
 
             }
 
-            // 检测冲突
-            List<ConflictDetector.Conflict> conflicts = ConflictDetector.detectConflicts(currentItems, profile);
+            // 检测冲突（后台执行，结果回到主线程）
+            listViewModel.detectConflicts(currentItems, profile, conflicts -> {
+                if (binding == null) return;
 
-            // 标记已解决的冲突
-            for (ConflictDetector.Conflict conflict : conflicts) {
-                String key = conflict.item.originalIngredientId != null ?
-                        conflict.item.originalIngredientId : conflict.item.ingredientId;
-                if (savedResolutions.containsKey(key)) {
-                    conflict.resolved = true;
+                // 标记已解决的冲突
+                for (ConflictDetector.Conflict conflict : conflicts) {
+                    String key = conflict.item.originalIngredientId != null ?
+                            conflict.item.originalIngredientId : conflict.item.ingredientId;
+                    if (savedResolutions.containsKey(key)) {
+                        conflict.resolved = true;
+                    }
                 }
-            }
 
-            if (!conflicts.isEmpty()) {
-                adapter.setConflicts(conflicts);
-                adapter.setOnSubstituteRequestListener(this::showSubstituteBottomSheet);
+                if (!conflicts.isEmpty()) {
+                    adapter.setConflicts(conflicts);
+                    adapter.setOnSubstituteRequestListener(this::showSubstituteBottomSheet);
 
-                int unresolvedCount = 0;
-                for (ConflictDetector.Conflict c : conflicts) {
-                    if (!c.resolved) unresolvedCount++;
-                }
+                    int unresolvedCount = 0;
+                    for (ConflictDetector.Conflict c : conflicts) {
+                        if (!c.resolved) unresolvedCount++;
+                    }
 
-                if (unresolvedCount > 0) {
-                    Toast.makeText(requireContext(),
-                            unresolvedCount + " conflicts detected. Tap items to resolve.",
-                            Toast.LENGTH_LONG).show();
+                    if (unresolvedCount > 0) {
+                        Toast.makeText(requireContext(),
+                                unresolvedCount + " conflicts detected. Tap items to resolve.",
+                                Toast.LENGTH_LONG).show();
+                    }
                 }
-            }
+            });
 
             activatePreferenceMode(profile);
             restorePreferenceQuantities();
@@ -550,15 +467,14 @@ public class ListFragment extends Fragment {
     }
 
     private void restoreDefaultMode() {
-        List<ShoppingItem> currentItems = listViewModel.getItemList().getValue();
+        List<ShoppingItem> currentItems = listViewModel.getCurrentItems();
         if (currentItems == null) return;
 
         Map<String, Integer> savedQuantities = stateManager.loadDefaultQuantities();
         List<ShoppingItem> restoredItems = new ArrayList<>();
 
         for (ShoppingItem item : currentItems) {
-            ShoppingItem newItem = new ShoppingItem();
-            copyItemFields(item, newItem);
+            ShoppingItem newItem = item.copy();
 
             if (item.isSubstituted && item.originalIngredientId != null) {
                 try {
@@ -602,22 +518,18 @@ public class ListFragment extends Fragment {
         Map<String, Integer> savedQuantities = stateManager.loadPreferenceQuantities();
         if (savedQuantities.isEmpty()) return;
 
-        List<ShoppingItem> currentItems = listViewModel.getItemList().getValue();
-        if (currentItems == null) return;
-
-        for (ShoppingItem item : currentItems) {
-            String key = item.originalIngredientId != null ? item.originalIngredientId : item.ingredientId;
-            Integer savedQty = savedQuantities.get(key);
-            if (savedQty != null) {
-                item.quantity = savedQty;
-            }
-        }
-
-        listViewModel.updateItemList(currentItems);
+        // 已发布的行不原地修改：数量不同的行复制一份再提交
+        listViewModel.updateItems(item -> {
+            Integer savedQty = savedQuantities.get(ShoppingListBuilder.keyOf(item));
+            if (savedQty == null || savedQty == item.quantity) return null;
+            ShoppingItem copy = item.copy();
+            copy.quantity = savedQty;
+            return copy;
+        });
     }
 
     private void restorePreferenceModeState() {
-        List<ShoppingItem> currentItems = listViewModel.getItemList().getValue();
+        List<ShoppingItem> currentItems = listViewModel.getCurrentItems();
         if (currentItems == null || currentItems.isEmpty()) return;
 
         ProfileRepository profileRepo = new ProfileRepository(requireActivity().getApplication());
@@ -627,93 +539,38 @@ public class ListFragment extends Fragment {
                 return;
             }
 
-            applyHistoricalSubstitutions(currentItems);
-            listViewModel.updateItemList(currentItems);
-
-            List<ConflictDetector.Conflict> conflicts = ConflictDetector.detectConflicts(currentItems, profile);
             Map<String, PreferenceStateManager.ResolutionRecord> savedResolutions = stateManager.loadResolutions();
-
-            for (ConflictDetector.Conflict conflict : conflicts) {
-                String key = conflict.item.originalIngredientId != null ?
-                        conflict.item.originalIngredientId : conflict.item.ingredientId;
-                if (savedResolutions.containsKey(key)) {
-                    conflict.resolved = true;
+            List<ShoppingItem> restoredItems = listViewModel.updateItems(item -> {
+                PreferenceStateManager.ResolutionRecord resolution = savedResolutions.get(item.ingredientId);
+                if (resolution == null || resolution.type != PreferenceStateManager.ResolutionType.REPLACED) {
+                    return null;
+                }
+                ShoppingItem copy = item.copy();
+                listBuilder.applySubstitution(copy, resolution);
+                return copy;
+            });
+
+            listViewModel.detectConflicts(restoredItems, profile, conflicts -> {
+                if (binding == null) return;
+
+                for (ConflictDetector.Conflict conflict : conflicts) {
+                    String key = conflict.item.originalIngredientId != null ?
+                            conflict.item.originalIngredientId : conflict.item.ingredientId;
+                    if (savedResolutions.containsKey(key)) {
+                        conflict.resolved = true;
+                    }
                 }
-            }
 
-            if (!conflicts.isEmpty() || !savedResolutions.isEmpty()) {
-                adapter.setConflicts(conflicts);
-                adapter.setOnSubstituteRequestListener(this::showSubstituteBottomSheet);
-            }
+                if (!conflicts.isEmpty() || !savedResolutions.isEmpty()) {
+                    adapter.setConflicts(conflicts);
+                    adapter.setOnSubstituteRequestListener(this::showSubstituteBottomSheet);
+                }
+            });
 
             profileRepo.getProfileData().removeObservers(getViewLifecycleOwner());
         });
     }
 
-    // ✅ 关键方法：应用历史替换
-    private void applyHistoricalSubstitutions(List<ShoppingItem> items) {
-        Map<String, PreferenceStateManager.ResolutionRecord> savedResolutions = stateManager.loadResolutions();
-
-        for (ShoppingItem item : items) {
-            PreferenceStateManager.ResolutionRecord resolution = savedResolutions.get(item.ingredientId);
-
-            if (resolution != null && resolution.type == PreferenceStateManager.ResolutionType.REPLACED) {
-                applySubstitutionToItem(item, resolution);
-            }
-        }
-    }
-
-    private void applySubstitutionToItem(ShoppingItem item, PreferenceStateManager.ResolutionRecord resolution) {
-        try {
-            ShoppingItem presetData = loadPresetDataForSubstitute(resolution.substituteId);
-            if (presetData == null) {
-                return;
-            }
-
-            int substituteImageResId = getImageResIdForIngredient(resolution.substituteName);
-            presetData.imageUrl = "res:" + substituteImageResId;
-
-            // ✅ 保存原始ID
-            if (item.originalIngredientId == null) {
-                item.originalIngredientId = item.ingredientId;
-            }
-
-            double originalNeededValue = item.recipeNeededValue;
-
-            // ✅ 更新所有字段
-            item.ingredientId = resolution.substituteId;
-            item.name = resolution.substituteName;
-            item.selectedSkuName = presetData.selectedSkuName;
-            item.unitPrice = presetData.unitPrice;
-            item.skuSpec = presetData.skuSpec;
-            item.unit = presetData.unit;
-            item.aisle = presetData.aisle;
-            item.imageUrl = presetData.imageUrl;
-            item.isSubstituted = true;
-            item.substitutionRatio = resolution.substitutionRatio;
-            item.substituteDisplayName = "Replaced with " + resolution.substituteName;
-
-            item.recipeNeededValue = originalNeededValue * resolution.substitutionRatio;
-            item.recipeNeededStr = formatQuantity(item.recipeNeededValue) +
-                    (item.recipeNeededUnit.isEmpty() ? "" : " " + item.recipeNeededUnit);
-
-            QuantityParser.ParsedQuantity packageParsed = QuantityParser.parse(item.skuSpec);
-            if (packageParsed.success && item.recipeNeededValue > 0) {
-                boolean unitMatch = item.recipeNeededUnit.isEmpty() || packageParsed.unit.isEmpty() ||
-                        item.recipeNeededUnit.equalsIgnoreCase(packageParsed.unit);
-                if (unitMatch) {
-                    item.quantity = QuantityParser.calculatePackageCount(item.recipeNeededValue, packageParsed.value);
-                } else {
-                    item.quantity = 1;
-                }
-            }
-        } catch (Exception e) {
-            Toast.makeText(requireContext(),
-                    "⚠ Error applying substitution: " + e.getMessage(),
-                    Toast.LENGTH_SHORT).show();
-            e.printStackTrace();
-        }
-    }
     private void showSubstituteBottomSheet(ShoppingItem item, ConflictDetector.Conflict conflict) {
         SubstituteSelectionBottomSheet sheet = SubstituteSelectionBottomSheet.newInstance(item, conflict);
         sheet.setOnSubstituteConfirmedListener((originalItem, selectedSubstitute) -> {
@@ -740,18 +597,19 @@ public class ListFragment extends Fragment {
                     // ✅ 关键修复：使用originalIngredientId（如果有的话）
                     String keyToSave = originalItem.originalIngredientId != null ?
                             originalItem.originalIngredientId : originalItem.ingredientId;
+                    // replaceIngredient 生成的是新行，originalItem 本身不变
+                    int newQty = getCurrentQuantityForItem(selectedSubstitute.ingredientId);
 
                     stateManager.recordResolution(
                             keyToSave,  // ✅ 使用正确的key
                             PreferenceStateManager.ResolutionType.REPLACED,
                             selectedSubstitute.ingredientId,
                             selectedSubstitute.name,
-                            (int) Math.round(originalItem.quantity),
+                            newQty,
                             ratio
                     );
 
                     adapter.setConflicts(adapter.getConflicts());
-                    int newQty = getCurrentQuantityForItem(selectedSubstitute.ingredientId);
                     Toast.makeText(requireContext(),
                             String.format("✓ Replaced %s with %s",
                                     originalItem.name, selectedSubstitute.name),
@@ -767,11 +625,7 @@ public class ListFragment extends Fragment {
 
     private ShoppingItem loadPresetDataForSubstitute(String substituteIngredientId) {
         try {
-            for (ShoppingItem preset : repo.loadInitialItems()) {
-                if (substituteIngredientId.equals(preset.ingredientId)) {
-                    return preset;
-                }
-            }
+            return repo.findItem(substituteIngredientId);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -809,48 +663,15 @@ public class ListFragment extends Fragment {
     }
 
     private int getCurrentQuantityForItem(String ingredientId) {
-        List<ShoppingItem> currentList = listViewModel.getItemList().getValue();
-        if (currentList != null) {
-            for (ShoppingItem item : currentList) {
-                if (ingredientId.equals(item.ingredientId)) {
-                    return (int) Math.round(item.quantity);
-                }
-            }
-        }
-        return 0;
-    }
-
-    private int getImageResIdForIngredient(String ingredientName) {
-        for (IngredientSubstitutes.Substitute sub : getAllPossibleSubstitutes()) {
-            if (sub.name.equalsIgnoreCase(ingredientName)) {
-                return sub.imageResId;
-            }
-        }
-        return R.drawable.tofu;
-    }
-
-    private List<IngredientSubstitutes.Substitute> getAllPossibleSubstitutes() {
-        List<IngredientSubstitutes.Substitute> allSubs = new ArrayList<>();
-        String[] testIngredients = {"Egg", "Steak", "Salmon", "Queso Fresco", "Flour Tortilla"};
-        for (String ing : testIngredients) {
-            allSubs.addAll(IngredientSubstitutes.getVeganSubstitutes(ing));
-            allSubs.addAll(IngredientSubstitutes.getVegetarianSubstitutes(ing));
-            allSubs.addAll(IngredientSubstitutes.getGlutenFreeSubstitutes(ing));
-        }
-        return allSubs;
+        ShoppingItem item = listViewModel.findItem(ingredientId);
+        return item != null ? (int) Math.round(item.quantity) : 0;
     }
 
     private String getImageUrlForIngredient(String ingredientName) {
         try {
-            List<edu.tamu.csce634.smartshop.models.Recipe> recipes = recipeViewModel.getRecipes().getValue();
-            if (recipes != null) {
-                for (edu.tamu.csce634.smartshop.models.Recipe recipe : recipes) {
-                    for (edu.tamu.csce634.smartshop.models.Ingredient ingredient : recipe.getIngredients()) {
-                        if (ingredient.getName().equalsIgnoreCase(ingredientName)) {
-                            return "res:" + ingredient.getImageResId();
-                        }
-                    }
-                }
+            int imageResId = RecipeManager.getInstance(requireContext()).getIngredientImageResId(ingredientName);
+            if (imageResId != 0) {
+                return "res:" + imageResId;
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -858,25 +679,6 @@ public class ListFragment extends Fragment {
         return "res:" + R.drawable.tofu;
     }
 
-    private void copyItemFields(ShoppingItem from, ShoppingItem to) {
-        to.ingredientId = from.ingredientId;
-        to.name = from.name;
-        to.unit = from.unit;
-        to.quantity = from.quantity;
-        to.aisle = from.aisle;
-        to.unitPrice = from.unitPrice;
-        to.selectedSkuName = from.selectedSkuName;
-        to.skuSpec = from.skuSpec;
-        to.imageUrl = from.imageUrl;
-        to.recipeNeededStr = from.recipeNeededStr;
-        to.recipeNeededValue = from.recipeNeededValue;
-        to.recipeNeededUnit = from.recipeNeededUnit;
-        to.originalIngredientId = from.originalIngredientId;
-        to.substitutionRatio = from.substitutionRatio;
-        to.isSubstituted = from.isSubstituted;
-        to.substituteDisplayName = from.substituteDisplayName;
-    }
-
     private String formatQuantity(double value) {
         if (Math.abs(value - Math.round(value)) < 1e-9) {
             return String.valueOf((int) Math.round(value));
@@ -920,15 +722,8 @@ public class ListFragment extends Fragment {
      * 清除通过+按钮重新激活的冲突记录
      */
     public void clearResolutionForReactivatedConflict(String ingredientId) {
-        Map<String, PreferenceStateManager.ResolutionRecord> resolutions = stateManager.loadResolutions();
-        if (resolutions.containsKey(ingredientId)) {
-            resolutions.remove(ingredientId);
-
-            // 重新保存剩余记录
-            android.content.SharedPreferences prefs = requireContext()
-                    .getSharedPreferences("SmartShopPreferenceState", android.content.Context.MODE_PRIVATE);
-            prefs.edit().putString("resolution_actions", new com.google.gson.Gson().toJson(resolutions)).apply();
-        }
+        // 经过 WriteBehindStore，缓存和日志都会同步删除
+        stateManager.removeResolution(ingredientId);
     }
     @Override
     public void onDestroyView() {
@@ -0,0 +1,254 @@
+package edu.tamu.csce634.smartshop.ui.list;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import edu.tamu.csce634.smartshop.models.ShoppingItem;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
+
+/**
+ * 购物清单状态的唯一来源（进程内单例）
+ *
+ * - 列表、总价、通道分组、进度都由同一个 ItemListState 派生，只计算一次
+ * - List 页和 Map 页（都通过 ListViewModel）观察的是同一组 LiveData，不会出现两份数据不一致
+ * - 每次状态变化版本号 +1，并通知 ChangeListener 变化类型和涉及的行，
+ *   监听者可以据此判断是否需要整表刷新；每条变化都按顺序送达，不会像 LiveData 那样只剩最新一条
+ *
+ * 线程：修改方法加锁；LiveData 一律投递到主线程 setValue（按提交顺序送达，不像 postValue 那样合并），
+ * 所以修改之后 LiveData 要等主线程下一轮才更新，需要立即读取最新状态的用 {@link #items()}
+ */
+public final class ListStateStore {
+
+    /**
+     * 一次状态变化
+     */
+    public static final class Change {
+        public enum Kind {
+            REPLACED,   // 整表替换
+            PATCHED,    // 食谱变化带来的增量更新（若干行增删）
+            ITEM,       // 单行修改
+            CLEARED     // 清空
+        }
+
+        public final long version;
+        public final Kind kind;
+        public final List<String> ingredientIds; // ITEM 时为修改的行；其他情况为空
+
+        Change(long version, Kind kind, List<String> ingredientIds) {
+            this.version = version;
+            this.kind = kind;
+            this.ingredientIds = ingredientIds;
+        }
+    }
+
+    private static volatile ListStateStore instance;
+
+    private final MutableLiveData<List<ShoppingItem>> itemListLiveData;
+    private final MutableLiveData<Double> totalLiveData = new MutableLiveData<>(0.0);
+    private final MutableLiveData<Map<String, List<ShoppingItem>>> itemsByAisleLiveData;
+    private final MutableLiveData<ListViewModel.ShoppingProgress> progressLiveData =
+            new MutableLiveData<>(new ListViewModel.ShoppingProgress(0, 0));
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile ItemListState state = ItemListState.EMPTY;
+    private long version = 0;
+
+    private ListStateStore() {
+        itemListLiveData = new MutableLiveData<>(state.items);
+        itemsByAisleLiveData = new MutableLiveData<>(state.aisleGroups);
+    }
+
+    public static ListStateStore getInstance() {
+        if (instance == null) {
+            synchronized (ListStateStore.class) {
+                if (instance == null) {
+                    instance = new ListStateStore();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // ========== 只读视图 ==========
+
+    public LiveData<List<ShoppingItem>> getItemList() {
+        return itemListLiveData;
+    }
+
+    public LiveData<Double> getTotal() {
+        return totalLiveData;
+    }
+
+    public LiveData<Map<String, List<ShoppingItem>>> getItemsByAisle() {
+        return itemsByAisleLiveData;
+    }
+
+    public LiveData<ListViewModel.ShoppingProgress> getProgress() {
+        return progressLiveData;
+    }
+
+    /**
+     * 状态变化监听（在主线程回调）
+     */
+    public interface ChangeListener {
+        void onChange(Change change);
+    }
+
+    /**
+     * 注册变化监听：之后的每一条变化都会按版本号顺序在主线程送达一次
+     * 监听者不再需要时必须 {@link #removeChangeListener}（例如 ViewModel.onCleared）
+     */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /** 当前列表（只读，可在任意线程读取） */
+    public List<ShoppingItem> items() {
+        return state.items;
+    }
+
+    /** 当前状态版本号 */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * 当前列表中的某一行（没有返回 null）
+     */
+    public ShoppingItem findItem(String ingredientId) {
+        ItemListState current = state;
+        int position = current.indexOf(ingredientId);
+        return position >= 0 ? current.get(position) : null;
+    }
+
+    public ListViewModel.ShoppingListSummary getSummary() {
+        ItemListState current = state;
+        return new ListViewModel.ShoppingListSummary(current.activeUnits, current.activeCount,
+                current.total, current.aisleGroups.size());
+    }
+
+    // ========== 修改 ==========
+
+    /**
+     * 整表替换
+     */
+    public synchronized void replaceAll(List<ShoppingItem> newItemList) {
+        commit(ItemListState.of(newItemList), true, Change.Kind.REPLACED, Collections.emptyList());
+    }
+
+    /**
+     * 由当前列表计算增量补丁（在 store 的锁内调用）
+     */
+    public interface PatchBuilder {
+        ShoppingListBuilder.Patch build(List<ShoppingItem> current) throws Exception;
+    }
+
+    /**
+     * 增量更新（未变化的行与旧列表是同一对象）
+     *
+     * 补丁在锁内基于当前列表计算并立即提交，计算期间的其他修改（例如主线程改数量、换 SKU）
+     * 要么在它之前完成、被补丁看到，要么等它提交后再执行，不会被一份过期的列表覆盖掉
+     *
+     * @param builder 由当前列表计算补丁；返回 null 或空补丁表示不变
+     * @throws Exception builder 抛出的异常原样抛出，此时状态不变
+     */
+    public synchronized void applyPatch(PatchBuilder builder) throws Exception {
+        ShoppingListBuilder.Patch patch = builder.build(state.items);
+        if (patch == null || patch.isEmpty()) return;
+        commit(state.patch(patch.items, patch.removed, patch.added), true,
+                Change.Kind.PATCHED, Collections.emptyList());
+    }
+
+    /**
+     * 单行修改：复制该行、在副本上修改，再生成新状态（旧行对象保持不变）
+     *
+     * @param ingredientId 行的 ingredientId
+     * @param edit         对副本的修改
+     * @param publishList  是否发布列表 LiveData（只影响进度的修改可以不刷新列表）
+     * @return 是否找到该行
+     */
+    public synchronized boolean updateItem(String ingredientId,
+                                           Consumer<ShoppingItem> edit,
+                                           boolean publishList) {
+        ItemListState current = state;
+        int position = current.indexOf(ingredientId);
+        if (position < 0) return false;
+
+        ShoppingItem copy = current.get(position).copy();
+        edit.accept(copy);
+        commit(current.replace(position, copy), publishList, Change.Kind.ITEM,
+                Collections.singletonList(ingredientId));
+        return true;
+    }
+
+    /**
+     * 批量修改：对每一行调用 edit，返回 null 表示该行不变，否则返回修改后的副本
+     * （不要原地修改传入的行）。所有修改作为一次增量更新提交
+     *
+     * @return 提交后的列表
+     */
+    public synchronized List<ShoppingItem> updateItems(UnaryOperator<ShoppingItem> edit) {
+        ItemListState current = state;
+        List<ShoppingItem> next = new ArrayList<>(current.items.size());
+        List<ShoppingItem> removed = new ArrayList<>();
+        List<ShoppingItem> added = new ArrayList<>();
+        for (ShoppingItem item : current.items) {
+            ShoppingItem edited = edit.apply(item);
+            if (edited == null || edited == item) {
+                next.add(item);
+                continue;
+            }
+            next.add(edited);
+            removed.add(item);
+            added.add(edited);
+        }
+        if (added.isEmpty()) return current.items;
+
+        commit(current.patch(next, removed, added), true, Change.Kind.PATCHED, Collections.emptyList());
+        return state.items;
+    }
+
+    public synchronized void clear() {
+        commit(ItemListState.EMPTY, true, Change.Kind.CLEARED, Collections.emptyList());
+    }
+
+    /**
+     * 切换到新状态并发布变化的 LiveData
+     */
+    private void commit(ItemListState next, boolean publishList, Change.Kind kind, List<String> ids) {
+        ItemListState previous = state;
+        this.state = next;
+        version++;
+
+        if (publishList) publish(itemListLiveData, next.items);
+        if (next.total != previous.total || publishList) publish(totalLiveData, next.total);
+        if (next.aisleGroups != previous.aisleGroups) publish(itemsByAisleLiveData, next.aisleGroups);
+        if (next.pickedCount != previous.pickedCount || next.activeCount != previous.activeCount || publishList) {
+            publish(progressLiveData, new ListViewModel.ShoppingProgress(next.pickedCount, next.activeCount));
+        }
+        Change change = new Change(version, kind, ids);
+        AppExecutors.mainThread().execute(() -> {
+            for (ChangeListener listener : changeListeners) listener.onChange(change);
+        });
+    }
+
+    /**
+     * 不论在哪个线程修改，都投递到主线程 setValue：各个 LiveData 的更新顺序与提交顺序一致，
+     * 不会出现主线程 setValue 的新值被后台早先 postValue 的旧值覆盖
+     */
+    private static <T> void publish(MutableLiveData<T> liveData, T value) {
+        AppExecutors.mainThread().execute(() -> liveData.setValue(value));
+    }
+}
@@ -1,15 +1,20 @@
 package edu.tamu.csce634.smartshop.ui.list;
 
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
+import edu.tamu.csce634.smartshop.models.ProfileData;
 import edu.tamu.csce634.smartshop.models.ShoppingItem;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
+import edu.tamu.csce634.smartshop.utils.ConflictDetector;
+import edu.tamu.csce634.smartshop.utils.LatestTask;
+import edu.tamu.csce634.smartshop.utils.PreferenceStateManager;
 import edu.tamu.csce634.smartshop.utils.QuantityParser;
 
 /**
@@ -19,37 +24,40 @@ import edu.tamu.csce634.smartshop.utils.QuantityParser;
  * - 管理购物列表数据和总价
  * - 处理商品替换逻辑（SKU切换、食材替换）
  * - 提供Map模块所需的分组数据接口
+ *
+ * 状态：
+ * - 列表和派生数据（总价、通道分组、进度）都在 ListStateStore 里，本类只负责业务逻辑，
+ *   List 页和 Map 页读的是同一份状态
+ * - 单行修改（换 SKU、改数量、替换食材、标记拾取）复制那一行生成新状态，派生数据增量更新，
+ *   已经发出去的列表和行对象不会被改动
+ *
+ * 线程：
+ * - 食谱变化后的列表构建、冲突检测在后台线程池执行（LatestTask，新请求会顶掉未开始的旧请求）
+ * - 后台连续计算时直接读 store 的当前状态，不会读到还没送达的旧 LiveData 值
  **/
 public class ListViewModel extends ViewModel {
 
-    // ========== 核心数据（List模块使用）==========
+    // ========== 列表状态（List / Map 模块共用）==========
 
-    private final MutableLiveData<Double> totalLiveData = new MutableLiveData<>();
-    private final MutableLiveData<List<ShoppingItem>> itemListLiveData = new MutableLiveData<>();
-    private List<ShoppingItem> itemList = new ArrayList<>();
+    private final ListStateStore store = ListStateStore.getInstance();
 
-    // ========== Map模块接口数据 ==========
+    // ========== 后台任务 ==========
 
-    /**
-     * 按通道分组的商品数据（Map模块读取）
-     * Key: 通道名称（如 "Produce Aisle 4"）
-     * Value: 该通道的商品列表
-     */
-    private final MutableLiveData<Map<String, List<ShoppingItem>>> itemsByAisleLiveData =
-            new MutableLiveData<>();
-
-    /**
-     * 购物进度数据（Map模块读取）
-     */
-    private final MutableLiveData<ShoppingProgress> progressLiveData = new MutableLiveData<>();
+    private final LatestTask<Void> cartTask = new LatestTask<>(AppExecutors.background());
+    private final LatestTask<List<ConflictDetector.Conflict>> conflictTask =
+            new LatestTask<>(AppExecutors.background());
 
-    // ========== 构造函数 ==========
+    // 通过本 ViewModel 注册到 store 的监听（store 是单例，清理时要全部移除）
+    private final List<ListStateStore.ChangeListener> changeListeners = new ArrayList<>();
 
-    public ListViewModel() {
-        totalLiveData.setValue(0.0);
-        itemListLiveData.setValue(itemList);
-        itemsByAisleLiveData.setValue(new LinkedHashMap<>());
-        progressLiveData.setValue(new ShoppingProgress(0, 0));
+    @Override
+    protected void onCleared() {
+        cartTask.cancel();
+        conflictTask.cancel();
+        for (ListStateStore.ChangeListener listener : changeListeners) {
+            store.removeChangeListener(listener);
+        }
+        changeListeners.clear();
     }
 
     // ========== List模块使用的方法 ==========
@@ -58,32 +66,113 @@ public class ListViewModel extends ViewModel {
      * 获取总价LiveData
      */
     public LiveData<Double> getTotal() {
-        return totalLiveData;
+        return store.getTotal();
     }
 
     /**
      * 获取购物列表LiveData
      */
     public LiveData<List<ShoppingItem>> getItemList() {
-        return itemListLiveData;
+        return store.getItemList();
     }
 
     /**
-     * 设置总价（内部使用）
+     * 监听状态变化（带版本号，每条都按顺序在主线程送达）；ViewModel 清理时自动移除
      */
-    public void setTotal(double newTotal) {
-        totalLiveData.setValue(newTotal);
+    public void addChangeListener(ListStateStore.ChangeListener listener) {
+        changeListeners.add(listener);
+        store.addChangeListener(listener);
+    }
+
+    public void removeChangeListener(ListStateStore.ChangeListener listener) {
+        changeListeners.remove(listener);
+        store.removeChangeListener(listener);
     }
 
     /**
      * 更新购物列表
      **/
     public void updateItemList(List<ShoppingItem> newItemList) {
-        this.itemList = newItemList;
-        itemListLiveData.setValue(newItemList);
-        recalculateTotal(newItemList);
-        updateAisleGrouping(newItemList);  // ✅ Phase 6: 自动更新分组
-        updateProgress(newItemList);       // ✅ Phase 6: 自动更新进度
+        store.replaceAll(newItemList);
+    }
+
+    /**
+     * 当前列表（最新状态，不必等 LiveData 送达；只读）
+     */
+    public List<ShoppingItem> getCurrentItems() {
+        return store.items();
+    }
+
+    /**
+     * 当前列表中的某一行（没有返回 null）
+     */
+    public ShoppingItem findItem(String ingredientId) {
+        return store.findItem(ingredientId);
+    }
+
+    /**
+     * 修改某一行的购买数量（列表 ± 按钮）
+     */
+    public void setItemQuantity(String ingredientId, double quantity) {
+        store.updateItem(ingredientId, item -> item.quantity = quantity, true);
+    }
+
+    /**
+     * 批量修改若干行（恢复保存的数量、应用历史替换等）
+     *
+     * @param edit 对每一行返回修改后的副本，不变返回 null；不要原地修改传入的行
+     * @return 修改后的列表
+     */
+    public List<ShoppingItem> updateItems(UnaryOperator<ShoppingItem> edit) {
+        return store.updateItems(edit);
+    }
+
+    /**
+     * 在后台按食谱需求增量更新列表（食谱变化时由 ListFragment 调用）
+     *
+     * builder 只在这条后台通道里使用；连续多次变化时，未开始的旧请求被丢弃，
+     * 只算最新一次。已开始的请求会把结果提交完，保证 builder 的记忆与列表一致。
+     *
+     * @param builder 增量构建器
+     * @param merged  “食材名 → 需求量”，空表示清空列表
+     * @param resolutions 偏好模式下保存的解决方案，对新建的行应用历史替换；默认模式传 null
+     */
+    public void submitCartUpdate(ShoppingListBuilder builder,
+                                 Map<String, String> merged,
+                                 Map<String, PreferenceStateManager.ResolutionRecord> resolutions) {
+        cartTask.submit(() -> {
+            if (merged == null || merged.isEmpty()) {
+                builder.reset();
+                updateItemList(new ArrayList<>());
+                return null;
+            }
+            try {
+                builder.prepareImages(); // 可能要等食谱正文扫描完，不能放进锁里
+                // 在 store 锁内基于最新列表计算并提交，期间的单行修改不会被覆盖
+                store.applyPatch(current -> {
+                    ShoppingListBuilder.Patch patch = builder.apply(merged, current);
+                    // 新建的行还没发布，可以直接修改
+                    builder.applyHistoricalSubstitutions(patch.added, resolutions);
+                    return patch;
+                });
+            } catch (Exception e) {
+                // 保留当前列表；builder 只在成功时更新记忆，下次变化会重新计算受影响的行
+                e.printStackTrace();
+            }
+            return null;
+        }, null);
+    }
+
+    /**
+     * 在后台检测列表与用户偏好的冲突，结果在主线程回调
+     * 新的检测请求会让还没送达的旧结果作废
+     */
+    public void detectConflicts(List<ShoppingItem> items,
+                                ProfileData profile,
+                                Consumer<List<ConflictDetector.Conflict>> onResult) {
+        List<ShoppingItem> snapshot = new ArrayList<>(items);
+        conflictTask.submit(() -> ConflictDetector.detectConflicts(snapshot, profile),
+                AppExecutors.mainThread(), onResult);
     }
 
     /**
@@ -102,68 +191,37 @@ public class ListViewModel extends ViewModel {
                                double newPrice,
                                String newSkuSpec,
                                String newImageUrl) {
-        List<ShoppingItem> updated = new ArrayList<>(itemList);
-        for (ShoppingItem it : updated) {
-            if (ingredientId.equals(it.ingredientId)) {
-                if (newSkuName != null) it.selectedSkuName = newSkuName;
-                it.unitPrice = newPrice;
-                if (newSkuSpec != null) it.skuSpec = newSkuSpec;
-                if (newImageUrl != null && !newImageUrl.isEmpty()) it.imageUrl = newImageUrl;
-                break;
-            }
-        }
-        updateItemList(updated);
-    }
-
-    /**
-     * 计算总价
-     */
-    private void recalculateTotal(List<ShoppingItem> updatedList) {
-        double sum = 0.0;
-        for (ShoppingItem item : updatedList) {
-            sum += item.unitPrice * item.quantity;
-        }
-        setTotal(sum);
+        store.updateItem(ingredientId, it -> {
+            if (newSkuName != null) it.selectedSkuName = newSkuName;
+            it.unitPrice = newPrice;
+            if (newSkuSpec != null) it.skuSpec = newSkuSpec;
+            if (newImageUrl != null && !newImageUrl.isEmpty()) it.imageUrl = newImageUrl;
+        }, true);
     }
 
     /**
      * 重新计算某个商品的购买数量（切换Option后调用）
      */
     public void recalculateQuantityForItem(String ingredientId) {
-        List<ShoppingItem> updated = new ArrayList<>(itemList);
-        for (ShoppingItem item : updated) {
-            if (ingredientId.equals(item.ingredientId)) {
-                QuantityParser.ParsedQuantity packageParsed =
-                        QuantityParser.parse(item.skuSpec);
-                if (packageParsed.success && item.recipeNeededValue > 0) {
-                    boolean unitMatch = item.recipeNeededUnit.isEmpty() ||
-                            packageParsed.unit.isEmpty() ||
-                            item.recipeNeededUnit.equalsIgnoreCase(packageParsed.unit);
-                    if (unitMatch) {
-                        item.quantity = QuantityParser.calculatePackageCount(
-                                item.recipeNeededValue,
-                                packageParsed.value
-                        );
-                    } else {
-                        item.quantity = 1;
-                    }
+        store.updateItem(ingredientId, item -> {
+            QuantityParser.ParsedQuantity packageParsed =
+                    QuantityParser.parse(item.skuSpec);
+            if (packageParsed.success && item.recipeNeededValue > 0) {
+                boolean unitMatch = item.recipeNeededUnit.isEmpty() ||
+                        packageParsed.unit.isEmpty() ||
+                        item.recipeNeededUnit.equalsIgnoreCase(packageParsed.unit);
+                if (unitMatch) {
+                    item.quantity = QuantityParser.calculatePackageCount(
+                            item.recipeNeededValue,
+                            packageParsed.value
+                    );
                 } else {
                     item.quantity = 1;
                 }
-                break;
+            } else {
+                item.quantity = 1;
             }
-        }
-        updateItemList(updated);
-    }
-
-    /**
-     * 只重新计算总价，不触发列表LiveData更新（避免滚动重置）
-     */
-    public void recalculateTotalOnly() {
-        List<ShoppingItem> currentList = itemListLiveData.getValue();
-        if (currentList != null) {
-            recalculateTotal(currentList);
-        }
+        }, true);
     }
 
     /**
@@ -181,70 +239,55 @@ public class ListViewModel extends ViewModel {
                                      String substituteName,
                                      double quantityRatio,
                                      ShoppingItem presetData) {
-        List<ShoppingItem> updated = new ArrayList<>(itemList);
-        boolean found = false;
-
-        for (ShoppingItem item : updated) {
-            if (originalIngredientId.equals(item.ingredientId)) {
-                found = true;
-
-                // 保存原始ID（首次替换时）
-                if (item.originalIngredientId == null) {
-                    item.originalIngredientId = item.ingredientId;
-                }
+        return store.updateItem(originalIngredientId, item -> {
+            // 保存原始ID（首次替换时）
+            if (item.originalIngredientId == null) {
+                item.originalIngredientId = item.ingredientId;
+            }
 
-                // 更新为替代品
-                item.ingredientId = substituteIngredientId;
-                item.name = substituteName;
-                item.selectedSkuName = presetData.selectedSkuName;
-                item.substituteDisplayName = "Replaced with " + substituteName;
-                item.isSubstituted = true;
-
-                // 更新价格和规格
-                item.unitPrice = presetData.unitPrice;
-                item.skuSpec = presetData.skuSpec;
-                item.unit = presetData.unit;
-                item.aisle = presetData.aisle;
-
-                // 更新图片
-                if (presetData.imageUrl != null && !presetData.imageUrl.isEmpty()) {
-                    item.imageUrl = presetData.imageUrl;
-                }
+            // 更新为替代品
+            item.ingredientId = substituteIngredientId;
+            item.name = substituteName;
+            item.selectedSkuName = presetData.selectedSkuName;
+            item.substituteDisplayName = "Replaced with " + substituteName;
+            item.isSubstituted = true;
+
+            // 更新价格和规格
+            item.unitPrice = presetData.unitPrice;
+            item.skuSpec = presetData.skuSpec;
+            item.unit = presetData.unit;
+            item.aisle = presetData.aisle;
+
+            // 更新图片
+            if (presetData.imageUrl != null && !presetData.imageUrl.isEmpty()) {
+                item.imageUrl = presetData.imageUrl;
+            }
 
-                // 应用用量比例
-                item.substitutionRatio = quantityRatio;
-                item.recipeNeededValue = item.recipeNeededValue * quantityRatio;
-                item.recipeNeededStr = formatQuantity(item.recipeNeededValue) +
-                        (item.recipeNeededUnit.isEmpty() ? "" : " " + item.recipeNeededUnit);
-
-                // 根据新包装规格重新计算购买数量
-                QuantityParser.ParsedQuantity packageParsed = QuantityParser.parse(item.skuSpec);
-                if (packageParsed.success && item.recipeNeededValue > 0) {
-                    boolean unitMatch = item.recipeNeededUnit.isEmpty() ||
-                            packageParsed.unit.isEmpty() ||
-                            item.recipeNeededUnit.equalsIgnoreCase(packageParsed.unit);
-
-                    if (unitMatch) {
-                        item.quantity = QuantityParser.calculatePackageCount(
-                                item.recipeNeededValue,
-                                packageParsed.value
-                        );
-                    } else {
-                        item.quantity = 1;
-                    }
+            // 应用用量比例
+            item.substitutionRatio = quantityRatio;
+            item.recipeNeededValue = item.recipeNeededValue * quantityRatio;
+            item.recipeNeededStr = formatQuantity(item.recipeNeededValue) +
+                    (item.recipeNeededUnit.isEmpty() ? "" : " " + item.recipeNeededUnit);
+
+            // 根据新包装规格重新计算购买数量
+            QuantityParser.ParsedQuantity packageParsed = QuantityParser.parse(item.skuSpec);
+            if (packageParsed.success && item.recipeNeededValue > 0) {
+                boolean unitMatch = item.recipeNeededUnit.isEmpty() ||
+                        packageParsed.unit.isEmpty() ||
+                        item.recipeNeededUnit.equalsIgnoreCase(packageParsed.unit);
+
+                if (unitMatch) {
+                    item.quantity = QuantityParser.calculatePackageCount(
+                            item.recipeNeededValue,
+                            packageParsed.value
+                    );
                 } else {
                     item.quantity = 1;
                 }
-
-                break;
+            } else {
+                item.quantity = 1;
             }
-        }
-
-        if (found) {
-            updateItemList(updated);
-        }
-
-        return found;
+        }, true);
     }
 
     /**
@@ -269,7 +312,7 @@ public class ListViewModel extends ViewModel {
      * - 实时更新
      */
     public LiveData<Map<String, List<ShoppingItem>>> getItemsByAisle() {
-        return itemsByAisleLiveData;
+        return store.getItemsByAisle();
     }
 
     /**
@@ -278,21 +321,7 @@ public class ListViewModel extends ViewModel {
      * 返回：ShoppingListSummary（总件数、总价、通道数）
      */
     public ShoppingListSummary getSummary() {
-        int totalItems = 0;
-        int uniqueItems = 0;
-        double totalPrice = 0.0;
-        java.util.Set<String> aisles = new java.util.HashSet<>();
-
-        for (ShoppingItem item : itemList) {
-            if (item.quantity > 0) {
-                totalItems += (int) item.quantity;
-                uniqueItems++;
-                totalPrice += item.quantity * item.unitPrice;
-                aisles.add(item.aisle != null ? item.aisle : "General");
-            }
-        }
-
-        return new ShoppingListSummary(totalItems, uniqueItems, totalPrice, aisles.size());
+        return store.getSummary();
     }
 
     /**
@@ -302,118 +331,23 @@ public class ListViewModel extends ViewModel {
      * @param picked true=已拾取, false=取消拾取
      */
     public void markItemAsPicked(String ingredientId, boolean picked) {
-        boolean changed = false;
-
-        for (ShoppingItem item : itemList) {
-            if (ingredientId.equals(item.ingredientId)) {
-                item.isPicked = picked;
-                changed = true;
-                break;
-            }
-        }
-
         // 只更新进度，不触发列表刷新（避免Map界面重绘）
-        if (changed) {
-            updateProgress(itemList);
-        }
+        store.updateItem(ingredientId, item -> item.isPicked = picked, false);
     }
 
     /**
      * 【Map接口4】获取购物进度
      */
     public LiveData<ShoppingProgress> getProgress() {
-        return progressLiveData;
+        return store.getProgress();
     }
 
     /**
      * 【Map接口5】清空所有数据（Map模块完成购物后调用）
      */
     public void clearAllData() {
-        this.itemList.clear();
-        itemListLiveData.setValue(new ArrayList<>());
-        itemsByAisleLiveData.setValue(new LinkedHashMap<>());
-        totalLiveData.setValue(0.0);
-        progressLiveData.setValue(new ShoppingProgress(0, 0));
-    }
-
-    // ========== 内部辅助方法 ==========
-
-    /**
-     * 按通道分组并排序
-     *
-     * 逻辑：
-     * 1. 过滤 quantity <= 0 的商品
-     * 2. 按通道名称分组
-     * 3. 提取通道号排序（Aisle 1 < Aisle 2）
-     */
-    private void updateAisleGrouping(List<ShoppingItem> items) {
-        Map<String, List<ShoppingItem>> grouped = new LinkedHashMap<>();
-
-        // 分组
-        for (ShoppingItem item : items) {
-            if (item.quantity <= 0) continue;  // ✅ 过滤无效商品
-
-            String aisle = item.aisle != null && !item.aisle.isEmpty()
-                    ? item.aisle : "General";
-
-            grouped.computeIfAbsent(aisle, k -> new ArrayList<>()).add(item);
-        }
-
-        // 排序（按通道号）
-        Map<String, List<ShoppingItem>> sorted = new LinkedHashMap<>();
-        grouped.entrySet().stream()
-                .sorted((e1, e2) -> compareAisle(e1.getKey(), e2.getKey()))
-                .forEachOrdered(e -> sorted.put(e.getKey(), e.getValue()));
-
-        itemsByAisleLiveData.setValue(sorted);
-    }
-
-    /**
-     * 比较通道顺序（提取数字）
-     * 例如："Produce Aisle 4" → 4
-     */
-    private int compareAisle(String a1, String a2) {
-        int num1 = extractAisleNumber(a1);
-        int num2 = extractAisleNumber(a2);
-        return Integer.compare(num1, num2);
-    }
-
-    /**
-     * 从通道名称中提取数字
-     */
-    private int extractAisleNumber(String aisle) {
-        try {
-            String[] parts = aisle.split("\\s+");
-            for (String part : parts) {
-                if (part.matches("\\d+")) {
-                    return Integer.parseInt(part);
-                }
-            }
-        } catch (Exception e) {
-            // 解析失败返回最大值（排在最后）
-        }
-        return 999;
-    }
-
-    /**
-     * 更新购物进度（Map模块使用）
-     *
-     * 计算：已拾取数量 / 总数量
-     */
-    private void updateProgress(List<ShoppingItem> items) {
-        int total = 0;
-        int picked = 0;
-
-        for (ShoppingItem item : items) {
-            if (item.quantity > 0) {
-                total++;
-                if (item.isPicked) {
-                    picked++;
-                }
-            }
-        }
-
-        progressLiveData.setValue(new ShoppingProgress(picked, total));
+        cartTask.cancel();
+        store.clear();
     }
 
     // ========== 数据模型类 ==========
@@ -12,10 +12,9 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 
-import org.json.JSONObject;
-
 import edu.tamu.csce634.smartshop.R;
 import edu.tamu.csce634.smartshop.data.PresetRepository;
+import edu.tamu.csce634.smartshop.models.ProductOption;
 
 // BottomSheet 弹窗，用于选择替换的商品类型
 public class ProductOptionsBottomSheet extends BottomSheetDialogFragment {
@@ -45,18 +44,18 @@ public class ProductOptionsBottomSheet extends BottomSheetDialogFragment {
         PresetRepository repo = new PresetRepository(requireContext());
 
         try {
-            java.util.List<JSONObject> options = repo.getOptionsFor(ingredientId);
+            java.util.List<ProductOption> options = repo.getOptionsFor(ingredientId);
 
             // 清空容器中原有的两个固定按钮
             containerView.removeAllViews();
 
             // 动态添加“品牌+规格+是否有机+价格”的选项按钮
-            for (JSONObject o : options) {
-                String display = o.optString("displayName");
-                String size    = o.optString("size");
-                boolean org    = o.optBoolean("isOrganic", false);
-                double price   = o.optDouble("unitPrice", 0.0);
-                String img     = o.optString("imageUrl", "");
+            for (ProductOption o : options) {
+                String display = o.displayName;
+                String size    = o.size;
+                boolean org    = o.isOrganic;
+                double price   = o.unitPrice;
+                String img     = o.imageUrl;
 
                 String label = display + " • " + size + (org ? " • Organic" : "") + " • $" + String.format("%.2f", price);
 
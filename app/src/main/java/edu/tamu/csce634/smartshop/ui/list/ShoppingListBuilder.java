@@ -0,0 +1,324 @@
+package edu.tamu.csce634.smartshop.ui.list;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.tamu.csce634.smartshop.R;
+import edu.tamu.csce634.smartshop.data.PresetCatalog;
+import edu.tamu.csce634.smartshop.data.PresetRepository;
+import edu.tamu.csce634.smartshop.managers.RecipeManager;
+import edu.tamu.csce634.smartshop.models.ShoppingItem;
+import edu.tamu.csce634.smartshop.utils.IngredientSubstitutes;
+import edu.tamu.csce634.smartshop.utils.LocationEngine;
+import edu.tamu.csce634.smartshop.utils.PreferenceStateManager;
+import edu.tamu.csce634.smartshop.utils.QuantityParser;
+
+/**
+ * 增量生成购物清单（替代每次 +/- 都整表重建）
+ *
+ * - 记住上一次的 “食材名 → 需求量字符串”
+ * - 需求量没变、且当前列表里还有这一行 → 直接复用原对象（保留用户改过的 SKU / 数量 / 替换）
+ * - 需求量变了或是新食材 → 只重建这一行，并只为这一行计算坐标
+ * - 已不在 merged 里的食材 → 移除
+ * 目录快照只准备一次，食材图片取自 RecipeManager（食谱正文里的食材图片）；
+ * LocationEngine 每次取当前门店的实例，
+ * 门店变了就给复用的行重新定位（复制一份，保留用户的修改）
+ */
+public class ShoppingListBuilder {
+
+    /**
+     * 一次增量更新的结果
+     */
+    public static class Patch {
+        public final List<ShoppingItem> items;    // 新的完整列表（按 merged 顺序）
+        public final List<ShoppingItem> added;    // 新建的行（含需求量变化后重建的行）
+        public final List<ShoppingItem> removed;  // 被移除 / 被替换掉的旧行
+
+        Patch(List<ShoppingItem> items, List<ShoppingItem> added, List<ShoppingItem> removed) {
+            this.items = items;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private final Context appContext;
+    private final PresetRepository repo;
+
+    private PresetCatalog catalog;
+    private LocationEngine locationEngine;
+    private RecipeManager recipeManager;        // 食材图片来源（食谱正文里的食材图片）
+
+    // 上一次 apply 时各行的需求量：行 key -> recipeNeededStr（未替换前的原始值）
+    private Map<String, String> lastNeeded = new HashMap<>();
+
+    public ShoppingListBuilder(Context ctx, PresetRepository repo) {
+        this.appContext = ctx.getApplicationContext();
+        this.repo = repo;
+    }
+
+    /**
+     * 行的稳定 key：被替换过的行用 originalIngredientId（与 PreferenceStateManager 的记录保持一致）
+     */
+    public static String keyOf(ShoppingItem item) {
+        return item.originalIngredientId != null ? item.originalIngredientId : item.ingredientId;
+    }
+
+    /**
+     * 根据新的 merged 需求和当前列表计算增量
+     *
+     * @param merged  RecipeViewModel 给出的 “食材名 → 需求量”
+     * @param current ListViewModel 当前的列表（可能已被替换 / 改过数量）
+     */
+    public Patch apply(Map<String, String> merged,
+                       List<ShoppingItem> current) throws Exception {
+        boolean relocate = ensurePrepared();
+
+        Map<String, ShoppingItem> currentByKey = new LinkedHashMap<>();
+        if (current != null) {
+            for (ShoppingItem item : current) {
+                currentByKey.put(keyOf(item), item);
+            }
+        }
+
+        Map<String, String> needed = new HashMap<>(merged.size() * 2);
+        List<ShoppingItem> items = new ArrayList<>(merged.size());
+        List<ShoppingItem> added = new ArrayList<>();
+        List<ShoppingItem> removed = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : merged.entrySet()) {
+            String ingredientName = entry.getKey();
+            String quantityStr = entry.getValue();
+
+            PresetCatalog.Entry presetEntry = catalog.findByName(ingredientName);
+            String key = presetEntry != null ? presetEntry.ingredientId : fallbackId(ingredientName);
+            needed.put(key, quantityStr);
+
+            ShoppingItem existing = currentByKey.remove(key);
+            if (existing != null && quantityStr.equals(lastNeeded.get(key))) {
+                if (relocate) {
+                    // 门店变了：复制一份重新定位
+                    ShoppingItem moved = existing.copy();
+                    moved.coordinateX = 0;
+                    moved.coordinateY = 0;
+                    items.add(moved);
+                    added.add(moved);
+                    removed.add(existing);
+                } else {
+                    items.add(existing); // 没变化，原样复用
+                }
+                continue;
+            }
+
+            ShoppingItem row = buildRow(ingredientName, quantityStr, presetEntry, key);
+            items.add(row);
+            added.add(row);
+            if (existing != null) removed.add(existing);
+        }
+
+        // 剩下的都是 merged 里已经没有的食材
+        removed.addAll(currentByKey.values());
+
+        if (!added.isEmpty()) {
+            locationEngine.calculateCoordinatesForList(added);
+        }
+
+        lastNeeded = needed;
+        return new Patch(items, added, removed);
+    }
+
+    /**
+     * 清空记忆，下一次 apply 会整表重建
+     */
+    public void reset() {
+        lastNeeded = new HashMap<>();
+    }
+
+    // ========== 偏好模式：历史替换 ==========
+
+    /**
+     * 对还没发布的新行应用保存过的替换（原地修改，在 cart 后台通道里调用）
+     *
+     * @param items       新建的行
+     * @param resolutions PreferenceStateManager 保存的解决方案（key 为原始食材 ID）
+     */
+    public void applyHistoricalSubstitutions(List<ShoppingItem> items,
+                                             Map<String, PreferenceStateManager.ResolutionRecord> resolutions) {
+        if (resolutions == null || resolutions.isEmpty()) return;
+        for (ShoppingItem item : items) {
+            PreferenceStateManager.ResolutionRecord resolution = resolutions.get(item.ingredientId);
+            if (resolution != null && resolution.type == PreferenceStateManager.ResolutionType.REPLACED) {
+                applySubstitution(item, resolution);
+            }
+        }
+    }
+
+    /**
+     * 把一条替换记录应用到一行（原地修改：只用于还没发布的行或已发布行的副本）
+     * 只读 PresetRepository，不碰增量记忆，可以在任意线程调用
+     */
+    public void applySubstitution(ShoppingItem item, PreferenceStateManager.ResolutionRecord resolution) {
+        try {
+            ShoppingItem presetData = repo.findItem(resolution.substituteId);
+            if (presetData == null) {
+                return;
+            }
+
+            // ✅ 保存原始ID
+            if (item.originalIngredientId == null) {
+                item.originalIngredientId = item.ingredientId;
+            }
+
+            double originalNeededValue = item.recipeNeededValue;
+
+            // ✅ 更新所有字段
+            item.ingredientId = resolution.substituteId;
+            item.name = resolution.substituteName;
+            item.selectedSkuName = presetData.selectedSkuName;
+            item.unitPrice = presetData.unitPrice;
+            item.skuSpec = presetData.skuSpec;
+            item.unit = presetData.unit;
+            item.aisle = presetData.aisle;
+            item.imageUrl = "res:" + substituteImageResId(resolution.substituteName);
+            item.isSubstituted = true;
+            item.substitutionRatio = resolution.substitutionRatio;
+            item.substituteDisplayName = "Replaced with " + resolution.substituteName;
+
+            item.recipeNeededValue = originalNeededValue * resolution.substitutionRatio;
+            item.recipeNeededStr = formatQuantity(item.recipeNeededValue) +
+                    (item.recipeNeededUnit.isEmpty() ? "" : " " + item.recipeNeededUnit);
+
+            QuantityParser.ParsedQuantity packageParsed = QuantityParser.parse(item.skuSpec);
+            if (packageParsed.success && item.recipeNeededValue > 0) {
+                boolean unitMatch = item.recipeNeededUnit.isEmpty() || packageParsed.unit.isEmpty() ||
+                        item.recipeNeededUnit.equalsIgnoreCase(packageParsed.unit);
+                if (unitMatch) {
+                    item.quantity = QuantityParser.calculatePackageCount(item.recipeNeededValue, packageParsed.value);
+                } else {
+                    item.quantity = 1;
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static int substituteImageResId(String substituteName) {
+        String[] testIngredients = {"Egg", "Steak", "Salmon", "Queso Fresco", "Flour Tortilla"};
+        for (String ing : testIngredients) {
+            List<IngredientSubstitutes.Substitute> subs = new ArrayList<>();
+            subs.addAll(IngredientSubstitutes.getVeganSubstitutes(ing));
+            subs.addAll(IngredientSubstitutes.getVegetarianSubstitutes(ing));
+            subs.addAll(IngredientSubstitutes.getGlutenFreeSubstitutes(ing));
+            for (IngredientSubstitutes.Substitute sub : subs) {
+                if (sub.name.equalsIgnoreCase(substituteName)) {
+                    return sub.imageResId;
+                }
+            }
+        }
+        return R.drawable.tofu;
+    }
+
+    private static String formatQuantity(double value) {
+        if (Math.abs(value - Math.round(value)) < 1e-9) {
+            return String.valueOf((int) Math.round(value));
+        }
+        return String.format(java.util.Locale.US, "%.2f", value);
+    }
+
+    /**
+     * 等食材图片表准备好（RecipeManager 的后台扫描读完所有食谱正文）
+     * 会阻塞，只在后台线程调用；放在 apply 之前调用，避免在 store 的锁里等待
+     */
+    public void prepareImages() {
+        if (recipeManager != null) return;
+        RecipeManager manager = RecipeManager.getInstance(appContext);
+        manager.awaitRecipeDetails();
+        recipeManager = manager;
+    }
+
+    /**
+     * @return 门店是否换了（之前定位过的行需要重新定位）
+     */
+    private boolean ensurePrepared() throws Exception {
+        if (catalog == null) {
+            catalog = repo.getCatalog();
+        }
+        LocationEngine engine = LocationEngine.getInstance(appContext);
+        boolean storeChanged = locationEngine != null && engine != locationEngine;
+        locationEngine = engine;
+        prepareImages();
+        return storeChanged;
+    }
+
+    private ShoppingItem buildRow(String ingredientName, String quantityStr,
+                                  PresetCatalog.Entry presetEntry, String key) {
+        ShoppingItem item = new ShoppingItem();
+        item.name = ingredientName;
+        item.selectedSkuName = ingredientName;
+        item.recipeNeededStr = quantityStr;
+
+        QuantityParser.ParsedQuantity parsed = QuantityParser.parse(quantityStr);
+        if (parsed.success) {
+            item.recipeNeededValue = parsed.value;
+            item.recipeNeededUnit = parsed.unit;
+        } else {
+            item.recipeNeededValue = 1.0;
+            item.recipeNeededUnit = "";
+        }
+
+        ShoppingItem preset = presetEntry != null ? PresetCatalog.newShoppingItem(presetEntry) : null;
+
+        if (preset != null) {
+            item.selectedSkuName = preset.selectedSkuName;
+            item.unitPrice = preset.unitPrice;
+            item.unit = preset.unit;
+            item.aisle = preset.aisle;
+            item.ingredientId = preset.ingredientId;
+            item.skuSpec = preset.skuSpec;
+
+            QuantityParser.ParsedQuantity packageParsed = QuantityParser.parse(preset.skuSpec);
+            if (packageParsed.success && item.recipeNeededValue > 0) {
+                boolean unitMatch = item.recipeNeededUnit.isEmpty() || packageParsed.unit.isEmpty() ||
+                        item.recipeNeededUnit.equalsIgnoreCase(packageParsed.unit);
+                if (unitMatch) {
+                    item.quantity = QuantityParser.calculatePackageCount(item.recipeNeededValue, packageParsed.value);
+                } else {
+                    item.quantity = 1;
+                }
+            } else {
+                item.quantity = 1;
+            }
+        } else {
+            item.unitPrice = 2.99;
+            item.unit = "Oz";
+            item.aisle = "General";
+            item.ingredientId = key;
+            item.quantity = 1;
+            item.selectedSkuName = ingredientName;
+            item.skuSpec = "";
+        }
+
+        int imageResId = recipeManager.getIngredientImageResId(ingredientName);
+        if (imageResId != 0) {
+            item.imageUrl = "res:" + imageResId;
+        } else if (preset != null && preset.imageUrl != null) {
+            item.imageUrl = preset.imageUrl;
+        } else {
+            item.imageUrl = "";
+        }
+        return item;
+    }
+
+    private static String fallbackId(String ingredientName) {
+        return "cart_" + ingredientName.toLowerCase().replaceAll("[^a-z0-9]", "_");
+    }
+}
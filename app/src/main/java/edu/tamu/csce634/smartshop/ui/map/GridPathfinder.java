@@ -0,0 +1,653 @@
+package edu.tamu.csce634.smartshop.ui.map;
+
+import java.util.Arrays;
+
+import edu.tamu.csce634.smartshop.models.world.Aisle;
+import edu.tamu.csce634.smartshop.models.world.SupermarketLayout;
+
+/**
+ * Reusable path search engine over the store's walkable grid.
+ *
+ * Cells are addressed by a single int index (y * width + x). All per-search state
+ * lives in flat primitive arrays that are allocated once; a generation counter
+ * marks which entries belong to the current search, so a query neither resets the
+ * grid nor allocates. The open list is an indexed binary heap with decrease-key.
+ *
+ * Moves are 8-directional (straight = 10, diagonal = 14), diagonals may not cut
+ * obstacle corners, and the heuristic is the matching octile distance.
+ *
+ * Point-to-point queries use Jump Point Search: runs across open floor are skipped in
+ * one step and only cells where the path may turn enter the open list, so the cost
+ * grows with the number of obstacles rather than the grid resolution. The resulting
+ * path is then string-pulled down to the waypoints where it actually turns. Straight
+ * jumps are looked up in per-direction tables built once per obstacle grid (and shared
+ * by its workers), so only diagonal runs are walked cell by cell.
+ *
+ * Not thread-safe: one instance per caller (e.g. per view); see {@link #newWorker()}.
+ */
+public class GridPathfinder {
+
+    public static final int STRAIGHT_COST = 10;
+    public static final int DIAGONAL_COST = 14;
+    public static final int UNREACHABLE = -1;
+
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    // Straight jump directions, as indexes into JumpTables
+    private static final int EAST = 0;
+    private static final int WEST = 1;
+    private static final int SOUTH = 2;
+    private static final int NORTH = 3;
+
+    private final int width;
+    private final int height;
+    private final boolean[] blocked;
+    private final JumpTables jumps;         // shared with every worker of this grid
+
+    // Per-search state, valid only where stamp[cell] == generation
+    private final int[] g;
+    private final int[] f;
+    private final int[] parent;
+    private final int[] stamp;
+    private final boolean[] closed;
+    private int generation = 0;
+
+    // Indexed binary min-heap on f (ties broken by larger g)
+    private final int[] heap;
+    private final int[] heapPos; // position in heap, -1 if not queued
+    private int heapSize;
+
+    // Pruned jump directions of the cell being expanded, as (dx, dy) pairs
+    private final int[] dirs = new int[16];
+    private int[][] jumpTable;              // jumps.table, read once per search
+
+    // Result of the last successful search, start -> end (waypoints)
+    private final int[] path;
+    private int pathLength;
+    private int pathCost;
+
+    /**
+     * For every open cell and straight direction, the first cell from it (inclusive) with
+     * a forced neighbour, or -1 if an obstacle or the edge comes first. Built after the
+     * obstacles are in place, by {@link #prepare()} or else by the first search.
+     */
+    private static final class JumpTables {
+        volatile int[][] table;
+    }
+
+    public GridPathfinder(int width, int height) {
+        this(width, height, new boolean[width * height], new JumpTables());
+    }
+
+    private GridPathfinder(int width, int height, boolean[] blocked, JumpTables jumps) {
+        this.width = width;
+        this.height = height;
+        int n = width * height;
+        this.blocked = blocked;
+        this.jumps = jumps;
+        g = new int[n];
+        f = new int[n];
+        parent = new int[n];
+        stamp = new int[n];
+        closed = new boolean[n];
+        heap = new int[n];
+        heapPos = new int[n];
+        path = new int[n];
+    }
+
+    /**
+     * Builds a pathfinder whose obstacles are the rasterized aisles of the layout.
+     */
+    public static GridPathfinder fromLayout(SupermarketLayout layout, int width, int height) {
+        GridPathfinder finder = new GridPathfinder(width, height);
+        if (layout != null && layout.aisles != null) {
+            for (Aisle aisle : layout.aisles) {
+                finder.blockRect(aisle.x, aisle.y, aisle.width, aisle.height);
+            }
+        }
+        return finder;
+    }
+
+    /**
+     * Returns a pathfinder over the same obstacle grid with its own search state, so
+     * several threads can search one layout concurrently (obstacles must not change
+     * afterwards).
+     */
+    public GridPathfinder newWorker() {
+        return new GridPathfinder(width, height, blocked, jumps);
+    }
+
+    /**
+     * Marks the cells covered by a rectangle given in layout fractions (0..1) as obstacles.
+     */
+    public void blockRect(float x, float y, float w, float h) {
+        int startX = clamp((int) (x * width), width);
+        int endX = clamp((int) ((x + w) * width), width);
+        int startY = clamp((int) (y * height), height);
+        int endY = clamp((int) ((y + h) * height), height);
+        if (endX <= startX) return;
+        for (int cy = startY; cy < endY; cy++) {
+            Arrays.fill(blocked, cy * width + startX, cy * width + endX, true);
+        }
+        jumps.table = null;
+    }
+
+    /**
+     * Builds the jump tables now instead of on the first search. Call once the obstacles
+     * are in place, off the UI thread; searches from then on only read the tables.
+     */
+    public void prepare() {
+        jumpTables();
+    }
+
+    private static int clamp(int v, int max) {
+        return Math.max(0, Math.min(max, v));
+    }
+
+    // --- Cell helpers ---
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    public int cellIndex(int x, int y) { return y * width + x; }
+    public int cellX(int cell) { return cell % width; }
+    public int cellY(int cell) { return cell / width; }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public boolean isBlocked(int cell) { return blocked[cell]; }
+
+    /**
+     * Returns the closest walkable cell on growing square rings around the given one
+     * (the cell itself if walkable), or -1 if none within the search radius.
+     */
+    public int nearestOpenCell(int cell) {
+        if (!blocked[cell]) return cell;
+        int ox = cellX(cell);
+        int oy = cellY(cell);
+        int maxRadius = Math.max(width, height);
+        for (int radius = 1; radius < maxRadius; radius++) {
+            for (int i = -radius; i <= radius; i++) {
+                for (int j = -radius; j <= radius; j++) {
+                    if (Math.abs(i) != radius && Math.abs(j) != radius) continue;
+                    int x = ox + i;
+                    int y = oy + j;
+                    if (inBounds(x, y) && !blocked[cellIndex(x, y)]) {
+                        return cellIndex(x, y);
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    // --- Search ---
+
+    /**
+     * Finds a shortest path between two cells with Jump Point Search and smooths it.
+     * Blocked endpoints are moved to the nearest open cell.
+     *
+     * @return number of waypoints in the path (readable via {@link #pathCellAt(int)}), or
+     *         0 if no path exists. Consecutive waypoints are joined by straight segments
+     *         that stay clear of obstacles.
+     */
+    public int findPath(int startCell, int endCell) {
+        pathLength = 0;
+        pathCost = -1;
+
+        int start = nearestOpenCell(startCell);
+        int end = nearestOpenCell(endCell);
+        if (start < 0 || end < 0) return 0;
+
+        nextGeneration();
+        heapSize = 0;
+
+        int ex = cellX(end);
+        int ey = cellY(end);
+        jumpTable = jumpTables();
+
+        touch(start);
+        g[start] = 0;
+        f[start] = heuristic(start, ex, ey);
+        push(start);
+
+        while (heapSize > 0) {
+            int current = pop();
+            if (current == end) {
+                buildPath(end);
+                return smoothPath();
+            }
+            closed[current] = true;
+            expandJumps(current, end, ex, ey);
+        }
+        return 0;
+    }
+
+    /**
+     * Single-source Dijkstra over the whole grid. Fills {@code out} (length width * height)
+     * with the walking cost from the source to every cell, {@link #UNREACHABLE} where there
+     * is no path. A blocked source is moved to the nearest open cell first.
+     */
+    public void distanceField(int sourceCell, int[] out) {
+        Arrays.fill(out, UNREACHABLE);
+        int start = nearestOpenCell(sourceCell);
+        if (start < 0) return;
+
+        nextGeneration();
+        heapSize = 0;
+
+        touch(start);
+        g[start] = 0;
+        f[start] = 0;
+        push(start);
+
+        while (heapSize > 0) {
+            int current = pop();
+            closed[current] = true;
+            out[current] = g[current];
+            expand(current, -1, -1);
+        }
+    }
+
+    /**
+     * Relaxes the 8 neighbours of a cell. A negative target disables the heuristic (Dijkstra).
+     */
+    private void expand(int current, int ex, int ey) {
+        int cx = cellX(current);
+        int cy = cellY(current);
+        for (int d = 0; d < 8; d++) {
+            int nx = cx + DX[d];
+            int ny = cy + DY[d];
+            if (!inBounds(nx, ny)) continue;
+
+            int next = cellIndex(nx, ny);
+            if (blocked[next]) continue;
+
+            boolean diagonal = d >= 4;
+            if (diagonal && (blocked[cellIndex(nx, cy)] || blocked[cellIndex(cx, ny)])) {
+                continue; // no corner cutting
+            }
+
+            boolean fresh = stamp[next] != generation;
+            if (fresh) touch(next);
+            else if (closed[next]) continue;
+
+            int newG = g[current] + (diagonal ? DIAGONAL_COST : STRAIGHT_COST);
+            if (fresh || newG < g[next]) {
+                g[next] = newG;
+                f[next] = ex < 0 ? newG : newG + heuristic(next, ex, ey);
+                parent[next] = current;
+                if (heapPos[next] < 0) push(next);
+                else siftUp(heapPos[next]);
+            }
+        }
+    }
+
+    // --- Jump Point Search ---
+
+    /**
+     * Relaxes the jump points reachable from a cell in its pruned directions.
+     */
+    private void expandJumps(int current, int end, int ex, int ey) {
+        int cx = cellX(current);
+        int cy = cellY(current);
+        int count = prunedDirections(current, cx, cy);
+
+        for (int k = 0; k < count; k += 2) {
+            int dx = dirs[k];
+            int dy = dirs[k + 1];
+            int next = dx != 0 && dy != 0
+                    ? jumpDiagonal(cx + dx, cy + dy, dx, dy, end)
+                    : jumpStraight(cx + dx, cy + dy, dx, dy, end);
+            if (next < 0) continue;
+
+            boolean fresh = stamp[next] != generation;
+            if (fresh) touch(next);
+            else if (closed[next]) continue;
+
+            // A jump runs in one direction, so its cost is the octile distance
+            int newG = g[current] + heuristic(next, cx, cy);
+            if (fresh || newG < g[next]) {
+                g[next] = newG;
+                f[next] = newG + heuristic(next, ex, ey);
+                parent[next] = current;
+                if (heapPos[next] < 0) push(next);
+                else siftUp(heapPos[next]);
+            }
+        }
+    }
+
+    /**
+     * Fills {@link #dirs} with the directions worth searching from a cell, given the
+     * direction it was reached from (all legal moves for the start cell).
+     *
+     * @return number of ints written (two per direction)
+     */
+    private int prunedDirections(int current, int cx, int cy) {
+        int count = 0;
+        int from = parent[current];
+        if (from < 0) {
+            for (int d = 0; d < 8; d++) {
+                int dx = DX[d];
+                int dy = DY[d];
+                if (!isOpen(cx + dx, cy + dy)) continue;
+                if (dx != 0 && dy != 0 && (!isOpen(cx + dx, cy) || !isOpen(cx, cy + dy))) continue;
+                dirs[count++] = dx;
+                dirs[count++] = dy;
+            }
+            return count;
+        }
+
+        int dx = Integer.signum(cx - cellX(from));
+        int dy = Integer.signum(cy - cellY(from));
+        if (dx != 0 && dy != 0) {
+            boolean vertical = isOpen(cx, cy + dy);
+            boolean horizontal = isOpen(cx + dx, cy);
+            if (vertical) { dirs[count++] = 0; dirs[count++] = dy; }
+            if (horizontal) { dirs[count++] = dx; dirs[count++] = 0; }
+            if (vertical && horizontal && isOpen(cx + dx, cy + dy)) { dirs[count++] = dx; dirs[count++] = dy; }
+        } else if (dx != 0) {
+            boolean ahead = isOpen(cx + dx, cy);
+            boolean down = isOpen(cx, cy + 1);
+            boolean up = isOpen(cx, cy - 1);
+            if (ahead) {
+                dirs[count++] = dx; dirs[count++] = 0;
+                if (down && isOpen(cx + dx, cy + 1)) { dirs[count++] = dx; dirs[count++] = 1; }
+                if (up && isOpen(cx + dx, cy - 1)) { dirs[count++] = dx; dirs[count++] = -1; }
+            }
+            if (down) { dirs[count++] = 0; dirs[count++] = 1; }
+            if (up) { dirs[count++] = 0; dirs[count++] = -1; }
+        } else {
+            boolean ahead = isOpen(cx, cy + dy);
+            boolean right = isOpen(cx + 1, cy);
+            boolean left = isOpen(cx - 1, cy);
+            if (ahead) {
+                dirs[count++] = 0; dirs[count++] = dy;
+                if (right && isOpen(cx + 1, cy + dy)) { dirs[count++] = 1; dirs[count++] = dy; }
+                if (left && isOpen(cx - 1, cy + dy)) { dirs[count++] = -1; dirs[count++] = dy; }
+            }
+            if (right) { dirs[count++] = 1; dirs[count++] = 0; }
+            if (left) { dirs[count++] = -1; dirs[count++] = 0; }
+        }
+        return count;
+    }
+
+    /**
+     * Walks straight from (x, y) until reaching the goal or a cell with a forced
+     * neighbour (an opening beside a wall just passed). Returns that cell, or -1 if the
+     * run hits an obstacle or the edge first.
+     */
+    private int jumpStraight(int x, int y, int dx, int dy, int end) {
+        if (!isOpen(x, y)) return -1;
+        int ex = cellX(end);
+        int ey = cellY(end);
+        // The goal ends a run early; only then is the run walked
+        boolean goalAhead = dx != 0
+                ? ey == y && Integer.signum(ex - x) != -dx
+                : ex == x && Integer.signum(ey - y) != -dy;
+        if (!goalAhead) {
+            int dir = dx > 0 ? EAST : dx < 0 ? WEST : dy > 0 ? SOUTH : NORTH;
+            return jumpTable[dir][cellIndex(x, y)];
+        }
+        return walkStraight(x, y, dx, dy, end);
+    }
+
+    private int walkStraight(int x, int y, int dx, int dy, int end) {
+        while (isOpen(x, y)) {
+            int cell = cellIndex(x, y);
+            if (cell == end || forced(x, y, dx, dy)) return cell;
+            x += dx;
+            y += dy;
+        }
+        return -1;
+    }
+
+    /**
+     * Walks diagonally from (x, y); a cell is a jump point if a straight run from it
+     * finds one. Diagonal steps that would cut a corner end the walk.
+     */
+    private int jumpDiagonal(int x, int y, int dx, int dy, int end) {
+        while (isOpen(x, y)) {
+            int cell = cellIndex(x, y);
+            if (cell == end) return cell;
+            if (jumpStraight(x + dx, y, dx, 0, end) >= 0
+                    || jumpStraight(x, y + dy, 0, dy, end) >= 0) return cell;
+            if (!isOpen(x + dx, y) || !isOpen(x, y + dy)) return -1;
+            x += dx;
+            y += dy;
+        }
+        return -1;
+    }
+
+    /** True if the cell has a forced neighbour when entered moving in (dx, dy). */
+    private boolean forced(int x, int y, int dx, int dy) {
+        if (dx != 0) {
+            return (isOpen(x, y - 1) && !isOpen(x - dx, y - 1))
+                    || (isOpen(x, y + 1) && !isOpen(x - dx, y + 1));
+        }
+        return (isOpen(x - 1, y) && !isOpen(x - 1, y - dy))
+                || (isOpen(x + 1, y) && !isOpen(x + 1, y - dy));
+    }
+
+    private int[][] jumpTables() {
+        int[][] table = jumps.table;
+        if (table != null) return table;
+        synchronized (jumps) {
+            if (jumps.table == null) jumps.table = buildJumpTables();
+            return jumps.table;
+        }
+    }
+
+    /**
+     * One sweep per direction, against the direction of travel, so each cell reuses the
+     * answer of the cell after it.
+     */
+    private int[][] buildJumpTables() {
+        int n = width * height;
+        int[][] table = new int[4][n];
+        for (int y = 0; y < height; y++) {
+            int east = -1;
+            for (int x = width - 1; x >= 0; x--) {
+                int cell = cellIndex(x, y);
+                east = blocked[cell] ? -1 : forced(x, y, 1, 0) ? cell : east;
+                table[EAST][cell] = east;
+            }
+            int west = -1;
+            for (int x = 0; x < width; x++) {
+                int cell = cellIndex(x, y);
+                west = blocked[cell] ? -1 : forced(x, y, -1, 0) ? cell : west;
+                table[WEST][cell] = west;
+            }
+        }
+        for (int x = 0; x < width; x++) {
+            int south = -1;
+            for (int y = height - 1; y >= 0; y--) {
+                int cell = cellIndex(x, y);
+                south = blocked[cell] ? -1 : forced(x, y, 0, 1) ? cell : south;
+                table[SOUTH][cell] = south;
+            }
+            int north = -1;
+            for (int y = 0; y < height; y++) {
+                int cell = cellIndex(x, y);
+                north = blocked[cell] ? -1 : forced(x, y, 0, -1) ? cell : north;
+                table[NORTH][cell] = north;
+            }
+        }
+        return table;
+    }
+
+    private boolean isOpen(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && !blocked[y * width + x];
+    }
+
+    // --- Path smoothing ---
+
+    /**
+     * String-pulls the last path in place: drops every waypoint that the previous kept
+     * waypoint can see past, leaving only the turns.
+     *
+     * @return the new number of waypoints
+     */
+    private int smoothPath() {
+        if (pathLength <= 2) return pathLength;
+        int kept = 1;                    // path[0] (start) is always kept
+        int anchor = path[0];
+        for (int i = 2; i < pathLength; i++) {
+            if (!lineOfSight(anchor, path[i])) {
+                anchor = path[i - 1];
+                path[kept++] = anchor;
+            }
+        }
+        path[kept++] = path[pathLength - 1];
+        pathLength = kept;
+        return kept;
+    }
+
+    /**
+     * True if the straight segment between the two cell centers crosses only open cells.
+     * Passing exactly through a corner requires both cells beside it to be open, matching
+     * the no-corner-cutting rule for diagonal moves.
+     */
+    public boolean lineOfSight(int fromCell, int toCell) {
+        int x = cellX(fromCell);
+        int y = cellY(fromCell);
+        int x1 = cellX(toCell);
+        int y1 = cellY(toCell);
+        int dx = Math.abs(x1 - x);
+        int dy = Math.abs(y1 - y);
+        int sx = x1 > x ? 1 : -1;
+        int sy = y1 > y ? 1 : -1;
+        int error = dx - dy;
+        dx *= 2;
+        dy *= 2;
+
+        for (int n = 1 + (dx + dy) / 2; n > 0; n--) {
+            if (!isOpen(x, y)) return false;
+            if (error > 0) {
+                x += sx;
+                error -= dy;
+            } else if (error < 0) {
+                y += sy;
+                error += dx;
+            } else {
+                // Through a corner: the diagonal step needs both side cells open
+                if (n > 1 && (!isOpen(x + sx, y) || !isOpen(x, y + sy))) return false;
+                x += sx;
+                y += sy;
+                error += dx - dy;
+                n--;
+            }
+        }
+        return true;
+    }
+
+    /** Cell at position i of the last path (0 = start). */
+    public int pathCellAt(int i) {
+        return path[i];
+    }
+
+    /** Number of waypoints in the last path, 0 if none. */
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /** Cost of the last path in grid units (10 per straight step, before smoothing), -1 if none. */
+    public int getPathCost() {
+        return pathCost;
+    }
+
+    private int buildPath(int end) {
+        int count = 0;
+        for (int c = end; c != -1; c = parent[c]) {
+            path[count++] = c;
+        }
+        // reverse in place: start -> end
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            int tmp = path[i];
+            path[i] = path[j];
+            path[j] = tmp;
+        }
+        pathLength = count;
+        pathCost = g[end];
+        return count;
+    }
+
+    private int heuristic(int cell, int ex, int ey) {
+        int dx = Math.abs(cellX(cell) - ex);
+        int dy = Math.abs(cellY(cell) - ey);
+        return STRAIGHT_COST * (dx + dy) + (DIAGONAL_COST - 2 * STRAIGHT_COST) * Math.min(dx, dy);
+    }
+
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            // Extremely unlikely wrap-around: start over from a clean slate
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    private void touch(int cell) {
+        stamp[cell] = generation;
+        closed[cell] = false;
+        heapPos[cell] = -1;
+        parent[cell] = -1;
+    }
+
+    // --- Indexed heap ---
+
+    private void push(int cell) {
+        heap[heapSize] = cell;
+        heapPos[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapPos[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /** Orders by f; on ties prefers the deeper node, which keeps open-floor searches narrow. */
+    private boolean less(int a, int b) {
+        return f[a] < f[b] || (f[a] == f[b] && g[a] > g[b]);
+    }
+
+    private void siftUp(int i) {
+        int cell = heap[i];
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (!less(cell, heap[p])) break;
+            heap[i] = heap[p];
+            heapPos[heap[i]] = i;
+            i = p;
+        }
+        heap[i] = cell;
+        heapPos[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        int cell = heap[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) child = right;
+            if (!less(heap[child], cell)) break;
+            heap[i] = heap[child];
+            heapPos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapPos[cell] = i;
+    }
+}
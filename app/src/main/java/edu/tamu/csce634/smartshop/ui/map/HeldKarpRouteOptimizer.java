@@ -0,0 +1,70 @@
+package edu.tamu.csce634.smartshop.ui.map;
+
+import java.util.Arrays;
+
+/**
+ * Exact route ordering by Held-Karp dynamic programming over subsets of stops.
+ * O(2^n * n^2) time and O(2^n * n) memory, so only used for small trips
+ * (see {@link RouteOptimizer#EXACT_STOP_LIMIT}). The time budget is not needed.
+ */
+public class HeldKarpRouteOptimizer implements RouteOptimizer {
+
+    private static final int INF = Integer.MAX_VALUE / 2;
+
+    @Override
+    public int[] optimize(int[][] cost, long budgetMillis) {
+        int n = cost.length - 2; // stops
+        int end = cost.length - 1;
+        if (n <= 0) return new int[0];
+        if (n == 1) return new int[]{1};
+
+        int full = 1 << n;
+        // best[mask][k]: cheapest start -> (stops in mask) ending at stop k (k in mask)
+        int[][] best = new int[full][n];
+        int[][] prev = new int[full][n];
+        for (int[] row : best) Arrays.fill(row, INF);
+
+        for (int k = 0; k < n; k++) {
+            best[1 << k][k] = cost[0][k + 1];
+            prev[1 << k][k] = -1;
+        }
+
+        for (int mask = 1; mask < full; mask++) {
+            for (int k = 0; k < n; k++) {
+                int base = best[mask][k];
+                if (base >= INF || (mask & (1 << k)) == 0) continue;
+                for (int next = 0; next < n; next++) {
+                    if ((mask & (1 << next)) != 0) continue;
+                    int nextMask = mask | (1 << next);
+                    int candidate = base + cost[k + 1][next + 1];
+                    if (candidate < best[nextMask][next]) {
+                        best[nextMask][next] = candidate;
+                        prev[nextMask][next] = k;
+                    }
+                }
+            }
+        }
+
+        int lastMask = full - 1;
+        int bestLast = 0;
+        int bestTotal = INF;
+        for (int k = 0; k < n; k++) {
+            int total = best[lastMask][k] + cost[k + 1][end];
+            if (total < bestTotal) {
+                bestTotal = total;
+                bestLast = k;
+            }
+        }
+
+        int[] order = new int[n];
+        int mask = lastMask;
+        int k = bestLast;
+        for (int i = n - 1; i >= 0; i--) {
+            order[i] = k + 1;
+            int p = prev[mask][k];
+            mask &= ~(1 << k);
+            k = p;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,143 @@
+package edu.tamu.csce634.smartshop.ui.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.tamu.csce634.smartshop.models.world.Aisle;
+import edu.tamu.csce634.smartshop.models.world.SupermarketLayout;
+
+/**
+ * Uniform-grid spatial index over a SupermarketLayout.
+ *
+ * The layout square (fractions 0..1) is split into roughly sqrt(n) x sqrt(n) buckets,
+ * sized so each holds a handful of aisles. Aisles are registered in every bucket their
+ * rectangle overlaps. Buckets are stored in compressed form (one offset array + one flat
+ * item array), so the index is a few primitive arrays regardless of layout size.
+ *
+ * Used by PathNavigationView to draw only the aisles overlapping the visible viewport
+ * ({@link #aislesIn(float, float, float, float, int[])}).
+ *
+ * Immutable after construction and safe to query from any thread.
+ */
+public class LayoutSpatialIndex {
+
+    // Average number of aisles per bucket the grid is sized for
+    private static final int TARGET_PER_BUCKET = 4;
+    private static final int MAX_BUCKETS_PER_SIDE = 256;
+
+    private final Aisle[] aisles;
+    private final float[] left;
+    private final float[] top;
+    private final float[] right;
+    private final float[] bottom;
+
+    private final int cols;
+    private final int rows;
+    private final int[] aisleBucketStart;   // bucket b holds aisleBucketItems[start[b] .. start[b + 1])
+    private final int[] aisleBucketItems;
+
+    public LayoutSpatialIndex(SupermarketLayout layout) {
+        List<Aisle> aisleList = new ArrayList<>();
+        if (layout != null && layout.aisles != null) {
+            for (Aisle aisle : layout.aisles) {
+                if (aisle != null) aisleList.add(aisle);
+            }
+        }
+
+        int n = aisleList.size();
+        aisles = aisleList.toArray(new Aisle[0]);
+        left = new float[n];
+        top = new float[n];
+        right = new float[n];
+        bottom = new float[n];
+        for (int i = 0; i < n; i++) {
+            Aisle aisle = aisles[i];
+            left[i] = Math.min(aisle.x, aisle.x + aisle.width);
+            right[i] = Math.max(aisle.x, aisle.x + aisle.width);
+            top[i] = Math.min(aisle.y, aisle.y + aisle.height);
+            bottom[i] = Math.max(aisle.y, aisle.y + aisle.height);
+        }
+
+        int side = (int) Math.ceil(Math.sqrt(n / (double) TARGET_PER_BUCKET));
+        cols = Math.max(1, Math.min(MAX_BUCKETS_PER_SIDE, side));
+        rows = cols;
+        int buckets = cols * rows;
+
+        // Count, prefix-sum, fill
+        aisleBucketStart = new int[buckets + 1];
+        for (int i = 0; i < n; i++) {
+            for (int r = row(top[i]); r <= row(bottom[i]); r++) {
+                for (int c = col(left[i]); c <= col(right[i]); c++) {
+                    aisleBucketStart[r * cols + c + 1]++;
+                }
+            }
+        }
+        prefixSum(aisleBucketStart);
+        aisleBucketItems = new int[aisleBucketStart[buckets]];
+        int[] fill = Arrays.copyOf(aisleBucketStart, buckets);
+        for (int i = 0; i < n; i++) {
+            for (int r = row(top[i]); r <= row(bottom[i]); r++) {
+                for (int c = col(left[i]); c <= col(right[i]); c++) {
+                    aisleBucketItems[fill[r * cols + c]++] = i;
+                }
+            }
+        }
+    }
+
+    // --- Accessors ---
+
+    public int getAisleCount() { return aisles.length; }
+    public Aisle getAisle(int aisle) { return aisles[aisle]; }
+
+    // --- Queries ---
+
+    /**
+     * Collects the aisles overlapping a viewport (layout fractions, edges included) into
+     * {@code out}, in declaration order. {@code out} must have room for
+     * {@link #getAisleCount()} entries.
+     *
+     * @return the number of aisles written
+     */
+    public int aislesIn(float viewLeft, float viewTop, float viewRight, float viewBottom, int[] out) {
+        if (aisles.length == 0 || viewRight < viewLeft || viewBottom < viewTop) return 0;
+
+        int count = 0;
+        for (int r = row(viewTop); r <= row(viewBottom); r++) {
+            for (int c = col(viewLeft); c <= col(viewRight); c++) {
+                int b = r * cols + c;
+                for (int k = aisleBucketStart[b]; k < aisleBucketStart[b + 1]; k++) {
+                    int i = aisleBucketItems[k];
+                    if (left[i] > viewRight || right[i] < viewLeft
+                            || top[i] > viewBottom || bottom[i] < viewTop) continue;
+                    // An aisle spanning several buckets is reported only from the bucket
+                    // holding the top-left corner of its overlap with the viewport
+                    if (col(Math.max(left[i], viewLeft)) != c || row(Math.max(top[i], viewTop)) != r) continue;
+                    out[count++] = i;
+                }
+            }
+        }
+        Arrays.sort(out, 0, count);
+        return count;
+    }
+
+    // --- Bucket helpers ---
+
+    private int col(float x) {
+        return clamp((int) Math.floor(x * cols), cols);
+    }
+
+    private int row(float y) {
+        return clamp((int) Math.floor(y * rows), rows);
+    }
+
+    private static int clamp(int v, int size) {
+        return Math.max(0, Math.min(size - 1, v));
+    }
+
+    private static void prefixSum(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package edu.tamu.csce634.smartshop.ui.map;
+
+/**
+ * Heuristic route ordering for larger trips: nearest-neighbour construction,
+ * then 2-opt (segment reversal) and Or-opt (moving runs of 1-3 stops) until no
+ * move improves the route or the time budget runs out. Start and end nodes stay
+ * fixed, so the route is an open path from entrance to checkout.
+ *
+ * Assumes a symmetric cost matrix (walking distances on the store grid are), so a
+ * 2-opt move only changes its two boundary edges. Uses a few int arrays per call and
+ * no per-move allocation.
+ */
+public class LocalSearchRouteOptimizer implements RouteOptimizer {
+
+    private static final int MAX_OR_OPT_RUN = 3;
+
+    @Override
+    public int[] optimize(int[][] cost, long budgetMillis) {
+        int n = cost.length - 2;
+        if (n <= 0) return new int[0];
+
+        long deadline = System.nanoTime() + Math.max(1, budgetMillis) * 1_000_000L;
+
+        // path[0] = start, path[n + 1] = end, path[1..n] = stops
+        int[] path = new int[n + 2];
+        path[0] = 0;
+        path[n + 1] = cost.length - 1;
+        nearestNeighbour(cost, path, n);
+
+        int[] runBuffer = new int[MAX_OR_OPT_RUN];
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = twoOpt(cost, path, n, deadline);
+            improved |= orOpt(cost, path, n, runBuffer, deadline);
+        }
+
+        int[] order = new int[n];
+        System.arraycopy(path, 1, order, 0, n);
+        return order;
+    }
+
+    private static void nearestNeighbour(int[][] cost, int[] path, int n) {
+        boolean[] used = new boolean[n + 2];
+        int current = 0;
+        for (int i = 1; i <= n; i++) {
+            int bestStop = -1;
+            int bestCost = Integer.MAX_VALUE;
+            for (int s = 1; s <= n; s++) {
+                if (!used[s] && cost[current][s] < bestCost) {
+                    bestCost = cost[current][s];
+                    bestStop = s;
+                }
+            }
+            used[bestStop] = true;
+            path[i] = bestStop;
+            current = bestStop;
+        }
+    }
+
+    /**
+     * Reverses path[i..j] when that shortens the route (first-improvement).
+     */
+    private static boolean twoOpt(int[][] cost, int[] path, int n, long deadline) {
+        boolean improved = false;
+        for (int i = 1; i < n; i++) {
+            if (System.nanoTime() >= deadline) break;
+            for (int j = i + 1; j <= n; j++) {
+                int a = path[i - 1], b = path[i];
+                int c = path[j], d = path[j + 1];
+                long delta = (long) cost[a][c] + cost[b][d] - cost[a][b] - cost[c][d];
+                if (delta < 0) {
+                    reverse(path, i, j);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Moves a run of 1..MAX_OR_OPT_RUN consecutive stops to a better position.
+     */
+    private static boolean orOpt(int[][] cost, int[] path, int n, int[] run, long deadline) {
+        boolean improved = false;
+        for (int len = 1; len <= MAX_OR_OPT_RUN && len < n; len++) {
+            for (int i = 1; i + len - 1 <= n; i++) {
+                if (System.nanoTime() >= deadline) return improved;
+                int first = path[i];
+                int last = path[i + len - 1];
+                int before = path[i - 1];
+                int after = path[i + len];
+                long removeGain = (long) cost[before][first] + cost[last][after] - cost[before][after];
+
+                int bestPos = -1;
+                long bestDelta = 0;
+                // insert between path[p] and path[p + 1], outside the run
+                for (int p = 0; p <= n; p++) {
+                    if (p >= i - 1 && p <= i + len - 1) continue;
+                    int x = path[p], y = path[p + 1];
+                    long delta = (long) cost[x][first] + cost[last][y] - cost[x][y] - removeGain;
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        bestPos = p;
+                    }
+                }
+                if (bestPos >= 0) {
+                    moveRun(path, i, len, bestPos, run);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Moves path[i..i+len-1] to sit right after the element currently at path[pos].
+     */
+    private static void moveRun(int[] path, int i, int len, int pos, int[] run) {
+        System.arraycopy(path, i, run, 0, len);
+        if (pos < i) {
+            // shift (pos, i) right by len
+            System.arraycopy(path, pos + 1, path, pos + 1 + len, i - pos - 1);
+            System.arraycopy(run, 0, path, pos + 1, len);
+        } else {
+            // shift [i + len, pos] left by len
+            System.arraycopy(path, i + len, path, i, pos - (i + len) + 1);
+            System.arraycopy(run, 0, path, pos - len + 1, len);
+        }
+    }
+
+    private static void reverse(int[] path, int i, int j) {
+        while (i < j) {
+            int tmp = path[i];
+            path[i++] = path[j];
+            path[j--] = tmp;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -22,21 +23,27 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
-import com.google.gson.Gson;
 
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import edu.tamu.csce634.smartshop.R;
+import edu.tamu.csce634.smartshop.data.ShoppingSessionStore;
+import edu.tamu.csce634.smartshop.data.StoreLayoutRegistry;
 import edu.tamu.csce634.smartshop.models.ShoppingItem;
 import edu.tamu.csce634.smartshop.models.world.SupermarketLayout;
 import edu.tamu.csce634.smartshop.ui.list.ListViewModel;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
+import edu.tamu.csce634.smartshop.utils.LatestTask;
 
 public class MapFragment extends Fragment {
 
+    // Route ordering time budget and the cost used for disconnected shelf pairs
+    private static final long ROUTE_BUDGET_MS = 30;
+    private static final int UNREACHABLE_COST = 1_000_000;
+
     private ImageView imgMap;
     private TextView tvItemName, tvInstruction, tvProgress;
     private Button btnCurrentItem, btnNext;
@@ -48,6 +55,24 @@ public class MapFragment extends Fragment {
     private PointF lastLocation;
 
     private SupermarketLayout supermarketLayout;
+    private ShelfDistanceOracle distanceOracle;
+    // Persisted trip progress (route order, picked items, cursor); survives process death
+    private ShoppingSessionStore session;
+
+    // Layout parsing, distance precomputation and route ordering run off the UI thread
+    private final LatestTask<LoadedLayout> layoutTask = new LatestTask<>(AppExecutors.background());
+    private final LatestTask<List<ShoppingItem>> routeTask = new LatestTask<>(AppExecutors.background());
+
+    /** Result of the background layout load. */
+    private static class LoadedLayout {
+        final StoreLayoutRegistry.StoreLayout store;
+        final ShoppingSessionStore session;
+
+        LoadedLayout(StoreLayoutRegistry.StoreLayout store, ShoppingSessionStore session) {
+            this.store = store;
+            this.session = session;
+        }
+    }
 
     @Nullable
     @Override
@@ -58,21 +83,39 @@ public class MapFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        loadSupermarketLayout();
         setupToolbar(view);
         setupViews(view);
-        setupViewModel();
         setupClickListeners();
+        // The list is routed only once the layout (and its distances) are ready
+        loadSupermarketLayout(this::onLayoutLoaded);
     }
 
-    private void loadSupermarketLayout() {
-        try (InputStream is = requireContext().getResources().openRawResource(R.raw.supermarket_layout);
-             InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-            this.supermarketLayout = new Gson().fromJson(reader, SupermarketLayout.class);
-        } catch (Exception e) {
-            e.printStackTrace();
-            this.supermarketLayout = null;
-        }
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        layoutTask.cancel();
+        routeTask.cancel();
+    }
+
+    private void loadSupermarketLayout(java.util.function.Consumer<LoadedLayout> onLoaded) {
+        android.content.Context appContext = requireContext().getApplicationContext();
+        StoreLayoutRegistry registry = StoreLayoutRegistry.getInstance(appContext);
+        layoutTask.submit(() -> {
+            // The user's store; already in memory if it was prefetched or recently opened
+            StoreLayoutRegistry.StoreLayout store = registry.get(registry.getPreferredStoreId());
+            // The first access restores the saved session from disk, so keep it off the UI thread
+            return new LoadedLayout(store, ShoppingSessionStore.get(appContext));
+        }, AppExecutors.mainThread(), onLoaded);
+    }
+
+    private void onLayoutLoaded(LoadedLayout loaded) {
+        if (getView() == null) return;
+        if (loaded.store == null) return;
+        this.supermarketLayout = loaded.store.layout;
+        this.distanceOracle = loaded.store.oracle;
+        this.session = loaded.session;
+        pathNavigationView.setStoreLayout(loaded.store);
+        setupViewModel();
     }
 
     private void setupToolbar(View view) {
@@ -98,7 +141,6 @@ public class MapFragment extends Fragment {
 
         imgMap.setImageDrawable(null);
         imgMap.setBackgroundColor(Color.WHITE);
-        pathNavigationView.setSupermarketLayout(this.supermarketLayout);
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         recyclerView.setAdapter(new ShoppingAdapter(shoppingList));
     }
@@ -106,27 +148,47 @@ public class MapFragment extends Fragment {
     private void setupViewModel() {
         listViewModel = new ViewModelProvider(requireActivity()).get(ListViewModel.class);
         listViewModel.getItemList().observe(getViewLifecycleOwner(), items -> {
-            // -- Start of modification --
-            PointF entrance = new PointF(0.5f, 0.95f); // Define the entrance point
-            List<ShoppingItem> optimizedList = optimizeShoppingPath(items, entrance);
+            // Route in the background; a newer list supersedes a route still being computed
+            List<ShoppingItem> snapshot = items != null ? new ArrayList<>(items) : new ArrayList<>();
+            ShelfDistanceOracle oracle = distanceOracle;
+            ShoppingSessionStore store = session;
+            routeTask.submit(() -> routeFor(snapshot, oracle, store),
+                    AppExecutors.mainThread(), this::showRoute);
+        });
+    }
 
-            shoppingList.clear();
-            if (optimizedList != null) {
-                shoppingList.addAll(optimizedList);
-            }
-            // -- End of modification --
+    private void showRoute(List<ShoppingItem> optimizedList) {
+        if (getView() == null) return;
 
-            if (!shoppingList.isEmpty()) {
-                currentIndex = 0;
-                lastLocation = entrance; // Start from the entrance
-                showCurrentItem();
-            } else {
-                handleEmptyList();
-            }
-            if (recyclerView.getAdapter() != null) {
-                recyclerView.getAdapter().notifyDataSetChanged();
+        if (!shoppingList.isEmpty() && (optimizedList == null || optimizedList.isEmpty())) {
+            // The list was cleared mid-trip: the trip is over, don't bring its picks back later
+            session.clear();
+        }
+        shoppingList.clear();
+        if (optimizedList != null) {
+            shoppingList.addAll(optimizedList);
+        }
+
+        // Restored picks flow back into the shared list so progress counts agree
+        for (ShoppingItem item : shoppingList) {
+            boolean picked = isPicked(item);
+            if (item.isPicked != picked && item.ingredientId != null) {
+                listViewModel.markItemAsPicked(item.ingredientId, picked);
             }
-        });
+        }
+
+        if (!shoppingList.isEmpty()) {
+            // Resume where the trip left off; a fresh route starts at the entrance
+            currentIndex = Math.min(session.getCurrentIndex(), shoppingList.size() - 1);
+            float[] saved = session.getLastLocation();
+            lastLocation = saved != null ? new PointF(saved[0], saved[1]) : entranceLocation();
+            showCurrentItem();
+        } else {
+            handleEmptyList();
+        }
+        if (recyclerView.getAdapter() != null) {
+            recyclerView.getAdapter().notifyDataSetChanged();
+        }
     }
 
     private void setupClickListeners() {
@@ -134,7 +196,11 @@ public class MapFragment extends Fragment {
             btnCurrentItem.setOnClickListener(v -> {
                 if (shoppingList.isEmpty()) return;
                 ShoppingItem cur = shoppingList.get(currentIndex);
-                cur.setDone(!cur.isDone());
+                boolean picked = !isPicked(cur);
+                session.setPicked(ShoppingSessionStore.keyOf(cur), picked);
+                if (cur.ingredientId != null) {
+                    listViewModel.markItemAsPicked(cur.ingredientId, picked);
+                }
                 showCurrentItem();
             });
         }
@@ -147,15 +213,46 @@ public class MapFragment extends Fragment {
                     lastLocation = new PointF((float) currentItem.coordinateX, (float) currentItem.coordinateY);
                 }
                 currentIndex++;
+                if (currentIndex >= shoppingList.size() && allPicked()) {
+                    finishTrip();
+                    return;
+                }
                 if (currentIndex >= shoppingList.size()) {
                     currentIndex = 0;
-                    lastLocation = new PointF(0.5f, 0.95f); // Loop back
+                    lastLocation = entranceLocation(); // Loop back
+                    session.setCursor(currentIndex, null);
+                } else {
+                    saveCursor();
                 }
                 showCurrentItem();
             });
         }
     }
 
+    private boolean allPicked() {
+        for (ShoppingItem item : shoppingList) {
+            if (!isPicked(item)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Every item is picked and the user moved past the last one: end the trip so the
+     * next one starts from the entrance with nothing picked.
+     */
+    private void finishTrip() {
+        session.clear();
+        for (ShoppingItem item : shoppingList) {
+            if (item.ingredientId != null) {
+                listViewModel.markItemAsPicked(item.ingredientId, false);
+            }
+        }
+        currentIndex = 0;
+        lastLocation = entranceLocation();
+        showCurrentItem();
+        Toast.makeText(requireContext(), "Shopping trip complete", Toast.LENGTH_SHORT).show();
+    }
+
     private void handleEmptyList() {
         if (tvItemName != null) tvItemName.setText("No items");
         if (tvInstruction != null) tvInstruction.setText("Your shopping list is empty.");
@@ -174,7 +271,7 @@ public class MapFragment extends Fragment {
         if (tvInstruction != null) tvInstruction.setText(item.getAisle());
         if (tvProgress != null) {
             String progress = "Item " + (currentIndex + 1) + " / " + shoppingList.size();
-            if (item.isDone()) progress += " (done)";
+            if (isPicked(item)) progress += " (done)";
             tvProgress.setText(progress);
         }
         if (btnCurrentItem != null) {
@@ -200,58 +297,125 @@ public class MapFragment extends Fragment {
         });
     }
 
+    private boolean isPicked(ShoppingItem item) {
+        return session != null && session.isPicked(ShoppingSessionStore.keyOf(item));
+    }
+
+    private void saveCursor() {
+        session.setCursor(currentIndex,
+                lastLocation != null ? new float[]{lastLocation.x, lastLocation.y} : null);
+    }
+
     /**
-     * Calculates the Euclidean distance between two points.
+     * Returns the route for this list. If the session already holds a route for the same
+     * set of items (e.g. after the process was killed mid-trip), that order is reused and
+     * the optimizer is skipped; otherwise the route is optimized and saved to the session
+     * (or, without a layout, the session cursor is reset to the start).
+     * Runs on a background thread.
      */
-    private double calculateDistance(PointF p1, PointF p2) {
-        if (p1 == null || p2 == null) return Double.MAX_VALUE;
-        return Math.sqrt(Math.pow(p2.x - p1.x, 2) + Math.pow(p2.y - p1.y, 2));
+    private static List<ShoppingItem> routeFor(List<ShoppingItem> items,
+                                               ShelfDistanceOracle distanceOracle,
+                                               ShoppingSessionStore session) {
+        if (items.isEmpty() || session == null) {
+            return optimizeShoppingPath(items, distanceOracle);
+        }
+
+        String routeKey = ShoppingSessionStore.routeKeyOf(items);
+        List<String> savedOrder = session.routeFor(routeKey);
+        if (savedOrder != null) {
+            Map<String, List<ShoppingItem>> byKey = new LinkedHashMap<>();
+            for (ShoppingItem item : items) {
+                byKey.computeIfAbsent(ShoppingSessionStore.keyOf(item), k -> new ArrayList<>()).add(item);
+            }
+            List<ShoppingItem> ordered = new ArrayList<>(items.size());
+            for (String key : savedOrder) {
+                List<ShoppingItem> matches = byKey.get(key);
+                if (matches != null && !matches.isEmpty()) ordered.add(matches.remove(0));
+            }
+            for (List<ShoppingItem> rest : byKey.values()) ordered.addAll(rest);
+            return ordered;
+        }
+
+        List<ShoppingItem> optimized = optimizeShoppingPath(items, distanceOracle);
+        if (distanceOracle != null) {
+            // Only a real route is worth keeping; without a layout it is just list order
+            List<String> order = new ArrayList<>(optimized.size());
+            for (ShoppingItem item : optimized) order.add(ShoppingSessionStore.keyOf(item));
+            session.saveRoute(routeKey, order);
+        } else {
+            // No route is saved, so the session cursor belongs to some earlier trip
+            session.setCursor(0, null);
+        }
+        return optimized;
     }
 
     /**
-     * Reorders the shopping list based on the nearest neighbor algorithm.
+     * Reorders the shopping list into the shortest walking route from the entrance to
+     * the checkout. Items on the same shelf zone share one stop; the stop order comes
+     * from a RouteOptimizer (exact for small trips, 2-opt / Or-opt within a time budget
+     * for larger ones) over the ShelfDistanceOracle's walking distances.
+     * Items without a known location are appended at the end.
+     * Runs on a background thread, so it only touches its arguments.
      * @param originalList The original, unsorted list of items.
-     * @param startPoint The starting point (e.g., the entrance).
+     * @param distanceOracle Walking distances for the current layout, or null if not loaded.
      * @return A new list, sorted for the shortest shopping path.
      */
-    private List<ShoppingItem> optimizeShoppingPath(List<ShoppingItem> originalList, PointF startPoint) {
+    private static List<ShoppingItem> optimizeShoppingPath(List<ShoppingItem> originalList,
+                                                           ShelfDistanceOracle distanceOracle) {
         if (originalList == null || originalList.isEmpty()) {
             return new ArrayList<>();
         }
+        if (distanceOracle == null) {
+            return new ArrayList<>(originalList);
+        }
 
-        List<ShoppingItem> remaining = new ArrayList<>(originalList);
-        List<ShoppingItem> optimized = new ArrayList<>();
-        PointF currentLocation = new PointF(startPoint.x, startPoint.y);
-
-        while (!remaining.isEmpty()) {
-            ShoppingItem nearestItem = null;
-            double minDistance = Double.MAX_VALUE;
-
-            for (ShoppingItem item : remaining) {
-                // Ensure item has valid coordinates before considering it
-                if (item.coordinateX > 0 && item.coordinateY > 0) {
-                    PointF itemLocation = new PointF((float)item.coordinateX, (float)item.coordinateY);
-                    double distance = calculateDistance(currentLocation, itemLocation);
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        nearestItem = item;
-                    }
-                }
+        // Group items by shelf point
+        Map<Integer, List<ShoppingItem>> itemsByPoint = new LinkedHashMap<>();
+        List<ShoppingItem> unlocated = new ArrayList<>();
+        for (ShoppingItem item : originalList) {
+            int point = item.coordinateX > 0 && item.coordinateY > 0
+                    ? distanceOracle.pointAt(item.coordinateX, item.coordinateY) : -1;
+            if (point >= 0) {
+                itemsByPoint.computeIfAbsent(point, k -> new ArrayList<>()).add(item);
+            } else {
+                unlocated.add(item);
             }
+        }
 
-            if (nearestItem != null) {
-                optimized.add(nearestItem);
-                remaining.remove(nearestItem);
-                currentLocation = new PointF((float)nearestItem.coordinateX, (float)nearestItem.coordinateY);
-            } else {
-                // If no items with valid coordinates are found, add the rest and break.
-                optimized.addAll(remaining);
-                break;
+        // Nodes: 0 = entrance, 1..k = stops, k + 1 = checkout
+        int k = itemsByPoint.size();
+        int[] nodePoints = new int[k + 2];
+        nodePoints[0] = distanceOracle.getEntrancePoint();
+        nodePoints[k + 1] = distanceOracle.getCheckoutPoint();
+        int n = 1;
+        for (int point : itemsByPoint.keySet()) nodePoints[n++] = point;
+
+        int[][] cost = new int[k + 2][k + 2];
+        for (int i = 0; i < k + 2; i++) {
+            for (int j = 0; j < k + 2; j++) {
+                int d = distanceOracle.distance(nodePoints[i], nodePoints[j]);
+                cost[i][j] = d == ShelfDistanceOracle.UNREACHABLE ? UNREACHABLE_COST : d;
             }
         }
+
+        int[] order = RouteOptimizer.forStops(k).optimize(cost, ROUTE_BUDGET_MS);
+
+        List<ShoppingItem> optimized = new ArrayList<>(originalList.size());
+        for (int node : order) {
+            optimized.addAll(itemsByPoint.get(nodePoints[node]));
+        }
+        optimized.addAll(unlocated);
         return optimized;
     }
 
+    private PointF entranceLocation() {
+        if (distanceOracle == null) {
+            return new PointF(ShelfDistanceOracle.ENTRANCE_X, ShelfDistanceOracle.ENTRANCE_Y);
+        }
+        int entrance = distanceOracle.getEntrancePoint();
+        return new PointF(distanceOracle.getPointX(entrance), distanceOracle.getPointY(entrance));
+    }
+
 
     private class ShoppingAdapter extends RecyclerView.Adapter<ShoppingAdapter.VH> {
         private final List<ShoppingItem> items;
@@ -273,6 +437,7 @@ public class MapFragment extends Fragment {
                 ShoppingItem currentItem = shoppingList.get(currentIndex);
                 if (currentItem.coordinateX > 0 && currentItem.coordinateY > 0) { lastLocation = new PointF((float) currentItem.coordinateX, (float) currentItem.coordinateY); }
                 currentIndex = currentPosition;
+                saveCursor();
                 showCurrentItem();
             });
         }
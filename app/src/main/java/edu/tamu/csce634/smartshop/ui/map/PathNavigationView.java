@@ -12,18 +12,14 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PathMeasure;
 import android.graphics.PointF;
+import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.view.View;
 import android.view.animation.AccelerateDecelerateInterpolator;
 
 import androidx.annotation.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.PriorityQueue;
-
+import edu.tamu.csce634.smartshop.data.StoreLayoutRegistry;
 import edu.tamu.csce634.smartshop.models.world.Aisle;
 import edu.tamu.csce634.smartshop.models.world.SupermarketLayout;
 
@@ -45,47 +41,20 @@ public class PathNavigationView extends View {
 
     // --- Data ---
     private SupermarketLayout supermarketLayout;
+    private LayoutSpatialIndex layoutIndex;
+    private String[] aisleLabels;             // display names, indexed like layoutIndex
+    private int[] visibleAisles = new int[0]; // scratch buffer for viewport queries
+    private final Rect clipBounds = new Rect();
 
     // --- Destination Image ---
     private Bitmap destinationBitmap;
     private PointF destinationPoint;
 
-    // --- A* Fields ---
-    private static final int GRID_WIDTH = 40;
-    private static final int GRID_HEIGHT = 60;
-    private Node[][] grid;
-    private boolean aStarGridInitialized = false;
-
-    // --- A* Node Class ---
-    static class Node {
-        int x, y;
-        int g, h;
-        Node parent;
-        boolean isObstacle;
-
-        Node(int x, int y) {
-            this.x = x;
-            this.y = y;
-        }
-
-        void reset() {
-            g = 0;
-            h = 0;
-            parent = null;
-        }
-
-        int getF() {
-            return g + h;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            Node node = (Node) o;
-            return x == node.x && y == node.y;
-        }
-    }
+    // --- Pathfinding ---
+    // Grid resolution for layouts that do not declare one
+    public static final int DEFAULT_GRID_WIDTH = 40;
+    public static final int DEFAULT_GRID_HEIGHT = 60;
+    private GridPathfinder pathfinder;
 
     public PathNavigationView(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
@@ -144,8 +113,30 @@ public class PathNavigationView extends View {
     }
 
     public void setSupermarketLayout(SupermarketLayout layout) {
+        // The grid is independent of the view size, so it can be rebuilt right away
+        applyLayout(layout, new LayoutSpatialIndex(layout),
+                GridPathfinder.fromLayout(layout, DEFAULT_GRID_WIDTH, DEFAULT_GRID_HEIGHT));
+    }
+
+    /**
+     * Shows a store loaded through {@link StoreLayoutRegistry}, reusing its index and
+     * obstacle grid instead of rebuilding them.
+     */
+    public void setStoreLayout(StoreLayoutRegistry.StoreLayout store) {
+        applyLayout(store.layout, store.index, store.grid.newWorker());
+    }
+
+    private void applyLayout(SupermarketLayout layout, LayoutSpatialIndex index, GridPathfinder finder) {
         this.supermarketLayout = layout;
-        aStarGridInitialized = false;
+        this.layoutIndex = index;
+        int count = index.getAisleCount();
+        aisleLabels = new String[count];
+        for (int i = 0; i < count; i++) {
+            String id = index.getAisle(i).id;
+            aisleLabels[i] = id != null ? id.replace('_', ' ') : "";
+        }
+        visibleAisles = new int[count];
+        pathfinder = finder;
         invalidate();
     }
 
@@ -162,43 +153,8 @@ public class PathNavigationView extends View {
         invalidate();
     }
 
-    @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
-        if (w > 0 && h > 0) {
-            initializeAStarGrid(w, h);
-        }
-    }
-
-    private void initializeAStarGrid(int viewWidth, int viewHeight) {
-        grid = new Node[GRID_WIDTH][GRID_HEIGHT];
-        for (int x = 0; x < GRID_WIDTH; x++) {
-            for (int y = 0; y < GRID_HEIGHT; y++) {
-                grid[x][y] = new Node(x, y);
-            }
-        }
-
-        if (supermarketLayout != null && supermarketLayout.aisles != null) {
-            for (Aisle aisle : supermarketLayout.aisles) {
-                int startX = (int) (aisle.x * GRID_WIDTH);
-                int endX = (int) ((aisle.x + aisle.width) * GRID_WIDTH);
-                int startY = (int) (aisle.y * GRID_HEIGHT);
-                int endY = (int) ((aisle.y + aisle.height) * GRID_HEIGHT);
-
-                for (int x = startX; x < endX; x++) {
-                    for (int y = startY; y < endY; y++) {
-                        if (x >= 0 && x < GRID_WIDTH && y >= 0 && y < GRID_HEIGHT) {
-                            grid[x][y].isObstacle = true;
-                        }
-                    }
-                }
-            }
-        }
-        aStarGridInitialized = true;
-    }
-
     public void drawPath(PointF startPointInPixels, PointF endPointInPixels) {
-        if (startPointInPixels == null || endPointInPixels == null || !aStarGridInitialized || getWidth() == 0 || getHeight() == 0) {
+        if (startPointInPixels == null || endPointInPixels == null || pathfinder == null || getWidth() == 0 || getHeight() == 0) {
             clearPath();
             return;
         }
@@ -221,24 +177,32 @@ public class PathNavigationView extends View {
 
         this.destinationPoint = endPointInPixels;
 
-        int startGridX = (int) (startPointInPixels.x / getWidth() * GRID_WIDTH);
-        int startGridY = (int) (startPointInPixels.y / getHeight() * GRID_HEIGHT);
-        int endGridX = (int) (endPointInPixels.x / getWidth() * GRID_WIDTH);
-        int endGridY = (int) (endPointInPixels.y / getHeight() * GRID_HEIGHT);
-
-        List<Node> pathNodes = findPath(startGridX, startGridY, endGridX, endGridY);
+        int gridWidth = pathfinder.getWidth();
+        int gridHeight = pathfinder.getHeight();
+        int startGridX = (int) (startPointInPixels.x / getWidth() * gridWidth);
+        int startGridY = (int) (startPointInPixels.y / getHeight() * gridHeight);
+        int endGridX = (int) (endPointInPixels.x / getWidth() * gridWidth);
+        int endGridY = (int) (endPointInPixels.y / getHeight() * gridHeight);
+
+        int pathLength = 0;
+        if (pathfinder.inBounds(startGridX, startGridY) && pathfinder.inBounds(endGridX, endGridY)) {
+            pathLength = pathfinder.findPath(
+                    pathfinder.cellIndex(startGridX, startGridY),
+                    pathfinder.cellIndex(endGridX, endGridY));
+        }
 
         fullPath.reset();
-        if (pathNodes != null && !pathNodes.isEmpty()) {
-            float cellWidth = (float) getWidth() / GRID_WIDTH;
-            float cellHeight = (float) getHeight() / GRID_HEIGHT;
-
-            Node firstNode = pathNodes.get(0);
-            fullPath.moveTo(firstNode.x * cellWidth + cellWidth / 2, firstNode.y * cellHeight + cellHeight / 2);
-
-            for (int i = 1; i < pathNodes.size(); i++) {
-                Node node = pathNodes.get(i);
-                fullPath.lineTo(node.x * cellWidth + cellWidth / 2, node.y * cellHeight + cellHeight / 2);
+        if (pathLength > 0) {
+            // Waypoints only: the smoothed path has a point per turn, not per cell
+            float cellWidth = (float) getWidth() / gridWidth;
+            float cellHeight = (float) getHeight() / gridHeight;
+
+            for (int i = 0; i < pathLength; i++) {
+                int cell = pathfinder.pathCellAt(i);
+                float px = pathfinder.cellX(cell) * cellWidth + cellWidth / 2;
+                float py = pathfinder.cellY(cell) * cellHeight + cellHeight / 2;
+                if (i == 0) fullPath.moveTo(px, py);
+                else fullPath.lineTo(px, py);
             }
         } else {
             fullPath.moveTo(startPointInPixels.x, startPointInPixels.y);
@@ -253,123 +217,6 @@ public class PathNavigationView extends View {
         pathAnimator.start();
     }
 
-    private List<Node> findPath(int startX, int startY, int endX, int endY) {
-        if (startX < 0 || startX >= GRID_WIDTH || startY < 0 || startY >= GRID_HEIGHT ||
-            endX < 0 || endX >= GRID_WIDTH || endY < 0 || endY >= GRID_HEIGHT) {
-            return null;
-        }
-
-        for (int x = 0; x < GRID_WIDTH; x++) {
-            for (int y = 0; y < GRID_HEIGHT; y++) {
-                grid[x][y].reset();
-            }
-        }
-
-        Node startNode = grid[startX][startY];
-        Node endNode = grid[endX][endY];
-
-        if (startNode.isObstacle) {
-            Node alternativeStartNode = findNearestValidNode(startNode);
-            if (alternativeStartNode != null) {
-                startNode = alternativeStartNode;
-            } else {
-                return null;
-            }
-        }
-
-        if (endNode.isObstacle) {
-            Node alternativeEndNode = findNearestValidNode(endNode);
-            if (alternativeEndNode != null) {
-                endNode = alternativeEndNode;
-            } else {
-                return null;
-            }
-        }
-
-        PriorityQueue<Node> openList = new PriorityQueue<>(Comparator.comparingInt(Node::getF));
-        boolean[][] closedList = new boolean[GRID_WIDTH][GRID_HEIGHT];
-
-        startNode.g = 0;
-        startNode.h = calculateHeuristic(startNode, endNode);
-        openList.add(startNode);
-
-        while (!openList.isEmpty()) {
-            Node currentNode = openList.poll();
-
-            if (currentNode.equals(endNode)) {
-                return reconstructPath(currentNode);
-            }
-
-            if (closedList[currentNode.x][currentNode.y]) {
-                continue;
-            }
-            closedList[currentNode.x][currentNode.y] = true;
-
-            for (int i = -1; i <= 1; i++) {
-                for (int j = -1; j <= 1; j++) {
-                    if (i == 0 && j == 0) continue;
-
-                    int neighborX = currentNode.x + i;
-                    int neighborY = currentNode.y + j;
-
-                    if (neighborX < 0 || neighborX >= GRID_WIDTH || neighborY < 0 || neighborY >= GRID_HEIGHT) continue;
-
-                    Node neighbor = grid[neighborX][neighborY];
-                    if (neighbor.isObstacle || closedList[neighborX][neighborY]) continue;
-
-                    if (i != 0 && j != 0) {
-                        if (grid[currentNode.x + i][currentNode.y].isObstacle || grid[currentNode.x][currentNode.y + j].isObstacle) {
-                            continue;
-                        }
-                    }
-
-                    int newG = currentNode.g + ((i == 0 || j == 0) ? 10 : 14);
-                    if (newG < neighbor.g || !openList.contains(neighbor)) {
-                        neighbor.g = newG;
-                        neighbor.h = calculateHeuristic(neighbor, endNode);
-                        neighbor.parent = currentNode;
-                        openList.add(neighbor);
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
-    private Node findNearestValidNode(Node originalNode) {
-        for (int radius = 1; radius < 10; radius++) {
-            for (int i = -radius; i <= radius; i++) {
-                for (int j = -radius; j <= radius; j++) {
-                    if (Math.abs(i) != radius && Math.abs(j) != radius) continue;
-                    int checkX = originalNode.x + i;
-                    int checkY = originalNode.y + j;
-                    if (checkX >= 0 && checkX < GRID_WIDTH && checkY >= 0 && checkY < GRID_HEIGHT) {
-                        Node candidate = grid[checkX][checkY];
-                        if (!candidate.isObstacle) {
-                            return candidate;
-                        }
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
-    private int calculateHeuristic(Node a, Node b) {
-        return 10 * (Math.abs(a.x - b.x) + Math.abs(a.y - b.y));
-    }
-
-    private List<Node> reconstructPath(Node endNode) {
-        List<Node> path = new ArrayList<>();
-        Node currentNode = endNode;
-        while (currentNode != null) {
-            path.add(currentNode);
-            currentNode = currentNode.parent;
-        }
-        Collections.reverse(path);
-        return path;
-    }
-
     public void clearPath() {
         if (pathAnimator != null && pathAnimator.isRunning()) {
             pathAnimator.cancel();
@@ -400,19 +247,29 @@ public class PathNavigationView extends View {
     }
 
     private void drawBackgroundLayout(Canvas canvas) {
-        if (supermarketLayout == null || supermarketLayout.aisles == null || getWidth() == 0 || getHeight() == 0) {
+        if (supermarketLayout == null || layoutIndex == null || getWidth() == 0 || getHeight() == 0) {
             return;
         }
         int viewWidth = getWidth();
         int viewHeight = getHeight();
-        for (Aisle aisle : supermarketLayout.aisles) {
+
+        // Only aisles overlapping the area being redrawn
+        if (!canvas.getClipBounds(clipBounds)) return;
+        int count = layoutIndex.aislesIn(
+                (float) clipBounds.left / viewWidth, (float) clipBounds.top / viewHeight,
+                (float) clipBounds.right / viewWidth, (float) clipBounds.bottom / viewHeight,
+                visibleAisles);
+
+        for (int k = 0; k < count; k++) {
+            int index = visibleAisles[k];
+            Aisle aisle = layoutIndex.getAisle(index);
             float left = aisle.x * viewWidth;
             float top = aisle.y * viewHeight;
             float right = (aisle.x + aisle.width) * viewWidth;
             float bottom = (aisle.y + aisle.height) * viewHeight;
             canvas.drawRect(left, top, right, bottom, aislePaint);
 
-            String aisleName = aisle.id.replace('_', ' ');
+            String aisleName = aisleLabels[index];
             float centerX = left + (right - left) / 2;
             float centerY = top + (bottom - top) / 2;
             float textY = centerY - ((textPaint.descent() + textPaint.ascent()) / 2);
@@ -0,0 +1,29 @@
+package edu.tamu.csce634.smartshop.ui.map;
+
+/**
+ * Orders the stops of a shopping trip to minimize total walking distance.
+ *
+ * Input is a square cost matrix over m nodes where node 0 is the fixed start
+ * (entrance), node m - 1 the fixed end (checkout) and nodes 1..m-2 the stops.
+ * Implementations return the stops (1..m-2) in visiting order.
+ */
+public interface RouteOptimizer {
+
+    /** Largest number of stops solved exactly by {@link HeldKarpRouteOptimizer}. */
+    int EXACT_STOP_LIMIT = 12;
+
+    /**
+     * @param cost         cost[i][j] = walking distance from node i to node j
+     * @param budgetMillis soft time limit; implementations return their best order so far
+     */
+    int[] optimize(int[][] cost, long budgetMillis);
+
+    /**
+     * Picks the exact solver for small trips and local search for larger ones.
+     */
+    static RouteOptimizer forStops(int stopCount) {
+        return stopCount <= EXACT_STOP_LIMIT
+                ? new HeldKarpRouteOptimizer()
+                : new LocalSearchRouteOptimizer();
+    }
+}
@@ -0,0 +1,235 @@
+package edu.tamu.csce634.smartshop.ui.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.tamu.csce634.smartshop.models.world.Aisle;
+import edu.tamu.csce634.smartshop.models.world.ItemZone;
+import edu.tamu.csce634.smartshop.models.world.SupermarketLayout;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
+
+/**
+ * Walkable shortest-path distances between the shelf locations of a store layout.
+ *
+ * Every item-zone center (the point LocationEngine assigns to items of that category)
+ * plus the entrance and checkout becomes a "point". For each point a full Dijkstra distance field
+ * over the obstacle grid is computed once, in parallel on the shared background pool, so:
+ * - point-to-point distance is a matrix lookup
+ * - distance from any location on the map to a point is an array lookup
+ *
+ * Distances are in grid cost units (10 per straight cell, 14 per diagonal).
+ * Oracles are built and cached per store by {@link edu.tamu.csce634.smartshop.data.StoreLayoutRegistry}, so reopening
+ * the map is free.
+ */
+public class ShelfDistanceOracle {
+
+    public static final int UNREACHABLE = GridPathfinder.UNREACHABLE;
+
+    // Default entrance, used when the layout does not declare one
+    public static final float ENTRANCE_X = 0.5f;
+    public static final float ENTRANCE_Y = 0.95f;
+
+    private final GridPathfinder grid;
+    private final float[] pointX;
+    private final float[] pointY;
+    private final int[] pointCell;               // open cell each point snaps to
+    private final Map<String, Integer> categoryPoints;
+    private final Map<Integer, Integer> pointByCell;
+    private final int entrancePoint;
+    private final int checkoutPoint;
+
+    private final int[][] fields;                // point -> distance to every cell
+    private final int[][] matrix;                // point -> point distance
+
+    /**
+     * Computes the oracle for a layout over its rasterized obstacle grid. Expensive
+     * (one Dijkstra per point); callers should cache the result.
+     *
+     * @param grid the layout's obstacle grid; the oracle searches on its own worker
+     * @throws InterruptedException if the calling thread is interrupted while helpers finish
+     */
+    public static ShelfDistanceOracle build(SupermarketLayout layout, GridPathfinder grid)
+            throws InterruptedException {
+        return new ShelfDistanceOracle(layout, grid.newWorker());
+    }
+
+    private ShelfDistanceOracle(SupermarketLayout layout, GridPathfinder grid) throws InterruptedException {
+        this.grid = grid;
+
+        // 1. Collect points: zone centers (first zone per category wins), entrance, checkout
+        List<float[]> points = new ArrayList<>();
+        Map<String, Integer> categories = new HashMap<>();
+        if (layout != null && layout.aisles != null) {
+            for (Aisle aisle : layout.aisles) {
+                if (aisle.itemZones == null) continue;
+                for (ItemZone zone : aisle.itemZones) {
+                    if (zone.category == null || categories.containsKey(zone.category)) continue;
+                    float zoneCenterInAisle = (zone.start + zone.end) / 2.0f;
+                    categories.put(zone.category, points.size());
+                    points.add(new float[]{
+                            aisle.x + (aisle.width / 2.0f),
+                            aisle.y + (aisle.height * zoneCenterInAisle)});
+                }
+            }
+        }
+        float[] entrance = layout != null && isPoint(layout.entrance)
+                ? layout.entrance : new float[]{ENTRANCE_X, ENTRANCE_Y};
+        this.entrancePoint = points.size();
+        points.add(entrance);
+        if (layout != null && isPoint(layout.checkout)) {
+            this.checkoutPoint = points.size();
+            points.add(layout.checkout);
+        } else {
+            this.checkoutPoint = entrancePoint; // round trip
+        }
+        this.categoryPoints = categories;
+
+        int n = points.size();
+        pointX = new float[n];
+        pointY = new float[n];
+        pointCell = new int[n];
+        pointByCell = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            pointX[i] = points.get(i)[0];
+            pointY[i] = points.get(i)[1];
+            int rawCell = cellFor(pointX[i], pointY[i]);
+            pointCell[i] = rawCell >= 0 ? grid.nearestOpenCell(rawCell) : -1;
+            if (rawCell >= 0 && !pointByCell.containsKey(rawCell)) pointByCell.put(rawCell, i);
+        }
+
+        // 2. One Dijkstra per point, spread over the shared background pool
+        this.fields = computeFields();
+
+        // 3. Point-to-point matrix
+        matrix = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                matrix[i][j] = pointCell[j] >= 0 ? fields[i][pointCell[j]] : UNREACHABLE;
+            }
+        }
+    }
+
+    /**
+     * Fills one distance field per point. Points are handed out one at a time from a shared
+     * counter to helpers on the shared background pool and to this thread. This thread takes
+     * part too, so the work finishes even when no helper gets a pool thread (the registry
+     * itself loads on that pool).
+     */
+    private int[][] computeFields() throws InterruptedException {
+        int n = pointCell.length;
+        int cells = grid.getWidth() * grid.getHeight();
+        int[][] result = new int[n][cells];
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(n);
+
+        int helpers = Math.min(n, Runtime.getRuntime().availableProcessors()) - 1;
+        for (int t = 0; t < helpers; t++) {
+            GridPathfinder worker = grid.newWorker();
+            try {
+                AppExecutors.background().execute(() -> fillFields(worker, result, next, cancelled, done));
+            } catch (RejectedExecutionException e) {
+                break; // Pool busy: this thread does the rest
+            }
+        }
+        fillFields(grid, result, next, cancelled, done);
+
+        try {
+            // Only waits for points a helper has already claimed
+            done.await();
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        return result;
+    }
+
+    private void fillFields(GridPathfinder worker, int[][] out, AtomicInteger next,
+                            AtomicBoolean cancelled, CountDownLatch done) {
+        while (!cancelled.get()) {
+            int i = next.getAndIncrement();
+            if (i >= pointCell.length) return;
+            try {
+                if (pointCell[i] < 0) {
+                    Arrays.fill(out[i], UNREACHABLE);
+                } else {
+                    worker.distanceField(pointCell[i], out[i]);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                Arrays.fill(out[i], UNREACHABLE);
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    // --- Queries ---
+
+    public int getPointCount() {
+        return pointCell.length;
+    }
+
+    public int getEntrancePoint() {
+        return entrancePoint;
+    }
+
+    /** Checkout point; same as the entrance when the layout has no checkout. */
+    public int getCheckoutPoint() {
+        return checkoutPoint;
+    }
+
+    /** Point for a product category, or -1 if the layout has no zone for it. */
+    public int pointForCategory(String category) {
+        Integer p = category == null ? null : categoryPoints.get(category);
+        return p != null ? p : -1;
+    }
+
+    /**
+     * Point located at the given layout coordinate (as assigned by LocationEngine),
+     * or -1 if no point sits in that grid cell.
+     */
+    public int pointAt(double x, double y) {
+        int cell = cellFor((float) x, (float) y);
+        Integer p = cell >= 0 ? pointByCell.get(cell) : null;
+        return p != null ? p : -1;
+    }
+
+    public float getPointX(int point) { return pointX[point]; }
+    public float getPointY(int point) { return pointY[point]; }
+
+    /** Walking distance between two points, {@link #UNREACHABLE} if not connected. */
+    public int distance(int fromPoint, int toPoint) {
+        return matrix[fromPoint][toPoint];
+    }
+
+    /**
+     * Walking distance from an arbitrary layout coordinate to a point
+     * (the grid is undirected, so this is the point's field read at that cell).
+     */
+    public int distanceFrom(double x, double y, int toPoint) {
+        int cell = cellFor((float) x, (float) y);
+        if (cell < 0) return UNREACHABLE;
+        cell = grid.nearestOpenCell(cell);
+        return cell < 0 ? UNREACHABLE : fields[toPoint][cell];
+    }
+
+    private int cellFor(float x, float y) {
+        int gx = (int) (x * grid.getWidth());
+        int gy = (int) (y * grid.getHeight());
+        return grid.inBounds(gx, gy) ? grid.cellIndex(gx, gy) : -1;
+    }
+
+    private static boolean isPoint(float[] p) {
+        return p != null && p.length >= 2;
+    }
+}
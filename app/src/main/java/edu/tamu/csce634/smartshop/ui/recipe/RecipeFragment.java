@@ -2,9 +2,12 @@ package edu.tamu.csce634.smartshop.ui.recipe;
 
 import android.app.AlertDialog;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
@@ -41,19 +44,35 @@ public class RecipeFragment extends Fragment {
         viewModel = new ViewModelProvider(this).get(RecipeViewModel.class);
         viewModel.init(requireContext());
 
-        // Observe recipes and (re)attach adapter when list becomes available
-        viewModel.getRecipes().observe(getViewLifecycleOwner(), list -> {
-            if (list == null) list = new ArrayList<>();
-            adapter = new RecipeAdapter(list);
-            adapter.setOnCartChangedListener(() -> viewModel.refreshRequiredIngredients(requireContext()));
-            recyclerView.setAdapter(adapter);
+        // One adapter for the view's lifetime; new lists are diffed into it
+        adapter = new RecipeAdapter();
+        adapter.setOnCartChangedListener(() -> viewModel.refreshRequiredIngredients(requireContext()));
+        recyclerView.setAdapter(adapter);
+
+        // Search as you type
+        EditText searchInput = root.findViewById(R.id.recipe_search);
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) { }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                viewModel.search(requireContext(), s.toString());
+            }
         });
 
+        // Observe recipes (catalog or search results) and diff them into the adapter
+        viewModel.getRecipes().observe(getViewLifecycleOwner(), list ->
+                adapter.submitList(list != null ? list : new ArrayList<>()));
+
         // Show aggregated required ingredients
         View fab = root.findViewById(R.id.fab_show_ingredients);
         if (fab != null) {
             fab.setOnClickListener(v -> {
-                viewModel.refreshRequiredIngredients(requireContext());
+                // Already kept current by the background refresh after every cart change
                 java.util.Map<String, String> map = viewModel.getRequiredIngredients().getValue();
                 String message;
                 if (map == null || map.isEmpty()) {
@@ -95,7 +114,7 @@ public class RecipeFragment extends Fragment {
             @Override
             public boolean canSwipe(int position) {
                 Recipe recipe = adapter.getRecipeAt(position);
-                return RecipeManager.getInstance(requireContext()).getQuantity(recipe.getTitle()) > 0;
+                return RecipeManager.getInstance(requireContext()).getQuantity(recipe.getId()) > 0;
             }
 
             @Override
@@ -110,7 +129,7 @@ public class RecipeFragment extends Fragment {
     }
 
     private void showDeleteConfirmation(Recipe recipe, int position) {
-    int quantity = RecipeManager.getInstance(requireContext()).getQuantity(recipe.getTitle());
+    int quantity = RecipeManager.getInstance(requireContext()).getQuantity(recipe.getId());
         
         AlertDialog.Builder builder = new AlertDialog.Builder(requireContext());
         builder.setTitle("Remove from Cart");
@@ -120,13 +139,10 @@ public class RecipeFragment extends Fragment {
         builder.setPositiveButton("Remove", (dialog, which) -> {
             HapticFeedback.mediumClick(recyclerView);
             
-            // Remove all quantities
-            for (int i = 0; i < quantity; i++) {
-                RecipeManager.getInstance(requireContext()).removeRecipe(recipe.getTitle());
-            }
-            // Refresh required ingredients in ViewModel after batch mutation
+            // Remove all portions in one commit
+            RecipeManager.getInstance(requireContext()).setQuantity(recipe.getId(), 0);
+            // Refresh required ingredients and nutrition in ViewModel after batch mutation
             viewModel.refreshRequiredIngredients(requireContext());
-            viewModel.refreshNutritionTotals(requireContext());
             
             // Refresh the item
             adapter.notifyItemChanged(position);
@@ -146,6 +162,8 @@ public class RecipeFragment extends Fragment {
         if (adapter != null) {
             adapter.notifyDataSetChanged();
         }
+        // Pick up cart changes made on other screens (e.g. recipe detail)
+        viewModel.refreshRequiredIngredients(requireContext());
         // Close any open swipes when returning
         if (swipeHelper != null && recyclerView != null) {
             swipeHelper.closeOpenItem(recyclerView);
@@ -8,18 +8,26 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import edu.tamu.csce634.smartshop.managers.RecipeManager;
 import edu.tamu.csce634.smartshop.models.Recipe;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
+import edu.tamu.csce634.smartshop.utils.LatestTask;
 
 /**
  * RecipeViewModel - ViewModel for Recipe UI
  * 
  * Now delegates to RecipeManager for all recipe operations.
  * Provides LiveData for UI observation.
+ *
+ * Loading the catalog and re-computing aggregations run on the background pool;
+ * results arrive through postValue. Refreshes requested in quick succession
+ * collapse into one (only the latest pending refresh runs).
+ *
+ * search() filters the recipe list as the user types; a list is only shown if it
+ * belongs to the current query.
  */
 public class RecipeViewModel extends ViewModel {
 
@@ -27,9 +35,17 @@ public class RecipeViewModel extends ViewModel {
     private final MutableLiveData<String> mText = new MutableLiveData<>("This is Recipe fragment");
 
     private final MutableLiveData<List<Recipe>> recipes = new MutableLiveData<>(new ArrayList<>());
-    private final MutableLiveData<Map<String, String>> requiredIngredients = new MutableLiveData<>(new LinkedHashMap<>());
+    // No value until the first aggregation has run: an empty map always means an empty cart
+    private final MutableLiveData<Map<String, String>> requiredIngredients = new MutableLiveData<>();
     private final MutableLiveData<RecipeManager.NutritionTotals> nutritionTotals = new MutableLiveData<>();
 
+    private static final int SEARCH_LIMIT = 50;
+
+    private final LatestTask<Void> refreshTask = new LatestTask<>(AppExecutors.background());
+    private final LatestTask<List<Recipe>> searchTask = new LatestTask<>(AppExecutors.background());
+    private volatile boolean recipesLoaded = false;
+    private volatile String query = "";
+
     public RecipeViewModel() { }
 
     // region Public API for UI
@@ -44,45 +60,85 @@ public class RecipeViewModel extends ViewModel {
 
     /**
      * Initialize data in ViewModel. Call once from Fragment with a Context.
-     * This loads recipes from RecipeManager and computes initial aggregations.
+     * This loads recipes from RecipeManager and computes initial aggregations
+     * in the background.
      */
     public void init(@NonNull Context context) {
-        RecipeManager manager = RecipeManager.getInstance(context);
-        
-        // Load recipes from manager
-        if (recipes.getValue() == null || recipes.getValue().isEmpty()) {
-            recipes.setValue(manager.getAllRecipes());
-        }
-        
-        // Refresh aggregated data
-        refreshRequiredIngredients(context);
-        refreshNutritionTotals(context);
+        refresh(context);
     }
 
     /** Add one serving of the given recipe to cart and refresh aggregations. */
     public void addToCart(@NonNull Context context, @NonNull Recipe recipe) {
-        RecipeManager.getInstance(context).addRecipe(recipe.getTitle());
-        refreshRequiredIngredients(context);
-        refreshNutritionTotals(context);
+        RecipeManager.getInstance(context).addRecipe(recipe.getId());
+        refresh(context);
     }
 
     /** Remove one serving of the given recipe from cart and refresh aggregations. */
     public void removeFromCart(@NonNull Context context, @NonNull Recipe recipe) {
-        RecipeManager.getInstance(context).removeRecipe(recipe.getTitle());
-        refreshRequiredIngredients(context);
-        refreshNutritionTotals(context);
+        RecipeManager.getInstance(context).removeRecipe(recipe.getId());
+        refresh(context);
+    }
+
+    /**
+     * Show the recipes matching {@code text} (all recipes when blank). Safe to call on
+     * every keystroke.
+     */
+    public void search(@NonNull Context context, @NonNull String text) {
+        Context appContext = context.getApplicationContext();
+        query = text.trim();
+        String q = query;
+        searchTask.submit(() -> {
+            RecipeManager manager = RecipeManager.getInstance(appContext);
+            return q.isEmpty() ? manager.getAllRecipes() : manager.search(q, SEARCH_LIMIT);
+        }, result -> postRecipes(q, result));
     }
 
     /** Re-compute required ingredients based on current cart. */
     public void refreshRequiredIngredients(@NonNull Context context) {
-        Map<String, String> merged = RecipeManager.getInstance(context).getAllRequiredIngredients();
-        requiredIngredients.setValue(merged);
+        refresh(context);
     }
     
     /** Re-compute nutrition totals based on current cart. */
     public void refreshNutritionTotals(@NonNull Context context) {
-        RecipeManager.NutritionTotals totals = RecipeManager.getInstance(context).calculateTotalNutrition();
-        nutritionTotals.setValue(totals);
+        refresh(context);
+    }
+
+    /**
+     * Loads the recipe catalog (first time only), then both aggregations, off the UI thread.
+     * Recipes are posted before the aggregations so observers of required ingredients
+     * always see the catalog already in place.
+     */
+    private void refresh(@NonNull Context context) {
+        Context appContext = context.getApplicationContext();
+        refreshTask.submit(() -> {
+            RecipeManager manager = RecipeManager.getInstance(appContext);
+            if (!recipesLoaded) {
+                // The full catalog is the result of the empty query; a search may have replaced it
+                postRecipes("", manager.getAllRecipes());
+                recipesLoaded = true;
+            }
+            requiredIngredients.postValue(manager.getAllRequiredIngredients());
+            nutritionTotals.postValue(manager.calculateTotalNutrition());
+            return null;
+        }, null);
+    }
+
+    /**
+     * Post the recipes computed for {@code forQuery}, unless the query has changed since.
+     * Search and the initial catalog load run on separate lanes, so either may finish
+     * after the other; checking on the main thread keeps a stale list from overwriting
+     * the current one.
+     */
+    private void postRecipes(String forQuery, List<Recipe> result) {
+        AppExecutors.mainThread().execute(() -> {
+            if (forQuery.equals(query)) recipes.setValue(result);
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        refreshTask.cancel();
+        searchTask.cancel();
     }
 
     // endregion
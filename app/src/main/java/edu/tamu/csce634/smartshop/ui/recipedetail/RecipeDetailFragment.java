@@ -24,10 +24,12 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
 
+
 import edu.tamu.csce634.smartshop.R;
 import edu.tamu.csce634.smartshop.adapters.IngredientAdapter;
 import edu.tamu.csce634.smartshop.models.Recipe;
 import edu.tamu.csce634.smartshop.managers.RecipeManager;
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
 import edu.tamu.csce634.smartshop.utils.HapticFeedback;
 
 import android.app.AlertDialog;
@@ -36,6 +38,9 @@ import android.widget.EditText;
 
 public class RecipeDetailFragment extends Fragment {
 
+    /** Argument: id of the recipe to show (see RecipeManager#getRecipe) */
+    public static final String ARG_RECIPE_ID = "recipeId";
+
     private Recipe recipe;
     private int portionCount = 1;
     private TextView textPortion;
@@ -54,10 +59,10 @@ public class RecipeDetailFragment extends Fragment {
             window.setStatusBarColor(ContextCompat.getColor(requireContext(), R.color.green_fab));
         }
 
-        // Get recipe from arguments
-        if (getArguments() != null) {
-            recipe = (Recipe) getArguments().getSerializable("recipe");
-        }
+        // Only the recipe id is passed; the header is an in-memory lookup
+        int recipeId = getArguments() != null ? getArguments().getInt(ARG_RECIPE_ID, -1) : -1;
+        RecipeManager recipeManager = RecipeManager.getInstance(requireContext());
+        recipe = recipeManager.getRecipeHeader(recipeId);
 
         // Setup toolbar
         Toolbar toolbar = root.findViewById(R.id.toolbar);
@@ -80,13 +85,22 @@ public class RecipeDetailFragment extends Fragment {
         if (recipe != null) {
             title.setText(recipe.getTitle());
             image.setImageResource(recipe.getImageResId());
-            description.setText(recipe.getFullDescription());
+            description.setText(recipe.getDescription());
 
-            // Setup ingredients RecyclerView
             RecyclerView ingredientsRecyclerView = root.findViewById(R.id.ingredients_recycler_view);
             ingredientsRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-            IngredientAdapter adapter = new IngredientAdapter(recipe.getIngredients());
-            ingredientsRecyclerView.setAdapter(adapter);
+
+            // Full description and ingredients may need a catalog page read; load them off the UI thread
+            AppExecutors.runInBackground(() -> {
+                Recipe full = recipeManager.getRecipe(recipeId);
+                if (full == null) return;
+                AppExecutors.mainThread().execute(() -> {
+                    if (getView() == null) return;
+                    description.setText(full.getFullDescription() != null
+                            ? full.getFullDescription() : full.getDescription());
+                    ingredientsRecyclerView.setAdapter(new IngredientAdapter(full.getIngredients()));
+                });
+            });
         }
 
         // Setup long press for portion decrease button
@@ -101,10 +115,9 @@ public class RecipeDetailFragment extends Fragment {
                 // Success haptic feedback
                 HapticFeedback.success(requireContext());
                 
-                // Add the recipe multiple times based on portion count
-                for (int i = 0; i < portionCount; i++) {
-                    RecipeManager.getInstance(requireContext()).addRecipe(recipe.getTitle());
-                }
+                // Add all portions in one commit
+                RecipeManager.getInstance(requireContext())
+                        .addRecipe(recipe.getId(), portionCount);
                 
                 String message = portionCount == 1 
                     ? recipe.getTitle() + " added to cart!"
@@ -0,0 +1,69 @@
+package edu.tamu.csce634.smartshop.utils;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.tamu.csce634.smartshop.models.ShoppingItem;
+
+/**
+ * 通道分组的键和排序
+ *
+ * 通道排序键（名称里的通道号）每个通道名只解析一次并缓存，比较时不再 split / 正则
+ */
+public final class AisleOrder {
+
+    /** 没有通道号的通道排在最后 */
+    public static final int NO_NUMBER = 999;
+
+    private static final Map<String, Integer> SORT_KEYS = new ConcurrentHashMap<>();
+
+    /** 按通道号排序（号码相同保持原顺序） */
+    public static final Comparator<String> ORDER = (a1, a2) -> Integer.compare(sortKey(a1), sortKey(a2));
+
+    private AisleOrder() { }
+
+    /**
+     * 商品所在的通道名（没有通道的归到 "General"）
+     */
+    public static String keyOf(ShoppingItem item) {
+        return item.aisle != null && !item.aisle.isEmpty() ? item.aisle : "General";
+    }
+
+    /**
+     * 通道排序键：名称中第一个纯数字片段，例如 "Produce Aisle 4" → 4（有缓存）
+     */
+    public static int sortKey(String aisle) {
+        if (aisle == null) return NO_NUMBER;
+        Integer key = SORT_KEYS.get(aisle);
+        if (key == null) {
+            key = parseAisleNumber(aisle);
+            SORT_KEYS.put(aisle, key);
+        }
+        return key;
+    }
+
+    private static int parseAisleNumber(String aisle) {
+        int n = aisle.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && Character.isWhitespace(aisle.charAt(i))) i++;
+            int start = i;
+            boolean digits = true;
+            while (i < n && !Character.isWhitespace(aisle.charAt(i))) {
+                char c = aisle.charAt(i);
+                if (c < '0' || c > '9') digits = false;
+                i++;
+            }
+            if (digits && i > start) {
+                try {
+                    return Integer.parseInt(aisle.substring(start, i));
+                } catch (NumberFormatException e) {
+                    // 超出 int 范围，排在最后
+                    return NO_NUMBER;
+                }
+            }
+        }
+        return NO_NUMBER;
+    }
+}
@@ -0,0 +1,128 @@
+package edu.tamu.csce634.smartshop.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide executors for data work that must stay off the UI thread
+ * (JSON / catalog loading, list building, conflict detection, route optimization).
+ *
+ * - background(): a small bounded pool of low-priority threads. The work queue is
+ *   bounded as well, so a burst of requests fails fast instead of piling up.
+ * - overflow(): takes work background() rejected but that must still run. Threads are
+ *   started on demand and never queued behind each other, so a job that waits for
+ *   another overflowed job cannot deadlock; they exist only while the pool is saturated.
+ *   Fire-and-forget work should go through {@link #runInBackground(Runnable)}, which
+ *   falls back to it.
+ * - diskIO(): one ordered, schedulable thread for delayed / batched disk writes.
+ * - listDiff(): one thread for RecyclerView list diffs, kept apart from background() so a
+ *   burst of edits never competes with (or gets rejected by) the data pool.
+ * - mainThread(): posts to the UI thread, for handing results back to views.
+ *
+ * Callers that only care about the latest request should go through {@link LatestTask}.
+ */
+public final class AppExecutors {
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final int POOL_SIZE = Math.max(2, Math.min(CPU_COUNT - 1, 4));
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ExecutorService BACKGROUND = createBackgroundPool();
+    private static final ScheduledExecutorService DISK_IO =
+            Executors.newSingleThreadScheduledExecutor(new BackgroundThreadFactory("smartshop-io-"));
+    private static final ExecutorService LIST_DIFF =
+            Executors.newSingleThreadExecutor(new BackgroundThreadFactory("smartshop-diff-"));
+    private static final ExecutorService OVERFLOW =
+            Executors.newCachedThreadPool(new BackgroundThreadFactory("smartshop-overflow-"));
+    private static final Executor MAIN_THREAD = new MainThreadExecutor();
+
+    private AppExecutors() { }
+
+    public static ExecutorService background() {
+        return BACKGROUND;
+    }
+
+    public static ScheduledExecutorService diskIO() {
+        return DISK_IO;
+    }
+
+    public static ExecutorService listDiff() {
+        return LIST_DIFF;
+    }
+
+    public static ExecutorService overflow() {
+        return OVERFLOW;
+    }
+
+    /**
+     * Runs {@code task} on background(), or on overflow() if the pool is saturated.
+     * Never throws RejectedExecutionException and never runs the task on the caller.
+     */
+    public static void runInBackground(Runnable task) {
+        try {
+            BACKGROUND.execute(task);
+        } catch (RejectedExecutionException e) {
+            OVERFLOW.execute(task);
+        }
+    }
+
+    public static Executor mainThread() {
+        return MAIN_THREAD;
+    }
+
+    public static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    private static ExecutorService createBackgroundPool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                POOL_SIZE, POOL_SIZE,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                new BackgroundThreadFactory("smartshop-bg-"));
+        // Idle threads go away instead of pinning memory while the app sits in a menu
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        BackgroundThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, prefix + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            handler.post(command);
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package edu.tamu.csce634.smartshop.utils;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +45,9 @@ public class ConflictDetector {
     /**
      * 检测所有冲突
      *
+     * - 结论按 “资料指纹 + 食材” 缓存（ConflictVerdicts），资料的饮食字段不变时只检测新食材
+     * - 所有规则编译在一个自动机里（ConflictRules），每个食材名只扫描一次
+     *
      * @param items 购物清单
      * @param profile 用户偏好
      * @return 冲突列表（按优先级排序）
@@ -57,61 +58,81 @@ public class ConflictDetector {
         }
 
         List<Conflict> conflicts = new ArrayList<>();
+        List<String> allergies = profile.getAllergiesList();
+        Map<String, ConflictVerdicts.Verdict> verdicts =
+                ConflictVerdicts.forProfile(ConflictVerdicts.fingerprint(profile, allergies));
+
+        ConflictRules rules = null; // 只有缓存未命中时才需要
+        long[] hits = null;
 
         for (ShoppingItem item : items) {
             if (item == null || item.name == null) continue;
 
-            // 1. 检测过敏源冲突（最高优先级）
-            List<String> allergies = profile.getAllergiesList();
-            List<String> foundAllergens = new ArrayList<>();
-
-            for (String allergen : allergies) {
-                if (containsAllergen(item, allergen)) {
-                    foundAllergens.add(allergen);
+            String key = ConflictVerdicts.keyOf(item);
+            ConflictVerdicts.Verdict verdict = verdicts.get(key);
+            if (verdict == null || !verdict.name.equals(item.name)) {
+                if (rules == null) {
+                    rules = ConflictRules.forAllergies(allergies);
+                    hits = rules.newMask();
                 }
+                verdict = evaluate(item.name, profile, allergies, rules, hits);
+                verdicts.put(key, verdict);
             }
 
-            if (!foundAllergens.isEmpty()) {
-                Conflict c = new Conflict(item, ConflictType.ALLERGEN,
-                        buildAllergenReason(foundAllergens));
-                c.conflictDetails = foundAllergens;
+            if (verdict.type != null) {
+                conflicts.add(verdict.toConflict(item));
+            }
+        }
 
-                // 查找替代品（使用第一个过敏源）
-                c.substitutes = IngredientSubstitutes.getAllergenFreeSubstitutes(
-                        item.name, foundAllergens.get(0));
+        return conflicts;
+    }
 
-                conflicts.add(c);
-                continue; // 过敏源冲突最严重，不再检查其他冲突
-            }
+    /**
+     * 检测单个食材（按优先级：过敏源 > 纯素 > 素食 > 无麸质，只报最严重的一种）
+     */
+    private static ConflictVerdicts.Verdict evaluate(String name, ProfileData profile,
+                                                     List<String> allergies,
+                                                     ConflictRules rules, long[] hits) {
+        rules.scan(name, hits);
 
-            // 2. 检测纯素冲突
-            if (profile.isVegan() && !isVeganFriendly(item)) {
-                Conflict c = new Conflict(item, ConflictType.VEGAN,
-                        "Not suitable for vegan diet");
-                c.substitutes = IngredientSubstitutes.getVeganSubstitutes(item.name);
-                conflicts.add(c);
-                continue;
-            }
+        // 1. 检测过敏源冲突（最高优先级）
+        List<String> foundAllergens = new ArrayList<>();
 
-            // 3. 检测素食冲突
-            if (profile.isVegetarian() && !isVegetarian(item)) {
-                Conflict c = new Conflict(item, ConflictType.VEGETARIAN,
-                        "Not suitable for vegetarian diet");
-                c.substitutes = IngredientSubstitutes.getVegetarianSubstitutes(item.name);
-                conflicts.add(c);
-                continue;
+        for (String allergen : allergies) {
+            if (rules.matchesAllergen(hits, allergen)) {
+                foundAllergens.add(allergen);
             }
+        }
 
-            // 4. 检测无麸质冲突
-            if (profile.isGlutenFree() && containsGluten(item)) {
-                Conflict c = new Conflict(item, ConflictType.GLUTEN,
-                        "Contains gluten");
-                c.substitutes = IngredientSubstitutes.getGlutenFreeSubstitutes(item.name);
-                conflicts.add(c);
-            }
+        if (!foundAllergens.isEmpty()) {
+            // 查找替代品（使用第一个过敏源）
+            return new ConflictVerdicts.Verdict(name, ConflictType.ALLERGEN,
+                    buildAllergenReason(foundAllergens), foundAllergens,
+                    IngredientSubstitutes.getAllergenFreeSubstitutes(name, foundAllergens.get(0)));
         }
 
-        return conflicts;
+        // 2. 检测纯素冲突
+        if (profile.isVegan() && ConflictRules.matches(hits, ConflictRules.NON_VEGAN)) {
+            return new ConflictVerdicts.Verdict(name, ConflictType.VEGAN,
+                    "Not suitable for vegan diet", null,
+                    IngredientSubstitutes.getVeganSubstitutes(name));
+        }
+
+        // 3. 检测素食冲突
+        if (profile.isVegetarian() && ConflictRules.matches(hits, ConflictRules.NON_VEGETARIAN)) {
+            return new ConflictVerdicts.Verdict(name, ConflictType.VEGETARIAN,
+                    "Not suitable for vegetarian diet", null,
+                    IngredientSubstitutes.getVegetarianSubstitutes(name));
+        }
+
+        // 4. 检测无麸质冲突
+        if (profile.isGlutenFree() && ConflictRules.matches(hits, ConflictRules.GLUTEN)) {
+            return new ConflictVerdicts.Verdict(name, ConflictType.GLUTEN,
+                    "Contains gluten", null,
+                    IngredientSubstitutes.getGlutenFreeSubstitutes(name));
+        }
+
+        return ConflictVerdicts.Verdict.none(name);
     }
 
     /**
@@ -132,84 +153,6 @@ public class ConflictDetector {
         }
     }
 
-    /**
-     * 检测食材是否包含指定过敏源
-     */
-    private static boolean containsAllergen(ShoppingItem item, String allergen) {
-        String name = item.name.toLowerCase();
-        allergen = allergen.toLowerCase();
-
-        // 定义过敏源关键词映射
-        Map<String, List<String>> allergenKeywords = new HashMap<>();
-        allergenKeywords.put("nuts", Arrays.asList("almond", "peanut", "walnut", "cashew", "pecan", "hazelnut"));
-        allergenKeywords.put("shellfish", Arrays.asList("shrimp", "crab", "lobster", "shellfish", "prawn"));
-        allergenKeywords.put("dairy", Arrays.asList("milk", "cheese", "butter", "yogurt", "cream", "queso"));
-        allergenKeywords.put("soy", Arrays.asList("soy", "tofu", "tempeh", "edamame"));
-        allergenKeywords.put("eggs", Arrays.asList("egg"));
-
-        List<String> keywords = allergenKeywords.getOrDefault(allergen, Arrays.asList(allergen));
-
-        for (String keyword : keywords) {
-            if (name.contains(keyword)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * 检测是否适合纯素饮食
-     */
-    private static boolean isVeganFriendly(ShoppingItem item) {
-        String name = item.name.toLowerCase();
-        String[] nonVegan = {"egg", "milk", "cheese", "butter", "yogurt", "cream",
-                "chicken", "beef", "steak", "salmon", "fish", "meat",
-                "pork", "lamb", "turkey", "honey", "queso"};
-
-        for (String keyword : nonVegan) {
-            if (name.contains(keyword)) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    /**
-     * 检测是否适合素食
-     */
-    private static boolean isVegetarian(ShoppingItem item) {
-        String name = item.name.toLowerCase();
-        String[] nonVeg = {"chicken", "beef", "steak", "salmon", "fish",
-                "meat", "pork", "lamb", "turkey", "seafood"};
-
-        for (String keyword : nonVeg) {
-            if (name.contains(keyword)) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    /**
-     * 检测是否包含麸质
-     */
-    private static boolean containsGluten(ShoppingItem item) {
-        String name = item.name.toLowerCase();
-        String[] glutenSources = {"bread", "flour", "pasta", "wheat", "barley",
-                "rye", "tortilla", "cereal", "noodle"};
-
-        for (String keyword : glutenSources) {
-            if (name.contains(keyword)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
     /**
      * 首字母大写
      */
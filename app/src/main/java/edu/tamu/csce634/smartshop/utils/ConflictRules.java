@@ -0,0 +1,121 @@
+package edu.tamu.csce634.smartshop.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 冲突检测规则：所有饮食 / 过敏源关键词编译进同一个 KeywordAutomaton
+ *
+ * 规则编号：
+ * - 0 = 非纯素，1 = 非素食，2 = 含麸质
+ * - 3 起 = 过敏源（预置的 5 类 + 用户资料里自定义的过敏源，自定义的关键词就是它自己）
+ *
+ * 每个食材名只扫描一次，就能得到它命中的全部规则
+ * 同一组过敏源编译出的规则会被缓存复用（资料不变就不重新编译）
+ */
+final class ConflictRules {
+
+    static final int NON_VEGAN = 0;
+    static final int NON_VEGETARIAN = 1;
+    static final int GLUTEN = 2;
+    private static final int FIRST_ALLERGEN = 3;
+
+    // 预置过敏源关键词
+    private static final Map<String, String[]> ALLERGEN_KEYWORDS = new LinkedHashMap<>();
+    static {
+        ALLERGEN_KEYWORDS.put("nuts", new String[]{"almond", "peanut", "walnut", "cashew", "pecan", "hazelnut"});
+        ALLERGEN_KEYWORDS.put("shellfish", new String[]{"shrimp", "crab", "lobster", "shellfish", "prawn"});
+        ALLERGEN_KEYWORDS.put("dairy", new String[]{"milk", "cheese", "butter", "yogurt", "cream", "queso"});
+        ALLERGEN_KEYWORDS.put("soy", new String[]{"soy", "tofu", "tempeh", "edamame"});
+        ALLERGEN_KEYWORDS.put("eggs", new String[]{"egg"});
+    }
+
+    private static final String[] NON_VEGAN_KEYWORDS = {"egg", "milk", "cheese", "butter", "yogurt", "cream",
+            "chicken", "beef", "steak", "salmon", "fish", "meat",
+            "pork", "lamb", "turkey", "honey", "queso"};
+
+    private static final String[] NON_VEGETARIAN_KEYWORDS = {"chicken", "beef", "steak", "salmon", "fish",
+            "meat", "pork", "lamb", "turkey", "seafood"};
+
+    private static final String[] GLUTEN_KEYWORDS = {"bread", "flour", "pasta", "wheat", "barley",
+            "rye", "tortilla", "cereal", "noodle"};
+
+    // 过敏源列表（小写、按资料顺序拼接）-> 编译结果；只保留少量最近用过的
+    private static final int CACHE_SIZE = 4;
+    private static final Map<String, ConflictRules> CACHE =
+            new LinkedHashMap<String, ConflictRules>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ConflictRules> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private final KeywordAutomaton automaton;
+    private final Map<String, Integer> allergenRules; // 小写过敏源 -> 规则编号
+
+    /**
+     * 取得包含这些过敏源的规则（有缓存）
+     */
+    static ConflictRules forAllergies(List<String> allergies) {
+        List<String> normalized = new ArrayList<>(allergies.size());
+        for (String allergen : allergies) {
+            if (allergen != null) normalized.add(allergen.toLowerCase());
+        }
+        String key = normalized.size() + ":" + String.join("\u0000", normalized);
+        synchronized (CACHE) {
+            ConflictRules rules = CACHE.get(key);
+            if (rules == null) {
+                rules = new ConflictRules(normalized);
+                CACHE.put(key, rules);
+            }
+            return rules;
+        }
+    }
+
+    private ConflictRules(List<String> allergies) {
+        KeywordAutomaton.Builder builder = new KeywordAutomaton.Builder();
+        for (String keyword : NON_VEGAN_KEYWORDS) builder.add(keyword, NON_VEGAN);
+        for (String keyword : NON_VEGETARIAN_KEYWORDS) builder.add(keyword, NON_VEGETARIAN);
+        for (String keyword : GLUTEN_KEYWORDS) builder.add(keyword, GLUTEN);
+
+        Map<String, Integer> rules = new HashMap<>();
+        for (String allergen : allergies) {
+            if (rules.containsKey(allergen)) continue;
+            int rule = FIRST_ALLERGEN + rules.size();
+            rules.put(allergen, rule);
+
+            String[] keywords = ALLERGEN_KEYWORDS.get(allergen);
+            if (keywords == null) keywords = new String[]{allergen};
+            for (String keyword : keywords) builder.add(keyword, rule);
+        }
+        this.allergenRules = rules;
+        this.automaton = builder.build();
+    }
+
+    /** 新的（全 0）命中位图 */
+    long[] newMask() {
+        return new long[automaton.maskWords()];
+    }
+
+    /**
+     * 扫描一个食材名，结果写入 mask（会先清零）
+     */
+    void scan(String name, long[] mask) {
+        Arrays.fill(mask, 0L);
+        automaton.scan(name, mask);
+    }
+
+    static boolean matches(long[] mask, int rule) {
+        return KeywordAutomaton.test(mask, rule);
+    }
+
+    /** 该过敏源是否命中（allergen 为资料中的原始写法） */
+    boolean matchesAllergen(long[] mask, String allergen) {
+        Integer rule = allergen != null ? allergenRules.get(allergen.toLowerCase()) : null;
+        return rule != null && matches(mask, rule);
+    }
+}
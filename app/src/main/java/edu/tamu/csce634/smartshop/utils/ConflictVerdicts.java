@@ -0,0 +1,101 @@
+package edu.tamu.csce634.smartshop.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.tamu.csce634.smartshop.models.ProfileData;
+import edu.tamu.csce634.smartshop.models.ShoppingItem;
+
+/**
+ * 冲突检测结果缓存：按 “资料指纹 + 食材” 记住每个食材的检测结论和替代品列表
+ *
+ * 指纹只包含影响检测的字段：过敏源（按资料顺序）、纯素、素食、无麸质。
+ * 这些字段不变时，切换偏好模式 / 改数量 / 列表增量更新都只需要为新食材做检测。
+ * 只保留最近几个指纹（资料很少改动）。
+ */
+final class ConflictVerdicts {
+
+    /**
+     * 一个食材在某个指纹下的检测结论（type == null 表示无冲突）
+     */
+    static final class Verdict {
+        final String name;                 // 检测时的食材名；同 key 但名字变了（被替换）就重新检测
+        final ConflictDetector.ConflictType type;
+        final String reason;
+        final List<String> details;
+        final List<IngredientSubstitutes.Substitute> substitutes;
+
+        Verdict(String name, ConflictDetector.ConflictType type, String reason,
+                List<String> details, List<IngredientSubstitutes.Substitute> substitutes) {
+            this.name = name;
+            this.type = type;
+            this.reason = reason;
+            this.details = details;
+            this.substitutes = substitutes;
+        }
+
+        static Verdict none(String name) {
+            return new Verdict(name, null, null, null, null);
+        }
+
+        /**
+         * 为当前这一行生成新的 Conflict（resolved 等状态由调用方修改，不影响缓存）
+         */
+        ConflictDetector.Conflict toConflict(ShoppingItem item) {
+            ConflictDetector.Conflict c = new ConflictDetector.Conflict(item, type, reason);
+            if (details != null) c.conflictDetails = new ArrayList<>(details);
+            if (substitutes != null) c.substitutes = new ArrayList<>(substitutes);
+            return c;
+        }
+    }
+
+    private static final int MAX_PROFILES = 4;
+    private static final Map<String, Map<String, Verdict>> BY_PROFILE =
+            new LinkedHashMap<String, Map<String, Verdict>>(MAX_PROFILES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, Verdict>> eldest) {
+                    return size() > MAX_PROFILES;
+                }
+            };
+
+    private ConflictVerdicts() { }
+
+    /**
+     * 资料指纹（allergies 传 profile.getAllergiesList() 的结果，避免重复解析）
+     */
+    static String fingerprint(ProfileData profile, List<String> allergies) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(profile.isVegan() ? 'V' : '-')
+                .append(profile.isVegetarian() ? 'v' : '-')
+                .append(profile.isGlutenFree() ? 'G' : '-')
+                .append(allergies.size());
+        for (String allergen : allergies) {
+            sb.append('\u0000').append(allergen);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 某个指纹下的结论表（食材 key -> 结论），线程安全
+     */
+    static Map<String, Verdict> forProfile(String fingerprint) {
+        synchronized (BY_PROFILE) {
+            Map<String, Verdict> verdicts = BY_PROFILE.get(fingerprint);
+            if (verdicts == null) {
+                verdicts = new ConcurrentHashMap<>();
+                BY_PROFILE.put(fingerprint, verdicts);
+            }
+            return verdicts;
+        }
+    }
+
+    /**
+     * 食材的缓存 key：优先 ingredientId，没有就用名字
+     */
+    static String keyOf(ShoppingItem item) {
+        return item.ingredientId != null ? item.ingredientId : "name:" + item.name;
+    }
+}
@@ -0,0 +1,187 @@
+package edu.tamu.csce634.smartshop.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho–Corasick 多关键词匹配自动机（大小写不敏感）
+ *
+ * 每个关键词带一个规则编号；编译后一次线性扫描文本，就能得到所有命中规则的位图
+ * （long[]，第 r 位 = 规则 r 至少有一个关键词出现在文本中），与规则和关键词数量无关。
+ *
+ * 实现：
+ * - 字母表只包含关键词里出现过的字符；ASCII 用数组查表，其他字符用 HashMap
+ * - 失败链接预先展开成完整的转移表（DFA），扫描时每个字符一次查表
+ * - 每个状态的输出位图沿失败链接合并好，扫描时直接 OR
+ *
+ * 构建后不可变，可以多线程共享
+ */
+final class KeywordAutomaton {
+
+    private final int alphabetSize;
+    private final int[] asciiIndex;               // 字符 -> 字母表下标，-1 = 不在字母表
+    private final Map<Character, Integer> otherIndex;
+    private final int[] delta;                    // state * alphabetSize + symbol -> state
+    private final long[] output;                  // state * words .. +words：命中的规则位图
+    private final boolean[] hasOutput;
+    private final int words;
+
+    private KeywordAutomaton(int alphabetSize, int[] asciiIndex, Map<Character, Integer> otherIndex,
+                             int[] delta, long[] output, boolean[] hasOutput, int words) {
+        this.alphabetSize = alphabetSize;
+        this.asciiIndex = asciiIndex;
+        this.otherIndex = otherIndex;
+        this.delta = delta;
+        this.output = output;
+        this.hasOutput = hasOutput;
+        this.words = words;
+    }
+
+    /** 一个位图需要的 long 个数 */
+    int maskWords() {
+        return words;
+    }
+
+    /**
+     * 扫描文本，把命中的规则位 OR 进 {@code mask}（调用方负责事先清零）
+     */
+    void scan(CharSequence text, long[] mask) {
+        orOutput(0, mask); // 空关键词匹配任何文本
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            int symbol = symbolOf(Character.toLowerCase(text.charAt(i)));
+            state = symbol < 0 ? 0 : delta[state * alphabetSize + symbol];
+            if (hasOutput[state]) orOutput(state, mask);
+        }
+    }
+
+    private void orOutput(int state, long[] mask) {
+        int base = state * words;
+        for (int w = 0; w < words; w++) {
+            mask[w] |= output[base + w];
+        }
+    }
+
+    private int symbolOf(char c) {
+        if (c < 128) return asciiIndex[c];
+        Integer idx = otherIndex.get(c);
+        return idx != null ? idx : -1;
+    }
+
+    static boolean test(long[] mask, int rule) {
+        return (mask[rule >>> 6] & (1L << (rule & 63))) != 0;
+    }
+
+    /**
+     * 收集 (关键词, 规则) 后一次性编译
+     */
+    static final class Builder {
+        private final List<String> keywords = new ArrayList<>();
+        private final List<Integer> rules = new ArrayList<>();
+        private int ruleCount = 0;
+
+        Builder add(String keyword, int rule) {
+            if (keyword == null || rule < 0) return this;
+            StringBuilder lower = new StringBuilder(keyword.length());
+            for (int i = 0; i < keyword.length(); i++) {
+                lower.append(Character.toLowerCase(keyword.charAt(i)));
+            }
+            keywords.add(lower.toString());
+            rules.add(rule);
+            ruleCount = Math.max(ruleCount, rule + 1);
+            return this;
+        }
+
+        KeywordAutomaton build() {
+            // 1. 字母表
+            int[] asciiIndex = new int[128];
+            Arrays.fill(asciiIndex, -1);
+            Map<Character, Integer> otherIndex = new HashMap<>();
+            int alphabet = 0;
+            for (String keyword : keywords) {
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = keyword.charAt(i);
+                    if (c < 128) {
+                        if (asciiIndex[c] < 0) asciiIndex[c] = alphabet++;
+                    } else if (!otherIndex.containsKey(c)) {
+                        otherIndex.put(c, alphabet++);
+                    }
+                }
+            }
+            final int a = Math.max(1, alphabet);
+            final int words = Math.max(1, (ruleCount + 63) >>> 6);
+
+            // 2. Trie（转移 -1 = 暂无）
+            int maxStates = 1;
+            for (String keyword : keywords) maxStates += keyword.length();
+            int[] delta = new int[maxStates * a];
+            Arrays.fill(delta, -1);
+            long[] output = new long[maxStates * words];
+            int states = 1;
+            for (int k = 0; k < keywords.size(); k++) {
+                String keyword = keywords.get(k);
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = keyword.charAt(i);
+                    int symbol = c < 128 ? asciiIndex[c] : otherIndex.get(c);
+                    int next = delta[state * a + symbol];
+                    if (next < 0) {
+                        next = states++;
+                        delta[state * a + symbol] = next;
+                    }
+                    state = next;
+                }
+                int rule = rules.get(k);
+                output[state * words + (rule >>> 6)] |= 1L << (rule & 63);
+            }
+
+            // 3. BFS 计算失败链接，同时把缺失的转移补成 DFA、把输出沿失败链接合并
+            int[] fail = new int[states];
+            int[] queue = new int[states];
+            int head = 0;
+            int tail = 0;
+            for (int s = 0; s < a; s++) {
+                int next = delta[s];
+                if (next < 0) {
+                    delta[s] = 0;
+                } else {
+                    fail[next] = 0;
+                    queue[tail++] = next;
+                }
+            }
+            while (head < tail) {
+                int state = queue[head++];
+                int f = fail[state];
+                for (int w = 0; w < words; w++) {
+                    output[state * words + w] |= output[f * words + w];
+                }
+                for (int s = 0; s < a; s++) {
+                    int next = delta[state * a + s];
+                    if (next < 0) {
+                        delta[state * a + s] = delta[f * a + s];
+                    } else {
+                        fail[next] = delta[f * a + s];
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            boolean[] hasOutput = new boolean[states];
+            for (int s = 0; s < states; s++) {
+                for (int w = 0; w < words; w++) {
+                    if (output[s * words + w] != 0) {
+                        hasOutput[s] = true;
+                        break;
+                    }
+                }
+            }
+            return new KeywordAutomaton(a, asciiIndex, otherIndex,
+                    Arrays.copyOf(delta, states * a),
+                    Arrays.copyOf(output, states * words),
+                    hasOutput, words);
+        }
+    }
+}
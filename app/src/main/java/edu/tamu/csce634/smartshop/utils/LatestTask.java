@@ -0,0 +1,120 @@
+package edu.tamu.csce634.smartshop.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * A "latest request wins" lane on top of a shared executor.
+ *
+ * - Work submitted to one LatestTask runs serially, one job at a time, so the job may
+ *   use state that is not thread-safe as long as only this lane touches it.
+ * - A job that has not started yet is dropped when a newer one is submitted.
+ * - A job that is already running finishes, but its result is only delivered if no
+ *   newer job was submitted (and {@link #cancel()} was not called) in the meantime.
+ *
+ * Jobs that must never be skipped should commit their own results inside the work
+ * instead of relying on the result callback.
+ *
+ * If the executor rejects the lane (pool and queue full), the lane moves to
+ * {@link AppExecutors#overflow()}, so a submission is never lost and never runs on the
+ * submitting (usually UI) thread.
+ */
+public class LatestTask<T> {
+
+    private final Executor executor;
+    private final Object lock = new Object();
+
+    private int generation = 0;
+    private Runnable pending;
+    private boolean draining = false;
+
+    public LatestTask(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Runs {@code work} in the background and hands the result to {@code onResult} on the
+     * worker thread (use LiveData.postValue from there).
+     */
+    public void submit(Callable<T> work, Consumer<T> onResult) {
+        submit(work, null, onResult);
+    }
+
+    /**
+     * Runs {@code work} in the background and hands the result to {@code onResult} on
+     * {@code deliverOn} (e.g. {@link AppExecutors#mainThread()}); null delivers on the
+     * worker thread. Superseded results are dropped on both sides of the hand-off.
+     */
+    public void submit(Callable<T> work, Executor deliverOn, Consumer<T> onResult) {
+        synchronized (lock) {
+            final int id = ++generation;
+            pending = () -> runJob(id, work, deliverOn, onResult);
+            if (draining) return;
+            draining = true;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Pool saturated: hand the lane to the overflow thread rather than leave the job
+            // waiting for a submit() that may never come
+            AppExecutors.overflow().execute(this::drain);
+        }
+    }
+
+    /**
+     * Drops the pending job and discards the result of the running one.
+     */
+    public void cancel() {
+        synchronized (lock) {
+            generation++;
+            pending = null;
+        }
+    }
+
+    /**
+     * True while {@code id} is the most recent submission.
+     */
+    private boolean isCurrent(int id) {
+        synchronized (lock) {
+            return id == generation;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable next;
+            synchronized (lock) {
+                next = pending;
+                pending = null;
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            next.run();
+        }
+    }
+
+    private void runJob(int id, Callable<T> work, Executor deliverOn, Consumer<T> onResult) {
+        if (!isCurrent(id)) return;
+
+        T result;
+        try {
+            result = work.call();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+
+        if (onResult == null || !isCurrent(id)) return;
+        if (deliverOn == null) {
+            onResult.accept(result);
+        } else {
+            deliverOn.execute(() -> {
+                if (isCurrent(id)) onResult.accept(result);
+            });
+        }
+    }
+}
@@ -1,138 +1,167 @@
 package edu.tamu.csce634.smartshop.utils;
 
 import android.content.Context;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import edu.tamu.csce634.smartshop.R;
+import edu.tamu.csce634.smartshop.data.PresetCatalog;
+import edu.tamu.csce634.smartshop.data.PresetRepository;
 import edu.tamu.csce634.smartshop.models.ShoppingItem;
 import edu.tamu.csce634.smartshop.models.world.Aisle;
 import edu.tamu.csce634.smartshop.models.world.ItemZone;
 import edu.tamu.csce634.smartshop.models.world.SupermarketLayout;
+import edu.tamu.csce634.smartshop.data.StoreLayoutRegistry;
 
 /**
  * The core engine for locating items within the supermarket layout.
- * It correctly reads category information from preset_items.json and finds the location
- * in the supermarket_layout.json world model.
+ *
+ * A single process-wide instance is built lazily from the store's layout (through
+ * StoreLayoutRegistry) and the preset catalog. Everything is resolved up front into two tables:
+ * - category -> (x, y) center point, stored in primitive arrays
+ * - ingredientId -> category index
+ * so locating an item is a single hash lookup. The instance is rebuilt only when the
+ * requested store resolves to a different layout (stores without their own layout share
+ * the bundled one, and so share one engine) or {@link #invalidate()} is called.
  */
 public class LocationEngine {
 
-    private final SupermarketLayout supermarketLayout;
-    private final Map<String, String> ingredientToCategoryMap; // Map<IngredientId, Category>
+    private static final Object LOCK = new Object();
+    private static volatile LocationEngine instance;
 
-    public LocationEngine(Context context) {
-        this.supermarketLayout = loadSupermarketLayout(context);
-        this.ingredientToCategoryMap = createIngredientCategoryMap(context);
-    }
+    private final StoreLayoutRegistry.StoreLayout store;   // layout this engine was built from
+
+    // category index -> center point
+    private final float[] categoryX;
+    private final float[] categoryY;
+    private final Map<String, Integer> categoryIndex;      // category -> index
+    private final Map<String, Integer> ingredientCategory; // ingredientId -> category index
 
     /**
-     * The main public method. It populates coordinateX and coordinateY for a list of ShoppingItems.
+     * Returns the shared engine for the store selected in the user's profile.
      */
-    public void calculateCoordinatesForList(List<ShoppingItem> shoppingList) {
-        if (supermarketLayout == null || ingredientToCategoryMap.isEmpty()) {
-            return; // Engine not initialized correctly
-        }
-
-        for (ShoppingItem item : shoppingList) {
-            // 1. Get the category for this ingredientId
-            String category = ingredientToCategoryMap.get(item.ingredientId);
-            if (category == null) {
-                continue; // Cannot find category for this item
-            }
+    public static LocationEngine getInstance(Context context) {
+        return getInstance(context,
+                StoreLayoutRegistry.getInstance(context).getPreferredStoreId());
+    }
 
-            // 2. Find the location for this category in our world model
-            PointF location = findLocationForCategory(category);
-            if (location != null) {
-                item.coordinateX = location.x;
-                item.coordinateY = location.y;
+    /**
+     * Returns the shared engine for the given store, rebuilding it if the cached one
+     * was built from a different layout. May load the layout; call off the UI thread.
+     */
+    public static LocationEngine getInstance(Context context, String storeId) {
+        // Registry lookups are cached, and every store id resolving to the same layout
+        // gets the same StoreLayout object, so identity tells whether a rebuild is needed
+        StoreLayoutRegistry.StoreLayout store = StoreLayoutRegistry.getInstance(context).get(storeId);
+        LocationEngine engine = instance;
+        if (engine != null && engine.store == store) return engine;
+
+        synchronized (LOCK) {
+            if (instance == null || instance.store != store) {
+                instance = new LocationEngine(context.getApplicationContext(), store);
             }
+            return instance;
         }
     }
 
     /**
-     * Finds the absolute center coordinate for a given category by searching the world model.
+     * Drops the cached engine so the next getInstance() call rebuilds it
+     * (e.g. after the layout or preset data has been replaced).
      */
-    private PointF findLocationForCategory(String category) {
-        if (supermarketLayout == null || supermarketLayout.aisles == null) return null;
+    public static void invalidate() {
+        instance = null;
+    }
+
+    private LocationEngine(Context context, StoreLayoutRegistry.StoreLayout store) {
+        this.store = store;
 
-        for (Aisle aisle : supermarketLayout.aisles) {
-            if (aisle.itemZones == null) continue;
+        SupermarketLayout layout = store != null ? store.layout : null;
 
-            for (ItemZone zone : aisle.itemZones) {
-                if (category.equals(zone.category)) {
-                    // Category found! Calculate its center point within the aisle.
+        // 1. Resolve every category zone to its center point once
+        Map<String, Integer> categories = new HashMap<>();
+        float[] xs = new float[8];
+        float[] ys = new float[8];
+        if (layout != null && layout.aisles != null) {
+            for (Aisle aisle : layout.aisles) {
+                if (aisle.itemZones == null) continue;
+
+                for (ItemZone zone : aisle.itemZones) {
+                    // The first zone declared for a category wins
+                    if (zone.category == null || categories.containsKey(zone.category)) continue;
+
+                    int idx = categories.size();
+                    if (idx == xs.length) {
+                        xs = Arrays.copyOf(xs, idx * 2);
+                        ys = Arrays.copyOf(ys, idx * 2);
+                    }
                     float zoneCenterInAisle = (zone.start + zone.end) / 2.0f;
 
                     // This calculation assumes a vertically oriented aisle for simplicity.
-                    float absoluteX = aisle.x + (aisle.width / 2.0f);
-                    float absoluteY = aisle.y + (aisle.height * zoneCenterInAisle);
-
-                    return new PointF(absoluteX, absoluteY);
+                    xs[idx] = aisle.x + (aisle.width / 2.0f);
+                    ys[idx] = aisle.y + (aisle.height * zoneCenterInAisle);
+                    categories.put(zone.category, idx);
                 }
             }
         }
-        return null; // Category not found in the supermarket_layout.json
-    }
+        this.categoryIndex = categories;
+        this.categoryX = xs;
+        this.categoryY = ys;
 
-    // --- Helper methods for loading data ---
-
-    private SupermarketLayout loadSupermarketLayout(Context context) {
-        try (InputStream is = context.getResources().openRawResource(R.raw.supermarket_layout)) {
-            return new Gson().fromJson(new InputStreamReader(is, StandardCharsets.UTF_8), SupermarketLayout.class);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+        // 2. Map every preset ingredient straight to its category index
+        this.ingredientCategory = createIngredientCategoryIndex(context, categories);
     }
 
     /**
-     * THIS IS THE CORE LOGIC: Read from preset_items.json to create the
-     * IngredientID -> Category mapping.
+     * The main public method. It populates coordinateX and coordinateY for a list of ShoppingItems.
      */
-    private Map<String, String> createIngredientCategoryMap(Context context) {
-        Map<String, String> map = new HashMap<>();
-        try (InputStream is = context.getResources().openRawResource(R.raw.preset_items)) {
-            // preset_items.json is a JSON object with a key "items" which is a list.
-            // We need a wrapper class to parse this structure.
-            PresetItemsWrapper wrapper = new Gson().fromJson(new InputStreamReader(is, StandardCharsets.UTF_8), PresetItemsWrapper.class);
-
-            if (wrapper != null && wrapper.items != null) {
-                for (ShoppingItem presetItem : wrapper.items) {
-                    if (presetItem.ingredientId != null && presetItem.category != null) {
-                        map.put(presetItem.ingredientId, presetItem.category);
-                    }
-                }
+    public void calculateCoordinatesForList(List<ShoppingItem> shoppingList) {
+        if (ingredientCategory.isEmpty()) {
+            return; // Engine not initialized correctly
+        }
+
+        for (ShoppingItem item : shoppingList) {
+            if (item.ingredientId == null) continue;
+
+            Integer idx = ingredientCategory.get(item.ingredientId);
+            if (idx == null) {
+                continue; // Cannot find a located category for this item
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            item.coordinateX = categoryX[idx];
+            item.coordinateY = categoryY[idx];
         }
-        return map;
     }
 
     /**
-     * Inner wrapper class to help Gson parse the root object of preset_items.json.
+     * Returns {x, y} for a category, or null if the layout has no zone for it.
      */
-    private static class PresetItemsWrapper {
-        List<ShoppingItem> items;
+    public float[] getLocationForCategory(String category) {
+        Integer idx = category == null ? null : categoryIndex.get(category);
+        if (idx == null) return null;
+        return new float[]{categoryX[idx], categoryY[idx]};
     }
 
+    // --- Helper methods for loading data ---
+
     /**
-     * A simple inner PointF class to hold coordinate data.
+     * Build the IngredientID -> category index mapping from the preset catalog
+     * (already parsed and cached by PresetRepository, so no JSON is read here).
      */
-    private static class PointF {
-        float x;
-        float y;
-
-        PointF(float x, float y) {
-            this.x = x;
-            this.y = y;
+    private static Map<String, Integer> createIngredientCategoryIndex(Context context,
+                                                                     Map<String, Integer> categories) {
+        Map<String, Integer> map = new HashMap<>();
+        try {
+            PresetCatalog catalog = new PresetRepository(context).getCatalog();
+            for (PresetCatalog.Entry entry : catalog.getEntries()) {
+                if (entry.ingredientId == null || entry.category == null) continue;
+
+                Integer idx = categories.get(entry.category);
+                if (idx != null) {
+                    map.put(entry.ingredientId, idx);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
         }
+        return map;
     }
 }
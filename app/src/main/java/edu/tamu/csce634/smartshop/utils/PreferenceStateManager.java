@@ -1,20 +1,23 @@
 package edu.tamu.csce634.smartshop.utils;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
-import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
 
+import edu.tamu.csce634.smartshop.data.WriteBehindStore;
+
 /**
  * 偏好模式状态管理器
  * 负责保存和恢复偏好模式下的购物列表状态
  *
  * Phase 5 实现
+ *
+ * 持久化走 WriteBehindStore：记录一条解决方案 / 替换关系只写这一项的日志，
+ * 不再每次把整张表序列化后写 SharedPreferences
  */
 public class PreferenceStateManager {
 
@@ -24,8 +27,11 @@ public class PreferenceStateManager {
     private static final String KEY_RESOLUTIONS = "resolution_actions";
     private static final String KEY_SUBSTITUTIONS = "substitution_map";
 
-    private final SharedPreferences prefs;
-    private final Gson gson;
+    private static final Type QUANTITIES_TYPE = new TypeToken<Map<String, Integer>>(){}.getType();
+    private static final Type RESOLUTIONS_TYPE = new TypeToken<Map<String, ResolutionRecord>>(){}.getType();
+    private static final Type SUBSTITUTIONS_TYPE = new TypeToken<Map<String, String>>(){}.getType();
+
+    private final WriteBehindStore store;
 
     /**
      * 冲突解决类型
@@ -56,8 +62,7 @@ public class PreferenceStateManager {
     }
 
     public PreferenceStateManager(Context context) {
-        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.gson = new Gson();
+        this.store = WriteBehindStore.get(context, PREFS_NAME);
     }
 
     // ========== 数量管理 ==========
@@ -66,16 +71,14 @@ public class PreferenceStateManager {
      * 保存默认模式的数量快照
      */
     public void saveDefaultQuantities(Map<String, Integer> quantities) {
-        String json = gson.toJson(quantities);
-        prefs.edit().putString(KEY_DEFAULT_QUANTITIES, json).apply();
+        store.put(KEY_DEFAULT_QUANTITIES, quantities);
     }
 
     /**
      * 保存偏好模式的数量快照
      */
     public void savePreferenceQuantities(Map<String, Integer> quantities) {
-        String json = gson.toJson(quantities);
-        prefs.edit().putString(KEY_PREFERENCE_QUANTITIES, json).apply();
+        store.put(KEY_PREFERENCE_QUANTITIES, quantities);
     }
 
     /**
@@ -93,18 +96,8 @@ public class PreferenceStateManager {
     }
 
     private Map<String, Integer> loadQuantitiesFromKey(String key) {
-        String json = prefs.getString(key, null);
-        if (json == null) {
-            return new HashMap<>();
-        }
-
-        try {
-            Type type = new TypeToken<Map<String, Integer>>(){}.getType();
-            Map<String, Integer> result = gson.fromJson(json, type);
-            return result != null ? result : new HashMap<>();
-        } catch (Exception e) {
-            return new HashMap<>();
-        }
+        Map<String, Integer> result = store.get(key, QUANTITIES_TYPE);
+        return result != null ? result : new HashMap<>();
     }
 
     // ========== 冲突解决管理 ==========
@@ -115,16 +108,21 @@ public class PreferenceStateManager {
     public void recordResolution(String ingredientId, ResolutionType type,
                                  String substituteId, String substituteName,
                                  int originalQuantity, double ratio) {
-        Map<String, ResolutionRecord> resolutions = loadResolutions();
-
         ResolutionRecord record = new ResolutionRecord(ingredientId, type);
         record.substituteId = substituteId;
         record.substituteName = substituteName;
         record.originalQuantity = originalQuantity;
         record.substitutionRatio = ratio;
 
-        resolutions.put(ingredientId, record);
-        saveResolutions(resolutions);
+        // 只写这一条记录
+        store.putEntry(KEY_RESOLUTIONS, ingredientId, record);
+    }
+
+    /**
+     * 删除某个食材的解决方案（冲突被重新激活时调用）
+     */
+    public void removeResolution(String ingredientId) {
+        store.removeEntry(KEY_RESOLUTIONS, ingredientId);
     }
 
     /**
@@ -139,30 +137,15 @@ public class PreferenceStateManager {
      * 获取所有解决方案
      */
     public Map<String, ResolutionRecord> loadResolutions() {
-        String json = prefs.getString(KEY_RESOLUTIONS, null);
-        if (json == null) {
-            return new HashMap<>();
-        }
-
-        try {
-            Type type = new TypeToken<Map<String, ResolutionRecord>>(){}.getType();
-            Map<String, ResolutionRecord> result = gson.fromJson(json, type);
-            return result != null ? result : new HashMap<>();
-        } catch (Exception e) {
-            return new HashMap<>();
-        }
-    }
-
-    private void saveResolutions(Map<String, ResolutionRecord> resolutions) {
-        String json = gson.toJson(resolutions);
-        prefs.edit().putString(KEY_RESOLUTIONS, json).apply();
+        Map<String, ResolutionRecord> result = store.get(KEY_RESOLUTIONS, RESOLUTIONS_TYPE);
+        return result != null ? result : new HashMap<>();
     }
 
     /**
      * 清除所有解决方案（切换回默认模式时调用）
      */
     public void clearResolutions() {
-        prefs.edit().remove(KEY_RESOLUTIONS).apply();
+        store.remove(KEY_RESOLUTIONS);
     }
 
     // ========== 替换关系管理 ==========
@@ -171,9 +154,7 @@ public class PreferenceStateManager {
      * 记录替换关系（原始ID → 替代品ID）
      */
     public void recordSubstitution(String originalId, String substituteId) {
-        Map<String, String> substitutions = loadSubstitutions();
-        substitutions.put(originalId, substituteId);
-        saveSubstitutions(substitutions);
+        store.putEntry(KEY_SUBSTITUTIONS, originalId, substituteId);
     }
 
     /**
@@ -185,29 +166,14 @@ public class PreferenceStateManager {
     }
 
     private Map<String, String> loadSubstitutions() {
-        String json = prefs.getString(KEY_SUBSTITUTIONS, null);
-        if (json == null) {
-            return new HashMap<>();
-        }
-
-        try {
-            Type type = new TypeToken<Map<String, String>>(){}.getType();
-            Map<String, String> result = gson.fromJson(json, type);
-            return result != null ? result : new HashMap<>();
-        } catch (Exception e) {
-            return new HashMap<>();
-        }
-    }
-
-    private void saveSubstitutions(Map<String, String> substitutions) {
-        String json = gson.toJson(substitutions);
-        prefs.edit().putString(KEY_SUBSTITUTIONS, json).apply();
+        Map<String, String> result = store.get(KEY_SUBSTITUTIONS, SUBSTITUTIONS_TYPE);
+        return result != null ? result : new HashMap<>();
     }
 
     /**
      * 清除所有数据（用于测试或重置）
      */
     public void clearAll() {
-        prefs.edit().clear().apply();
+        store.clear();
     }
 }
\ No newline at end of file
@@ -0,0 +1,348 @@
+package edu.tamu.csce634.smartshop.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.tamu.csce634.smartshop.utils.AppExecutors;
+
+/**
+ * WriteBehindStore 的日志重放与落盘类型
+ *
+ * 手写上次没落盘的日志（flushing + journal），打开存储后检查内存值，
+ * 再等 diskIO 把重放结果写进（内存版）SharedPreferences，检查写入的类型
+ */
+public class WriteBehindStoreTest {
+
+    private static final AtomicInteger NEXT_NAME = new AtomicInteger();
+
+    private File dir;
+    private FakePreferences prefs;
+    private Context context;
+    private String name;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("write-behind").toFile();
+        prefs = new FakePreferences();
+        context = new FakeContext(dir, prefs);
+        // 存储实例按文件名在进程内共享，每个用例用新名字
+        name = "test_store_" + NEXT_NAME.incrementAndGet();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void replaysJournalsInOrderAndKeepsNumericTypes() throws Exception {
+        writeJournal(name + ".journal.flushing",
+                "[\"put\",\"count\",7,\"int\"]",
+                "[\"put\",\"big\",9007199254740993,\"long\"]",
+                "[\"put\",\"ratio\",0.1,\"double\"]",
+                "[\"put\",\"scale\",1.5,\"float\"]",
+                "[\"entry\",\"cart\",\"r1\",2]");
+        writeJournal(name + ".journal",
+                "[\"entry\",\"cart\",\"r2\",3]",
+                "[\"remove_entry\",\"cart\",\"r1\"]",
+                "[\"put\",\"legacy_int\",5]",
+                "[\"put\",\"legacy_long\",3000000000]",
+                "[\"put\",\"count\",8,\"int\"]",
+                "[\"put\",\"torn\",1");      // 写到一半崩溃的最后一行
+
+        WriteBehindStore store = WriteBehindStore.get(context, name);
+
+        assertEquals(8, store.getInt("count", 0));
+        assertEquals(Long.valueOf(9007199254740993L), store.get("big", Long.class));
+        assertEquals(Double.valueOf(0.1), store.get("ratio", Double.class));
+        Type cartType = new TypeToken<Map<String, Integer>>() {}.getType();
+        Map<String, Integer> cart = store.get("cart", cartType);
+        assertEquals(1, cart.size());
+        assertEquals(Integer.valueOf(3), cart.get("r2"));
+        assertNull(store.get("torn", Integer.class));
+
+        awaitDiskIO();
+
+        Map<String, ?> written = prefs.getAll();
+        assertEquals(8, written.get("count"));
+        assertEquals(9007199254740993L, written.get("big"));
+        assertEquals("0.1", written.get("ratio"));
+        assertEquals(1.5f, written.get("scale"));
+        assertEquals("{\"r2\":3}", written.get("cart"));
+        // 旧版日志没有类型：按能表示的最小类型
+        assertEquals(5, written.get("legacy_int"));
+        assertEquals(3000000000L, written.get("legacy_long"));
+        assertFalse(written.containsKey("torn"));
+
+        assertFalse(new File(dir, name + ".journal").exists());
+        assertFalse(new File(dir, name + ".journal.flushing").exists());
+    }
+
+    @Test
+    public void typedPutsAreWrittenWithTheirOwnType() throws Exception {
+        WriteBehindStore store = WriteBehindStore.get(context, name);
+        store.putInt("int", 42);
+        store.putLong("long", Long.MAX_VALUE);
+        store.putLong("small_long", 1L);
+        store.putFloat("float", 2f);
+        store.putDouble("double", Math.PI);
+        store.put("boxed_long", 2L);
+        store.put("boxed_double", 0.1);
+        store.put("flag", true);
+        store.put("text", "hello");
+        store.flush();
+        awaitDiskIO();
+
+        Map<String, ?> written = prefs.getAll();
+        assertEquals(42, written.get("int"));
+        assertEquals(Long.MAX_VALUE, written.get("long"));
+        assertEquals(1L, written.get("small_long"));
+        assertEquals(2f, written.get("float"));
+        assertEquals(Double.valueOf(Math.PI), Double.valueOf((String) written.get("double")));
+        assertEquals(2L, written.get("boxed_long"));
+        assertEquals("0.1", written.get("boxed_double"));
+        assertEquals(true, written.get("flag"));
+        assertEquals("hello", written.get("text"));
+
+        assertEquals(Double.valueOf(Math.PI), store.get("double", Double.class));
+        assertFalse(new File(dir, name + ".journal").exists());
+    }
+
+    @Test
+    public void clearInJournalDropsOlderValues() throws Exception {
+        prefs.edit().putString("old", "x").putInt("count", 1).commit();
+        writeJournal(name + ".journal",
+                "[\"put\",\"count\",2,\"int\"]",
+                "[\"clear\"]",
+                "[\"put\",\"after\",3,\"int\"]");
+
+        WriteBehindStore store = WriteBehindStore.get(context, name);
+        assertNull(store.get("old", String.class));
+        assertEquals(-1, store.getInt("count", -1));
+        assertEquals(3, store.getInt("after", 0));
+
+        awaitDiskIO();
+        Map<String, ?> written = prefs.getAll();
+        assertEquals(1, written.size());
+        assertEquals(3, written.get("after"));
+    }
+
+    @Test
+    public void typeIsForgottenWhenKeyIsReplaced() throws Exception {
+        WriteBehindStore store = WriteBehindStore.get(context, name);
+        store.putDouble("value", 0.5);
+        store.put("value", "plain");
+        store.putEntry("table", "a", 1);
+        store.remove("table");
+        store.flush();
+        awaitDiskIO();
+
+        Map<String, ?> written = prefs.getAll();
+        assertEquals("plain", written.get("value"));
+        assertFalse(written.containsKey("table"));
+        assertNull(store.get("table", Object.class));
+    }
+
+    // ========== 工具 ==========
+
+    private void writeJournal(String fileName, String... lines) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            sb.append(lines[i]);
+            if (i < lines.length - 1) sb.append('\n');
+        }
+        Files.write(new File(dir, fileName).toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** diskIO 是单线程按顺序执行的，排一个空任务等它之前的追加 / 落盘做完 */
+    private static void awaitDiskIO() throws Exception {
+        AppExecutors.diskIO().submit(() -> { }).get();
+    }
+
+    private static final class FakeContext extends ContextWrapper {
+        private final File filesDir;
+        private final SharedPreferences prefs;
+
+        FakeContext(File filesDir, SharedPreferences prefs) {
+            super(null);
+            this.filesDir = filesDir;
+            this.prefs = prefs;
+        }
+
+        @Override
+        public Context getApplicationContext() {
+            return this;
+        }
+
+        @Override
+        public File getFilesDir() {
+            return filesDir;
+        }
+
+        @Override
+        public SharedPreferences getSharedPreferences(String name, int mode) {
+            return prefs;
+        }
+    }
+
+    /** 内存版 SharedPreferences：commit 时整体替换，保留写入的 Java 类型 */
+    private static final class FakePreferences implements SharedPreferences {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public synchronized Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public synchronized String getString(String key, String defValue) {
+            Object v = values.get(key);
+            return v instanceof String ? (String) v : defValue;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public synchronized Set<String> getStringSet(String key, Set<String> defValues) {
+            Object v = values.get(key);
+            return v instanceof Set ? (Set<String>) v : defValues;
+        }
+
+        @Override
+        public synchronized int getInt(String key, int defValue) {
+            Object v = values.get(key);
+            return v instanceof Integer ? (Integer) v : defValue;
+        }
+
+        @Override
+        public synchronized long getLong(String key, long defValue) {
+            Object v = values.get(key);
+            return v instanceof Long ? (Long) v : defValue;
+        }
+
+        @Override
+        public synchronized float getFloat(String key, float defValue) {
+            Object v = values.get(key);
+            return v instanceof Float ? (Float) v : defValue;
+        }
+
+        @Override
+        public synchronized boolean getBoolean(String key, boolean defValue) {
+            Object v = values.get(key);
+            return v instanceof Boolean ? (Boolean) v : defValue;
+        }
+
+        @Override
+        public synchronized boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new FakeEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) { }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) { }
+
+        private final class FakeEditor implements Editor {
+            private final Map<String, Object> changes = new HashMap<>();
+            private boolean clear = false;
+
+            @Override
+            public Editor putString(String key, String value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                changes.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                changes.put(key, null);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                synchronized (FakePreferences.this) {
+                    if (clear) values.clear();
+                    for (Map.Entry<String, Object> e : changes.entrySet()) {
+                        if (e.getValue() == null) {
+                            values.remove(e.getKey());
+                        } else {
+                            values.put(e.getKey(), e.getValue());
+                        }
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package edu.tamu.csce634.smartshop.ui.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks Jump Point Search against plain Dijkstra ({@link GridPathfinder#distanceField})
+ * on random obstacle grids, and that the smoothed waypoints see each other.
+ */
+public class GridPathfinderTest {
+
+    // Powers of two, so cell fractions given to blockRect are exact
+    private static final int WIDTH = 32;
+    private static final int HEIGHT = 32;
+
+    @Test
+    public void findPathCostMatchesDijkstra() {
+        Random random = new Random(634);
+        int[] field = new int[WIDTH * HEIGHT];
+        for (int round = 0; round < 200; round++) {
+            GridPathfinder finder = randomGrid(random, random.nextFloat() * 0.4f);
+            if (round % 2 == 0) finder.prepare();
+
+            for (int query = 0; query < 10; query++) {
+                int start = randomOpenCell(finder, random);
+                int end = randomOpenCell(finder, random);
+                if (start < 0 || end < 0) continue;
+
+                finder.distanceField(start, field);
+                int waypoints = finder.findPath(start, end);
+                String where = "round " + round + ", " + start + " -> " + end;
+
+                if (field[end] == GridPathfinder.UNREACHABLE) {
+                    assertEquals(where, 0, waypoints);
+                    assertEquals(where, -1, finder.getPathCost());
+                } else {
+                    assertTrue(where, waypoints > 0);
+                    assertEquals(where, field[end], finder.getPathCost());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void smoothedWaypointsHaveLineOfSight() {
+        Random random = new Random(2024);
+        for (int round = 0; round < 200; round++) {
+            GridPathfinder finder = randomGrid(random, 0.25f);
+            int start = randomOpenCell(finder, random);
+            int end = randomOpenCell(finder, random);
+            if (start < 0 || end < 0) continue;
+
+            int waypoints = finder.findPath(start, end);
+            if (waypoints == 0) continue;
+            String where = "round " + round + ", " + start + " -> " + end;
+
+            assertEquals(where, waypoints, finder.getPathLength());
+            assertEquals(where, start, finder.pathCellAt(0));
+            assertEquals(where, end, finder.pathCellAt(waypoints - 1));
+            for (int i = 1; i < waypoints; i++) {
+                assertTrue(where + ", segment " + i,
+                        finder.lineOfSight(finder.pathCellAt(i - 1), finder.pathCellAt(i)));
+            }
+        }
+    }
+
+    @Test
+    public void lineOfSightIsBlockedByWallAndDiagonalCorner() {
+        GridPathfinder finder = new GridPathfinder(WIDTH, HEIGHT);
+        blockCell(finder, 5, 0);
+        blockCell(finder, 5, 1);
+        blockCell(finder, 5, 2);
+        assertFalse(finder.lineOfSight(finder.cellIndex(2, 1), finder.cellIndex(8, 1)));
+        assertTrue(finder.lineOfSight(finder.cellIndex(2, 4), finder.cellIndex(8, 4)));
+
+        // Touching corners only: the diagonal may not squeeze between them
+        blockCell(finder, 11, 10);
+        blockCell(finder, 10, 11);
+        assertFalse(finder.lineOfSight(finder.cellIndex(10, 10), finder.cellIndex(11, 11)));
+        assertFalse(finder.lineOfSight(finder.cellIndex(9, 9), finder.cellIndex(12, 12)));
+    }
+
+    @Test
+    public void blockedEndpointsMoveToNearestOpenCell() {
+        GridPathfinder finder = new GridPathfinder(WIDTH, HEIGHT);
+        blockCell(finder, 3, 3);
+        int blocked = finder.cellIndex(3, 3);
+        int open = finder.nearestOpenCell(blocked);
+        assertFalse(finder.isBlocked(open));
+
+        int end = finder.cellIndex(20, 20);
+        int[] field = new int[WIDTH * HEIGHT];
+        finder.distanceField(open, field);
+        assertTrue(finder.findPath(blocked, end) > 0);
+        assertEquals(open, finder.pathCellAt(0));
+        assertEquals(field[end], finder.getPathCost());
+    }
+
+    @Test
+    public void workersShareObstaclesAndFindSameCost() {
+        Random random = new Random(7);
+        GridPathfinder finder = randomGrid(random, 0.3f);
+        finder.prepare();
+        GridPathfinder worker = finder.newWorker();
+        for (int query = 0; query < 50; query++) {
+            int start = randomOpenCell(finder, random);
+            int end = randomOpenCell(finder, random);
+            if (start < 0 || end < 0) continue;
+            assertEquals(finder.findPath(start, end), worker.findPath(start, end));
+            assertEquals(finder.getPathCost(), worker.getPathCost());
+        }
+    }
+
+    /** Random short walls (aisle-like bars) plus scattered single cells. */
+    private static GridPathfinder randomGrid(Random random, float density) {
+        GridPathfinder finder = new GridPathfinder(WIDTH, HEIGHT);
+        int walls = (int) (density * 20);
+        for (int i = 0; i < walls; i++) {
+            int x = random.nextInt(WIDTH);
+            int y = random.nextInt(HEIGHT);
+            boolean horizontal = random.nextBoolean();
+            int length = 2 + random.nextInt(10);
+            finder.blockRect((float) x / WIDTH, (float) y / HEIGHT,
+                    (float) (horizontal ? length : 1) / WIDTH,
+                    (float) (horizontal ? 1 : length) / HEIGHT);
+        }
+        int cells = (int) (density * WIDTH * HEIGHT / 2);
+        for (int i = 0; i < cells; i++) {
+            blockCell(finder, random.nextInt(WIDTH), random.nextInt(HEIGHT));
+        }
+        return finder;
+    }
+
+    private static void blockCell(GridPathfinder finder, int x, int y) {
+        finder.blockRect((float) x / WIDTH, (float) y / HEIGHT, 1f / WIDTH, 1f / HEIGHT);
+    }
+
+    private static int randomOpenCell(GridPathfinder finder, Random random) {
+        for (int tries = 0; tries < 100; tries++) {
+            int cell = random.nextInt(WIDTH * HEIGHT);
+            if (!finder.isBlocked(cell)) return cell;
+        }
+        return -1;
+    }
+}
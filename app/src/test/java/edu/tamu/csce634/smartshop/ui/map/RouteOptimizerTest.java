@@ -0,0 +1,158 @@
+package edu.tamu.csce634.smartshop.ui.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks the exact solver against brute force, and local search against the exact solver,
+ * on random symmetric cost matrices (start = node 0, end = node m - 1).
+ */
+public class RouteOptimizerTest {
+
+    @Test
+    public void heldKarpMatchesBruteForce() {
+        Random random = new Random(8);
+        RouteOptimizer exact = new HeldKarpRouteOptimizer();
+        for (int round = 0; round < 200; round++) {
+            int stops = 1 + random.nextInt(7);
+            int[][] cost = randomCost(random, stops);
+
+            int[] order = exact.optimize(cost, 100);
+            assertPermutation(order, stops);
+            assertEquals("round " + round, bruteForce(cost), routeCost(cost, order));
+        }
+    }
+
+    @Test
+    public void localSearchNeverBeatsHeldKarp() {
+        Random random = new Random(634);
+        RouteOptimizer exact = new HeldKarpRouteOptimizer();
+        RouteOptimizer local = new LocalSearchRouteOptimizer();
+        for (int round = 0; round < 100; round++) {
+            int stops = 1 + random.nextInt(RouteOptimizer.EXACT_STOP_LIMIT);
+            int[][] cost = round % 2 == 0 ? randomCost(random, stops) : gridCost(random, stops);
+
+            int[] best = exact.optimize(cost, 100);
+            int[] heuristic = local.optimize(cost, 100);
+            assertPermutation(best, stops);
+            assertPermutation(heuristic, stops);
+            assertTrue("round " + round,
+                    routeCost(cost, best) <= routeCost(cost, heuristic));
+        }
+    }
+
+    @Test
+    public void localSearchHandlesLargeTrips() {
+        Random random = new Random(42);
+        int stops = 60;
+        int[][] cost = gridCost(random, stops);
+        int[] order = new LocalSearchRouteOptimizer().optimize(cost, 2000);
+        assertPermutation(order, stops);
+
+        // With time to converge, no single segment reversal (2-opt move) improves the route
+        int[] path = new int[stops + 2];
+        System.arraycopy(order, 0, path, 1, stops);
+        path[stops + 1] = cost.length - 1;
+        for (int i = 1; i < stops; i++) {
+            for (int j = i + 1; j <= stops; j++) {
+                int delta = cost[path[i - 1]][path[j]] + cost[path[i]][path[j + 1]]
+                        - cost[path[i - 1]][path[i]] - cost[path[j]][path[j + 1]];
+                assertTrue("reversing " + i + ".." + j + " improves by " + -delta, delta >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void emptyAndSingleStopTrips() {
+        for (RouteOptimizer optimizer : new RouteOptimizer[]{
+                new HeldKarpRouteOptimizer(), new LocalSearchRouteOptimizer()}) {
+            assertEquals(0, optimizer.optimize(new int[2][2], 10).length);
+            int[] single = optimizer.optimize(new int[][]{{0, 3, 5}, {3, 0, 2}, {5, 2, 0}}, 10);
+            assertEquals(1, single.length);
+            assertEquals(1, single[0]);
+        }
+    }
+
+    // --- Helpers ---
+
+    /** Random symmetric matrix over stops + 2 nodes. */
+    private static int[][] randomCost(Random random, int stops) {
+        int m = stops + 2;
+        int[][] cost = new int[m][m];
+        for (int i = 0; i < m; i++) {
+            for (int j = i + 1; j < m; j++) {
+                cost[i][j] = cost[j][i] = 1 + random.nextInt(200);
+            }
+        }
+        return cost;
+    }
+
+    /** Octile distances between random points, like walking costs on the store grid. */
+    private static int[][] gridCost(Random random, int stops) {
+        int m = stops + 2;
+        int[] x = new int[m];
+        int[] y = new int[m];
+        for (int i = 0; i < m; i++) {
+            x[i] = random.nextInt(60);
+            y[i] = random.nextInt(40);
+        }
+        int[][] cost = new int[m][m];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < m; j++) {
+                int dx = Math.abs(x[i] - x[j]);
+                int dy = Math.abs(y[i] - y[j]);
+                cost[i][j] = GridPathfinder.STRAIGHT_COST * Math.abs(dx - dy)
+                        + GridPathfinder.DIAGONAL_COST * Math.min(dx, dy);
+            }
+        }
+        return cost;
+    }
+
+    private static int routeCost(int[][] cost, int[] order) {
+        int total = 0;
+        int prev = 0;
+        for (int stop : order) {
+            total += cost[prev][stop];
+            prev = stop;
+        }
+        return total + cost[prev][cost.length - 1];
+    }
+
+    private static int bruteForce(int[][] cost) {
+        int stops = cost.length - 2;
+        int[] order = new int[stops];
+        for (int i = 0; i < stops; i++) order[i] = i + 1;
+        return permute(cost, order, 0);
+    }
+
+    private static int permute(int[][] cost, int[] order, int k) {
+        if (k == order.length) return routeCost(cost, order);
+        int best = Integer.MAX_VALUE;
+        for (int i = k; i < order.length; i++) {
+            swap(order, k, i);
+            best = Math.min(best, permute(cost, order, k + 1));
+            swap(order, k, i);
+        }
+        return best;
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private static void assertPermutation(int[] order, int stops) {
+        assertEquals(stops, order.length);
+        boolean[] seen = new boolean[stops + 1];
+        for (int stop : order) {
+            assertTrue("stop out of range: " + stop, stop >= 1 && stop <= stops);
+            assertTrue("stop repeated: " + stop, !seen[stop]);
+            seen[stop] = true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package edu.tamu.csce634.smartshop.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * KeywordAutomaton 与旧版逐条 toLowerCase().contains() 的结果对比
+ */
+public class KeywordAutomatonTest {
+
+    // 小字母表，随机关键词之间容易互为前缀 / 后缀，能覆盖失败链接和输出合并
+    private static final String ALPHABET = "abcAB é";
+
+    @Test
+    public void randomKeywordsMatchContains() {
+        Random random = new Random(11);
+        for (int round = 0; round < 300; round++) {
+            int ruleCount = 1 + random.nextInt(130); // 超过 64 条，覆盖多个 long
+            List<String> keywords = new ArrayList<>();
+            List<Integer> rules = new ArrayList<>();
+            KeywordAutomaton.Builder builder = new KeywordAutomaton.Builder();
+            int keywordCount = 1 + random.nextInt(40);
+            for (int k = 0; k < keywordCount; k++) {
+                String keyword = randomText(random, 1 + random.nextInt(4));
+                int rule = random.nextInt(ruleCount);
+                keywords.add(keyword);
+                rules.add(rule);
+                builder.add(keyword, rule);
+            }
+            KeywordAutomaton automaton = builder.build();
+
+            for (int t = 0; t < 20; t++) {
+                String text = randomText(random, random.nextInt(30));
+                long[] mask = new long[automaton.maskWords()];
+                automaton.scan(text, mask);
+                assertMatchesBaseline(text, keywords, rules, ruleCount, mask);
+            }
+        }
+    }
+
+    @Test
+    public void conflictKeywordsMatchContains() {
+        String[] keywords = {"egg", "milk", "cheese", "butter", "cream", "chicken", "fish",
+                "seafood", "flour", "pasta", "almond", "peanut", "soy", "tofu", "Sesame"};
+        String[] names = {"Eggplant", "Buttermilk", "Peanut Butter", "Sesame oil", "SOY SAUCE",
+                "Shellfish stock", "Cream cheese", "Gluten-free pasta", "Almond flour",
+                "Tofu", "Rice", "", "chickpeas", "Catfish fillet"};
+
+        List<String> keywordList = new ArrayList<>();
+        List<Integer> rules = new ArrayList<>();
+        KeywordAutomaton.Builder builder = new KeywordAutomaton.Builder();
+        for (int i = 0; i < keywords.length; i++) {
+            keywordList.add(keywords[i]);
+            rules.add(i);
+            builder.add(keywords[i], i);
+        }
+        KeywordAutomaton automaton = builder.build();
+
+        for (String name : names) {
+            long[] mask = new long[automaton.maskWords()];
+            automaton.scan(name, mask);
+            assertMatchesBaseline(name, keywordList, rules, keywords.length, mask);
+        }
+    }
+
+    @Test
+    public void emptyKeywordMatchesEverything() {
+        KeywordAutomaton automaton = new KeywordAutomaton.Builder()
+                .add("", 0)
+                .add("milk", 1)
+                .build();
+        long[] mask = new long[automaton.maskWords()];
+        automaton.scan("bread", mask);
+        assertTrue(KeywordAutomaton.test(mask, 0));
+        assertFalse(KeywordAutomaton.test(mask, 1));
+    }
+
+    /** 旧版逻辑：规则 r 命中 = 它的任一关键词被小写后的文本包含 */
+    private static void assertMatchesBaseline(String text, List<String> keywords, List<Integer> rules,
+                                              int ruleCount, long[] mask) {
+        String lower = text.toLowerCase();
+        boolean[] expected = new boolean[ruleCount];
+        for (int k = 0; k < keywords.size(); k++) {
+            if (lower.contains(keywords.get(k).toLowerCase())) {
+                expected[rules.get(k)] = true;
+            }
+        }
+        for (int r = 0; r < ruleCount; r++) {
+            // 没有关键词的高位规则可能不在位图范围内，视为未命中
+            boolean actual = (r >>> 6) < mask.length && KeywordAutomaton.test(mask, r);
+            assertEquals("text \"" + text + "\", rule " + r, expected[r], actual);
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}